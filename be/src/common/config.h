@@ -163,6 +163,9 @@ namespace config {
     CONF_Int32(port, "20001");
     // default thrift client connect timeout(in seconds)
     CONF_Int32(thrift_connect_timeout_seconds, "3");
+    // type of FE thrift server, must be the same as thrift_server_type of FE.
+    // THREADED FE server requires framed transport.
+    CONF_String(fe_thrift_server_type, "THREAD_POOL");
     // max row count number for single scan range
     CONF_Int32(palo_scan_range_row_count, "524288");
     // size of scanner queue between scanner thread and compute thread
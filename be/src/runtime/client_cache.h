@@ -193,7 +193,13 @@ class ClientCache {
 public:
     typedef ThriftClient<T> Client;
 
-    ClientCache() : _client_cache_helper() {
+    ClientCache() : ClientCache(ThriftServer::THREAD_POOL) {
+    }
+
+    // 'server_type' is the type of the servers connected by this cache.
+    // Framed transport is used for NON_BLOCKING servers.
+    explicit ClientCache(ThriftServer::ServerType server_type) :
+            _client_cache_helper(), _server_type(server_type) {
         _client_factory =
             boost::bind<ThriftClientImpl*>(
                 boost::mem_fn(&ClientCache::make_client), this, _1, _2);
@@ -235,6 +241,8 @@ private:
     // Function pointer, bound to make_client, which produces clients when the cache is empty
     ClientCacheHelper::client_factory _client_factory;
 
+    ThriftServer::ServerType _server_type;
+
     // Obtains a pointer to a Thrift interface object (of type T),
     // backed by a live transport which is already open. Returns
     // Status::OK unless there was an error opening the transport.
@@ -259,7 +267,7 @@ private:
 
     // Factory method to produce a new ThriftClient<T> for the wrapped cache
     ThriftClientImpl* make_client(const TNetworkAddress& hostport, void** client_key) {
-        Client* client = new Client(hostport.hostname, hostport.port);
+        Client* client = new Client(hostport.hostname, hostport.port, _server_type);
         *client_key = reinterpret_cast<void*>(client->iface());
         return client;
     }
@@ -23,6 +23,7 @@
 #include <iostream>
 #include <boost/shared_ptr.hpp>
 #include <boost/thread/thread.hpp>
+#include <boost/unordered_map.hpp>
 #include <thrift/protocol/TDebugProtocol.h>
 
 #include "common/logging.h"
@@ -39,6 +40,7 @@
 #include "util/network_util.h"
 #include "util/thrift_client.h"
 #include "util/thrift_util.h"
+#include "util/uid_util.h"
 
 #include "gen_cpp/Types_types.h"
 #include "gen_cpp/PaloInternalService_types.h"
@@ -390,7 +392,27 @@ DataStreamSender::DataStreamSender(
     DCHECK(sink.output_partition.type == TPartitionType::UNPARTITIONED
             || sink.output_partition.type == TPartitionType::HASH_PARTITIONED
             || sink.output_partition.type == TPartitionType::RANDOM
-            || sink.output_partition.type == TPartitionType::RANGE_PARTITIONED);
+            || sink.output_partition.type == TPartitionType::RANGE_PARTITIONED
+            || sink.output_partition.type == TPartitionType::BUCKET_SHUFFLE_HASH_PARTITIONED);
+    if (_part_type == TPartitionType::BUCKET_SHUFFLE_HASH_PARTITIONED) {
+        // destinations[i] receives bucket i, one instance may receive many buckets,
+        // but it must have only one channel, or it will receive more eos than senders.
+        boost::unordered_map<TUniqueId, int> instance_to_channel;
+        for (int i = 0; i < destinations.size(); ++i) {
+            const TUniqueId& instance_id = destinations[i].fragment_instance_id;
+            auto it = instance_to_channel.find(instance_id);
+            if (it == instance_to_channel.end()) {
+                instance_to_channel[instance_id] = _channels.size();
+                _bucket_channel_idx.push_back(_channels.size());
+                _channels.push_back(
+                    new Channel(this, row_desc, destinations[i].server, instance_id,
+                                sink.dest_node_id, per_channel_buffer_size));
+            } else {
+                _bucket_channel_idx.push_back(it->second);
+            }
+        }
+        return;
+    }
     // TODO: use something like google3's linked_ptr here (scoped_ptr isn't copyable)
     for (int i = 0; i < destinations.size(); ++i) {
         _channels.push_back(
@@ -409,7 +431,8 @@ static bool compare_part_use_range(const PartitionInfo* v1, const PartitionInfo*
 Status DataStreamSender::init(const TDataSink& tsink) {
     RETURN_IF_ERROR(DataSink::init(tsink));
     const TDataStreamSink& t_stream_sink = tsink.stream_sink;
-    if (_part_type == TPartitionType::HASH_PARTITIONED) {
+    if (_part_type == TPartitionType::HASH_PARTITIONED
+            || _part_type == TPartitionType::BUCKET_SHUFFLE_HASH_PARTITIONED) {
         RETURN_IF_ERROR(Expr::create_expr_trees(
                 _pool, t_stream_sink.output_partition.partition_exprs, &_partition_expr_ctxs));
     } else if (_part_type == TPartitionType::RANGE_PARTITIONED) {
@@ -451,7 +474,8 @@ Status DataStreamSender::prepare(RuntimeState* state) {
         // Randomize the order we open/transmit to channels to avoid thundering herd problems.
         srand(reinterpret_cast<uint64_t>(this));
         random_shuffle(_channels.begin(), _channels.end());
-    } else if (_part_type == TPartitionType::HASH_PARTITIONED) {
+    } else if (_part_type == TPartitionType::HASH_PARTITIONED
+            || _part_type == TPartitionType::BUCKET_SHUFFLE_HASH_PARTITIONED) {
         RETURN_IF_ERROR(Expr::prepare(
                 _partition_expr_ctxs, state, _row_desc, _expr_mem_tracker.get()));
     } else {
@@ -546,6 +570,26 @@ Status DataStreamSender::send(RuntimeState* state, RowBatch* batch) {
             }
             RETURN_IF_ERROR(_channels[hash_val % num_channels]->add_row(row));
         }
+    } else if (_part_type == TPartitionType::BUCKET_SHUFFLE_HASH_PARTITIONED) {
+        // send each row to the instance which scans its bucket,
+        // the bucket is computed in the same way as loading data into olap table
+        int num_buckets = _bucket_channel_idx.size();
+        for (int i = 0; i < batch->num_rows(); ++i) {
+            TupleRow* row = batch->get_row(i);
+            uint32_t hash_val = 0;
+            for (auto ctx : _partition_expr_ctxs) {
+                void* partition_val = ctx->get_value(row);
+                if (partition_val != NULL) {
+                    hash_val = RawValue::zlib_crc32(partition_val, ctx->root()->type(), hash_val);
+                } else {
+                    //NULL is treat as 0 when hash
+                    static const int INT_VALUE = 0;
+                    static const TypeDescriptor INT_TYPE(TYPE_INT);
+                    hash_val = RawValue::zlib_crc32(&INT_VALUE, INT_TYPE, hash_val);
+                }
+            }
+            RETURN_IF_ERROR(_channels[_bucket_channel_idx[hash_val % num_buckets]]->add_row(row));
+        }
     } else {
         // Range partition
         int num_channels = _channels.size();
@@ -147,6 +147,10 @@ private:
 
     std::vector<Channel*> _channels;
 
+    // for BUCKET_SHUFFLE_HASH_PARTITIONED: index of channel of each bucket,
+    // buckets executed by the same fragment instance share one channel
+    std::vector<int> _bucket_channel_idx;
+
     // map from range value to partition_id
     // sorted in ascending orderi by range for binary search
     std::vector<PartitionInfo*> _partition_infos;
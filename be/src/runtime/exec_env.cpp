@@ -24,6 +24,7 @@
 
 #include <boost/algorithm/string.hpp>
 
+#include "common/config.h"
 #include "common/logging.h"
 #include "runtime/broker_mgr.h"
 #include "runtime/client_cache.h"
@@ -70,7 +71,9 @@ ExecEnv::ExecEnv() :
         _stream_mgr(new DataStreamMgr()),
         _result_mgr(new ResultBufferMgr()),
         _client_cache(new BackendServiceClientCache()),
-        _frontend_client_cache(new FrontendServiceClientCache()),
+        _frontend_client_cache(new FrontendServiceClientCache(
+                boost::iequals(config::fe_thrift_server_type, "THREADED")
+                        ? ThriftServer::NON_BLOCKING : ThriftServer::THREAD_POOL)),
         _broker_client_cache(new BrokerServiceClientCache()),
         _webserver(new Webserver()),
         _web_page_handler(new WebPageHandler(_webserver.get())),
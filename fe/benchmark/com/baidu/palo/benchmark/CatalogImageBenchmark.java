@@ -0,0 +1,91 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.benchmark;
+
+import com.baidu.palo.catalog.Catalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of saving and loading the database section of image, which dominates the image size.
+ * Image is written to and read from memory, so that disk is not measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogImageBenchmark {
+    @Param({"10", "100"})
+    public int tableNum;
+
+    @Param({"1000"})
+    public int tabletNumPerTable;
+
+    private Catalog catalog;
+    // image is loaded into another catalog, as checkpoint does
+    private Catalog loadCatalog;
+    private byte[] image;
+
+    @Setup
+    public void setup() throws Exception {
+        SyntheticCatalog syntheticCatalog = new SyntheticCatalog().init();
+        for (int i = 0; i < tableNum; i++) {
+            syntheticCatalog.createTable("t" + i, tabletNumPerTable);
+        }
+        catalog = syntheticCatalog.getCatalog();
+        image = save();
+        loadCatalog = Catalog.getCheckpoint();
+    }
+
+    private byte[] save() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image == null ? 1024 * 1024 : image.length);
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        catalog.saveDb(dos, 0);
+        dos.flush();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] saveImage() throws Exception {
+        return save();
+    }
+
+    @Benchmark
+    public long loadImage() throws Exception {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(image)));
+        return loadCatalog.loadDb(dis, 0);
+    }
+}
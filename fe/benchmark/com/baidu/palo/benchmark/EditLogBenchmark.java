@@ -0,0 +1,86 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.benchmark;
+
+import com.baidu.palo.common.Config;
+import com.baidu.palo.persist.EditLog;
+import com.baidu.palo.persist.ReplicaPersistInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Throughput of writing edit log to the local journal.
+ * Config.meta_dir must be set before the catalog class is loaded, because image dir is derived from it,
+ * so nothing in this benchmark touches the catalog before setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditLogBenchmark {
+    private File metaDir;
+    private EditLog editLog;
+    private ReplicaPersistInfo info;
+
+    @Setup
+    public void setup() throws Exception {
+        metaDir = Files.createTempDirectory("palo_bench_meta").toFile();
+        new File(metaDir, "image").mkdirs();
+        Config.meta_dir = metaDir.getAbsolutePath();
+        Config.edit_log_type = "local";
+        // do not roll edit log during benchmark
+        Config.edit_log_roll_num = Integer.MAX_VALUE;
+
+        editLog = new EditLog();
+        editLog.open();
+        info = ReplicaPersistInfo.createForAdd(10001L, 10002L, 10003L, 10004L, 10005L, 10006L, 10007L,
+                2L, 0L, 1024L * 1024L, 10000L);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        editLog.close();
+        File[] files = new File(metaDir, "image").listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        new File(metaDir, "image").delete();
+        metaDir.delete();
+    }
+
+    @Benchmark
+    public void logAddReplica() {
+        editLog.logAddReplica(info);
+    }
+}
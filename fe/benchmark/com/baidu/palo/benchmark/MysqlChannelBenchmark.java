@@ -0,0 +1,161 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.benchmark;
+
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.mysql.MysqlChannel;
+import com.baidu.palo.mysql.MysqlSerializer;
+
+import com.google.common.collect.Lists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of serializing and sending a result set to mysql client, as StmtExecutor does.
+ * The client is a loopback connection whose data is drained and discarded by a thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MysqlChannelBenchmark {
+    @Param({"1000"})
+    public int rowNum;
+
+    @Param({"10"})
+    public int columnNum;
+
+    private ServerSocketChannel serverChannel;
+    private SocketChannel clientChannel;
+    private SocketChannel channel;
+    private Thread drainThread;
+
+    private MysqlChannel mysqlChannel;
+    private MysqlSerializer serializer;
+    private List<List<String>> rows;
+    // rows serialized by backend, which are sent as they are
+    private List<ByteBuffer> rowBuffers;
+
+    @Setup
+    public void setup() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+        clientChannel = SocketChannel.open(serverChannel.getLocalAddress());
+        channel = serverChannel.accept();
+        drainThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+                try {
+                    while (clientChannel.read(buffer) >= 0) {
+                        buffer.clear();
+                    }
+                } catch (IOException e) {
+                    // channel is closed
+                }
+            }
+        }, "mysql-client-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+
+        mysqlChannel = new MysqlChannel(channel);
+        serializer = MysqlSerializer.newInstance();
+
+        rows = Lists.newArrayList();
+        rowBuffers = Lists.newArrayList();
+        for (int i = 0; i < rowNum; i++) {
+            List<String> row = Lists.newArrayList();
+            MysqlSerializer rowSerializer = MysqlSerializer.newInstance();
+            for (int j = 0; j < columnNum; j++) {
+                String item = (j % 2 == 0) ? String.valueOf(i * 1000L + j) : "value_" + i + "_" + j;
+                row.add(item);
+                rowSerializer.writeLenEncodedString(item);
+            }
+            rows.add(row);
+            rowBuffers.add(rowSerializer.toByteBuffer());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        channel.close();
+        clientChannel.close();
+        serverChannel.close();
+        drainThread.join();
+    }
+
+    private void sendFields() throws IOException {
+        serializer.reset();
+        serializer.writeVInt(columnNum);
+        mysqlChannel.sendOnePacket(serializer.toByteBuffer());
+        for (int i = 0; i < columnNum; i++) {
+            serializer.reset();
+            serializer.writeField("c" + i, PrimitiveType.VARCHAR);
+            mysqlChannel.sendOnePacket(serializer.toByteBuffer());
+        }
+    }
+
+    // like StmtExecutor.sendShowResult(), rows are serialized in FE
+    @Benchmark
+    public void sendShowResult() throws IOException {
+        mysqlChannel.reset();
+        sendFields();
+        for (List<String> row : rows) {
+            serializer.reset();
+            for (String item : row) {
+                if (item == null) {
+                    serializer.writeNull();
+                } else {
+                    serializer.writeLenEncodedString(item);
+                }
+            }
+            mysqlChannel.sendOnePacket(serializer.toByteBuffer());
+        }
+        mysqlChannel.flush();
+    }
+
+    // like StmtExecutor.handleQueryStmt(), rows are serialized by backend
+    @Benchmark
+    public void sendQueryResult() throws IOException {
+        mysqlChannel.reset();
+        sendFields();
+        for (ByteBuffer row : rowBuffers) {
+            mysqlChannel.sendOnePacket(row.duplicate());
+        }
+        mysqlChannel.flush();
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.benchmark;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.TupleDescriptor;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.planner.OlapScanNode;
+import com.baidu.palo.planner.PlanNodeId;
+import com.baidu.palo.qe.ConnectContext;
+import com.baidu.palo.thrift.TScanRangeLocations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of generating scan ranges of a full table scan, over tables with a large number of tablets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OlapScanNodeBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int tabletNum;
+
+    private ConnectContext context;
+    private OlapTable table;
+
+    @Setup
+    public void setup() {
+        SyntheticCatalog syntheticCatalog = new SyntheticCatalog().init();
+        table = syntheticCatalog.createTable("t", tabletNum);
+        context = syntheticCatalog.createContext();
+    }
+
+    @Benchmark
+    public List<TScanRangeLocations> getScanRangeLocations() throws Exception {
+        Analyzer analyzer = new Analyzer(context.getCatalog(), context);
+        TupleDescriptor desc = analyzer.getDescTbl().createTupleDescriptor();
+        desc.setTable(table);
+        OlapScanNode scanNode = new OlapScanNode(new PlanNodeId(0), desc, "OlapScanNode");
+        scanNode.finalize(analyzer);
+        return scanNode.getScanRangeLocations(0);
+    }
+}
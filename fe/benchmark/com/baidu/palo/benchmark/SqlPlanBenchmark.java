@@ -0,0 +1,103 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.benchmark;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.analysis.SqlParser;
+import com.baidu.palo.analysis.SqlScanner;
+import com.baidu.palo.analysis.StatementBase;
+import com.baidu.palo.analysis.StmtRewriter;
+import com.baidu.palo.planner.Planner;
+import com.baidu.palo.qe.ConnectContext;
+import com.baidu.palo.rewrite.ExprRewriter;
+import com.baidu.palo.thrift.TQueryOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of parsing, analyzing and planning a query, the same steps as StmtExecutor.analyze().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlPlanBenchmark {
+    @Param({"POINT", "AGG", "JOIN", "SUBQUERY"})
+    public String query;
+
+    private ConnectContext context;
+    private String sql;
+
+    @Setup
+    public void setup() {
+        SyntheticCatalog syntheticCatalog = new SyntheticCatalog().init();
+        syntheticCatalog.createTable("t1", 32);
+        syntheticCatalog.createTable("t2", 32);
+        context = syntheticCatalog.createContext();
+
+        if (query.equals("POINT")) {
+            sql = "select k1, k2, v1 from t1 where k1 = 1 and k2 = 2";
+        } else if (query.equals("AGG")) {
+            sql = "select k2, sum(v1), max(v2) from t1 where k1 in (1, 2, 3) and k3 like 'a%' "
+                    + "group by k2 order by k2 limit 100";
+        } else if (query.equals("JOIN")) {
+            sql = "select t1.k1, t2.k2, sum(t1.v1) from t1 join t2 on t1.k1 = t2.k1 and t1.k2 = t2.k2 "
+                    + "where t2.k3 = 'abc' group by t1.k1, t2.k2";
+        } else {
+            sql = "select k1, v1 from t1 where k1 in (select k1 from t2 where v2 > 10) and k2 > 100";
+        }
+    }
+
+    @Benchmark
+    public Planner parseAndPlan() throws Exception {
+        SqlParser parser = new SqlParser(new SqlScanner(new StringReader(sql)));
+        StatementBase stmt = (StatementBase) parser.parse().value;
+
+        Analyzer analyzer = new Analyzer(context.getCatalog(), context);
+        stmt.analyze(analyzer);
+        ExprRewriter rewriter = analyzer.getExprRewriter();
+        rewriter.reset();
+        ((QueryStmt) stmt).rewriteExprs(rewriter);
+        if (rewriter.changed() || analyzer.containSubquery()) {
+            if (analyzer.containSubquery()) {
+                StmtRewriter.rewrite(analyzer, stmt);
+            }
+            analyzer = new Analyzer(context.getCatalog(), context);
+            stmt.reset();
+            stmt.analyze(analyzer);
+        }
+
+        Planner planner = new Planner();
+        planner.plan(stmt, analyzer, new TQueryOptions());
+        return planner;
+    }
+}
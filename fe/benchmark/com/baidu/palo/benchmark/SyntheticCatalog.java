@@ -0,0 +1,164 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.benchmark;
+
+import com.baidu.palo.catalog.AggregateType;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.DataProperty;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.HashDistributionInfo;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.MaterializedIndex.IndexState;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.PartitionInfo;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.catalog.SinglePartitionInfo;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.catalog.TabletMeta;
+import com.baidu.palo.cluster.Cluster;
+import com.baidu.palo.cluster.ClusterNamespace;
+import com.baidu.palo.common.FeConstants;
+import com.baidu.palo.qe.ConnectContext;
+import com.baidu.palo.system.Backend;
+import com.baidu.palo.system.SystemInfoService;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/*
+ * Build metadata in the catalog singleton for benchmarks, without meta dir, edit log or backends.
+ *
+ * Tables are AGG_KEYS tables with one partition, hash distributed by k1,
+ * and each tablet has one replica on every backend.
+ */
+public class SyntheticCatalog {
+    public static final String DB_NAME = "bench_db";
+    public static final String USER = "root";
+    public static final int SCHEMA_HASH = 1234;
+    public static final long VERSION = 2;
+    public static final long VERSION_HASH = 0;
+    public static final int BACKEND_NUM = 3;
+
+    // ids of synthetic meta must be larger than Catalog.NEXT_ID_INIT_VALUE, or they are not saved in image
+    private long nextId = Catalog.NEXT_ID_INIT_VALUE + 10000;
+    private final Catalog catalog;
+    private final List<Backend> backends = Lists.newArrayList();
+    private Database db;
+
+    public SyntheticCatalog() {
+        catalog = Catalog.getInstance();
+        catalog.setJournalVersion(FeConstants.meta_version);
+    }
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    public Database getDb() {
+        return db;
+    }
+
+    public List<Backend> getBackends() {
+        return backends;
+    }
+
+    public long nextId() {
+        return nextId++;
+    }
+
+    // Create backends, the default cluster and the benchmark database.
+    public SyntheticCatalog init() {
+        List<Long> backendIds = Lists.newArrayList();
+        for (int i = 0; i < BACKEND_NUM; i++) {
+            Backend backend = new Backend(nextId(), "192.168.0." + (i + 1), 9050);
+            backend.updateOnce(9060, 8040, 8060);
+            backend.setOwnerClusterName(SystemInfoService.DEFAULT_CLUSTER);
+            Catalog.getCurrentSystemInfo().replayAddBackend(backend);
+            backends.add(backend);
+            backendIds.add(backend.getId());
+        }
+
+        Cluster cluster = new Cluster(SystemInfoService.DEFAULT_CLUSTER, nextId());
+        cluster.setBackendIdList(backendIds);
+        catalog.replayCreateCluster(cluster);
+
+        db = new Database(nextId(), ClusterNamespace.getFullName(SystemInfoService.DEFAULT_CLUSTER, DB_NAME));
+        db.setClusterName(SystemInfoService.DEFAULT_CLUSTER);
+        catalog.replayCreateDb(db);
+        return this;
+    }
+
+    // Create a table with 'bucketNum' tablets, schema is
+    // (k1 INT, k2 BIGINT, k3 VARCHAR(32), v1 BIGINT SUM, v2 DOUBLE SUM)
+    public OlapTable createTable(String tableName, int bucketNum) {
+        List<Column> columns = Lists.newArrayList();
+        columns.add(new Column("k1", new ColumnType(PrimitiveType.INT), true, null, "0", ""));
+        columns.add(new Column("k2", new ColumnType(PrimitiveType.BIGINT), true, null, "0", ""));
+        columns.add(new Column("k3", ColumnType.createVarchar(32), true, null, "", ""));
+        columns.add(new Column("v1", new ColumnType(PrimitiveType.BIGINT), false, AggregateType.SUM, "0", ""));
+        columns.add(new Column("v2", new ColumnType(PrimitiveType.DOUBLE), false, AggregateType.SUM, "0", ""));
+
+        long tableId = nextId();
+        long partitionId = nextId();
+        long indexId = nextId();
+
+        HashDistributionInfo distributionInfo = new HashDistributionInfo(bucketNum, Lists.newArrayList(columns.get(0)));
+        MaterializedIndex index = new MaterializedIndex(indexId, IndexState.NORMAL);
+        for (int i = 0; i < bucketNum; i++) {
+            Tablet tablet = new Tablet(nextId());
+            TabletMeta tabletMeta = new TabletMeta(db.getId(), tableId, partitionId, indexId, SCHEMA_HASH);
+            index.addTablet(tablet, tabletMeta);
+            for (Backend backend : backends) {
+                Replica replica = new Replica(nextId(), backend.getId(), VERSION, VERSION_HASH,
+                        1024L * 1024L, 10000L, ReplicaState.NORMAL);
+                tablet.addReplica(replica);
+            }
+        }
+
+        Partition partition = new Partition(partitionId, tableName, index, distributionInfo);
+        partition.setCommittedVersion(VERSION);
+        partition.setCommittedVersionHash(VERSION_HASH);
+
+        PartitionInfo partitionInfo = new SinglePartitionInfo();
+        partitionInfo.setDataProperty(partitionId, DataProperty.DEFAULT_HDD_DATA_PROPERTY);
+        partitionInfo.setReplicationNum(partitionId, (short) BACKEND_NUM);
+
+        OlapTable table = new OlapTable(tableId, tableName, columns, KeysType.AGG_KEYS,
+                partitionInfo, distributionInfo);
+        table.addPartition(partition);
+        table.setIndexSchemaInfo(indexId, tableName, columns, 0, SCHEMA_HASH, (short) 2);
+        db.createTable(table);
+        return table;
+    }
+
+    // Create a connect context of root, whose current database is the benchmark database.
+    public ConnectContext createContext() {
+        ConnectContext context = new ConnectContext(null);
+        context.setCatalog(catalog);
+        context.setUser(USER);
+        context.setCluster(SystemInfoService.DEFAULT_CLUSTER);
+        context.setDatabase(db.getFullName());
+        context.setThreadLocalInfo();
+        return context;
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.benchmark;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.thrift.TStorageMedium;
+import com.baidu.palo.thrift.TTablet;
+import com.baidu.palo.thrift.TTabletInfo;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of diffing a tablet report of one backend with the tablet inverted index.
+ * Some of the reported tablets are behind meta, and some are unknown to meta,
+ * so that all the branches of the diff are taken.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabletReportBenchmark {
+    @Param({"10000", "100000"})
+    public int tabletNum;
+
+    // one in STALE_INTERVAL reported tablets is behind meta
+    private static final int STALE_INTERVAL = 100;
+    private static final int UNKNOWN_TABLET_NUM = 100;
+
+    private long backendId;
+    private Map<Long, TTablet> backendTablets;
+    private HashMap<Long, TStorageMedium> storageMediumMap;
+
+    @Setup
+    public void setup() {
+        SyntheticCatalog syntheticCatalog = new SyntheticCatalog().init();
+        OlapTable table = syntheticCatalog.createTable("t", tabletNum);
+        backendId = syntheticCatalog.getBackends().get(0).getId();
+
+        backendTablets = Maps.newHashMap();
+        int i = 0;
+        for (Partition partition : table.getPartitions()) {
+            for (MaterializedIndex index : partition.getMaterializedIndices()) {
+                for (Tablet tablet : index.getTablets()) {
+                    long version = (i++ % STALE_INTERVAL == 0) ? SyntheticCatalog.VERSION - 1
+                            : SyntheticCatalog.VERSION;
+                    addTablet(tablet.getId(), version);
+                }
+            }
+        }
+        for (int j = 0; j < UNKNOWN_TABLET_NUM; j++) {
+            addTablet(syntheticCatalog.nextId(), SyntheticCatalog.VERSION);
+        }
+        storageMediumMap = Catalog.getInstance().getPartitionIdToStorageMediumMap();
+    }
+
+    private void addTablet(long tabletId, long version) {
+        TTabletInfo tabletInfo = new TTabletInfo(tabletId, SyntheticCatalog.SCHEMA_HASH, version,
+                SyntheticCatalog.VERSION_HASH, 10000L, 1024L * 1024L);
+        tabletInfo.setStorage_medium(TStorageMedium.HDD);
+        TTablet tablet = new TTablet();
+        tablet.addToTablet_infos(tabletInfo);
+        backendTablets.put(tabletId, tablet);
+    }
+
+    @Benchmark
+    public ListMultimap<Long, Long> tabletReport() {
+        ListMultimap<Long, Long> tabletSyncMap = ArrayListMultimap.create();
+        ListMultimap<Long, Long> tabletDeleteFromMeta = ArrayListMultimap.create();
+        Set<Long> foundTabletsWithValidSchema = Sets.newHashSet();
+        Map<Long, TTabletInfo> foundTabletsWithInvalidSchema = Maps.newHashMap();
+        ListMultimap<TStorageMedium, Long> tabletMigrationMap = ArrayListMultimap.create();
+        Catalog.getCurrentInvertedIndex().tabletReport(backendId, backendTablets, storageMediumMap,
+                tabletSyncMap, tabletDeleteFromMeta, foundTabletsWithValidSchema,
+                foundTabletsWithInvalidSchema, tabletMigrationMap);
+        return tabletSyncMap;
+    }
+}
@@ -20,7 +20,9 @@
 
 package com.baidu.palo.analysis;
 
+import com.baidu.palo.backup.BrokerStorage;
 import com.baidu.palo.catalog.AccessPrivilege;
+import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.common.AnalysisException;
 import com.baidu.palo.common.ErrorCode;
 import com.baidu.palo.common.ErrorReport;
@@ -94,6 +96,15 @@ public class AbstractBackupStmt extends DdlStmt {
         }
         properties = tmpProp;
 
+        if (properties.containsKey(BrokerStorage.BROKER_PROPERTY)) {
+            // only meta files and manifests are transferred through broker
+            String brokerName = properties.get(BrokerStorage.BROKER_PROPERTY);
+            if (Catalog.getInstance().getBrokerMgr().getAnyBroker(brokerName) == null) {
+                throw new AnalysisException("broker[" + brokerName + "] is not exist");
+            }
+        }
+
+        // tablet data is still transferred by trans_files tool of backend
         if (!properties.containsKey(SERVER_TYPE)
                 || !properties.containsKey(HOST)
                 || !properties.containsKey(PORT)
@@ -20,6 +20,8 @@
 
 package com.baidu.palo.analysis;
 
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.util.PrintableMap;
 
 import com.google.common.base.Joiner;
@@ -28,12 +30,35 @@ import java.util.List;
 import java.util.Map;
 
 public class BackupStmt extends AbstractBackupStmt {
+    // only back up partitions which changed since the last finished backup into the same path
+    private static final String INCREMENTAL = "incremental";
+
+    private boolean incremental = false;
 
     public BackupStmt(LabelName labelName, List<PartitionName> backupObjNames, String backupPath,
                       Map<String, String> properties) {
         super(labelName, backupObjNames, backupPath, properties);
     }
 
+    @Override
+    public void analyze(Analyzer analyzer) throws AnalysisException, InternalException {
+        super.analyze(analyzer);
+
+        // incremental is not a property of remote source
+        String value = properties.remove(INCREMENTAL);
+        if (value != null) {
+            if (value.equalsIgnoreCase("true")) {
+                incremental = true;
+            } else if (!value.equalsIgnoreCase("false")) {
+                throw new AnalysisException("Invalid value of " + INCREMENTAL + ": " + value);
+            }
+        }
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
     @Override
     public String toString() {
         return toSql();
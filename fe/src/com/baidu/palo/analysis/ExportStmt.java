@@ -22,6 +22,7 @@ import com.baidu.palo.catalog.Database;
 import com.baidu.palo.catalog.Partition;
 import com.baidu.palo.catalog.Table;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.ErrorCode;
 import com.baidu.palo.common.ErrorReport;
 import com.baidu.palo.common.InternalException;
@@ -53,6 +54,8 @@ public class ExportStmt extends StatementBase {
 
     private static final String DEFAULT_COLUMN_SEPARATOR = "\t";
     private static final String DEFAULT_LINE_DELIMITER = "\n";
+    private static final String PARALLELISM = "parallelism";
+    private static final String MAX_FILE_SIZE = "max_file_size";
 
     private TableName tblName;
     private List<String> partitions;
@@ -61,6 +64,10 @@ public class ExportStmt extends StatementBase {
     private final Map<String, String> properties;
     private String columnSeparator;
     private String lineDelimiter;
+    // max number of running tasks of the job. 0 means one task for each backend
+    private int parallelism;
+    // data size of each task, which writes one file
+    private long maxFileSize;
 
     private TableRef tableRef;
 
@@ -74,6 +81,8 @@ public class ExportStmt extends StatementBase {
         this.brokerDesc = brokerDesc;
         this.columnSeparator = DEFAULT_COLUMN_SEPARATOR;
         this.lineDelimiter = DEFAULT_LINE_DELIMITER;
+        this.parallelism = Config.export_default_parallelism;
+        this.maxFileSize = Config.export_max_file_size_bytes;
 
         this.user = null;
     }
@@ -114,6 +123,14 @@ public class ExportStmt extends StatementBase {
         return this.lineDelimiter;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
     @Override
     public void analyze(Analyzer analyzer) throws AnalysisException, InternalException {
         super.analyze(analyzer);
@@ -215,6 +232,31 @@ public class ExportStmt extends StatementBase {
         this.columnSeparator = PropertyAnalyzer.analyzeColumnSeparator(
                 properties, ExportStmt.DEFAULT_COLUMN_SEPARATOR);
         this.lineDelimiter = PropertyAnalyzer.analyzeLineDelimiter(properties, ExportStmt.DEFAULT_LINE_DELIMITER);
+        if (properties == null) {
+            return;
+        }
+
+        if (properties.containsKey(PARALLELISM)) {
+            try {
+                parallelism = Integer.valueOf(properties.get(PARALLELISM));
+            } catch (NumberFormatException e) {
+                throw new AnalysisException("Invalid " + PARALLELISM + ": " + properties.get(PARALLELISM));
+            }
+            if (parallelism <= 0) {
+                throw new AnalysisException(PARALLELISM + " should be larger than 0");
+            }
+        }
+
+        if (properties.containsKey(MAX_FILE_SIZE)) {
+            try {
+                maxFileSize = Long.valueOf(properties.get(MAX_FILE_SIZE));
+            } catch (NumberFormatException e) {
+                throw new AnalysisException("Invalid " + MAX_FILE_SIZE + ": " + properties.get(MAX_FILE_SIZE));
+            }
+            if (maxFileSize <= 0) {
+                throw new AnalysisException(MAX_FILE_SIZE + " should be larger than 0");
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,155 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.analysis;
+
+import com.baidu.palo.catalog.AccessPrivilege;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Table;
+import com.baidu.palo.catalog.Table.TableType;
+import com.baidu.palo.cluster.ClusterNamespace;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.ErrorCode;
+import com.baidu.palo.common.ErrorReport;
+import com.baidu.palo.common.InternalException;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.DebugUtil;
+import com.baidu.palo.qe.ShowResultSetMetaData;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * SHOW TABLE STATS FROM [db.]tbl
+ *
+ * Show the row count and data size of each partition and index of an olap table,
+ * which are the statistics used by planner. They are maintained by tablet reports of backends.
+ */
+public class ShowTableStatsStmt extends ShowStmt {
+    private static final ShowResultSetMetaData META_DATA =
+            ShowResultSetMetaData.builder()
+                    .addColumn(new Column("PartitionName", ColumnType.createVarchar(30)))
+                    .addColumn(new Column("IndexName", ColumnType.createVarchar(30)))
+                    .addColumn(new Column("RowCount", ColumnType.createVarchar(30)))
+                    .addColumn(new Column("DataSize", ColumnType.createVarchar(30)))
+                    .addColumn(new Column("TabletNum", ColumnType.createVarchar(30)))
+                    .build();
+
+    private String dbName;
+    private String tableName;
+
+    private List<List<String>> totalRows;
+
+    public ShowTableStatsStmt(TableName dbTableName) {
+        this.dbName = dbTableName.getDb();
+        this.tableName = dbTableName.getTbl();
+        this.totalRows = Lists.newArrayList();
+    }
+
+    @Override
+    public void analyze(Analyzer analyzer) throws AnalysisException, InternalException {
+        super.analyze(analyzer);
+        if (Strings.isNullOrEmpty(dbName)) {
+            dbName = analyzer.getDefaultDb();
+            if (Strings.isNullOrEmpty(dbName)) {
+                ErrorReport.reportAnalysisException(ErrorCode.ERR_NO_DB_ERROR);
+            }
+        } else {
+            dbName = ClusterNamespace.getFullName(getClusterName(), dbName);
+        }
+
+        // check access
+        if (!analyzer.getCatalog().getUserMgr()
+                .checkAccess(analyzer.getUser(), dbName, AccessPrivilege.READ_ONLY)) {
+            ErrorReport.reportAnalysisException(ErrorCode.ERR_DB_ACCESS_DENIED, analyzer.getUser(), dbName);
+        }
+
+        Database db = Catalog.getInstance().getDb(dbName);
+        if (db == null) {
+            ErrorReport.reportAnalysisException(ErrorCode.ERR_BAD_DB_ERROR, dbName);
+        }
+        db.readLock();
+        try {
+            Table table = db.getTable(tableName);
+            if (table == null) {
+                ErrorReport.reportAnalysisException(ErrorCode.ERR_BAD_TABLE_ERROR, tableName);
+            }
+            if (table.getType() != TableType.OLAP) {
+                ErrorReport.reportAnalysisException(ErrorCode.ERR_NOT_OLAP_TABLE, tableName);
+            }
+            OlapTable olapTable = (OlapTable) table;
+
+            // sort by partition name and index name
+            Map<String, Partition> sortedPartitions = new TreeMap<String, Partition>();
+            for (Partition partition : olapTable.getPartitions()) {
+                sortedPartitions.put(partition.getName(), partition);
+            }
+            Map<String, Long> sortedIndexNames = new TreeMap<String, Long>(olapTable.getIndexNameToId());
+
+            for (Partition partition : sortedPartitions.values()) {
+                for (Map.Entry<String, Long> entry : sortedIndexNames.entrySet()) {
+                    MaterializedIndex index = partition.getIndex(entry.getValue());
+                    if (index == null) {
+                        continue;
+                    }
+                    Pair<Double, String> sizePair = DebugUtil.getByteUint(index.getDataSize());
+                    String readableSize = DebugUtil.DECIMAL_FORMAT_SCALE_3.format(sizePair.first) + " "
+                            + sizePair.second;
+                    totalRows.add(Arrays.asList(partition.getName(), entry.getKey(),
+                                                String.valueOf(index.getRowCount()), readableSize,
+                                                String.valueOf(index.getTablets().size())));
+                }
+            }
+        } finally {
+            db.readUnlock();
+        }
+    }
+
+    public List<List<String>> getResultRows() {
+        return totalRows;
+    }
+
+    @Override
+    public ShowResultSetMetaData getMetaData() {
+        return META_DATA;
+    }
+
+    @Override
+    public String toSql() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SHOW TABLE STATS FROM ");
+        if (dbName != null) {
+            sb.append("`").append(dbName).append("`.");
+        }
+        sb.append("`").append(tableName).append("`");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toSql();
+    }
+}
@@ -17,6 +17,7 @@ package com.baidu.palo.backup;
 
 import com.baidu.palo.analysis.LabelName;
 import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.io.Writable;
 
@@ -48,7 +49,10 @@ public class AbstractBackupJob implements Writable {
 
     protected String errMsg;
     protected String remotePath;
+    // properties of remote source, without the broker name
     protected Map<String, String> remoteProperties;
+    // broker which transfers files, null if files are transferred by CommandBuilder
+    protected String brokerName;
 
     // unfinished tabletId (reuse for snapshot, upload)
     // tabletId -> backendId
@@ -73,6 +77,11 @@ public class AbstractBackupJob implements Writable {
         this.labelName = labelName;
         this.remotePath = remotePath;
         this.remoteProperties = remoteProperties;
+        if (remoteProperties != null && remoteProperties.containsKey(BrokerStorage.BROKER_PROPERTY)) {
+            // strip it here, so that it is neither passed to broker nor to CommandBuilder and backends
+            this.remoteProperties = Maps.newHashMap(remoteProperties);
+            this.brokerName = this.remoteProperties.remove(BrokerStorage.BROKER_PROPERTY);
+        }
         this.unfinishedTabletIds = HashMultimap.create();
 
         this.errMsg = "";
@@ -116,6 +125,18 @@ public class AbstractBackupJob implements Writable {
         return remoteProperties;
     }
 
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    // Return null if files are not transferred through broker
+    protected BrokerStorage getBrokerStorage() {
+        if (brokerName == null) {
+            return null;
+        }
+        return new BrokerStorage(brokerName, remoteProperties);
+    }
+
     public long getCreateTime() {
         return createTime;
     }
@@ -209,6 +230,13 @@ public class AbstractBackupJob implements Writable {
             out.writeBoolean(true);
             pathBuilder.write(out);
         }
+
+        if (brokerName == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            Text.writeString(out, brokerName);
+        }
     }
 
     @Override
@@ -238,5 +266,11 @@ public class AbstractBackupJob implements Writable {
             pathBuilder = new PathBuilder();
             pathBuilder.readFields(in);
         }
+
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_37) {
+            if (in.readBoolean()) {
+                brokerName = Text.readString(in);
+            }
+        }
     }
 }
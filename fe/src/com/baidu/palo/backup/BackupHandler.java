@@ -131,7 +131,7 @@ public class BackupHandler extends Daemon {
             // create job
             if (stmt instanceof BackupStmt) {
                 createAndAddBackupJob(db, stmt.getLabelName(), stmt.getObjNames(), stmt.getRemotePath(),
-                                      stmt.getProperties());
+                                      stmt.getProperties(), ((BackupStmt) stmt).isIncremental());
             } else if (stmt instanceof RestoreStmt) {
                 createAndAddRestoreJob(db, stmt.getLabelName(), stmt.getObjNames(), stmt.getRemotePath(),
                                        stmt.getProperties());
@@ -183,9 +183,11 @@ public class BackupHandler extends Daemon {
     }
 
     private BackupJob createAndAddBackupJob(Database db, LabelName labelName, List<PartitionName> backupObjNames,
-                                            String backupPath, Map<String, String> properties) throws DdlException {
+                                            String backupPath, Map<String, String> properties,
+                                            boolean isIncremental) throws DdlException {
         long jobId = Catalog.getInstance().getNextId();
         BackupJob job = new BackupJob(jobId, db.getId(), labelName, backupPath, properties);
+        job.setIncremental(isIncremental);
         db.writeLock();
         try {
             if (backupObjNames.isEmpty()) {
@@ -513,6 +515,28 @@ public class BackupHandler extends Daemon {
         }
     }
 
+    // Return the last finished backup job of db which backed up into the same remote path
+    public BackupJob getLastFinishedBackupJob(long dbId, String remotePath) {
+        BackupJob lastJob = null;
+        readLock();
+        try {
+            for (AbstractBackupJob job : finishedOrCancelledBackupJobs) {
+                BackupJob backupJob = (BackupJob) job;
+                if (backupJob.getDbId() != dbId || backupJob.getState() != BackupJobState.FINISHED
+                        || !remotePath.equals(backupJob.getRemotePath())) {
+                    continue;
+                }
+
+                if (lastJob == null || backupJob.getFinishedTime() > lastJob.getFinishedTime()) {
+                    lastJob = backupJob;
+                }
+            }
+        } finally {
+            readUnlock();
+        }
+        return lastJob;
+    }
+
     public int getBackupJobNum(BackupJobState state, long dbId) {
         int jobNum = 0;
         readLock();
@@ -32,7 +32,9 @@ import com.baidu.palo.catalog.Table;
 import com.baidu.palo.catalog.Tablet;
 import com.baidu.palo.catalog.OlapTable.OlapTableState;
 import com.baidu.palo.catalog.Table.TableType;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.DdlException;
+import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.io.Writable;
@@ -41,7 +43,6 @@ import com.baidu.palo.common.util.TimeUtils;
 import com.baidu.palo.common.util.Util;
 import com.baidu.palo.load.DeleteInfo;
 import com.baidu.palo.load.Load;
-import com.baidu.palo.load.LoadJob;
 import com.baidu.palo.task.AgentBatchTask;
 import com.baidu.palo.task.AgentTask;
 import com.baidu.palo.task.AgentTaskExecutor;
@@ -66,7 +67,12 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -76,6 +82,7 @@ public class BackupJob extends AbstractBackupJob {
     private static final Logger LOG = LogManager.getLogger(BackupJob.class);
 
     private static final long SNAPSHOT_TIMEOUT_MS = 2000; // 1s for one tablet
+    private static final long UPLOAD_PROGRESS_LOG_INTERVAL_MS = 60 * 1000L;
 
     public enum BackupJobState {
         PENDING,
@@ -100,6 +107,25 @@ public class BackupJob extends AbstractBackupJob {
     
     private Map<Long, Pair<Long, String>> tabletIdToSnapshotPath;
 
+    // only upload partitions which changed since the last finished backup into the same remote path
+    private boolean isIncremental;
+    // partition id -> label of the backup which uploaded the data of partition.
+    // it is the label of this job unless the data is reused from a former backup in incremental mode.
+    private Map<Long, String> partitionIdToDataLabel;
+    // partition id -> SHA-256 of names, schema hashes and tablets of partition
+    private Map<Long, String> partitionIdToSignature;
+    // tablets whose snapshot has been uploaded. persisted so that a new master only uploads the left tablets
+    private Set<Long> uploadedTabletIds;
+
+    // upload tasks waiting for free slots of backends
+    private LinkedList<UploadTask> pendingUploadTasks;
+    // tablet id -> running upload task
+    private Map<Long, UploadTask> runningUploadTasks;
+    private Map<Long, Long> tabletIdToUploadSendTime;
+    private Map<Long, Integer> tabletIdToUploadRetryTimes;
+    private long uploadProgressLoggedTime;
+    private int uploadProgressLoggedNum;
+
     private long metaSavedTime;
     private long snapshotFinishedTime;
     private long uploadFinishedTime;
@@ -114,6 +140,10 @@ public class BackupJob extends AbstractBackupJob {
         tableIdToIndexIds = HashMultimap.create();
         partitionIdToVersionInfo = Maps.newHashMap();
         tabletIdToSnapshotPath = Maps.newHashMap();
+        partitionIdToDataLabel = Maps.newHashMap();
+        partitionIdToSignature = Maps.newHashMap();
+        uploadedTabletIds = Sets.newHashSet();
+        initUploadScheduleInfo();
     }
 
     public BackupJob(long jobId, long dbId, LabelName labelName, String backupPath,
@@ -127,6 +157,12 @@ public class BackupJob extends AbstractBackupJob {
 
         tabletIdToSnapshotPath = Maps.newHashMap();
 
+        isIncremental = false;
+        partitionIdToDataLabel = Maps.newHashMap();
+        partitionIdToSignature = Maps.newHashMap();
+        uploadedTabletIds = Sets.newHashSet();
+        initUploadScheduleInfo();
+
         metaSavedTime = -1;
         snapshotFinishedTime = -1;
         uploadFinishedTime = -1;
@@ -136,10 +172,27 @@ public class BackupJob extends AbstractBackupJob {
         readableManifestPath = "";
     }
 
+    private void initUploadScheduleInfo() {
+        pendingUploadTasks = Lists.newLinkedList();
+        runningUploadTasks = Maps.newHashMap();
+        tabletIdToUploadSendTime = Maps.newHashMap();
+        tabletIdToUploadRetryTimes = Maps.newHashMap();
+        uploadProgressLoggedTime = System.currentTimeMillis();
+        uploadProgressLoggedNum = 0;
+    }
+
     public void setState(BackupJobState state) {
         this.state = state;
     }
 
+    public void setIncremental(boolean isIncremental) {
+        this.isIncremental = isIncremental;
+    }
+
+    public boolean isIncremental() {
+        return isIncremental;
+    }
+
     public BackupJobState getState() {
         return state;
     }
@@ -220,11 +273,33 @@ public class BackupJob extends AbstractBackupJob {
     public void handleFinishedUpload(long tabletId, long backendId) {
         synchronized (unfinishedTabletIds) {
             if (unfinishedTabletIds.remove(tabletId, backendId)) {
+                uploadedTabletIds.add(tabletId);
+                runningUploadTasks.remove(tabletId);
                 LOG.debug("finished upload tablet[{}] snapshot, backend[{}]", tabletId, backendId);
             }
         }
     }
 
+    // data of partition is uploaded by a former backup, no need to make snapshot and upload again
+    private boolean isDataReused(long partitionId) {
+        String dataLabel = partitionIdToDataLabel.get(partitionId);
+        return dataLabel != null && !dataLabel.equals(getLabel());
+    }
+
+    private boolean isPartitionUnchanged(long partitionId, Pair<Long, Long> versionInfo, String signature) {
+        if (partitionIdToVersionInfo == null || partitionIdToSignature == null || partitionIdToDataLabel == null) {
+            return false;
+        }
+
+        Pair<Long, Long> lastVersionInfo = partitionIdToVersionInfo.get(partitionId);
+        String lastSignature = partitionIdToSignature.get(partitionId);
+        if (lastVersionInfo == null || lastSignature == null || !partitionIdToDataLabel.containsKey(partitionId)) {
+            return false;
+        }
+        return lastVersionInfo.first.equals(versionInfo.first) && lastVersionInfo.second.equals(versionInfo.second)
+                && lastSignature.equals(signature);
+    }
+
     @Override
     public List<Comparable> getJobInfo() {
         List<Comparable> jobInfo = Lists.newArrayList();
@@ -378,16 +453,17 @@ public class BackupJob extends AbstractBackupJob {
                 }
             } // end for tables
 
+            // 4. find partitions whose data can be reused from the last backup
+            initPartitionDataLabels(db);
+
             // get last finished load job and delele job label
             Load load = Catalog.getInstance().getLoadInstance();
-            LoadJob lastestLoadJob = load.getLastestFinishedLoadJob(dbId);
-            if (lastestLoadJob == null) {
+            lastestLoadLabel = load.getLatestFinishedLoadLabel(dbId);
+            if (lastestLoadLabel == null) {
                 // there is no load job, or job info has been removed
                 lastestLoadLabel = "N/A";
-            } else {
-                lastestLoadLabel = lastestLoadJob.getLabel();
             }
-            LOG.info("get lastest load job label: {}, job: {}", lastestLoadJob, jobId);
+            LOG.info("get lastest load job label: {}, job: {}", lastestLoadLabel, jobId);
 
             lastestDeleteInfo = load.getLastestFinishedDeleteInfo(dbId);
             LOG.info("get lastest delete info: {}, job: {}", lastestDeleteInfo, jobId);
@@ -398,6 +474,79 @@ public class BackupJob extends AbstractBackupJob {
         }
     }
 
+    private void initPartitionDataLabels(Database db) throws DdlException {
+        BackupJob lastJob = null;
+        if (isIncremental) {
+            lastJob = Catalog.getInstance().getBackupHandler().getLastFinishedBackupJob(dbId, remotePath);
+            if (lastJob == null) {
+                LOG.info("no finished backup job in path {}, backup all data. job: {}", remotePath, jobId);
+            } else {
+                LOG.info("backup incrementally based on job[{}]. job: {}", lastJob.getJobId(), jobId);
+            }
+        }
+
+        int reusedNum = 0;
+        for (Map.Entry<Long, Set<Long>> entry : tableIdToPartitionIds.entrySet()) {
+            Table table = db.getTable(entry.getKey());
+            if (table == null || table.getType() != TableType.OLAP) {
+                continue;
+            }
+
+            OlapTable olapTable = (OlapTable) table;
+            for (Long partitionId : entry.getValue()) {
+                Partition partition = olapTable.getPartition(partitionId);
+                if (partition == null) {
+                    throw new DdlException("partition[" + partitionId + "] does not exist");
+                }
+                String signature = getPartitionSignature(db.getFullName(), olapTable, partition);
+                partitionIdToSignature.put(partitionId, signature);
+
+                String dataLabel = getLabel();
+                if (lastJob != null && lastJob.isPartitionUnchanged(partitionId,
+                                                                    partitionIdToVersionInfo.get(partitionId),
+                                                                    signature)) {
+                    dataLabel = lastJob.partitionIdToDataLabel.get(partitionId);
+                    ++reusedNum;
+                }
+                partitionIdToDataLabel.put(partitionId, dataLabel);
+            }
+        }
+        LOG.info("{} of {} partitions reuse data of former backup. job: {}",
+                 reusedNum, partitionIdToDataLabel.size(), jobId);
+    }
+
+    // the remote path of tablets depends on names, so names are included.
+    // a cryptographic hash is used since reusing the data of a changed partition corrupts the backup
+    private String getPartitionSignature(String dbName, OlapTable olapTable, Partition partition)
+            throws DdlException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(PathBuilder.createPath(dbName, olapTable.getName(), partition.getName())
+                    .getBytes("UTF-8"));
+            for (Long indexId : Sets.newTreeSet(tableIdToIndexIds.get(olapTable.getId()))) {
+                MaterializedIndex index = partition.getIndex(indexId);
+                if (index == null) {
+                    throw new DdlException("index[" + indexId + "] does not exist");
+                }
+                StringBuilder sb = new StringBuilder();
+                sb.append("\n").append(olapTable.getIndexNameById(indexId)).append(":").append(indexId)
+                        .append(":").append(olapTable.getSchemaHashByIndexId(indexId)).append(":");
+                for (Long tabletId : index.getTabletIdsInOrder()) {
+                    sb.append(",").append(tabletId);
+                }
+                digest.update(sb.toString().getBytes("UTF-8"));
+            }
+
+            StringBuilder signature = new StringBuilder();
+            for (byte b : digest.digest()) {
+                signature.append(String.format("%02x", b & 0xff));
+            }
+            return signature.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new DdlException(e.getMessage());
+        }
+    }
+
     private void getTableMeta(String dbName, Table table, Map<String, List<? extends Writable>> pathToWritables) {
         CreateTableStmt stmt = table.toCreateTableStmt(dbName);
         int tableSignature = table.getSignature(BackupVersion.VERSION_1);
@@ -469,6 +618,10 @@ public class BackupJob extends AbstractBackupJob {
                 OlapTable olapTable = (OlapTable) table;
 
                 for (Long partitionId : partitionIds) {
+                    if (isDataReused(partitionId)) {
+                        continue;
+                    }
+
                     Partition partition = olapTable.getPartition(partitionId);
                     if (partition == null) {
                         throw new DdlException("partition[" + partitionId + "] does not exist");
@@ -556,11 +709,10 @@ public class BackupJob extends AbstractBackupJob {
     private void upload() throws IOException, DdlException, InterruptedException, ExecutionException {
         LOG.debug("start upload. job[{}]", jobId);
 
-        if (commandBuilder == null) {
+        if (commandBuilder == null && getBrokerStorage() == null) {
             String remotePropFilePath = pathBuilder.remoteProperties();
             commandBuilder = CommandBuilder.create(remotePropFilePath, remoteProperties);
         }
-        Preconditions.checkNotNull(commandBuilder);
 
         // 1. send meta to remote source
         if (!uploadMetaObjs()) {
@@ -575,9 +727,15 @@ public class BackupJob extends AbstractBackupJob {
         if (future == null) {
             LOG.info("begin to submit upload meta objs. job: {}", jobId);
             String dest = PathBuilder.createPath(remotePath, getLabel());
-            String uploadCmd = commandBuilder.uploadCmd(getLabel(), pathBuilder.getRoot().getFullPath(), dest);
+            String src = pathBuilder.getRoot().getFullPath();
 
-            MetaUploadTask uploadTask = new MetaUploadTask(uploadCmd);
+            MetaUploadTask uploadTask;
+            BrokerStorage brokerStorage = getBrokerStorage();
+            if (brokerStorage != null) {
+                uploadTask = new MetaUploadTask(brokerStorage, src, dest);
+            } else {
+                uploadTask = new MetaUploadTask(commandBuilder.uploadCmd(getLabel(), src, dest));
+            }
             future = Catalog.getInstance().getBackupHandler().getAsynchronousCmdExecutor().submit(uploadTask);
             return false;
         } else {
@@ -588,7 +746,7 @@ public class BackupJob extends AbstractBackupJob {
     private synchronized void sendUploadTasks() throws DdlException {
         Preconditions.checkState(unfinishedTabletIds.isEmpty());
 
-        AgentBatchTask batchTask = new AgentBatchTask();
+        List<UploadTask> uploadTasks = Lists.newArrayList();
         Database db = Catalog.getInstance().getDb(dbId);
         if (db == null) {
             throw new DdlException("database[" + getDbName() + "] does not exist");
@@ -618,6 +776,13 @@ public class BackupJob extends AbstractBackupJob {
                     }
 
                     String partitionName = partition.getName();
+                    boolean isDataReused = isDataReused(partitionId);
+                    if (isDataReused) {
+                        // tell restore where the data of partition is
+                        pathBuilder.dataLabel(dbName, tableName, partitionName,
+                                              partitionIdToDataLabel.get(partitionId));
+                    }
+
                     for (Long indexId : tableIdToIndexIds.get(tableId)) {
                         MaterializedIndex index = partition.getIndex(indexId);
                         if (index == null) {
@@ -627,6 +792,13 @@ public class BackupJob extends AbstractBackupJob {
                         String indexName = olapTable.getIndexNameById(indexId);
                         for (Tablet tablet : index.getTablets()) {
                             long tabletId = tablet.getId();
+                            // the tablet is always saved in manifest
+                            String dest = pathBuilder.tabletRemotePath(dbName, tableName, partitionName,
+                                                                       indexName, tabletId, remotePath, getLabel());
+                            if (isDataReused || uploadedTabletIds.contains(tabletId)) {
+                                continue;
+                            }
+
                             if (!tabletIdToSnapshotPath.containsKey(tabletId)) {
                                 // this should not happend
                                 String msg = "tablet[" + tabletId + "]'s snapshot is missing";
@@ -635,15 +807,11 @@ public class BackupJob extends AbstractBackupJob {
                             }
 
                             Pair<Long, String> snapshotInfo = tabletIdToSnapshotPath.get(tabletId);
-                            String dest = pathBuilder.tabletRemotePath(dbName, tableName, partitionName,
-                                                                       indexName, tabletId, remotePath, getLabel());
                             UploadTask task = new UploadTask(null, snapshotInfo.first, jobId, dbId, tableId,
                                                              partitionId, indexId, tabletId,
                                                              snapshotInfo.second, dest,
                                                              remoteProperties);
-
-                            batchTask.addTask(task);
-                            unfinishedTabletIds.put(tabletId, snapshotInfo.first);
+                            uploadTasks.add(task);
                         } // end for tablet
                     } // end for indices
                 } // end for partitions
@@ -653,25 +821,120 @@ public class BackupJob extends AbstractBackupJob {
             db.readUnlock();
         }
 
-        // send task
-        for (AgentTask task : batchTask.getAllTasks()) {
-            AgentTaskQueue.addTask(task);
+        synchronized (unfinishedTabletIds) {
+            for (UploadTask task : uploadTasks) {
+                unfinishedTabletIds.put(task.getTabletId(), task.getBackendId());
+                pendingUploadTasks.add(task);
+            }
+            // send tasks as many as backends allow, others are sent when former tasks finished
+            scheduleUploadTasks();
         }
-        AgentTaskExecutor.submit(batchTask);
 
         state = BackupJobState.UPLOADING;
-        LOG.info("finish send upload task. job: {}", jobId);
+        LOG.info("finish prepare upload task. total: {}, uploaded before: {}. job: {}",
+                 uploadTasks.size(), uploadedTabletIds.size(), jobId);
+    }
+
+    private void scheduleUploadTasks() {
+        Map<Long, Integer> backendIdToRunningNum = Maps.newHashMap();
+        for (UploadTask task : runningUploadTasks.values()) {
+            Integer num = backendIdToRunningNum.get(task.getBackendId());
+            backendIdToRunningNum.put(task.getBackendId(), num == null ? 1 : num + 1);
+        }
+
+        AgentBatchTask batchTask = new AgentBatchTask();
+        long now = System.currentTimeMillis();
+        Iterator<UploadTask> iterator = pendingUploadTasks.iterator();
+        while (iterator.hasNext()) {
+            UploadTask task = iterator.next();
+            Integer num = backendIdToRunningNum.get(task.getBackendId());
+            num = num == null ? 0 : num;
+            if (num >= Config.max_upload_task_num_per_be) {
+                continue;
+            }
+
+            iterator.remove();
+            backendIdToRunningNum.put(task.getBackendId(), num + 1);
+            runningUploadTasks.put(task.getTabletId(), task);
+            tabletIdToUploadSendTime.put(task.getTabletId(), now);
+            AgentTaskQueue.addTask(task);
+            batchTask.addTask(task);
+        }
+
+        if (batchTask.getTaskNum() > 0) {
+            AgentTaskExecutor.submit(batchTask);
+            LOG.debug("send {} upload tasks, {} tasks are waiting. job: {}",
+                      batchTask.getTaskNum(), pendingUploadTasks.size(), jobId);
+        }
+    }
+
+    // resend failed or timeout upload tasks, or cancel the job if retried too many times
+    private void checkRunningUploadTasks() throws DdlException {
+        long now = System.currentTimeMillis();
+        List<UploadTask> retryTasks = Lists.newArrayList();
+        Iterator<UploadTask> iterator = runningUploadTasks.values().iterator();
+        while (iterator.hasNext()) {
+            UploadTask task = iterator.next();
+            long tabletId = task.getTabletId();
+            boolean isTimeout = now - tabletIdToUploadSendTime.get(tabletId)
+                    > Config.backup_upload_task_timeout_second * 1000L;
+            if (task.getFailedTimes() == 0 && !isTimeout) {
+                continue;
+            }
+
+            iterator.remove();
+            AgentTaskQueue.removeTask(task.getBackendId(), TTaskType.UPLOAD, tabletId);
+
+            Integer retryTimes = tabletIdToUploadRetryTimes.get(tabletId);
+            retryTimes = retryTimes == null ? 0 : retryTimes;
+            if (retryTimes >= Config.backup_upload_max_retry_times) {
+                throw new DdlException("failed to upload snapshot of tablet[" + tabletId + "] after retry "
+                        + retryTimes + " times");
+            }
+            tabletIdToUploadRetryTimes.put(tabletId, retryTimes + 1);
+
+            LOG.info("upload task of tablet[{}] {}, retry: {}. job: {}",
+                     tabletId, isTimeout ? "timeout" : "failed", retryTimes + 1, jobId);
+            retryTasks.add(new UploadTask(null, task.getBackendId(), jobId, dbId, task.getTableId(),
+                                          task.getPartitionId(), task.getIndexId(), tabletId,
+                                          task.getSrc(), task.getDest(), task.getRemoteSourceProperties()));
+        }
+
+        // retry first
+        pendingUploadTasks.addAll(0, retryTasks);
     }
 
     private synchronized void waitUpload() throws DdlException {
-        if (unfinishedTabletIds.isEmpty()) {
-            LOG.info("backup job[{}] is finished upload snapshot", jobId);
-            uploadFinishedTime = System.currentTimeMillis();
-            state = BackupJobState.FINISHING;
-            return;
-        } else {
+        synchronized (unfinishedTabletIds) {
+            if (unfinishedTabletIds.isEmpty()) {
+                LOG.info("backup job[{}] is finished upload snapshot", jobId);
+                uploadFinishedTime = System.currentTimeMillis();
+                state = BackupJobState.FINISHING;
+                return;
+            }
+
             LOG.debug("waiting {} tablets to upload snapshot", unfinishedTabletIds.size());
+            checkRunningUploadTasks();
+            scheduleUploadTasks();
         }
+
+        logUploadProgress();
+    }
+
+    // Persist uploaded tablets periodically, so that the job can go on from the uploaded tablets
+    // after master changed. The job is replayed as in UPLOAD state.
+    private void logUploadProgress() {
+        long now = System.currentTimeMillis();
+        if (uploadedTabletIds.size() == uploadProgressLoggedNum
+                || now - uploadProgressLoggedTime < UPLOAD_PROGRESS_LOG_INTERVAL_MS) {
+            return;
+        }
+
+        Catalog.getInstance().getEditLog().logBackupFinishSnapshot(this);
+        uploadProgressLoggedTime = now;
+        uploadProgressLoggedNum = uploadedTabletIds.size();
+        LOG.info("log upload progress. uploaded: {}, left: {}. job: {}",
+                 uploadProgressLoggedNum, getLeftTasksNum(), jobId);
     }
 
     private void finishing() throws DdlException, InterruptedException, ExecutionException, IOException {
@@ -682,7 +945,8 @@ public class BackupJob extends AbstractBackupJob {
             LOG.info("begin to submit save and upload manifest. job: {}", jobId);
             String deleteInfo = lastestDeleteInfo == null ? "" : lastestDeleteInfo.toString();
             SaveManifestTask task = new SaveManifestTask(jobId, getLabel(), remotePath, getLocalDirName(),
-                                                         lastestLoadLabel, deleteInfo, pathBuilder, commandBuilder);
+                                                         lastestLoadLabel, deleteInfo, pathBuilder, commandBuilder,
+                                                         getBrokerStorage());
             future = Catalog.getInstance().getBackupHandler().getAsynchronousCmdExecutor().submit(task);
         } else {
             boolean finished = checkFuture("save and upload manifest");
@@ -771,8 +1035,19 @@ public class BackupJob extends AbstractBackupJob {
     protected void clearJob() {
         tableIdToPartitionIds = null;
         tableIdToIndexIds = null;
-        partitionIdToVersionInfo = null;
+        if (state != BackupJobState.FINISHED) {
+            // version info, data labels and signatures of finished job are kept for incremental backup
+            partitionIdToVersionInfo = null;
+            partitionIdToDataLabel = null;
+            partitionIdToSignature = null;
+        }
         tabletIdToSnapshotPath = null;
+        uploadedTabletIds = null;
+
+        pendingUploadTasks = null;
+        runningUploadTasks = null;
+        tabletIdToUploadSendTime = null;
+        tabletIdToUploadRetryTimes = null;
 
         unfinishedTabletIds = null;
         remoteProperties = null;
@@ -871,6 +1146,43 @@ public class BackupJob extends AbstractBackupJob {
             out.writeBoolean(true);
             commandBuilder.write(out);
         }
+
+        out.writeBoolean(isIncremental);
+
+        if (partitionIdToDataLabel == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            int size = partitionIdToDataLabel.size();
+            out.writeInt(size);
+            for (Map.Entry<Long, String> entry : partitionIdToDataLabel.entrySet()) {
+                out.writeLong(entry.getKey());
+                Text.writeString(out, entry.getValue());
+            }
+        }
+
+        if (partitionIdToSignature == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            int size = partitionIdToSignature.size();
+            out.writeInt(size);
+            for (Map.Entry<Long, String> entry : partitionIdToSignature.entrySet()) {
+                out.writeLong(entry.getKey());
+                Text.writeString(out, entry.getValue());
+            }
+        }
+
+        if (uploadedTabletIds == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            int size = uploadedTabletIds.size();
+            out.writeInt(size);
+            for (Long tabletId : uploadedTabletIds) {
+                out.writeLong(tabletId);
+            }
+        }
     }
 
     @Override
@@ -945,5 +1257,42 @@ public class BackupJob extends AbstractBackupJob {
             commandBuilder.readFields(in);
         }
 
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_37) {
+            isIncremental = in.readBoolean();
+
+            if (in.readBoolean()) {
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    long partitionId = in.readLong();
+                    partitionIdToDataLabel.put(partitionId, Text.readString(in));
+                }
+            }
+
+            if (in.readBoolean()) {
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    long partitionId = in.readLong();
+                    if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_43) {
+                        partitionIdToSignature.put(partitionId, Text.readString(in));
+                    } else {
+                        // signature of old version is not comparable, the partition is uploaded again
+                        in.readLong();
+                    }
+                }
+            }
+
+            if (in.readBoolean()) {
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    uploadedTabletIds.add(in.readLong());
+                }
+            }
+        }
+
+        if (state == BackupJobState.UPLOADING) {
+            // upload progress is logged in UPLOADING state.
+            // upload again from UPLOAD state, only the tablets not uploaded will be sent.
+            state = BackupJobState.UPLOAD;
+        }
     }
 }
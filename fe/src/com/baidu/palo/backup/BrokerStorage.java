@@ -0,0 +1,269 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.backup;
+
+import com.baidu.palo.catalog.BrokerMgr;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.ClientPool;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.service.FrontendOptions;
+import com.baidu.palo.thrift.TBrokerCheckPathExistRequest;
+import com.baidu.palo.thrift.TBrokerCheckPathExistResponse;
+import com.baidu.palo.thrift.TBrokerCloseReaderRequest;
+import com.baidu.palo.thrift.TBrokerCloseWriterRequest;
+import com.baidu.palo.thrift.TBrokerDeletePathRequest;
+import com.baidu.palo.thrift.TBrokerFD;
+import com.baidu.palo.thrift.TBrokerOpenMode;
+import com.baidu.palo.thrift.TBrokerOpenReaderRequest;
+import com.baidu.palo.thrift.TBrokerOpenReaderResponse;
+import com.baidu.palo.thrift.TBrokerOpenWriterRequest;
+import com.baidu.palo.thrift.TBrokerOpenWriterResponse;
+import com.baidu.palo.thrift.TBrokerOperationStatus;
+import com.baidu.palo.thrift.TBrokerOperationStatusCode;
+import com.baidu.palo.thrift.TBrokerPReadRequest;
+import com.baidu.palo.thrift.TBrokerPWriteRequest;
+import com.baidu.palo.thrift.TBrokerReadResponse;
+import com.baidu.palo.thrift.TBrokerRenamePathRequest;
+import com.baidu.palo.thrift.TBrokerVersion;
+import com.baidu.palo.thrift.TNetworkAddress;
+import com.baidu.palo.thrift.TPaloBrokerService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.thrift.TException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/*
+ * Read and write files of backup in remote storage through broker.
+ * Files are written to a temporary path and renamed when finished, so that a file which exists in
+ * remote storage is always complete.
+ */
+public class BrokerStorage {
+    private static final Logger LOG = LogManager.getLogger(BrokerStorage.class);
+
+    // property of backup and restore stmt to specify the broker
+    public static final String BROKER_PROPERTY = "broker";
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final String TMP_FILE_POSTFIX = ".part";
+
+    private final String brokerName;
+    // properties passed to broker
+    private final Map<String, String> properties;
+
+    public BrokerStorage(String brokerName, Map<String, String> properties) {
+        this.brokerName = brokerName;
+        this.properties = properties;
+    }
+
+    public String getBrokerName() {
+        return brokerName;
+    }
+
+    private static String getClientId() {
+        return FrontendOptions.getLocalHostAddress() + ":" + Config.rpc_port;
+    }
+
+    private TNetworkAddress getAddress() throws IOException {
+        try {
+            BrokerMgr.BrokerAddress brokerAddress = Catalog.getInstance().getBrokerMgr()
+                    .getBroker(brokerName, FrontendOptions.getLocalHostAddress());
+            return new TNetworkAddress(brokerAddress.ip, brokerAddress.port);
+        } catch (AnalysisException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    private TPaloBrokerService.Client borrowClient(TNetworkAddress address) throws IOException {
+        try {
+            return ClientPool.brokerPool.borrowObject(address);
+        } catch (Exception e) {
+            try {
+                return ClientPool.brokerPool.borrowObject(address);
+            } catch (Exception e1) {
+                throw new IOException("Create connection to broker(" + address + ") failed.");
+            }
+        }
+    }
+
+    private static void checkStatus(TBrokerOperationStatus status, String op, String path) throws IOException {
+        if (status.getStatusCode() != TBrokerOperationStatusCode.OK) {
+            throw new IOException("Broker " + op + " failed. path=" + path + ", msg=" + status.getMessage());
+        }
+    }
+
+    // Upload the local file to remote path. The remote file is overwritten if exists.
+    public void upload(String localFilePath, String remoteFilePath) throws IOException {
+        TNetworkAddress address = getAddress();
+        TPaloBrokerService.Client client = borrowClient(address);
+        String tmpPath = remoteFilePath + TMP_FILE_POSTFIX;
+        boolean failed = true;
+        InputStream in = null;
+        try {
+            deleteIfExists(client, tmpPath);
+
+            TBrokerOpenWriterRequest openRequest = new TBrokerOpenWriterRequest(TBrokerVersion.VERSION_ONE,
+                    tmpPath, TBrokerOpenMode.APPEND, getClientId(), properties);
+            TBrokerOpenWriterResponse openResponse = client.openWriter(openRequest);
+            checkStatus(openResponse.getOpStatus(), "open writer", tmpPath);
+            TBrokerFD fd = openResponse.getFd();
+
+            try {
+                in = new BufferedInputStream(new FileInputStream(localFilePath), BUFFER_SIZE);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long offset = 0;
+                int len;
+                while ((len = in.read(buffer)) > 0) {
+                    TBrokerPWriteRequest writeRequest = new TBrokerPWriteRequest(TBrokerVersion.VERSION_ONE, fd,
+                            offset, ByteBuffer.wrap(buffer, 0, len));
+                    checkStatus(client.pwrite(writeRequest), "write", tmpPath);
+                    offset += len;
+                }
+            } finally {
+                checkStatus(client.closeWriter(new TBrokerCloseWriterRequest(TBrokerVersion.VERSION_ONE, fd)),
+                            "close writer", tmpPath);
+            }
+
+            deleteIfExists(client, remoteFilePath);
+            TBrokerRenamePathRequest renameRequest = new TBrokerRenamePathRequest(TBrokerVersion.VERSION_ONE,
+                    tmpPath, remoteFilePath, properties);
+            checkStatus(client.renamePath(renameRequest), "rename", tmpPath);
+            failed = false;
+        } catch (TException e) {
+            throw new IOException("Broker upload failed. path=" + remoteFilePath + ", broker=" + address
+                    + ", msg=" + e.getMessage());
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+            returnClient(address, client, failed);
+        }
+        LOG.debug("upload {} to {} through broker {}", localFilePath, remoteFilePath, address);
+    }
+
+    // Upload all files under the local dir to remote dir, keeping the relative paths.
+    public void uploadDir(String localDir, String remoteDir) throws IOException {
+        File dir = new File(localDir);
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Failed to list local dir: " + localDir);
+        }
+        for (File file : files) {
+            String remotePath = PathBuilder.createPath(remoteDir, file.getName());
+            if (file.isDirectory()) {
+                uploadDir(file.getAbsolutePath(), remotePath);
+            } else {
+                upload(file.getAbsolutePath(), remotePath);
+            }
+        }
+    }
+
+    public void download(String remoteFilePath, String localFilePath) throws IOException {
+        TNetworkAddress address = getAddress();
+        TPaloBrokerService.Client client = borrowClient(address);
+        boolean failed = true;
+        OutputStream out = null;
+        try {
+            TBrokerOpenReaderRequest openRequest = new TBrokerOpenReaderRequest(TBrokerVersion.VERSION_ONE,
+                    remoteFilePath, 0, getClientId(), properties);
+            TBrokerOpenReaderResponse openResponse = client.openReader(openRequest);
+            checkStatus(openResponse.getOpStatus(), "open reader", remoteFilePath);
+            TBrokerFD fd = openResponse.getFd();
+
+            try {
+                File localFile = new File(localFilePath);
+                if (localFile.getParentFile() != null) {
+                    localFile.getParentFile().mkdirs();
+                }
+                out = new BufferedOutputStream(new FileOutputStream(localFile), BUFFER_SIZE);
+                long offset = 0;
+                while (true) {
+                    TBrokerPReadRequest readRequest = new TBrokerPReadRequest(TBrokerVersion.VERSION_ONE, fd,
+                            offset, BUFFER_SIZE);
+                    TBrokerReadResponse readResponse = client.pread(readRequest);
+                    if (readResponse.getOpStatus().getStatusCode() == TBrokerOperationStatusCode.END_OF_FILE) {
+                        break;
+                    }
+                    checkStatus(readResponse.getOpStatus(), "read", remoteFilePath);
+                    byte[] data = readResponse.getData();
+                    if (data == null || data.length == 0) {
+                        break;
+                    }
+                    out.write(data);
+                    offset += data.length;
+                }
+            } finally {
+                client.closeReader(new TBrokerCloseReaderRequest(TBrokerVersion.VERSION_ONE, fd));
+            }
+            failed = false;
+        } catch (TException e) {
+            throw new IOException("Broker download failed. path=" + remoteFilePath + ", broker=" + address
+                    + ", msg=" + e.getMessage());
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+            returnClient(address, client, failed);
+        }
+        LOG.debug("download {} to {} through broker {}", remoteFilePath, localFilePath, address);
+    }
+
+    public void delete(String remotePath) throws IOException {
+        TNetworkAddress address = getAddress();
+        TPaloBrokerService.Client client = borrowClient(address);
+        boolean failed = true;
+        try {
+            deleteIfExists(client, remotePath);
+            failed = false;
+        } catch (TException e) {
+            throw new IOException("Broker delete failed. path=" + remotePath + ", broker=" + address
+                    + ", msg=" + e.getMessage());
+        } finally {
+            returnClient(address, client, failed);
+        }
+    }
+
+    private void deleteIfExists(TPaloBrokerService.Client client, String remotePath)
+            throws TException, IOException {
+        TBrokerCheckPathExistResponse existResponse = client.checkPathExist(
+                new TBrokerCheckPathExistRequest(TBrokerVersion.VERSION_ONE, remotePath, properties));
+        checkStatus(existResponse.getOpStatus(), "check path exist", remotePath);
+        if (existResponse.isIsPathExist()) {
+            checkStatus(client.deletePath(new TBrokerDeletePathRequest(TBrokerVersion.VERSION_ONE, remotePath,
+                                                                       properties)),
+                        "delete", remotePath);
+        }
+    }
+
+    private void returnClient(TNetworkAddress address, TPaloBrokerService.Client client, boolean failed) {
+        if (failed) {
+            ClientPool.brokerPool.invalidateObject(address, client);
+        } else {
+            ClientPool.brokerPool.returnObject(address, client);
+        }
+    }
+}
@@ -57,6 +57,8 @@ public class MetaDownloadTask extends ResultfulTask {
     private final String remotePath;
 
     private final CommandBuilder commandBuilder;
+    // null if not downloading through broker
+    private final BrokerStorage brokerStorage;
     private final PathBuilder pathBuilder;
 
     private final Map<String, Set<String>> tableToPartitionNames;
@@ -68,7 +70,7 @@ public class MetaDownloadTask extends ResultfulTask {
     private final Map<String, String> tableRenameMap;
 
     public MetaDownloadTask(long jobId, String dbName, String label, String localDirName, String remotePath,
-                            PathBuilder pathBuilder, CommandBuilder commandBuilder,
+                            PathBuilder pathBuilder, CommandBuilder commandBuilder, BrokerStorage brokerStorage,
                             Map<String, Set<String>> tableToPartitionNames,
                             Map<String, CreateTableStmt> tableToCreateTableStmt,
                             Map<String, AlterTableStmt> tableToRollupStmt,
@@ -82,6 +84,7 @@ public class MetaDownloadTask extends ResultfulTask {
 
         this.pathBuilder = pathBuilder;
         this.commandBuilder = commandBuilder;
+        this.brokerStorage = brokerStorage;
         this.tableToPartitionNames = tableToPartitionNames;
         this.tableToCreateTableStmt = tableToCreateTableStmt;
         this.tableToRollupStmt = tableToRollupStmt;
@@ -312,6 +315,24 @@ public class MetaDownloadTask extends ResultfulTask {
         boolean succeed = false;
         String msg = null;
         for (int i = 0; i < MAX_RETRY_TIME; i++) {
+            if (brokerStorage != null) {
+                try {
+                    brokerStorage.download(remote, local);
+                    succeed = true;
+                    break;
+                } catch (IOException e) {
+                    msg = e.getMessage();
+                    LOG.warn("{}. job[{}]. retry: {}", msg, jobId, i);
+                    try {
+                        Thread.sleep(MAX_RETRY_INTERVAL_MS);
+                        continue;
+                    } catch (InterruptedException e1) {
+                        LOG.warn(e1.getMessage());
+                        break;
+                    }
+                }
+            }
+
             try {
                 downloadCmd = commandBuilder.downloadCmd(label, local, remote);
             } catch (IOException e) {
@@ -349,6 +370,7 @@ public class MetaDownloadTask extends ResultfulTask {
             }
 
             succeed = true;
+            break;
         }
 
         if (!succeed) {
@@ -18,18 +18,38 @@ package com.baidu.palo.backup;
 import com.baidu.palo.common.util.CommandResult;
 import com.baidu.palo.common.util.Util;
 
+import java.io.IOException;
 import java.util.concurrent.Callable;
 
 public class MetaUploadTask implements Callable<String> {
 
     private String cmd;
 
+    private BrokerStorage brokerStorage;
+    private String localDir;
+    private String remoteDir;
+
     public MetaUploadTask(String cmd) {
         this.cmd = cmd;
     }
 
+    public MetaUploadTask(BrokerStorage brokerStorage, String localDir, String remoteDir) {
+        this.brokerStorage = brokerStorage;
+        this.localDir = localDir;
+        this.remoteDir = remoteDir;
+    }
+
     @Override
     public String call() throws Exception {
+        if (brokerStorage != null) {
+            try {
+                brokerStorage.uploadDir(localDir, remoteDir);
+            } catch (IOException e) {
+                return e.getMessage() == null ? "failed to upload " + localDir : e.getMessage();
+            }
+            return null;
+        }
+
         CommandResult result = Util.executeCommand(cmd);
         if (result.getReturnCode() != 0) {
             return result.toString();
@@ -42,6 +42,9 @@ public class PathBuilder implements Writable {
     public static final String MANIFEST_NAME = "manifest";
     public static final String READABLE_MANIFEST_NAME = "manifest.readable";
     public static final String REMOTE_PROP_POSTFIX = ".remote.properties";
+    // a file in partition dir named with this prefix and a label means the data of the partition
+    // is uploaded by the backup of that label.
+    public static final String DATA_LABEL_PREFIX = "__data_label__";
 
     public static final String PATH_DELIMITER = "/";
     public static final String BACKUP_DIR_NAME = "backup_obj";
@@ -125,6 +128,23 @@ public class PathBuilder implements Writable {
         return createPath(remotePath, label, path);
     }
 
+    public void dataLabel(String dbName, String tableName, String partitionName, String dataLabel) {
+        // root/dbName/tableName/partitionName/__data_label__{dataLabel}
+        // only saved in manifest, no such file in local or remote
+        addFile(createPath(dbName, tableName, partitionName, DATA_LABEL_PREFIX + dataLabel));
+        LOG.debug("set data label of partition {}.{}: {}", tableName, partitionName, dataLabel);
+    }
+
+    // Return null if the data of partition is uploaded by the backup itself
+    public static String getDataLabel(DirSaver partitionDir) {
+        for (String childName : partitionDir.getChildrenName()) {
+            if (childName.startsWith(DATA_LABEL_PREFIX)) {
+                return childName.substring(DATA_LABEL_PREFIX.length());
+            }
+        }
+        return null;
+    }
+
     public String manifest() {
         // root/manifest
         FileSaver res = addFile(MANIFEST_NAME);
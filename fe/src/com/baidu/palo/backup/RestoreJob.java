@@ -204,7 +204,7 @@ public class RestoreJob extends AbstractBackupJob {
             pathBuilder = PathBuilder.createPathBuilder(getLocalDirName());
         }
 
-        if (commandBuilder == null) {
+        if (commandBuilder == null && getBrokerStorage() == null) {
             String remotePropFilePath = pathBuilder.remoteProperties();
             commandBuilder = CommandBuilder.create(remotePropFilePath, remoteProperties);
         }
@@ -213,7 +213,7 @@ public class RestoreJob extends AbstractBackupJob {
             // 1. download manifest
             LOG.info("begin to submit download backup meta. job: {}", jobId);
             MetaDownloadTask task = new MetaDownloadTask(jobId, getDbName(), getLabel(), getLocalDirName(), remotePath,
-                                                         pathBuilder, commandBuilder,
+                                                         pathBuilder, commandBuilder, getBrokerStorage(),
                                                          tableToPartitionNames, tableToCreateTableStmt,
                                                          tableToRollupStmt, tableToPartitionStmts, tableToReplace,
                                                          tableRenameMap);
@@ -320,6 +320,8 @@ public class RestoreJob extends AbstractBackupJob {
                     partitionName = tableName;
                 }
                 long partitionId = partition.getId();
+                // data of partition may be uploaded by a former backup in incremental mode
+                String dataPath = getPartitionDataPath(tableName, partitionName);
                 for (MaterializedIndex index : partition.getMaterializedIndices()) {
                     long indexId = index.getId();
                     String indexName = olapTable.getIndexNameById(index.getId());
@@ -335,7 +337,7 @@ public class RestoreJob extends AbstractBackupJob {
                     for (int i = 0; i < tablets.size(); i++) {
                         Tablet tablet = tablets.get(i);
                         Long backupedTabletId = orderedBackupedTabletIdList.get(i);
-                        String remoteFilePath = PathBuilder.createPath(remotePath, getDbName(), tableName,
+                        String remoteFilePath = PathBuilder.createPath(dataPath, getDbName(), tableName,
                                                                        partitionName, indexName,
                                                                        backupedTabletId.toString());
                         for (Replica replica : tablet.getReplicas()) {
@@ -363,6 +365,24 @@ public class RestoreJob extends AbstractBackupJob {
         LOG.info("finished send all restore tasks. job: {}", jobId);
     }
 
+    private String getPartitionDataPath(String tableName, String partitionName) {
+        DirSaver partitionDir = (DirSaver) pathBuilder.getRoot().getChild(getDbName()).getChild(tableName)
+                .getChild(partitionName);
+        String dataLabel = PathBuilder.getDataLabel(partitionDir);
+        if (dataLabel == null) {
+            return remotePath;
+        }
+
+        // remote path is {backup path}/{label}, data is in {backup path}/{data label}
+        String labelPath = remotePath;
+        while (labelPath.endsWith(PathBuilder.PATH_DELIMITER)) {
+            labelPath = labelPath.substring(0, labelPath.length() - 1);
+        }
+        int index = labelPath.lastIndexOf(PathBuilder.PATH_DELIMITER);
+        String backupPath = index < 0 ? "" : labelPath.substring(0, index);
+        return PathBuilder.createPath(backupPath, dataLabel);
+    }
+
     private List<Long> getRestoredTabletInfo(String tableName, String partitionName, String indexName) {
         // pathBuilder.getRoot().print("\t");
         DirSaver indexDir = (DirSaver) pathBuilder.getRoot().getChild(getDbName()).getChild(tableName)
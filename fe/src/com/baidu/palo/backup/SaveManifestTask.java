@@ -42,10 +42,12 @@ public class SaveManifestTask extends ResultfulTask {
 
     private PathBuilder pathBuilder;
     private CommandBuilder commandBuilder;
+    // null if not uploading through broker
+    private BrokerStorage brokerStorage;
 
     public SaveManifestTask(long jobId, String label, String remotePath, String localDirName,
                             String lastestLoadLabel, String lastestDeleteInfo,
-                            PathBuilder pathBuilder, CommandBuilder commandBuilder) {
+                            PathBuilder pathBuilder, CommandBuilder commandBuilder, BrokerStorage brokerStorage) {
         this.jobId = jobId;
         this.label = label;
         this.remotePath = remotePath;
@@ -54,6 +56,7 @@ public class SaveManifestTask extends ResultfulTask {
         this.lastestDeleteInfo = lastestDeleteInfo;
         this.pathBuilder = pathBuilder;
         this.commandBuilder = commandBuilder;
+        this.brokerStorage = brokerStorage;
         this.errMsg = null;
     }
 
@@ -184,10 +187,28 @@ public class SaveManifestTask extends ResultfulTask {
         String uploadCmd = null;
         String msg = null;
         boolean succeed = false;
+        String remoteManifestPath = PathBuilder.createPath(remotePath, label, fileName);
         for (int i = 0; i < MAX_RETRY_TIME; i++) {
+            if (brokerStorage != null) {
+                try {
+                    brokerStorage.upload(manifestFile, remoteManifestPath);
+                    succeed = true;
+                    break;
+                } catch (IOException e) {
+                    msg = e.getMessage();
+                    LOG.warn("{}. job[{}]. retry: {}", msg, jobId, i);
+                    try {
+                        Thread.sleep(MAX_RETRY_INTERVAL_MS);
+                        continue;
+                    } catch (InterruptedException e1) {
+                        LOG.warn(e1.getMessage());
+                        break;
+                    }
+                }
+            }
+
             try {
-                String readableManifestPath = PathBuilder.createPath(remotePath, label, fileName);
-                uploadCmd = commandBuilder.uploadCmd(label, manifestFile, readableManifestPath);
+                uploadCmd = commandBuilder.uploadCmd(label, manifestFile, remoteManifestPath);
             } catch (IOException e) {
                 msg = e.getMessage();
                 LOG.warn("{}. job[{}]. retry: {}", errMsg, jobId, i);
@@ -214,6 +235,7 @@ public class SaveManifestTask extends ResultfulTask {
             }
 
             succeed = true;
+            break;
         }
 
         if (!succeed) {
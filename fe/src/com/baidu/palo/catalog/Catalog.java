@@ -90,7 +90,6 @@ import com.baidu.palo.common.ErrorReport;
 import com.baidu.palo.common.FeConstants;
 import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.InternalException;
-import com.baidu.palo.common.MarkedCountDownLatch;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.util.Daemon;
@@ -118,12 +117,14 @@ import com.baidu.palo.load.LoadJob.JobState;
 import com.baidu.palo.master.Checkpoint;
 import com.baidu.palo.master.MetaHelper;
 import com.baidu.palo.persist.BackendIdsUpdateInfo;
+import com.baidu.palo.persist.BatchIndexStatInfo;
 import com.baidu.palo.persist.ClusterInfo;
 import com.baidu.palo.persist.DatabaseInfo;
 import com.baidu.palo.persist.DropInfo;
 import com.baidu.palo.persist.DropLinkDbAndUpdateDbInfo;
 import com.baidu.palo.persist.DropPartitionInfo;
 import com.baidu.palo.persist.EditLog;
+import com.baidu.palo.persist.IndexStatInfo;
 import com.baidu.palo.persist.ModifyPartitionInfo;
 import com.baidu.palo.persist.PartitionPersistInfo;
 import com.baidu.palo.persist.RecoverInfo;
@@ -140,15 +141,14 @@ import com.baidu.palo.system.Backend;
 import com.baidu.palo.system.Backend.BackendState;
 import com.baidu.palo.system.Frontend;
 import com.baidu.palo.system.SystemInfoService;
-import com.baidu.palo.task.AgentBatchTask;
-import com.baidu.palo.task.AgentTask;
-import com.baidu.palo.task.AgentTaskExecutor;
 import com.baidu.palo.task.AgentTaskQueue;
+import com.baidu.palo.task.CreateReplicaJob;
+import com.baidu.palo.task.CreateReplicaScheduler;
 import com.baidu.palo.task.CreateReplicaTask;
+import com.baidu.palo.task.PendingCreateReplicas;
 import com.baidu.palo.task.PullLoadJobMgr;
 import com.baidu.palo.thrift.TStorageMedium;
 import com.baidu.palo.thrift.TStorageType;
-import com.baidu.palo.thrift.TTaskType;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Joiner.MapJoiner;
@@ -186,6 +186,8 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -229,6 +231,7 @@ public class Catalog {
     private UserPropertyMgr userPropertyMgr;
 
     private Daemon cleaner; // To clean old LabelInfo, ExportJobInfos
+    private TabletStatMgr tabletStatMgr;
     private Daemon replayer;
     private Daemon timePrinter;
     private Daemon listener;
@@ -283,6 +286,7 @@ public class Catalog {
 
     private PullLoadJobMgr pullLoadJobMgr;
     private BrokerMgr brokerMgr;
+    private PendingCreateReplicas pendingCreateReplicas;
 
     public List<Frontend> getFrontends() {
         return Lists.newArrayList(frontends);
@@ -324,6 +328,7 @@ public class Catalog {
         this.clone = new Clone();
         this.alter = new Alter();
         this.consistencyChecker = new ConsistencyChecker();
+        this.tabletStatMgr = new TabletStatMgr();
         this.backupHandler = new BackupHandler();
         this.lock = new ReentrantReadWriteLock(true);
         this.metaDir = Config.meta_dir;
@@ -362,6 +367,7 @@ public class Catalog {
 
         pullLoadJobMgr = new PullLoadJobMgr();
         brokerMgr = new BrokerMgr();
+        pendingCreateReplicas = new PendingCreateReplicas();
     }
 
     public static void destroyCheckpoint() {
@@ -399,6 +405,10 @@ public class Catalog {
         return brokerMgr;
     }
 
+    public PendingCreateReplicas getPendingCreateReplicas() {
+        return pendingCreateReplicas;
+    }
+
     // use this to get correct ClusterInfoService instance
     public static SystemInfoService getCurrentSystemInfo() {
         return getCurrentCatalog().getClusterInfo();
@@ -486,6 +496,9 @@ public class Catalog {
         listener.setInterval(STATE_CHANGE_CHECK_INTERVAL_MS);
         listener.start();
 
+        // 7. start tablet stat mgr thread
+        tabletStatMgr.start();
+
         userPropertyMgr.setUp();
     }
 
@@ -761,9 +774,13 @@ public class Catalog {
         ExportChecker.startAll();
 
         // Clone checker
-        CloneChecker.getInstance().setInterval(Config.clone_checker_interval_second * 1000L);
+        CloneChecker.getInstance().setInterval(CloneChecker.getCycleIntervalMs());
         CloneChecker.getInstance().start();
 
+        // Create replica scheduler
+        CreateReplicaScheduler.getInstance().start();
+        CreateReplicaScheduler.getInstance().recoverPendingReplicas(pendingCreateReplicas);
+
         // Alter
         getAlterInstance().start();
 
@@ -949,6 +966,7 @@ public class Catalog {
             checksum = loadCluster(dis, checksum);
             checksum = loadBrokers(dis, checksum);
             checksum = loadExportJob(dis, checksum);
+            checksum = loadPendingCreateReplicas(dis, checksum);
 
             long remoteChecksum = dis.readLong();
             Preconditions.checkState(remoteChecksum == checksum, remoteChecksum + " vs. " + checksum);
@@ -1112,6 +1130,11 @@ public class Catalog {
             load.setLoadErrorHubInfo(param);
         }
 
+        // labels of finished and cancelled load jobs
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_38) {
+            load.getLabelIndex().readFields(dis);
+        }
+
         return newChecksum;
     }
 
@@ -1132,6 +1155,15 @@ public class Catalog {
         return newChecksum;
     }
 
+    public long loadPendingCreateReplicas(DataInputStream dis, long checksum) throws IOException {
+        long newChecksum = checksum;
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_40) {
+            pendingCreateReplicas.readFields(dis);
+            newChecksum ^= pendingCreateReplicas.size();
+        }
+        return newChecksum;
+    }
+
     public long loadAlterJob(DataInputStream dis, long checksum) throws IOException {
         long newChecksum = checksum;
         for (JobType type : JobType.values()) {
@@ -1334,6 +1366,7 @@ public class Catalog {
                 checksum = saveCluster(dos, checksum);
                 checksum = saveBrokers(dos, checksum);
                 checksum = saveExportJob(dos, checksum);
+                checksum = savePendingCreateReplicas(dos, checksum);
                 dos.writeLong(checksum);
             } finally {
                 dos.close();
@@ -1418,7 +1451,7 @@ public class Catalog {
     }
 
     public long saveLoadJob(DataOutputStream dos, long checksum) throws IOException {
-        // 1. save load.dbToLoadJob
+        // 1. save load.dbToLoadJob, which only contains unfinished jobs
         Map<Long, List<LoadJob>> dbToLoadJob = load.getDbToLoadJobs();
         int jobSize = dbToLoadJob.size();
         checksum ^= jobSize;
@@ -1460,6 +1493,9 @@ public class Catalog {
         LoadErrorHub.Param param = load.getLoadErrorHubInfo();
         param.write(dos);
 
+        // 4. labels of finished and cancelled load jobs
+        load.getLabelIndex().write(dos);
+
         return checksum;
     }
 
@@ -1478,6 +1514,14 @@ public class Catalog {
         return checksum;
     }
 
+    public long savePendingCreateReplicas(DataOutputStream dos, long checksum) throws IOException {
+        // replicas of dropped tables and partitions are not removed when replaying
+        pendingCreateReplicas.removeDropped(this);
+        checksum ^= pendingCreateReplicas.size();
+        pendingCreateReplicas.write(dos);
+        return checksum;
+    }
+
     public long saveAlterJob(DataOutputStream dos, long checksum) throws IOException {
         for (JobType type : JobType.values()) {
             checksum = saveAlterJob(dos, checksum, type);
@@ -2362,6 +2406,7 @@ public class Catalog {
         Map<Long, Short> indexIdToShortKeyColumnCount = null;
         Map<Long, TStorageType> indexIdToStorageType = null;
         Set<String> bfColumns = null;
+        List<List<Long>> colocateBucketBackends = null;
 
         String partitionName = singlePartitionDesc.getPartitionName();
 
@@ -2447,6 +2492,14 @@ public class Catalog {
             indexIdToSchema = olapTable.getCopiedIndexIdToSchema();
             bfColumns = olapTable.getCopiedBfColumns();
 
+            if (olapTable.getColocateGroup() != null) {
+                if (distributionInfo.getBucketNum() != defaultDistributionInfo.getBucketNum()) {
+                    throw new DdlException("Cannot assign different bucket num to colocated table. default is: "
+                            + defaultDistributionInfo.getBucketNum());
+                }
+                colocateBucketBackends = getColocateBucketBackends(db, olapTable);
+            }
+
         } catch (AnalysisException e) {
             throw new DdlException(e.getMessage());
         } finally {
@@ -2465,6 +2518,11 @@ public class Catalog {
         Preconditions.checkNotNull(dataProperty);
 
         Set<Long> tabletIdSet = new HashSet<Long>();
+        CreateReplicaJob createReplicaJob = null;
+        if (!isRestore) {
+            createReplicaJob = CreateReplicaScheduler.getInstance().createJob(db.getId(), olapTable.getId(),
+                                                                              tableName);
+        }
         try {
             long partitionId = getNextId();
             Partition partition = createPartitionWithIndices(db.getClusterName(), db.getId(),
@@ -2479,7 +2537,11 @@ public class Catalog {
                                                              dataProperty.getStorageMedium(),
                                                              singlePartitionDesc.getReplicationNum(),
                                                              versionInfo, bfColumns, olapTable.getBfFpp(),
-                                                             tabletIdSet, isRestore);
+                                                             colocateBucketBackends, tabletIdSet,
+                                                             createReplicaJob, isRestore);
+            if (!isRestore) {
+                waitCreateReplicaJob(createReplicaJob, "partition[" + partitionName + "]");
+            }
 
             // check again
             db.writeLock();
@@ -2539,6 +2601,7 @@ public class Catalog {
                     RangePartitionInfo rangePartitionInfo = (RangePartitionInfo) partitionInfo;
                     rangePartitionInfo.handleNewSinglePartitionDesc(singlePartitionDesc, partitionId);
 
+                    createReplicaJob.prepareToPublish();
                     olapTable.addPartition(partition);
 
                     // log
@@ -2546,6 +2609,7 @@ public class Catalog {
                             rangePartitionInfo.getRange(partitionId), dataProperty,
                             rangePartitionInfo.getReplicationNum(partitionId));
                     editLog.logAddPartition(info);
+                    createReplicaJob.publish();
 
                     LOG.info("succeed in creating partition[{}]", partitionId);
                     return null;
@@ -2561,6 +2625,9 @@ public class Catalog {
                 db.writeUnlock();
             }
         } catch (DdlException e) {
+            if (createReplicaJob != null) {
+                createReplicaJob.cancel(e.getMessage());
+            }
             for (Long tabletId : tabletIdSet) {
                 Catalog.getCurrentInvertedIndex().deleteTablet(tabletId);
             }
@@ -2578,6 +2645,7 @@ public class Catalog {
             PartitionInfo partitionInfo = olapTable.getPartitionInfo();
             ((RangePartitionInfo) partitionInfo).unprotectHandleNewSinglePartitionDesc(partition.getId(),
                     info.getRange(), info.getDataProperty(), info.getReplicationNum());
+            pendingCreateReplicas.addPartition(info.getDbId(), info.getTableId(), partition);
 
             if (!isCheckpointThread()) {
                 // add to inverted index
@@ -2756,6 +2824,31 @@ public class Catalog {
         }
     }
 
+    // Submit the job and wait until a quorum of replicas of every tablet is created.
+    // The left replicas will be created in background.
+    private void waitCreateReplicaJob(CreateReplicaJob createReplicaJob, String name) throws DdlException {
+        CreateReplicaScheduler.getInstance().submit(createReplicaJob);
+
+        // estimate timeout
+        long timeout = Config.tablet_create_timeout_second * 1000L * createReplicaJob.getTaskNum();
+        boolean ok = false;
+        try {
+            ok = createReplicaJob.waitQuorum(timeout);
+        } catch (InterruptedException e) {
+            LOG.warn("InterruptedException: ", e);
+            ok = false;
+        }
+
+        if (!ok) {
+            String errMsg = "Failed to create " + name + ". "
+                    + (createReplicaJob.getErrMsg() == null ? "Timeout" : createReplicaJob.getErrMsg());
+            String idStr = Joiner.on(", ").join(createReplicaJob.getUnfinishedReplicas());
+            LOG.warn("{}. unfinished replicas: {}", errMsg, idStr);
+            createReplicaJob.cancel(errMsg);
+            throw new DdlException(errMsg);
+        }
+    }
+
     private Partition createPartitionWithIndices(String clusterName, long dbId, long tableId,
                                                  long partitionId, String partitionName,
                                                  Map<Long, Short> indexIdToShortKeyColumnCount,
@@ -2769,7 +2862,9 @@ public class Catalog {
                                                  Pair<Long, Long> versionInfo,
                                                  Set<String> bfColumns,
                                                  double bfFpp,
+                                                 List<List<Long>> colocateBucketBackends,
                                                  Set<Long> tabletIdSet,
+                                                 CreateReplicaJob createReplicaJob,
                                                  boolean isRestore) throws DdlException {
         // create base index first. use table id as base index id
         long baseIndexId = tableId;
@@ -2805,27 +2900,25 @@ public class Catalog {
             MaterializedIndex index = entry.getValue();
 
             // create tablets
+            // replicas to be created by job are added with a lower version, so that they will not be
+            // queried until they are created in backend.
             int schemaHash = indexIdToSchemaHash.get(indexId);
             TabletMeta tabletMeta = new TabletMeta(dbId, tableId, partitionId, indexId, schemaHash);
-            createTablets(clusterName, index, ReplicaState.NORMAL, distributionInfo, version, versionHash,
-                    replicationNum, tabletMeta, tabletIdSet);
-
-            boolean ok = false;
-            String errMsg = null;
+            long replicaVersion = isRestore ? version : version - 1;
+            long replicaVersionHash = isRestore ? versionHash : 0L;
+            createTablets(clusterName, index, ReplicaState.NORMAL, distributionInfo, replicaVersion,
+                    replicaVersionHash, replicationNum, tabletMeta, colocateBucketBackends, tabletIdSet);
 
             if (!isRestore) {
-                // add create replica task for olap
+                // add create replica task for olap.
+                // tasks are sent by CreateReplicaScheduler
                 short shortKeyColumnCount = indexIdToShortKeyColumnCount.get(indexId);
                 TStorageType storageType = indexIdToStorageType.get(indexId);
                 List<Column> schema = indexIdToSchema.get(indexId);
-                int totalTaskNum = index.getTablets().size() * replicationNum;
-                MarkedCountDownLatch countDownLatch = new MarkedCountDownLatch(totalTaskNum);
-                AgentBatchTask batchTask = new AgentBatchTask();
                 for (Tablet tablet : index.getTablets()) {
                     long tabletId = tablet.getId();
                     for (Replica replica : tablet.getReplicas()) {
                         long backendId = replica.getBackendId();
-                        countDownLatch.addMark(backendId, tabletId);
                         CreateReplicaTask task = new CreateReplicaTask(backendId, dbId, tableId,
                                                                        partitionId, indexId, tabletId,
                                                                        shortKeyColumnCount, schemaHash,
@@ -2833,37 +2926,10 @@ public class Catalog {
                                                                        keysType,
                                                                        storageType, storageMedium,
                                                                        schema, bfColumns, bfFpp,
-                                                                       countDownLatch);
-                        batchTask.addTask(task);
-                        // add to AgentTaskQueue for handling finish report.
-                        // not for resending task
-                        AgentTaskQueue.addTask(task);
+                                                                       null);
+                        createReplicaJob.addTask(task, replica, replicationNum);
                     }
                 }
-                AgentTaskExecutor.submit(batchTask);
-
-                // estimate timeout
-                long timeout = Config.tablet_create_timeout_second * 1000L * totalTaskNum;
-                try {
-                    ok = countDownLatch.await(timeout, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    LOG.warn("InterruptedException: ", e);
-                    ok = false;
-                }
-
-                if (!ok) {
-                    errMsg = "Failed to create partition[" + partitionName + "]. Timeout";
-                    // clear tasks
-                    List<AgentTask> tasks = batchTask.getAllTasks();
-                    for (AgentTask task : tasks) {
-                        AgentTaskQueue.removeTask(task.getBackendId(), TTaskType.CREATE, task.getSignature());
-                    }
-
-                    Collection<Entry<Long, Long>> unfinishedMarks = countDownLatch.getLeftMarks();
-                    String idStr = Joiner.on(", ").join(unfinishedMarks);
-                    LOG.warn("{}. unfinished marks: {}", errMsg, idStr);
-                    throw new DdlException(errMsg);
-                }
             } else {
                 // do nothing
                 // restore task will be done in RestoreJob
@@ -2977,6 +3043,23 @@ public class Catalog {
             throw new DdlException(e.getMessage());
         }
 
+        // analyze colocate group
+        List<List<Long>> colocateBucketBackends = null;
+        try {
+            String colocateGroup = PropertyAnalyzer.analyzeColocate(properties);
+            if (colocateGroup != null) {
+                olapTable.setColocateGroup(colocateGroup);
+                db.readLock();
+                try {
+                    colocateBucketBackends = getColocateBucketBackends(db, olapTable);
+                } finally {
+                    db.readUnlock();
+                }
+            }
+        } catch (AnalysisException e) {
+            throw new DdlException(e.getMessage());
+        }
+
         // set index schema
         int schemaVersion = 0;
         try {
@@ -3000,6 +3083,11 @@ public class Catalog {
         // a set to record every new tablet created when create table
         // if failed in any step, use this set to do clear things
         Set<Long> tabletIdSet = new HashSet<Long>();
+        // replicas of all partitions are created in one job
+        CreateReplicaJob createReplicaJob = null;
+        if (!isRestore) {
+            createReplicaJob = CreateReplicaScheduler.getInstance().createJob(db.getId(), tableId, tableName);
+        }
 
         Table returnTable = null;
         // create partition
@@ -3043,7 +3131,8 @@ public class Catalog {
                                                                  dataProperty.getStorageMedium(),
                                                                  replicationNum,
                                                                  versionInfo, bfColumns, bfFpp,
-                                                                 tabletIdSet, isRestore);
+                                                                 colocateBucketBackends, tabletIdSet,
+                                                                 createReplicaJob, isRestore);
                 olapTable.addPartition(partition);
             } else if (partitionInfo.getType() == PartitionType.RANGE) {
                 try {
@@ -3074,13 +3163,18 @@ public class Catalog {
                                                                      dataProperty.getStorageMedium(),
                                                                      partitionInfo.getReplicationNum(entry.getValue()),
                                                                      versionInfo, bfColumns, bfFpp,
-                                                                     tabletIdSet, isRestore);
+                                                                     colocateBucketBackends, tabletIdSet,
+                                                                     createReplicaJob, isRestore);
                     olapTable.addPartition(partition);
                 }
             } else {
                 throw new DdlException("Unsupport partition method: " + partitionInfo.getType().name());
             }
 
+            if (!isRestore) {
+                waitCreateReplicaJob(createReplicaJob, "table[" + tableName + "]");
+            }
+
             if (isRestore) {
                 // ATTN: do not add this table to db.
                 // if add, replica info may be removed when handling tablet
@@ -3089,12 +3183,17 @@ public class Catalog {
                 returnTable = olapTable;
                 LOG.info("successfully create table[{};{}] to restore", tableName, tableId);
             } else {
+                createReplicaJob.prepareToPublish();
                 if (!db.createTableWithLock(olapTable, false, stmt.isSetIfNotExists())) {
                     ErrorReport.reportDdlException(ErrorCode.ERR_CANT_CREATE_TABLE, tableName, "table already exists");
                 }
+                createReplicaJob.publish();
                 LOG.info("successfully create table[{};{}]", tableName, tableId);
             }
         } catch (DdlException e) {
+            if (createReplicaJob != null) {
+                createReplicaJob.cancel(e.getMessage());
+            }
             for (Long tabletId : tabletIdSet) {
                 Catalog.getCurrentInvertedIndex().deleteTablet(tabletId);
             }
@@ -3306,6 +3405,12 @@ public class Catalog {
                 sb.append(Joiner.on(", ").join(olapTable.getCopiedBfColumns())).append("\"");
             }
 
+            // colocate group
+            if (olapTable.getColocateGroup() != null) {
+                sb.append(",\n \"").append(PropertyAnalyzer.PROPERTIES_COLOCATE_WITH).append("\" = \"");
+                sb.append(olapTable.getColocateGroup()).append("\"");
+            }
+
             if (separatePartition) {
                 // 3. version info
                 sb.append(",\n \"").append(PropertyAnalyzer.PROPERTIES_VERSION_INFO).append("\" = \"");
@@ -3447,6 +3552,12 @@ public class Catalog {
         Database db = this.fullNameToDb.get(dbName);
         db.createTableWithLock(table, true, false);
 
+        if (table.getType() == TableType.OLAP) {
+            for (Partition partition : ((OlapTable) table).getPartitions()) {
+                pendingCreateReplicas.addPartition(db.getId(), table.getId(), partition);
+            }
+        }
+
         if (!isCheckpointThread()) {
             // add to inverted index
             if (table.getType() == TableType.OLAP) {
@@ -3474,9 +3585,16 @@ public class Catalog {
 
     }
 
+    /*
+     * If colocateBucketBackends is not null, the replicas of tablet of each bucket sequence are created on
+     * the available backends in it, see chooseColocateBackendIds(). The backends chosen for each bucket are
+     * put back to it, so that the other indices and partitions of colocated tables are created on the same
+     * backends.
+     */
     private void createTablets(String clusterName, MaterializedIndex index, ReplicaState replicaState,
             DistributionInfo distributionInfo, long version, long versionHash, short replicationNum,
-            TabletMeta tabletMeta, Set<Long> tabletIdSet) throws DdlException {
+            TabletMeta tabletMeta, List<List<Long>> colocateBucketBackends, Set<Long> tabletIdSet)
+            throws DdlException {
         Preconditions.checkArgument(replicationNum > 0);
 
         DistributionInfoType distributionInfoType = distributionInfo.getType();
@@ -3489,13 +3607,24 @@ public class Catalog {
                 index.addTablet(tablet, tabletMeta);
                 tabletIdSet.add(tablet.getId());
 
-                // create replicas for tablet with random chosen backends
-                List<Long> chosenBackendIds = Catalog.getCurrentSystemInfo().seqChooseBackendIds(replicationNum, true,
-                        true, clusterName);
-                if (chosenBackendIds == null) {
-                    throw new DdlException("Failed to find enough host in all backends. need: " + replicationNum);
+                List<Long> chosenBackendIds = null;
+                if (colocateBucketBackends != null && i < colocateBucketBackends.size()) {
+                    // create replicas on the backends of the same bucket of colocated tablets
+                    chosenBackendIds = chooseColocateBackendIds(clusterName, colocateBucketBackends.get(i),
+                                                                replicationNum);
+                    colocateBucketBackends.set(i, chosenBackendIds);
+                } else {
+                    // create replicas for tablet with random chosen backends
+                    chosenBackendIds = Catalog.getCurrentSystemInfo().seqChooseBackendIds(replicationNum, true,
+                            true, clusterName);
+                    if (chosenBackendIds == null) {
+                        throw new DdlException("Failed to find enough host in all backends. need: " + replicationNum);
+                    }
+                    Preconditions.checkState(chosenBackendIds.size() == replicationNum);
+                    if (colocateBucketBackends != null) {
+                        colocateBucketBackends.add(chosenBackendIds);
+                    }
                 }
-                Preconditions.checkState(chosenBackendIds.size() == replicationNum);
                 for (long backendId : chosenBackendIds) {
                     long replicaId = getNextId();
                     Replica replica = new Replica(replicaId, backendId, replicaState, version, versionHash);
@@ -3507,6 +3636,123 @@ public class Catalog {
         }
     }
 
+    /*
+     * Choose replicationNum backends for the replicas of a bucket of colocated tables.
+     * The available ones of bucketBackendIds are preferred in order. The missing ones, eg. the backend is
+     * dead or decommissioned, or the replication num is larger than colocated tables, are filled with
+     * other available backends, which are then used by the later partitions of the group.
+     */
+    static List<Long> chooseColocateBackendIds(String clusterName, List<Long> bucketBackendIds,
+                                               short replicationNum) throws DdlException {
+        SystemInfoService infoService = Catalog.getCurrentSystemInfo();
+        List<Long> chosenBackendIds = Lists.newArrayList();
+        for (Long backendId : bucketBackendIds) {
+            if (chosenBackendIds.size() >= replicationNum) {
+                break;
+            }
+            if (infoService.checkBackendAvailable(backendId) && !chosenBackendIds.contains(backendId)) {
+                chosenBackendIds.add(backendId);
+            }
+        }
+        if (chosenBackendIds.size() == replicationNum) {
+            return chosenBackendIds;
+        }
+
+        List<Long> candidateIds = infoService.seqChooseBackendIds(replicationNum, true, true, clusterName);
+        if (candidateIds == null) {
+            throw new DdlException("Failed to find enough host in all backends. need: " + replicationNum);
+        }
+        for (Long backendId : candidateIds) {
+            if (chosenBackendIds.size() >= replicationNum) {
+                break;
+            }
+            if (!chosenBackendIds.contains(backendId)) {
+                chosenBackendIds.add(backendId);
+            }
+        }
+        LOG.info("backends of colocated bucket {} are not all available, choose {}",
+                 bucketBackendIds, chosenBackendIds);
+        return chosenBackendIds;
+    }
+
+    /*
+     * Return the backends of replicas of each bucket sequence of the colocate group of olapTable, or an empty
+     * list if the group has no partition yet. Tables in the same group must have compatible distribution.
+     * The replicas in any state of the base indices of all partitions in the group are counted, and the
+     * backends of each bucket are ordered by the number of its replicas on them desc, so that a bucket still
+     * has candidates when some of its replicas are lost or being cloned.
+     * Should be called with db lock held.
+     */
+    public static List<List<Long>> getColocateBucketBackends(Database db, OlapTable olapTable)
+            throws DdlException {
+        DistributionInfo distributionInfo = olapTable.getDefaultDistributionInfo();
+        if (distributionInfo.getType() != DistributionInfoType.HASH) {
+            throw new DdlException("Only hash distributed table can be colocated");
+        }
+        List<Column> distributionColumns = ((HashDistributionInfo) distributionInfo).getDistributionColumns();
+
+        // bucket sequence => backend id => replica num
+        List<Map<Long, Integer>> bucketBackendReplicaNums = Lists.newArrayList();
+        for (Table table : db.getTables()) {
+            if (table.getType() != TableType.OLAP) {
+                continue;
+            }
+            OlapTable groupTable = (OlapTable) table;
+            if (!olapTable.getColocateGroup().equals(groupTable.getColocateGroup())) {
+                continue;
+            }
+
+            // check distribution
+            HashDistributionInfo groupDistributionInfo = (HashDistributionInfo) groupTable.getDefaultDistributionInfo();
+            if (groupDistributionInfo.getBucketNum() != distributionInfo.getBucketNum()) {
+                throw new DdlException("Bucket num should be the same as colocated table["
+                        + groupTable.getName() + "]: " + groupDistributionInfo.getBucketNum());
+            }
+            List<Column> groupDistributionColumns = groupDistributionInfo.getDistributionColumns();
+            if (groupDistributionColumns.size() != distributionColumns.size()) {
+                throw new DdlException("Distribution columns should be the same as colocated table["
+                        + groupTable.getName() + "]");
+            }
+            for (int i = 0; i < distributionColumns.size(); i++) {
+                if (groupDistributionColumns.get(i).getDataType() != distributionColumns.get(i).getDataType()) {
+                    throw new DdlException("Type of distribution columns should be the same as colocated table["
+                            + groupTable.getName() + "]");
+                }
+            }
+
+            for (Partition partition : groupTable.getPartitions()) {
+                if (partition.getDistributionInfo().getBucketNum() != distributionInfo.getBucketNum()) {
+                    continue;
+                }
+                List<Tablet> tablets = partition.getBaseIndex().getTablets();
+                for (int i = 0; i < tablets.size(); i++) {
+                    if (i >= bucketBackendReplicaNums.size()) {
+                        bucketBackendReplicaNums.add(Maps.<Long, Integer>newLinkedHashMap());
+                    }
+                    Map<Long, Integer> backendReplicaNums = bucketBackendReplicaNums.get(i);
+                    for (Replica replica : tablets.get(i).getReplicas()) {
+                        Integer num = backendReplicaNums.get(replica.getBackendId());
+                        backendReplicaNums.put(replica.getBackendId(), num == null ? 1 : num + 1);
+                    }
+                }
+            }
+        }
+
+        List<List<Long>> bucketBackends = Lists.newArrayList();
+        for (final Map<Long, Integer> backendReplicaNums : bucketBackendReplicaNums) {
+            List<Long> backendIds = Lists.newArrayList(backendReplicaNums.keySet());
+            // stable sort, the backends first seen are preferred if they have the same num
+            Collections.sort(backendIds, new Comparator<Long>() {
+                @Override
+                public int compare(Long id1, Long id2) {
+                    return backendReplicaNums.get(id2) - backendReplicaNums.get(id1);
+                }
+            });
+            bucketBackends.add(backendIds);
+        }
+        return bucketBackends;
+    }
+
     // Drop table
     public void dropTable(DropTableStmt stmt) throws DdlException {
         String dbName = stmt.getDbName();
@@ -3657,6 +3903,7 @@ public class Catalog {
         } finally {
             db.writeUnlock();
         }
+        pendingCreateReplicas.remove(info.getTabletId(), info.getBackendId());
     }
 
     public void unprotectDeleteReplica(ReplicaPersistInfo info) {
@@ -3676,6 +3923,35 @@ public class Catalog {
         } finally {
             db.writeUnlock();
         }
+        pendingCreateReplicas.remove(info.getTabletId(), info.getBackendId());
+    }
+
+    public void replayUpdateIndexStats(BatchIndexStatInfo batchInfo) {
+        for (IndexStatInfo info : batchInfo.getInfos()) {
+            Database db = getDb(info.getDbId());
+            if (db == null) {
+                continue;
+            }
+            db.writeLock();
+            try {
+                // the index may be dropped after the stats are logged
+                Table table = db.getTable(info.getTableId());
+                if (table == null || table.getType() != TableType.OLAP) {
+                    continue;
+                }
+                Partition partition = ((OlapTable) table).getPartition(info.getPartitionId());
+                if (partition == null) {
+                    continue;
+                }
+                MaterializedIndex index = partition.getIndex(info.getIndexId());
+                if (index == null) {
+                    continue;
+                }
+                index.setStat(info.getRowCount(), info.getDataSize());
+            } finally {
+                db.writeUnlock();
+            }
+        }
     }
 
     public void addFrontendWithCheck(Frontend fe) {
@@ -3916,6 +4192,10 @@ public class Catalog {
         return this.consistencyChecker;
     }
 
+    public TabletStatMgr getTabletStatMgr() {
+        return this.tabletStatMgr;
+    }
+
     public Alter getAlterInstance() {
         return this.alter;
     }
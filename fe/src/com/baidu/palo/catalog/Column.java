@@ -34,6 +34,7 @@ import com.baidu.palo.common.io.Writable;
 import com.baidu.palo.thrift.TColumn;
 import com.baidu.palo.thrift.TColumnType;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 
@@ -459,9 +460,15 @@ public class Column implements Writable {
         Text.writeString(out, comment);
     }
 
+    // Return true if all attributes are the same, so that the column objects can be shared among indices
+    public boolean isIdentical(Column other) {
+        return equals(other) && name.equals(other.name)
+                && Objects.equal(comment, other.comment) && Objects.equal(stats, other.stats);
+    }
+
     @Override
     public void readFields(DataInput in) throws IOException {
-        name = Text.readString(in);
+        name = Text.readString(in).intern();
         columnType = new ColumnType();
         columnType.readFields(in);
         boolean notNull = in.readBoolean();
@@ -489,12 +496,12 @@ public class Column implements Writable {
 
         notNull = in.readBoolean();
         if (notNull) {
-            defaultValue = Text.readString(in);
+            defaultValue = Text.readString(in).intern();
         }
         stats = ColumnStats.read(in);
 
         if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_10) {
-            comment = Text.readString(in);
+            comment = Text.readString(in).intern();
         } else {
             comment = "";
         }
@@ -34,6 +34,8 @@ import org.apache.logging.log4j.Logger;
 
 import com.google.common.collect.Lists;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -45,6 +47,8 @@ public final class DomainParserServer {
     private Map<String, Set<String>> userToHost = Maps.newHashMap();
     // user to map which successd parsed
     private Map<String, Map<String, Set<String>>> userTohostToIpSet = Maps.newHashMap();
+    // user to all ips parsed from its hosts, immutable snapshot of userTohostToIpSet for lock free lookup
+    private volatile ImmutableMap<String, ImmutableSet<String>> userToIpSet = ImmutableMap.of();
     private Lock cloneLock = new ReentrantLock();
     private Thread server = new Thread();
 
@@ -93,14 +97,39 @@ public final class DomainParserServer {
         }
         LOG.debug("ParserServer unregister user[{}], host[{}]", user, hostList.get(0));
         cloneLock.lock();
-        for (String host : hostList) {
+        try {
             if (!userToHost.containsKey(user)) {
                 return;
             }
-            userToHost.get(user).remove(host);
-            userTohostToIpSet.get(user).remove(host);
+            for (String host : hostList) {
+                userToHost.get(user).remove(host);
+                if (userTohostToIpSet.containsKey(user)) {
+                    userTohostToIpSet.get(user).remove(host);
+                }
+            }
+            refreshUserToIpSet();
+        } finally {
+            cloneLock.unlock();
         }
-        cloneLock.unlock();
+    }
+
+    // Return true if ip is parsed from one of hosts of the user. It does not lock.
+    public boolean hasUserHostIp(String user, String ip) {
+        ImmutableSet<String> ipSet = userToIpSet.get(user);
+        return ipSet != null && ipSet.contains(ip);
+    }
+
+    // Must hold cloneLock
+    private void refreshUserToIpSet() {
+        ImmutableMap.Builder<String, ImmutableSet<String>> builder = ImmutableMap.builder();
+        for (Map.Entry<String, Map<String, Set<String>>> entry : userTohostToIpSet.entrySet()) {
+            ImmutableSet.Builder<String> ipSet = ImmutableSet.builder();
+            for (Set<String> ips : entry.getValue().values()) {
+                ipSet.addAll(ips);
+            }
+            builder.put(entry.getKey(), ipSet.build());
+        }
+        userToIpSet = builder.build();
     }
 
     /**
@@ -318,6 +347,7 @@ public final class DomainParserServer {
                 cloneLock.lock();
                 userTohostToIpSet.clear();
                 userTohostToIpSet.putAll(tmp);
+                refreshUserToIpSet();
                 cloneLock.unlock();
                 try {
                     Thread.sleep(10000);
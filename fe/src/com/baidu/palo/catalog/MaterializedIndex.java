@@ -20,10 +20,12 @@
 
 package com.baidu.palo.catalog;
 
+import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.io.Writable;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -47,7 +49,10 @@ public class MaterializedIndex extends MetaObject implements Writable {
     private long id;
 
     private IndexState state;
-    private long rowCount;
+    // sum of row count of tablets
+    private volatile long rowCount;
+    // sum of data size of tablets. it is updated by tablet reports and TabletStatMgr
+    private volatile long dataSize;
 
     private Map<Long, Tablet> idToTablets;
     // this is for keeping tablet order
@@ -123,6 +128,34 @@ public class MaterializedIndex extends MetaObject implements Writable {
         this.rowCount = rowCount;
     }
 
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    // recompute the statistics from tablets. must hold the db lock
+    public void updateStat() {
+        long rowCount = 0L;
+        long dataSize = 0L;
+        for (Tablet tablet : tablets) {
+            rowCount += tablet.getRowCount();
+            dataSize += tablet.getDataSize();
+        }
+        this.rowCount = rowCount;
+        this.dataSize = dataSize;
+    }
+
+    // set the statistics computed by master. must hold the db write lock
+    public void setStat(long rowCount, long dataSize) {
+        this.rowCount = rowCount;
+        this.dataSize = dataSize;
+    }
+
+    // update the statistics by the change of one tablet. must hold the db write lock
+    public void updateStat(long rowCountDelta, long dataSizeDelta) {
+        this.rowCount = Math.max(0L, rowCount + rowCountDelta);
+        this.dataSize = Math.max(0L, dataSize + dataSizeDelta);
+    }
+
     public void setRollupIndexInfo(long rollupIndexId, long rollupFinishedVersion) {
         this.rollupIndexId = rollupIndexId;
         this.rollupFinishedVersion = rollupFinishedVersion;
@@ -157,6 +190,7 @@ public class MaterializedIndex extends MetaObject implements Writable {
 
         out.writeLong(rollupIndexId);
         out.writeLong(rollupFinishedVersion);
+        out.writeLong(dataSize);
     }
 
     public void readFields(DataInput in) throws IOException {
@@ -168,6 +202,8 @@ public class MaterializedIndex extends MetaObject implements Writable {
         rowCount = in.readLong();
 
         int tabletCount = in.readInt();
+        idToTablets = Maps.newHashMapWithExpectedSize(tabletCount);
+        tablets = new ArrayList<Tablet>(tabletCount);
         for (int i = 0; i < tabletCount; ++i) {
             Tablet tablet = Tablet.read(in);
             tablets.add(tablet);
@@ -176,6 +212,9 @@ public class MaterializedIndex extends MetaObject implements Writable {
 
         rollupIndexId = in.readLong();
         rollupFinishedVersion = in.readLong();
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_42) {
+            dataSize = in.readLong();
+        }
     }
 
     public static MaterializedIndex read(DataInput in) throws IOException {
@@ -52,7 +52,6 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -97,6 +96,10 @@ public class OlapTable extends Table {
     private Set<String> bfColumns;
     private double bfFpp;
 
+    // tables of the same colocate group in a database have the same distribution, and
+    // the tablets of the same bucket sequence are on the same backends, so they can be joined locally
+    private String colocateGroup;
+
     public OlapTable() {
         // for persist
         super(TableType.OLAP);
@@ -114,6 +117,8 @@ public class OlapTable extends Table {
 
         this.bfColumns = null;
         this.bfFpp = 0;
+
+        this.colocateGroup = null;
     }
 
     public OlapTable(long id, String tableName, List<Column> baseSchema,
@@ -140,6 +145,8 @@ public class OlapTable extends Table {
 
         this.bfColumns = null;
         this.bfFpp = 0;
+
+        this.colocateGroup = null;
     }
 
     public void setState(OlapTableState state) {
@@ -403,6 +410,14 @@ public class OlapTable extends Table {
         this.bfFpp = bfFpp;
     }
 
+    public String getColocateGroup() {
+        return colocateGroup;
+    }
+
+    public void setColocateGroup(String colocateGroup) {
+        this.colocateGroup = colocateGroup;
+    }
+
     public TTableDescriptor toThrift() {
         TOlapTable tOlapTable = new TOlapTable(getName());
         TTableDescriptor tTableDescriptor = new TTableDescriptor(id, TTableType.OLAP_TABLE,
@@ -519,6 +534,9 @@ public class OlapTable extends Table {
             properties.put(PropertyAnalyzer.PROPERTIES_BF_COLUMNS, bfCols);
             properties.put(PropertyAnalyzer.PROPERTIES_BF_FPP, String.valueOf(bfFpp));
         }
+        if (colocateGroup != null) {
+            properties.put(PropertyAnalyzer.PROPERTIES_COLOCATE_WITH, colocateGroup);
+        }
         properties.put(PropertyAnalyzer.PROPERTIES_SCHEMA_VERSION, indexIdToSchemaVersion.get(id).toString());
 
         CreateTableStmt stmt = new CreateTableStmt(false, false, new TableName(dbName, name), baseSchema,
@@ -643,6 +661,14 @@ public class OlapTable extends Table {
             }
             out.writeDouble(bfFpp);
         }
+
+        // colocate group
+        if (colocateGroup == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            Text.writeString(out, colocateGroup);
+        }
     }
 
     @Override
@@ -652,6 +678,8 @@ public class OlapTable extends Table {
         this.state = OlapTableState.valueOf(Text.readString(in));
 
         // indices's schema
+        // identical columns of different indices share the same object
+        Map<String, Column> nameToSharedColumn = Maps.newHashMap();
         int counter = in.readInt();
         for (int i = 0; i < counter; i++) {
             String indexName = Text.readString(in);
@@ -660,9 +688,15 @@ public class OlapTable extends Table {
 
             // schema
             int colCount = in.readInt();
-            List<Column> schema = new LinkedList<Column>();
+            List<Column> schema = new ArrayList<Column>(colCount);
             for (int j = 0; j < colCount; j++) {
                 Column column = Column.read(in);
+                Column sharedColumn = nameToSharedColumn.get(column.getName());
+                if (sharedColumn != null && sharedColumn.isIdentical(column)) {
+                    column = sharedColumn;
+                } else if (sharedColumn == null) {
+                    nameToSharedColumn.put(column.getName(), column);
+                }
                 schema.add(column);
             }
             this.indexIdToSchema.put(indexId, schema);
@@ -724,6 +758,12 @@ public class OlapTable extends Table {
                 bfFpp = in.readDouble();
             }
         }
+
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_36) {
+            if (in.readBoolean()) {
+                colocateGroup = Text.readString(in);
+            }
+        }
     }
 
     public boolean equals(Table table) {
@@ -109,6 +109,12 @@ public class Replica implements Writable {
         LOG.debug("update {}", this.toString());
     }
 
+    // update the data size and row count reported by backend, without changing version
+    public void updateStat(long newDataSize, long newRowCount) {
+        this.dataSize = newDataSize;
+        this.rowCount = newRowCount;
+    }
+
     public boolean checkVersionCatchUp(long committedVersion, long committedVersionHash) {
         if (this.version < committedVersion
                 || (this.version == committedVersion && this.versionHash != committedVersionHash)) {
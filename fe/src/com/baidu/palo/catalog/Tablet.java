@@ -47,12 +47,15 @@ public class Tablet extends MetaObject implements Writable {
 
     private boolean isConsistent;
 
+    // most tablets have 3 replicas, avoid the default capacity of ArrayList
+    private static final int DEFAULT_REPLICA_CAPACITY = 3;
+
     public Tablet() {
-        this(0L, new ArrayList<Replica>());
+        this(0L, new ArrayList<Replica>(DEFAULT_REPLICA_CAPACITY));
     }
     
     public Tablet(long tabletId) {
-        this(tabletId, new ArrayList<Replica>());
+        this(tabletId, new ArrayList<Replica>(DEFAULT_REPLICA_CAPACITY));
     }
     
     public Tablet(long tabletId, List<Replica> replicas) {
@@ -122,6 +125,24 @@ public class Tablet extends MetaObject implements Writable {
         return this.replicas;
     }
     
+    // replicas of a tablet may be in different versions, the data size of tablet is the largest one of them
+    public long getDataSize() {
+        long dataSize = 0L;
+        for (Replica replica : replicas) {
+            dataSize = Math.max(dataSize, replica.getDataSize());
+        }
+        return dataSize;
+    }
+
+    // same as getDataSize(), the row count of tablet is the largest one of its replicas
+    public long getRowCount() {
+        long rowCount = 0L;
+        for (Replica replica : replicas) {
+            rowCount = Math.max(rowCount, replica.getRowCount());
+        }
+        return rowCount;
+    }
+
     public Set<Long> getBackendIds() {
         Set<Long> beIds = Sets.newHashSet();
         for (Replica replica : replicas) {
@@ -238,6 +259,7 @@ public class Tablet extends MetaObject implements Writable {
 
         id = in.readLong();
         int replicaCount = in.readInt();
+        replicas = new ArrayList<Replica>(replicaCount);
         for (int i = 0; i < replicaCount; ++i) {
             Replica replica = Replica.read(in);
             if (deleteRedundantReplica(replica.getBackendId(), replica.getVersion())) {
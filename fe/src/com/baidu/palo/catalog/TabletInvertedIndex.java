@@ -95,6 +95,7 @@ public class TabletInvertedIndex {
     public void tabletReport(long backendId, Map<Long, TTablet> backendTablets,
                              final HashMap<Long, TStorageMedium> storageMediumMap,
                              ListMultimap<Long, Long> tabletSyncMap,
+                             ListMultimap<Long, Long> tabletStatMap,
                              ListMultimap<Long, Long> tabletDeleteFromMeta,
                              Set<Long> foundTabletsWithValidSchema,
                              Map<Long, TTabletInfo> foundTabletsWithInvalidSchema,
@@ -124,6 +125,9 @@ public class TabletInvertedIndex {
                                               backendTabletInfo.getVersion_hash())) {
                                     // need sync
                                     tabletSyncMap.put(tabletMeta.getDbId(), tabletId);
+                                } else if (checkStat(replica, backendTabletInfo)) {
+                                    // same version, but data size or row count changed. eg. after compaction
+                                    tabletStatMap.put(tabletMeta.getDbId(), tabletId);
                                 }
 
                                 // check if need migration
@@ -152,8 +156,9 @@ public class TabletInvertedIndex {
         }
 
         long end = System.currentTimeMillis();
-        LOG.info("finished to do tablet diff with backend[{}]. sync: {}. metaDel: {}. foundValid: {}. foundInvalid: {}."
-                         + " migration: {}." + " cost: {} ms", backendId, tabletSyncMap.size(),
+        LOG.info("finished to do tablet diff with backend[{}]. sync: {}. stat: {}. metaDel: {}. foundValid: {}."
+                         + " foundInvalid: {}. migration: {}." + " cost: {} ms", backendId, tabletSyncMap.size(),
+                 tabletStatMap.size(),
                  tabletDeleteFromMeta.size(), foundTabletsWithValidSchema.size(), foundTabletsWithInvalidSchema.size(),
                  tabletMigrationMap.size(), (end - start));
     }
@@ -237,6 +242,15 @@ public class TabletInvertedIndex {
         return false;
     }
 
+    private boolean checkStat(Replica replicaMeta, TTabletInfo backendTabletInfo) {
+        if (replicaMeta.getVersion() != backendTabletInfo.getVersion()
+                || replicaMeta.getVersionHash() != backendTabletInfo.getVersion_hash()) {
+            return false;
+        }
+        return replicaMeta.getDataSize() != backendTabletInfo.getData_size()
+                || replicaMeta.getRowCount() != backendTabletInfo.getRow_count();
+    }
+
     public void addTablet(long tabletId, TabletMeta tabletMeta) {
         // always add tablet before adding replicas
         if (Catalog.isCheckpointThread()) {
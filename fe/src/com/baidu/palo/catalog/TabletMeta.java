@@ -20,8 +20,6 @@ import com.google.common.base.Preconditions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
 public class TabletMeta {
     private static final Logger LOG = LogManager.getLogger(TabletMeta.class);
 
@@ -30,11 +28,10 @@ public class TabletMeta {
     private final long partitionId;
     private final long indexId;
 
+    // there may be millions of tablet metas, so use the monitor lock instead of a ReentrantReadWriteLock
     private int oldSchemaHash;
     private int newSchemaHash;
 
-    private ReentrantReadWriteLock lock;
-
     public TabletMeta(long dbId, long tableId, long partitionId, long indexId, int schemaHash) {
         this.dbId = dbId;
         this.tableId = tableId;
@@ -43,8 +40,6 @@ public class TabletMeta {
 
         this.oldSchemaHash = schemaHash;
         this.newSchemaHash = -1;
-
-        lock = new ReentrantReadWriteLock();
     }
 
     public long getDbId() {
@@ -63,84 +58,49 @@ public class TabletMeta {
         return indexId;
     }
 
-    public void setNewSchemaHash(int newSchemaHash) {
-        lock.writeLock().lock();
-        try {
-            Preconditions.checkState(this.newSchemaHash == -1);
-            this.newSchemaHash = newSchemaHash;
-            LOG.debug("setNewSchemaHash: {}", toString());
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public synchronized void setNewSchemaHash(int newSchemaHash) {
+        Preconditions.checkState(this.newSchemaHash == -1);
+        this.newSchemaHash = newSchemaHash;
+        LOG.debug("setNewSchemaHash: {}", toString());
     }
 
-    public void updateToNewSchemaHash() {
-        lock.writeLock().lock();
-        try {
-            Preconditions.checkState(this.newSchemaHash != -1);
-            int tmp = this.oldSchemaHash;
-            this.oldSchemaHash = this.newSchemaHash;
-            this.newSchemaHash = tmp;
-            LOG.debug("updateToNewSchemaHash: " + toString());
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public synchronized void updateToNewSchemaHash() {
+        Preconditions.checkState(this.newSchemaHash != -1);
+        int tmp = this.oldSchemaHash;
+        this.oldSchemaHash = this.newSchemaHash;
+        this.newSchemaHash = tmp;
+        LOG.debug("updateToNewSchemaHash: " + toString());
     }
 
-    public void deleteNewSchemaHash() {
-        lock.writeLock().lock();
-        try {
-            LOG.debug("deleteNewSchemaHash: " + toString());
-            this.newSchemaHash = -1;
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public synchronized void deleteNewSchemaHash() {
+        LOG.debug("deleteNewSchemaHash: " + toString());
+        this.newSchemaHash = -1;
     }
 
-    public int getOldSchemaHash() {
-        lock.readLock().lock();
-        try {
-            return this.oldSchemaHash;
-        } finally {
-            lock.readLock().unlock();
-        }
+    public synchronized int getOldSchemaHash() {
+        return this.oldSchemaHash;
     }
 
-    public boolean containsSchemaHash(int schemaHash) {
-        lock.readLock().lock();
-        try {
-            return this.oldSchemaHash == schemaHash || this.newSchemaHash == schemaHash;
-        } finally {
-            lock.readLock().unlock();
-        }
+    public synchronized boolean containsSchemaHash(int schemaHash) {
+        return this.oldSchemaHash == schemaHash || this.newSchemaHash == schemaHash;
     }
 
     // XXX
-    public void forceSetSchema(int schemaHash) {
-        lock.writeLock().lock();
-        try {
-            this.oldSchemaHash = schemaHash;
-            this.newSchemaHash = -1;
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public synchronized void forceSetSchema(int schemaHash) {
+        this.oldSchemaHash = schemaHash;
+        this.newSchemaHash = -1;
     }
 
     @Override
-    public String toString() {
-        lock.readLock().lock();
-        try {
-            StringBuilder sb = new StringBuilder();
-            sb.append("dbId=" + dbId);
-            sb.append(" tableId=" + tableId);
-            sb.append(" partitionId=" + partitionId);
-            sb.append(" indexId=" + indexId);
-            sb.append(" oldSchemaHash=" + oldSchemaHash);
-            sb.append(" newSchemaHash=" + newSchemaHash);
-
-            return sb.toString();
-        } finally {
-            lock.readLock().unlock();
-        }
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("dbId=" + dbId);
+        sb.append(" tableId=" + tableId);
+        sb.append(" partitionId=" + partitionId);
+        sb.append(" indexId=" + indexId);
+        sb.append(" oldSchemaHash=" + oldSchemaHash);
+        sb.append(" newSchemaHash=" + newSchemaHash);
+
+        return sb.toString();
     }
 }
@@ -0,0 +1,104 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.catalog;
+
+import com.baidu.palo.catalog.Table.TableType;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.Daemon;
+import com.baidu.palo.persist.BatchIndexStatInfo;
+import com.baidu.palo.persist.IndexStatInfo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Recompute the row count and data size of all indexes from their replicas periodically.
+ *
+ * The statistics are updated incrementally by tablet reports and loads, which are used by planner to estimate
+ * the cost of scan. Tablet reports only reach master, so only master recomputes the statistics, and writes the
+ * changed ones to edit log in batches. Non-master FEs get them by replaying the edit log and loading the image,
+ * so their statistics lag behind master by at most one cycle.
+ */
+public class TabletStatMgr extends Daemon {
+    private static final Logger LOG = LogManager.getLogger(TabletStatMgr.class);
+
+    // max number of index stats written in one edit log
+    private static final int MAX_STATS_PER_LOG = 10000;
+
+    // index id -> (row count, data size) last written to edit log
+    private Map<Long, Pair<Long, Long>> loggedStats = Maps.newHashMap();
+
+    public TabletStatMgr() {
+        super("tablet stat mgr", Config.tablet_stat_update_interval_second * 1000L);
+    }
+
+    @Override
+    protected void runOneCycle() {
+        setInterval(Config.tablet_stat_update_interval_second * 1000L);
+        Catalog catalog = Catalog.getInstance();
+        if (!catalog.isMaster()) {
+            // log all stats again if this FE becomes master later
+            loggedStats.clear();
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Long, Pair<Long, Long>> newStats = Maps.newHashMap();
+        List<IndexStatInfo> changedStats = Lists.newArrayList();
+        for (Long dbId : catalog.getDbIds()) {
+            Database db = catalog.getDb(dbId);
+            if (db == null) {
+                continue;
+            }
+            db.readLock();
+            try {
+                for (Table table : db.getTables()) {
+                    if (table.getType() != TableType.OLAP) {
+                        continue;
+                    }
+                    for (Partition partition : ((OlapTable) table).getPartitions()) {
+                        for (MaterializedIndex index : partition.getMaterializedIndices()) {
+                            index.updateStat();
+                            Pair<Long, Long> stat = new Pair<Long, Long>(index.getRowCount(), index.getDataSize());
+                            newStats.put(index.getId(), stat);
+                            if (!stat.equals(loggedStats.get(index.getId()))) {
+                                changedStats.add(new IndexStatInfo(dbId, table.getId(), partition.getId(),
+                                                                   index.getId(), stat.first, stat.second));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                db.readUnlock();
+            }
+        }
+
+        for (int i = 0; i < changedStats.size(); i += MAX_STATS_PER_LOG) {
+            List<IndexStatInfo> batch = changedStats.subList(i, Math.min(i + MAX_STATS_PER_LOG, changedStats.size()));
+            catalog.getEditLog().logUpdateIndexStats(new BatchIndexStatInfo(Lists.newArrayList(batch)));
+        }
+        loggedStats = newStats;
+        LOG.info("finished to update stat of {} indexes, {} changed. cost: {} ms",
+                 newStats.size(), changedStats.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -47,6 +47,8 @@ import java.util.regex.Pattern;
 
 public class UserProperty implements Writable {
     private static final String MAX_USER_CONNECTIONS = "max_user_connections";
+    private static final String MAX_RUNNING_QUERY = "max_running_query";
+    private static final String MAX_RUNNING_QUERY_MEM = "max_running_query_mem";
     private static final String RESOURCE = "resource";
     private static final String QUOTA = "quota";
     private static final String DEFAULT_LOAD_CLUSTER = "default_load_cluster";
@@ -72,6 +74,9 @@ public class UserProperty implements Writable {
     private boolean isSuperuser = false;
 
     private long maxConn;
+    // limits of query admission, 0 means no limit
+    private long maxRunningQuery;
+    private long maxRunningQueryMem;
     // Resource belong to this user.
     private UserResource resource;
     // load cluster
@@ -83,6 +88,8 @@ public class UserProperty implements Writable {
 
     static {
         ADVANCED_PROPERTIES.add(Pattern.compile("^" + MAX_USER_CONNECTIONS + "$", Pattern.CASE_INSENSITIVE));
+        ADVANCED_PROPERTIES.add(Pattern.compile("^" + MAX_RUNNING_QUERY + "$", Pattern.CASE_INSENSITIVE));
+        ADVANCED_PROPERTIES.add(Pattern.compile("^" + MAX_RUNNING_QUERY_MEM + "$", Pattern.CASE_INSENSITIVE));
         ADVANCED_PROPERTIES.add(Pattern.compile("^" + RESOURCE + ".", Pattern.CASE_INSENSITIVE));
         ADVANCED_PROPERTIES.add(Pattern.compile(
                 "^" + LOAD_CLUSTER + "." + DppConfig.CLUSTER_NAME_REGEX + "." + DppConfig.PRIORITY + "$",
@@ -101,6 +108,8 @@ public class UserProperty implements Writable {
         dbPrivMap = Maps.newHashMap();
         isAdmin = false;
         maxConn = Config.max_conn_per_user;
+        maxRunningQuery = Config.max_running_query_per_user;
+        maxRunningQueryMem = Config.max_running_query_mem_per_user;
         resource = new UserResource(1000);
         defaultLoadCluster = null;
         clusterToDppConfig = Maps.newHashMap();
@@ -147,6 +156,14 @@ public class UserProperty implements Writable {
         return maxConn;
     }
 
+    public long getMaxRunningQuery() {
+        return maxRunningQuery;
+    }
+
+    public long getMaxRunningQueryMem() {
+        return maxRunningQueryMem;
+    }
+
     public byte[] getPassword() {
         return password;
     }
@@ -158,6 +175,8 @@ public class UserProperty implements Writable {
     public void update(List<SetVar> propertyVarList) throws DdlException {
         // copy
         long newMaxConn = maxConn;
+        long newMaxRunningQuery = maxRunningQuery;
+        long newMaxRunningQueryMem = maxRunningQueryMem;
         UserResource newResource = resource.getCopiedUserResource();
         String newDefaultLoadCluster = defaultLoadCluster;
         Map<String, DppConfig> newDppConfigs = Maps.newHashMap(clusterToDppConfig);
@@ -184,6 +203,30 @@ public class UserProperty implements Writable {
                 if (newMaxConn <= 0 || newMaxConn > 10000) {
                     throw new DdlException(MAX_USER_CONNECTIONS + " is not valid, must between 1 and 10000");
                 }
+            } else if (keyArr[0].equalsIgnoreCase(MAX_RUNNING_QUERY)
+                    || keyArr[0].equalsIgnoreCase(MAX_RUNNING_QUERY_MEM)) {
+                // set property "max_running_query" = "10"
+                // set property "max_running_query_mem" = "10737418240"
+                if (keyArr.length != 1) {
+                    throw new DdlException(keyArr[0] + " format error");
+                }
+
+                long limit = 0;
+                try {
+                    limit = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new DdlException(keyArr[0] + " is not number");
+                }
+
+                if (limit < 0) {
+                    throw new DdlException(keyArr[0] + " is not valid, must not be negative");
+                }
+
+                if (keyArr[0].equalsIgnoreCase(MAX_RUNNING_QUERY)) {
+                    newMaxRunningQuery = limit;
+                } else {
+                    newMaxRunningQueryMem = limit;
+                }
             } else if (keyArr[0].equalsIgnoreCase(RESOURCE)) {
                 // set property "resource.cpu_share" = "100"
                 if (keyArr.length != 2) {
@@ -239,6 +282,8 @@ public class UserProperty implements Writable {
 
         // set
         maxConn = newMaxConn;
+        maxRunningQuery = newMaxRunningQuery;
+        maxRunningQueryMem = newMaxRunningQueryMem;
         resource = newResource;
         if (newDppConfigs.containsKey(newDefaultLoadCluster)) {
             defaultLoadCluster = newDefaultLoadCluster;
@@ -296,6 +341,11 @@ public class UserProperty implements Writable {
         if (isSuperuser()) {
             return true;
         }
+        return checkDbAccess(dbPrivMap, db, priv);
+    }
+
+    // check privilege of non superuser
+    public static boolean checkDbAccess(Map<String, AccessPrivilege> dbPrivMap, String db, AccessPrivilege priv) {
         // information_schema is case insensitive
         String tmpDb = db;
         if (tmpDb.equalsIgnoreCase(InfoSchemaDb.DATABASE_NAME)) {
@@ -308,6 +358,10 @@ public class UserProperty implements Writable {
         return dbPriv.contains(priv);
     }
 
+    public Map<String, AccessPrivilege> getDbPrivMap() {
+        return dbPrivMap;
+    }
+
     // 修改用户已有的权限, 有可能当前对此DB无权限, 有可能已经有权限了，只是修改
     // 无论如何，直接覆盖就OK了。
     public void setAccess(String db, AccessPrivilege priv) {
@@ -355,6 +409,10 @@ public class UserProperty implements Writable {
         // max user connections
         result.add(Lists.newArrayList(MAX_USER_CONNECTIONS, String.valueOf(maxConn)));
 
+        // query admission
+        result.add(Lists.newArrayList(MAX_RUNNING_QUERY, String.valueOf(maxRunningQuery)));
+        result.add(Lists.newArrayList(MAX_RUNNING_QUERY_MEM, String.valueOf(maxRunningQueryMem)));
+
         // resource
         ResourceGroup group = resource.getResource();
         for (Map.Entry<ResourceType, Integer> entry : group.getQuotaMap().entrySet()) {
@@ -472,6 +530,8 @@ public class UserProperty implements Writable {
             out.writeBoolean(true);
             Text.writeString(out, clusterName);
         }
+        out.writeLong(maxRunningQuery);
+        out.writeLong(maxRunningQueryMem);
     }
 
     public void readFields(DataInput in) throws IOException {
@@ -532,6 +592,11 @@ public class UserProperty implements Writable {
                 clusterName = Text.readString(in);
             }
         }
+
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_39) {
+            maxRunningQuery = in.readLong();
+            maxRunningQueryMem = in.readLong();
+        }
     }
 
     public static UserProperty read(DataInput in) throws IOException {
@@ -45,6 +45,7 @@ import com.baidu.palo.thrift.TFetchResourceResult;
 import com.baidu.palo.thrift.TTopicItem;
 import com.baidu.palo.thrift.TTopicType;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -58,6 +59,33 @@ public class UserPropertyMgr {
     public static final String ROOT_USER = "root";
     public static final String SYSTEM_RESOURCE_USER = "system";
     private AtomicLong resourceVersion;
+    // Snapshot of auth info of all users, rebuilt when the write lock is released.
+    // Connection handshake and privilege checks read it without lock.
+    private volatile ImmutableMap<String, AuthInfo> authSnapshot = ImmutableMap.of();
+
+    // Immutable copy of auth info of a user
+    private static class AuthInfo {
+        final byte[] password;
+        final boolean isAdmin;
+        final boolean isSuperuser;
+        final long maxConn;
+        final long maxRunningQuery;
+        final long maxRunningQueryMem;
+        final ImmutableMap<String, AccessPrivilege> dbPrivMap;
+        // white list compiles itself when changed, so it is safe to be shared
+        final WhiteList whiteList;
+
+        AuthInfo(UserProperty property) {
+            password = property.getPassword().clone();
+            isAdmin = property.isAdmin();
+            isSuperuser = property.isSuperuser();
+            maxConn = property.getMaxConn();
+            maxRunningQuery = property.getMaxRunningQuery();
+            maxRunningQueryMem = property.getMaxRunningQueryMem();
+            dbPrivMap = ImmutableMap.copyOf(property.getDbPrivMap());
+            whiteList = property.getWhiteList();
+        }
+    }
 
     public UserPropertyMgr() {
         userMap = Maps.newConcurrentMap();
@@ -67,6 +95,7 @@ public class UserPropertyMgr {
         unprotectAddUser("", ROOT_USER, new byte[0]);
         unprotectAddUser("", SYSTEM_RESOURCE_USER, new byte[0]);
         resourceVersion = new AtomicLong(0);
+        refreshAuthSnapshot();
     }
 
     public static String getRootName() {
@@ -86,9 +115,28 @@ public class UserPropertyMgr {
     }
 
     private void writeUnlock() {
+        // every change of users is made under the write lock
+        if (this.lock.writeLock().getHoldCount() == 1) {
+            refreshAuthSnapshot();
+        }
         this.lock.writeLock().unlock();
     }
 
+    private void refreshAuthSnapshot() {
+        ImmutableMap.Builder<String, AuthInfo> builder = ImmutableMap.builder();
+        for (Map.Entry<String, UserProperty> entry : userMap.entrySet()) {
+            builder.put(entry.getKey(), new AuthInfo(entry.getValue()));
+        }
+        authSnapshot = builder.build();
+    }
+
+    private AuthInfo getAuthInfo(String user) {
+        if (Strings.isNullOrEmpty(user)) {
+            return null;
+        }
+        return authSnapshot.get(user);
+    }
+
     public void setEditLog(EditLog editLog) {
         this.editLog = editLog;
     }
@@ -247,15 +295,11 @@ public class UserPropertyMgr {
     // getPassword()
     // TODO(add functionget and set maxCount of user)
     public boolean checkAccess(String user, String db, AccessPrivilege priv) {
-        readLock();
-        try {
-            if (!isUserExists(user)) {
-                return false;
-            }
-            return this.getAccessResource(user).checkAccess(db, priv);
-        } finally {
-            readUnlock();
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return false;
         }
+        return authInfo.isSuperuser || UserProperty.checkDbAccess(authInfo.dbPrivMap, db, priv);
     }
 
     public boolean checkUserAccess(String opUser, String user) {
@@ -275,61 +319,53 @@ public class UserPropertyMgr {
     }
 
     public byte[] getPassword(String user) {
-        readLock();
-        try {
-            if (!isUserExists(user)) {
-                return null;
-            }
-            return this.getAccessResource(user).getPassword();
-        } finally {
-            readUnlock();
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return null;
         }
+        return authInfo.password;
     }
 
     public boolean isAdmin(String user) {
-        readLock();
-        try {
-            if (!isUserExists(user)) {
-                return false;
-            }
-            return this.getAccessResource(user).isAdmin();
-        } finally {
-            readUnlock();
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return false;
         }
+        return authInfo.isAdmin;
     }
 
     public boolean isSuperuser(String user) {
-        readLock();
-        try {
-            if (!isUserExists(user)) {
-                return false;
-            }
-            return this.getAccessResource(user).isSuperuser();
-        } finally {
-            readUnlock();
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return false;
         }
+        return authInfo.isSuperuser;
     }
 
     public long getMaxConn(String user) {
-        readLock();
-        try {
-            if (!isUserExists(user)) {
-                return 0;
-            }
-            return this.getAccessResource(user).getMaxConn();
-        } finally {
-            readUnlock();
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return 0;
         }
+        return authInfo.maxConn;
     }
 
-    private boolean isUserExists(String user) {
-        if (Strings.isNullOrEmpty(user)) {
-            return false;
+    // 0 means no limit
+    public long getMaxRunningQuery(String user) {
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return 0;
         }
-        if (this.getAccessResource(user) == null) {
-            return false;
+        return authInfo.maxRunningQuery;
+    }
+
+    // 0 means no limit
+    public long getMaxRunningQueryMem(String user) {
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return 0;
         }
-        return true;
+        return authInfo.maxRunningQueryMem;
     }
 
     // this two function used to read snapshot or write snapshot
@@ -354,6 +390,7 @@ public class UserPropertyMgr {
 
         // Read resource
         resourceVersion = new AtomicLong(in.readLong());
+        refreshAuthSnapshot();
     }
 
     public int getUserMapSize() {
@@ -365,6 +402,7 @@ public class UserPropertyMgr {
         userMap.remove(user);
         // TODO(zhaochun): Now we add resource version every time.
         resourceVersion.incrementAndGet();
+        refreshAuthSnapshot();
     }
 
     public void replayDropUser(String user) {
@@ -380,6 +418,7 @@ public class UserPropertyMgr {
         userMap.put(userProperty.getUser(), userProperty);
         // TODO(zhaochun): Now we add resource version every time.
         resourceVersion.incrementAndGet();
+        refreshAuthSnapshot();
     }
 
     public void replayAlterAccess(UserProperty userProperty) {
@@ -588,16 +627,11 @@ public class UserPropertyMgr {
         if (user.equals("root") && remoteIp.equals("127.0.0.1")) {
             return true;
         }
-        readLock();
-        try {
-            UserProperty property = userMap.get(user);
-            if (property == null) {
-                return false;
-            }
-            return property.getWhiteList().hasAccess(remoteIp);
-        } finally {
-            readUnlock();
+        AuthInfo authInfo = getAuthInfo(user);
+        if (authInfo == null) {
+            return false;
         }
+        return authInfo.whiteList.hasAccess(remoteIp);
     }
 
     public List<List<String>> showWhiteList(String user) {
@@ -19,6 +19,9 @@ import com.baidu.palo.common.DdlException;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.io.Writable;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import org.apache.logging.log4j.LogManager;
@@ -40,70 +43,147 @@ public class WhiteList implements Writable {
     protected Set<String> starIpWhiteLists = Sets.newHashSet();
     // hostName(www.baidu.com), which need to dns analysis
     protected Set<String> hostWhiteLists = Sets.newHashSet();
-    protected Map<String, Set<String>> ipOfHostWhiteLists;
     private String user;
+    // compiled from white lists above, rebuilt when they change
+    private volatile Matcher matcher = new Matcher(this);
+
+    /*
+     * Immutable compiled form of white lists, so that hasAccess() neither parses patterns nor needs a lock.
+     * Star ip is compiled to a mask and a masked value, e.g. 123.123.*.* to 255.255.0.0 and 123.123.0.0.
+     * Star ips with the same mask are grouped, so an ip is checked by one lookup for each distinct mask.
+     */
+    private static class Matcher {
+        private final boolean isEmpty;
+        private final boolean hasHost;
+        private final ImmutableSet<String> ips;
+        private final ImmutableMap<Long, ImmutableSet<Long>> maskToValues;
+
+        Matcher(WhiteList whiteList) {
+            isEmpty = whiteList.getSize() == 0;
+            hasHost = !whiteList.hostWhiteLists.isEmpty();
+            ips = ImmutableSet.copyOf(whiteList.ipWhiteLists);
+
+            Map<Long, Set<Long>> tmpMaskToValues = Maps.newHashMap();
+            for (String starIp : whiteList.starIpWhiteLists) {
+                long mask = 0;
+                long value = 0;
+                String[] splittedStarIp = starIp.split("\\.");
+                if (splittedStarIp.length != 4) {
+                    LOG.warn("invalid star ip in white list of user {}: {}", whiteList.user, starIp);
+                    continue;
+                }
+                boolean isValid = true;
+                for (String part : splittedStarIp) {
+                    mask <<= 8;
+                    value <<= 8;
+                    if (part.equals("*")) {
+                        continue;
+                    }
+                    long octet = parseOctet(part, 0, part.length());
+                    if (octet < 0) {
+                        isValid = false;
+                        break;
+                    }
+                    mask |= 0xFF;
+                    value |= octet;
+                }
+                if (!isValid) {
+                    LOG.warn("invalid star ip in white list of user {}: {}", whiteList.user, starIp);
+                    continue;
+                }
+                Set<Long> values = tmpMaskToValues.get(mask);
+                if (values == null) {
+                    values = Sets.newHashSet();
+                    tmpMaskToValues.put(mask, values);
+                }
+                values.add(value);
+            }
+            ImmutableMap.Builder<Long, ImmutableSet<Long>> builder = ImmutableMap.builder();
+            for (Map.Entry<Long, Set<Long>> entry : tmpMaskToValues.entrySet()) {
+                builder.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+            }
+            maskToValues = builder.build();
+        }
+
+        boolean match(String ip) {
+            if (ips.contains(ip)) {
+                return true;
+            }
+            if (maskToValues.isEmpty()) {
+                return false;
+            }
+            long ipValue = parseIp(ip);
+            if (ipValue < 0) {
+                LOG.warn("Invalid IP format: {}", ip);
+                return false;
+            }
+            for (Map.Entry<Long, ImmutableSet<Long>> entry : maskToValues.entrySet()) {
+                if (entry.getValue().contains(ipValue & entry.getKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 
     public WhiteList() {
     }
 
+    // Return ipv4 address as a number, or -1 if it is invalid
+    private static long parseIp(String ip) {
+        long value = 0;
+        int partNum = 0;
+        int start = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            if (i < ip.length() && ip.charAt(i) != '.') {
+                continue;
+            }
+            long octet = parseOctet(ip, start, i);
+            if (octet < 0 || ++partNum > 4) {
+                return -1;
+            }
+            value = (value << 8) | octet;
+            start = i + 1;
+        }
+        return partNum == 4 ? value : -1;
+    }
+
+    // Return the number in str[start, end), or -1 if it is not a valid octet
+    private static long parseOctet(String str, int start, int end) {
+        if (start >= end || end - start > 3) {
+            return -1;
+        }
+        long octet = 0;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            octet = octet * 10 + (c - '0');
+        }
+        return octet <= 255 ? octet : -1;
+    }
+
     // for limit the max whiteListsize
     public int getSize() {
         return ipWhiteLists.size() + starIpWhiteLists.size() + hostWhiteLists.size();
     }
 
     public boolean hasAccess(String ip) {
+        Matcher matcherRef = matcher;
         // whileList is null, all people can access
-        if (getSize() == 0) {
+        if (matcherRef.isEmpty) {
             return true;
         }
 
-        // 1. check if specified ip in white list
-        if (ipWhiteLists.contains(ip)) {
+        // 1. check if specified ip matches ip or star ip in white list
+        if (matcherRef.match(ip)) {
             return true;
         }
 
-        // 2. check if specified ip in start white list
-        for (String starIp : starIpWhiteLists) {
-            String[] splittedStarIp = starIp.split("\\.");
-            String[] splittedSpecifiedIp = ip.split("\\.");
-            int starIpLen = splittedStarIp.length;
-            int specifiedIpLen = splittedSpecifiedIp.length;
-            if (!(specifiedIpLen == 4 && starIpLen == 4)) {
-                String msg = String.format("Invalid IP format: %s", ip);
-                LOG.warn(msg);
-                throw new RuntimeException(msg);
-            }
-
-            boolean hit = true;
-            for (int i = 0; i < 4; i++) {
-                if (splittedSpecifiedIp[i].equals(splittedStarIp[i])) {
-                    continue;
-                } else if (splittedStarIp[i].equals("*")) {
-                    continue;
-                } else {
-                    hit = false;
-                    break;
-                }
-            }
-
-            if (hit) {
-                return true;
-            }
-        }
-
-        ipOfHostWhiteLists = DomainParserServer.getInstance().getUserHostIp(user);
-        // 3. check ipWhiteList
-        if (ipOfHostWhiteLists != null) {
-            for (String entryIp : ipOfHostWhiteLists.keySet()) {
-                Set<String> ipSet = ipOfHostWhiteLists.get(entryIp);
-                if (ipSet == null || ipSet.size() == 0) {
-                    LOG.warn("dns error ip={}", entryIp);
-                    continue;
-                }
-                if (ipSet.contains(ip)) {
-                    return true;
-                }
-            }
+        // 2. check ips of hosts in white list
+        if (matcherRef.hasHost && DomainParserServer.getInstance().hasUserHostIp(user, ip)) {
+            return true;
         }
         LOG.warn("can't match whitelist ip={}", ip);
         return false;
@@ -113,7 +193,10 @@ public class WhiteList implements Writable {
         ipWhiteLists.addAll(ips);
         starIpWhiteLists.addAll(starIps);
         hostWhiteLists.addAll(hosts);
-        DomainParserServer.getInstance().register(user, hosts);
+        matcher = new Matcher(this);
+        if (!hosts.isEmpty()) {
+            DomainParserServer.getInstance().register(user, hosts);
+        }
     }
 
     public void deleteWhiteList(List<String> ips, List<String> starIps, List<String> hosts) {
@@ -126,10 +209,10 @@ public class WhiteList implements Writable {
         if (hosts != null && hosts.size() > 0) {
             hostWhiteLists.removeAll(hosts);
         }
+        matcher = new Matcher(this);
         if (hosts != null && hosts.size() > 0) {
             DomainParserServer.getInstance().unregister(user, hosts);
         }
-
     }
 
     @Override
@@ -189,6 +272,7 @@ public class WhiteList implements Writable {
             String ip = Text.readString(in);
             hostWhiteLists.add(ip);
         }
+        matcher = new Matcher(this);
 
         if (hostWhiteLists != null && hostWhiteLists.size() > 0) {
             DomainParserServer.getInstance().register(user, hostWhiteLists);
@@ -17,6 +17,7 @@ package com.baidu.palo.clone;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +32,8 @@ import org.apache.logging.log4j.Logger;
 
 import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.DiskInfo;
+import com.baidu.palo.catalog.DiskInfo.DiskState;
 import com.baidu.palo.catalog.MaterializedIndex;
 import com.baidu.palo.catalog.OlapTable;
 import com.baidu.palo.catalog.Partition;
@@ -42,9 +45,12 @@ import com.baidu.palo.clone.CloneJob.JobState;
 import com.baidu.palo.clone.CloneJob.JobType;
 import com.baidu.palo.common.Config;
 import com.baidu.palo.common.MetaNotFoundException;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.DebugUtil;
 import com.baidu.palo.common.util.ListComparator;
 import com.baidu.palo.common.util.TimeUtils;
 import com.baidu.palo.persist.ReplicaPersistInfo;
+import com.baidu.palo.system.Backend;
 import com.baidu.palo.task.AgentTaskQueue;
 import com.baidu.palo.task.CloneTask;
 import com.baidu.palo.thrift.TTabletInfo;
@@ -53,10 +59,47 @@ import com.baidu.palo.thrift.TTaskType;
 public class Clone {
     private static final Logger LOG = LogManager.getLogger(Clone.class);
 
+    /*
+     * Order of scheduling clone jobs:
+     * 1. higher priority first. Tablets lacking quorum replicas are NORMAL, others are LOW.
+     * 2. SUPPLEMENT (replica missing) before MIGRATION (replica unbalanced).
+     * 3. newer partition first. Partition ids increase with creation, and recent partitions are usually the hot
+     *    ones being loaded and queried.
+     * 4. earlier created job first.
+     */
+    private static final Comparator<CloneJob> SCHEDULE_ORDER = new Comparator<CloneJob>() {
+        @Override
+        public int compare(CloneJob job1, CloneJob job2) {
+            if (job1.getPriority() != job2.getPriority()) {
+                return job1.getPriority().compareTo(job2.getPriority());
+            }
+            if (job1.getType() != job2.getType()) {
+                return job1.getType().compareTo(job2.getType());
+            }
+            if (job1.getPartitionId() != job2.getPartitionId()) {
+                return Long.compare(job2.getPartitionId(), job1.getPartitionId());
+            }
+            return Long.compare(job1.getCreateTimeMs(), job2.getCreateTimeMs());
+        }
+    };
+
+    // clone load of a backend, to limit concurrency and bandwidth of clone jobs on it
+    private static class BackendCloneLoad {
+        // running jobs which copy data from or to the backend
+        int runningJobNum = 0;
+        // bytes allowed to be copied now, may be negative after a large tablet is scheduled
+        long availableBytes = 0L;
+        long lastRefillTimeMs = -1L;
+        // moving average throughput of finished jobs on the backend, -1 if unknown
+        long avgThroughputBps = -1L;
+    }
+
     // priority to Map<tabletId, CloneJob> 
     private Map<JobPriority, Map<Long, CloneJob>> priorityToCloneJobs;
     // job num: pending + running 
     private int jobNum;
+    // backend id to clone load
+    private Map<Long, BackendCloneLoad> backendToCloneLoad;
     // lock for clone job
     // lock is private and must use after db lock
     private ReentrantReadWriteLock lock;
@@ -69,6 +112,7 @@ public class Clone {
             priorityToCloneJobs.put(priority, cloneJobs);
         }
         jobNum = 0;
+        backendToCloneLoad = new HashMap<Long, BackendCloneLoad>();
         lock = new ReentrantReadWriteLock(true);
     }
 
@@ -172,7 +216,7 @@ public class Clone {
     }
 
     /**
-     * get state clone jobs order by priority
+     * get state clone jobs order by schedule order
      */
     public List<CloneJob> getCloneJobs(JobState state) {
         List<CloneJob> cloneJobs = new ArrayList<CloneJob>();
@@ -193,6 +237,7 @@ public class Clone {
                     cloneJobs.add(job);
                 }
             }
+            Collections.sort(cloneJobs, SCHEDULE_ORDER);
             return cloneJobs;
         } finally {
             readUnlock();
@@ -233,6 +278,7 @@ public class Clone {
     public List<List<Comparable>> getCloneJobInfosByDb(Database db) {
         List<List<Comparable>> cloneJobInfos = new ArrayList<List<Comparable>>();
         long dbId = db.getId();
+        long currentTimeMs = System.currentTimeMillis();
         readLock();
         try {
             for (Map<Long, CloneJob> cloneJobs : priorityToCloneJobs.values()) {
@@ -255,6 +301,22 @@ public class Clone {
                     jobInfo.add(TimeUtils.longToTimeString(job.getCloneStartTimeMs()));
                     jobInfo.add(TimeUtils.longToTimeString(job.getCloneFinishTimeMs()));
                     jobInfo.add(job.getTimeoutMs() / 1000);
+                    jobInfo.add(job.getSrcBackendId());
+                    jobInfo.add(formatBytes(job.getTabletSizeB()));
+
+                    // actual throughput of finished job, or estimated one of running job
+                    long throughputBps = job.getThroughputBps();
+                    String finishTime = "N/A";
+                    if (job.getState() == JobState.RUNNING) {
+                        throughputBps = getEstimatedThroughputBps(job);
+                        if (throughputBps > 0) {
+                            long finishTimeMs = job.getCloneStartTimeMs()
+                                    + job.getTabletSizeB() * 1000L / throughputBps;
+                            finishTime = TimeUtils.longToTimeString(Math.max(finishTimeMs, currentTimeMs));
+                        }
+                    }
+                    jobInfo.add(throughputBps > 0 ? formatBytes(throughputBps) + "/s" : "N/A");
+                    jobInfo.add(finishTime);
                     jobInfo.add(job.getFailMsg());
                     cloneJobInfos.add(jobInfo);
                 }
@@ -269,8 +331,145 @@ public class Clone {
         return cloneJobInfos;
     }
     
+    private static String formatBytes(long bytes) {
+        Pair<Double, String> unit = DebugUtil.getByteUint(bytes);
+        return DebugUtil.DECIMAL_FORMAT_SCALE_3.format(unit.first) + " " + unit.second;
+    }
+
+    // must hold the lock
+    private long getEstimatedThroughputBps(CloneJob job) {
+        long throughputBps = -1L;
+        for (long backendId : new long[] { job.getSrcBackendId(), job.getDestBackendId() }) {
+            BackendCloneLoad load = backendToCloneLoad.get(backendId);
+            if (load == null || load.avgThroughputBps <= 0) {
+                continue;
+            }
+            if (throughputBps < 0 || load.avgThroughputBps < throughputBps) {
+                throughputBps = load.avgThroughputBps;
+            }
+        }
+        return throughputBps;
+    }
+
+    // bytes per second of clone traffic allowed on the backend, 0 means no limit
+    private static long getBackendBandwidthBps(long backendId) {
+        if (Config.clone_max_bytes_per_second_per_disk <= 0) {
+            return 0L;
+        }
+        int onlineDiskNum = 0;
+        Backend backend = Catalog.getCurrentSystemInfo().getBackend(backendId);
+        if (backend != null) {
+            for (DiskInfo disk : backend.getDisks().values()) {
+                if (disk.getState() == DiskState.ONLINE) {
+                    ++onlineDiskNum;
+                }
+            }
+        }
+        return Config.clone_max_bytes_per_second_per_disk * Math.max(1, onlineDiskNum);
+    }
+
+    // get clone load of backend and refill its available bytes. must hold the write lock
+    private BackendCloneLoad getBackendCloneLoad(long backendId, long currentTimeMs) {
+        BackendCloneLoad load = backendToCloneLoad.get(backendId);
+        if (load == null) {
+            load = new BackendCloneLoad();
+            backendToCloneLoad.put(backendId, load);
+        }
+        long bandwidthBps = getBackendBandwidthBps(backendId);
+        // allow a burst of one schedule interval
+        long burstSecond = Math.max(1, Config.clone_schedule_interval_second);
+        if (load.lastRefillTimeMs < 0) {
+            load.availableBytes = bandwidthBps * burstSecond;
+        } else {
+            long elapsedMs = Math.min(Math.max(0L, currentTimeMs - load.lastRefillTimeMs), burstSecond * 1000L);
+            load.availableBytes = Math.min(bandwidthBps * burstSecond,
+                                           load.availableBytes + bandwidthBps * elapsedMs / 1000L);
+        }
+        load.lastRefillTimeMs = currentTimeMs;
+        return load;
+    }
+
+    // must hold the write lock
+    private boolean isBackendAvailable(long backendId, long currentTimeMs) {
+        BackendCloneLoad load = getBackendCloneLoad(backendId, currentTimeMs);
+        if (Config.clone_max_running_job_num_per_backend > 0
+                && load.runningJobNum >= Config.clone_max_running_job_num_per_backend) {
+            return false;
+        }
+        return getBackendBandwidthBps(backendId) <= 0 || load.availableBytes > 0;
+    }
+
+    /**
+     * check if backend can be the dest of one more clone job within the concurrency and bandwidth limits
+     */
+    public boolean isDestBackendAvailable(long backendId) {
+        writeLock();
+        try {
+            return isBackendAvailable(backendId, System.currentTimeMillis());
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    /**
+     * select the least loaded backend which can be the src of one more clone job
+     * @return backend id, or -1 if all backends reach the limits
+     */
+    public long selectSrcBackend(List<Long> backendIds) {
+        long currentTimeMs = System.currentTimeMillis();
+        long selectedBackendId = -1L;
+        int minRunningJobNum = Integer.MAX_VALUE;
+        writeLock();
+        try {
+            for (long backendId : backendIds) {
+                if (!isBackendAvailable(backendId, currentTimeMs)) {
+                    continue;
+                }
+                int runningJobNum = backendToCloneLoad.get(backendId).runningJobNum;
+                if (runningJobNum < minRunningJobNum) {
+                    selectedBackendId = backendId;
+                    minRunningJobNum = runningJobNum;
+                }
+            }
+            return selectedBackendId;
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    // account job's data on its backends. must hold the write lock
+    private void acquireBackends(CloneJob job) {
+        long currentTimeMs = System.currentTimeMillis();
+        for (long backendId : new long[] { job.getSrcBackendId(), job.getDestBackendId() }) {
+            BackendCloneLoad load = getBackendCloneLoad(backendId, currentTimeMs);
+            ++load.runningJobNum;
+            load.availableBytes -= job.getTabletSizeB();
+        }
+    }
+
+    // release backends of job which is no longer running. must hold the write lock
+    private void releaseBackends(CloneJob job) {
+        if (job.getSrcBackendId() < 0) {
+            // not scheduled by runCloneJob
+            return;
+        }
+        long throughputBps = job.getThroughputBps();
+        for (long backendId : new long[] { job.getSrcBackendId(), job.getDestBackendId() }) {
+            BackendCloneLoad load = backendToCloneLoad.get(backendId);
+            if (load == null) {
+                continue;
+            }
+            load.runningJobNum = Math.max(0, load.runningJobNum - 1);
+            if (throughputBps > 0) {
+                load.avgThroughputBps = load.avgThroughputBps < 0 ? throughputBps
+                        : (load.avgThroughputBps * 3 + throughputBps) / 4;
+            }
+        }
+    }
+
     /**
-     * add task to task queue and update job running
+     * add task to task queue and update job running.
+     * job's src backend and tablet size should be set before.
      */
     public boolean runCloneJob(CloneJob job, CloneTask task) {
         writeLock();
@@ -282,6 +481,9 @@ public class Clone {
             if (AgentTaskQueue.addTask(task)) {
                 job.setState(JobState.RUNNING);
                 job.setCloneStartTimeMs(System.currentTimeMillis()); 
+                if (job.getSrcBackendId() >= 0) {
+                    acquireBackends(job);
+                }
                 return true;
             } else {
                 return false;
@@ -301,8 +503,10 @@ public class Clone {
             for (Map<Long, CloneJob> cloneJobs : priorityToCloneJobs.values()) {
                 for (CloneJob job : cloneJobs.values()) {
                     JobState state = job.getState();
-                    if (state == JobState.PENDING || state == JobState.RUNNING) {
-                        if (currentTimeMs - job.getCreateTimeMs() > job.getTimeoutMs()) {
+                    // job is timed from its start running. pending jobs wait for the concurrency limits of
+                    // backends, and are not cancelled however long they wait
+                    if (state == JobState.RUNNING) {
+                        if (currentTimeMs - job.getCloneStartTimeMs() > job.getTimeoutMs()) {
                             cancelCloneJob(job, "clone timeout");
                             LOG.warn("clone timeout. job: {}, src state: {}", job, state.name());
                         }
@@ -334,6 +538,9 @@ public class Clone {
             // update job state
             job.setState(JobState.CANCELLED);
             job.setFailMsg(failMsg);
+            if (state == JobState.RUNNING) {
+                releaseBackends(job);
+            }
         } finally {
             writeUnlock();
         }
@@ -476,6 +683,7 @@ public class Clone {
 
                 job.setCloneFinishTimeMs(System.currentTimeMillis());
                 job.setState(JobState.FINISHED);
+                releaseBackends(job);
                 LOG.info("finish clone job: {}", job);
                 
                 // Write edit log
@@ -47,6 +47,7 @@ import com.baidu.palo.clone.CloneJob.JobPriority;
 import com.baidu.palo.clone.CloneJob.JobState;
 import com.baidu.palo.clone.CloneJob.JobType;
 import com.baidu.palo.common.Config;
+import com.baidu.palo.common.DdlException;
 import com.baidu.palo.common.MetaNotFoundException;
 import com.baidu.palo.common.util.Daemon;
 import com.baidu.palo.common.util.Util;
@@ -81,17 +82,25 @@ public class CloneChecker extends Daemon {
 
     private static CloneChecker INSTANCE = null;
 
+    private long lastCheckTabletsTimeMs = -1L;
+
     private CloneChecker(long intervalMs) {
         super("clone checker", intervalMs);
     }
 
     public static CloneChecker getInstance() {
         if (INSTANCE == null) {
-            INSTANCE = new CloneChecker(Config.clone_checker_interval_second * 1000L);
+            INSTANCE = new CloneChecker(getCycleIntervalMs());
         }
         return INSTANCE;
     }
 
+    // pending jobs are scheduled every cycle, and tablets are checked every clone_checker_interval_second
+    public static long getCycleIntervalMs() {
+        return Math.max(1, Math.min(Config.clone_checker_interval_second,
+                                    Config.clone_schedule_interval_second)) * 1000L;
+    }
+
     /**
      * check tablet for supplement when be reports bad replica
      */
@@ -208,12 +217,18 @@ public class CloneChecker extends Daemon {
         LOG.debug("start to check clone. job num: {}", clone.getJobNum());
 
         // 1. check tablet for supplement, migration and deletion
-        checkTablets();
+        long currentTimeMs = System.currentTimeMillis();
+        if (lastCheckTabletsTimeMs < 0
+                || currentTimeMs - lastCheckTabletsTimeMs >= Config.clone_checker_interval_second * 1000L) {
+            checkTablets();
+            lastCheckTabletsTimeMs = currentTimeMs;
+        }
 
         // 2. check timeout
         clone.checkTimeout();
 
-        // 3. run pending job
+        // 3. run pending job in schedule order.
+        // jobs exceeding the concurrency or bandwidth limits of backends stay pending until next cycle
         List<CloneJob> jobs = clone.getCloneJobs(JobState.PENDING);
         for (CloneJob job : jobs) {
             // select src backends and submit clone task to backend
@@ -274,6 +289,9 @@ public class CloneChecker extends Daemon {
             // check table by table
             for (String tableName : tableNames) {
                 long tableId = -1L;
+                boolean isColocated = false;
+                // bucket sequence => backends of the colocate group, by which lost replicas are cloned
+                List<List<Long>> colocateBucketBackends = null;
                 Multimap<Long, MaterializedIndex> partitionIdToIndices = LinkedHashMultimap.create();
                 Map<Long, Short> partitionIdToReplicationNumMap = Maps.newHashMap();
                 db.readLock();
@@ -286,6 +304,14 @@ public class CloneChecker extends Daemon {
 
                     OlapTable olapTable = (OlapTable) table;
                     tableId = table.getId();
+                    isColocated = olapTable.getColocateGroup() != null;
+                    if (isColocated) {
+                        try {
+                            colocateBucketBackends = Catalog.getColocateBucketBackends(db, olapTable);
+                        } catch (DdlException e) {
+                            LOG.warn("failed to get backends of colocate group of table {}", tableName, e);
+                        }
+                    }
                     for (Partition partition : olapTable.getPartitions()) {
                         long partitionId = partition.getId();
                         for (MaterializedIndex materializedIndex : partition.getMaterializedIndices()) {
@@ -322,7 +348,12 @@ public class CloneChecker extends Daemon {
                     try {
                         long indexId = index.getId();
                         short replicationNum = partitionIdToReplicationNumMap.get(partitionId);
+                        // the position of a tablet in index is its bucket sequence
+                        boolean followColocate = colocateBucketBackends != null
+                                && index.getTablets().size() == colocateBucketBackends.size();
+                        int bucketSeq = -1;
                         for (Tablet tablet : index.getTablets()) {
+                            bucketSeq++;
                             long tabletId = tablet.getId();
                             List<Replica> replicas = tablet.getReplicas();
                             short onlineReplicaNum = 0;
@@ -358,6 +389,9 @@ public class CloneChecker extends Daemon {
                                                                    replicationNum, onlineReplicaNum,
                                                                    tabletSizeB, beIdsOfReplica);
                             tabletInfo.setDbState(db.getDbState());
+                            if (followColocate) {
+                                tabletInfo.setColocateBackendIds(colocateBucketBackends.get(bucketSeq));
+                            }
                             
                             // gather statistics of tablet infos of each backends
                             for (long backendId : beIdsOfReplica) {
@@ -411,8 +445,11 @@ public class CloneChecker extends Daemon {
                         checkSupplement(cloneTabletMap, clusterDistributionLevelToBackendIds,
                                         clusterCapacityLevelToBackendIds, backendInfosInCluster);
                         // migration
-                        checkMigration(backendToTablets, clusterDistributionLevelToBackendIds,
-                                       clusterCapacityLevelToBackendIds, backendInfosInCluster);
+                        // do not balance colocated tables, or their buckets will not be on the same backends
+                        if (!isColocated) {
+                            checkMigration(backendToTablets, clusterDistributionLevelToBackendIds,
+                                           clusterCapacityLevelToBackendIds, backendInfosInCluster);
+                        }
                     } else {
                         LOG.warn("init backend distribution infos error");
                     }
@@ -645,6 +682,7 @@ public class CloneChecker extends Daemon {
      * possible 1. select from low distribution and capacity, and canCloneByBoth
      * 2. if supplement, select from 2.1 low distribution and capacity 2.2 low
      * distribution 2.3 all order by distribution
+     * Tablet of colocated table selects from the backends of the same bucket of its colocate group first.
      */
     private long selectCloneReplicaBackendId(Map<CapacityLevel, Set<List<Long>>> distributionLevelToBackendIds,
             Map<CapacityLevel, Set<List<Long>>> capacityLevelToBackendIds, 
@@ -662,8 +700,25 @@ public class CloneChecker extends Daemon {
         for (Long id : existBackendIds) {
             existBackendHosts.add(infoService.getBackend(id).getHost());
         }
- 
-        if (priority == JobPriority.HIGH || priority == JobPriority.NORMAL) {
+
+        // replicas of colocated table are cloned to the backends of the same bucket of its colocate group,
+        // or the buckets of tables in the group will not be on the same backends
+        if (tabletInfo.getColocateBackendIds() != null) {
+            for (long backendId : tabletInfo.getColocateBackendIds()) {
+                candidateBackendInfo = backendInfos.get(backendId);
+                if (candidateBackendInfo == null || existBackendIds.contains(backendId)
+                        || existBackendHosts.contains(candidateBackendInfo.getHost())) {
+                    continue;
+                }
+                if (candidateBackendInfo.canCloneByCapacity(tabletSizeB)) {
+                    candidateBackendId = backendId;
+                    step = "colocate";
+                    break;
+                }
+            }
+        }
+
+        if (candidateBackendId == -1 && (priority == JobPriority.HIGH || priority == JobPriority.NORMAL)) {
             // 1. HIGH priority
             List<Long> allBackendIds = Lists.newArrayList();
             for (Set<List<Long>> backendIds : distributionLevelToBackendIds.values()) {
@@ -677,7 +732,7 @@ public class CloneChecker extends Daemon {
             Collections.shuffle(allBackendIds);
             candidateBackendId = selectRandomBackendId(allBackendIds, existBackendHosts, backendInfos);
             step = "0";
-        } else {
+        } else if (candidateBackendId == -1) {
             // candidate backendIds:
             // low distribution and low capacity backends
             Set<List<Long>> candidateBackendIdsByDistribution = distributionLevelToBackendIds.get(CapacityLevel.LOW);
@@ -1054,6 +1109,12 @@ public class CloneChecker extends Daemon {
             return;
         }
 
+        // check clone load of dest backend
+        if (!clone.isDestBackendAvailable(job.getDestBackendId())) {
+            LOG.debug("dest backend reaches clone limits, wait. job: {}", job);
+            return;
+        }
+
         // get db
         long dbId = job.getDbId();
         long tableId = job.getTableId();
@@ -1074,7 +1135,9 @@ public class CloneChecker extends Daemon {
         long committedVersion = -1L;
         long committedVersionHash = -1L;
         int schemaHash = 0;
+        long tabletSizeB = 0L;
         List<TBackend> srcBackends = new ArrayList<TBackend>();
+        List<Long> srcBackendIds = new ArrayList<Long>();
         Tablet tablet = null;
         Replica cloneReplica = null;
         final Map<Long, BackendInfo> clusterBackendInfos = initBackendInfos(db.getClusterName());
@@ -1134,6 +1197,9 @@ public class CloneChecker extends Daemon {
 
                 ++onlineReplicaNum;
                 sortedReplicas.add(replica);
+                if (replica.getDataSize() > tabletSizeB) {
+                    tabletSizeB = replica.getDataSize();
+                }
                 if (clusterBackendInfos.containsKey(backend.getId())) {
                     onlineReplicaNumInCluster++;
                 }
@@ -1166,6 +1232,7 @@ public class CloneChecker extends Daemon {
                 }
 
                 srcBackends.add(new TBackend(backend.getHost(), backend.getBePort(), backend.getHttpPort()));
+                srcBackendIds.add(backend.getId());
             }
 
             // no src backend found
@@ -1174,6 +1241,17 @@ public class CloneChecker extends Daemon {
                 return;
             }
 
+            // check clone load of src backends, and let the least loaded one be tried first
+            long srcBackendId = clone.selectSrcBackend(srcBackendIds);
+            if (srcBackendId < 0) {
+                LOG.debug("all src backends reach clone limits, wait. job: {}", job);
+                return;
+            }
+            int srcIndex = srcBackendIds.indexOf(srcBackendId);
+            srcBackends.add(0, srcBackends.remove(srcIndex));
+            job.setSrcBackendId(srcBackendId);
+            job.setTabletSizeB(tabletSizeB);
+
             if (cloneReplica != null) {
                 tablet.deleteReplica(cloneReplica);
             }
@@ -1238,6 +1316,7 @@ public class CloneChecker extends Daemon {
         private long tabletSizeB;
         private Set<Long> backendIds;
         private DbState dbState;
+        private List<Long> colocateBackendIds;
 
         public TabletInfo(long dbId, long tableId, long partitionId, long indexId, long tabletId, short replicationNum,
                 short onlineReplicaNum, long tabletSizeB, Set<Long> backendIds) {
@@ -1303,6 +1382,15 @@ public class CloneChecker extends Daemon {
         public void setDbState(DbState dbState) {
             this.dbState = dbState;
         }
+
+        // null if table is not colocated
+        public List<Long> getColocateBackendIds() {
+            return colocateBackendIds;
+        }
+
+        public void setColocateBackendIds(List<Long> colocateBackendIds) {
+            this.colocateBackendIds = colocateBackendIds;
+        }
     }
 
     private class BackendInfo {
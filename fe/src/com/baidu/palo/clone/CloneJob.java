@@ -48,6 +48,9 @@ public class CloneJob {
     private long cloneFinishTimeMs;
     private long timeoutMs;
     private String failMsg;
+    // src backend which is tried first by the clone task, -1 if the job is not scheduled yet
+    private long srcBackendId;
+    private long tabletSizeB;
 
     public CloneJob(long dbId, long tableId, long partitionId, long indexId, long tabletId,
                     long destBackendId, JobType type, JobPriority priority, long timeoutMs) {
@@ -65,6 +68,8 @@ public class CloneJob {
         this.cloneFinishTimeMs = -1;
         this.timeoutMs = timeoutMs;
         this.failMsg = "";
+        this.srcBackendId = -1L;
+        this.tabletSizeB = 0L;
     }
 
     public long getDbId() {
@@ -147,6 +152,31 @@ public class CloneJob {
         this.failMsg = failMsg;
     }
 
+    public long getSrcBackendId() {
+        return srcBackendId;
+    }
+
+    public void setSrcBackendId(long srcBackendId) {
+        this.srcBackendId = srcBackendId;
+    }
+
+    public long getTabletSizeB() {
+        return tabletSizeB;
+    }
+
+    public void setTabletSizeB(long tabletSizeB) {
+        this.tabletSizeB = tabletSizeB;
+    }
+
+    // bytes per second of finished job, -1 if unknown
+    public long getThroughputBps() {
+        if (state != JobState.FINISHED || cloneStartTimeMs < 0) {
+            return -1L;
+        }
+        long costMs = Math.max(1L, cloneFinishTimeMs - cloneStartTimeMs);
+        return tabletSizeB * 1000L / costMs;
+    }
+
     @Override
     public String toString() {
         return "CloneJob [dbId=" + dbId + ", tableId=" + tableId + ", partitionId=" + partitionId
@@ -154,7 +184,7 @@ public class CloneJob {
                 + ", state=" + state + ", type=" + type + ", priority=" + priority
                 + ", createTimeMs=" + createTimeMs + ", cloneStartTimeMs=" + cloneStartTimeMs
                 + ", cloneFinishTimeMs=" + cloneFinishTimeMs + ", timeoutMs=" + timeoutMs + ", failMsg=" + failMsg
-                + "]";
+                + ", srcBackendId=" + srcBackendId + ", tabletSizeB=" + tabletSizeB + "]";
     }
 
 }
@@ -68,7 +68,9 @@ public class ClientPool {
     public static GenericPool<HeartbeatService.Client> heartbeatPool =
             new GenericPool("HeartbeatService", heartbeatConfig, heartbeatTimeoutMs); 
     public static GenericPool<FrontendService.Client> frontendPool =
-            new GenericPool("FrontendService", backendConfig, backendTimeoutMs);
+            new GenericPool("FrontendService", backendConfig, backendTimeoutMs,
+                    ThriftServer.ThriftServerType.getType(Config.thrift_server_type)
+                            == ThriftServer.ThriftServerType.THREADED);
     public static GenericPool<BackendService.Client> backendPool =
             new GenericPool("BackendService", backendConfig, backendTimeoutMs);
     public static GenericPool<TPaloBrokerService.Client> brokerPool =
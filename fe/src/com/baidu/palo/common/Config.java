@@ -65,6 +65,14 @@ public class Config extends ConfigBase {
      * (Because all load jobs' info is kept in memoery before being removed)
      */
     @ConfField public static int label_keep_max_second = 7 * 24 * 3600; // 7 days
+    /*
+     * Finished or cancelled load jobs are archived to local files in *load_job_archive_dir* for SHOW LOAD,
+     * only their labels and states are kept in memory.
+     * A new archive file is created every *load_job_archive_bucket_second*, and labels are expired
+     * in buckets of the same time span.
+     */
+    @ConfField public static String load_job_archive_dir = System.getenv("PALO_HOME") + "/load_archive";
+    @ConfField public static int load_job_archive_bucket_second = 3600; // 1 hour
     /*
      * Load label cleaner will run every *label_clean_interval_second* to clean the outdated jobs.
      */
@@ -156,10 +164,59 @@ public class Config extends ConfigBase {
      * Currently, all FEs' http port must be same.
      */
     @ConfField public static int http_port = 8030;
+    /*
+     * Number of threads and queue size of the pool which executes blocking http actions.
+     * Actions such as ShowProcAction, QueryAction or meta dump are executed in this pool
+     * so that they do not block the netty event loop.
+     * Request will be rejected with 503 if the queue is full.
+     */
+    @ConfField public static int http_blocking_action_thread_num = 32;
+    @ConfField public static int http_blocking_action_queue_size = 1024;
+    /*
+     * Http response body smaller than this size (in bytes) will not be compressed.
+     * Set to -1 to disable http response compression.
+     */
+    @ConfField public static int http_compress_min_size_bytes = 1024;
     /*
      * FE thrift server port
      */
     @ConfField public static int rpc_port = 9020;
+    /*
+     * Type of FE thrift server, THREAD_POOL or THREADED.
+     * THREAD_POOL: one thread for each connection.
+     * THREADED: selector based non-blocking server. Requests are executed in separate bounded pools
+     *      by category (query, report, load and forward), so that one kind of requests can not delay
+     *      the others. Clients must use framed transport, so set fe_thrift_server_type of BE to the same value.
+     */
+    @ConfField public static String thrift_server_type = "THREAD_POOL";
+    /*
+     * Number of selector threads of THREADED thrift server.
+     */
+    @ConfField public static int thrift_server_selector_thread_num = 4;
+    /*
+     * Number of threads and queue size of each request category of THREADED thrift server.
+     * query: reportExecStatus and meta data queries from backends.
+     * report: report and finishTask of agent tasks.
+     * load: mini load and export requests.
+     * forward: statements forwarded by non-master FE.
+     */
+    @ConfField public static int thrift_server_query_thread_num = 64;
+    @ConfField public static int thrift_server_report_thread_num = 16;
+    @ConfField public static int thrift_server_load_thread_num = 32;
+    @ConfField public static int thrift_server_forward_thread_num = 32;
+    @ConfField public static int thrift_server_queue_size = 1024;
+    /*
+     * Maximal number of threads which send agent tasks to backends.
+     * If exceeded, tasks are sent in the submitter's thread, which slows down the submitter.
+     */
+    @ConfField public static int agent_task_thread_num = 64;
+    /*
+     * Number of threads and queue size of the pool which sends heartbeats to backends.
+     * A backend is not sent a new heartbeat while its last one is not finished, so the queue holds
+     * at most one heartbeat of each backend. If the queue is full, heartbeats are skipped until next round.
+     */
+    @ConfField public static int heartbeat_thread_num = 16;
+    @ConfField public static int heartbeat_queue_size = 1024;
     /*
      * FE mysql server port
      */
@@ -186,9 +243,24 @@ public class Config extends ConfigBase {
      * eg.
      *      if you create a table with #m tablets and #n replicas for each tablet,
      *      the create table request will run at most (m * n * tablet_create_timeout_second) before timeout.
+     * The request returns once a quorum of replicas of every tablet is created,
+     * and the left replicas are created in background.
      */
     @ConfField public static int tablet_create_timeout_second = 1;
-    
+
+    /*
+     * Maximal number of create replica tasks which are sent to one backend at the same time.
+     * The left tasks wait in FE until some of the running tasks finish.
+     */
+    @ConfField public static int max_create_replica_task_num_per_backend = 100;
+
+    /*
+     * A create replica task is sent again if it fails, or it does not finish in this time.
+     * It is sent at most *create_replica_max_retry_times* times again.
+     */
+    @ConfField public static int create_replica_task_timeout_second = 300;
+    @ConfField public static int create_replica_max_retry_times = 3;
+
     /*
      * Maximal memory layout length of a row. default is 100 KB.
      * In BE, the maximal size of a RowBlock is 100MB(Configure as max_unpacked_row_block_size in be.conf).
@@ -213,6 +285,21 @@ public class Config extends ConfigBase {
      */
     @ConfField public static int load_checker_interval_second = 5;
 
+    /*
+     * Max number of load jobs loading into the same partition at the same time.
+     * Each job takes the next version of the partition when it transfers to LOADING,
+     * and pushes its version after the previous version is quorum finished.
+     * Set to 1 to load jobs of the same partition one by one.
+     */
+    @ConfField public static int load_max_pipelined_jobs_per_partition = 4;
+
+    /*
+     * Max number of unfinished push tasks of each backend.
+     * Load checker stops sending push tasks to a backend when the limit is reached,
+     * and sends the rest in the following rounds. 0 means no limit.
+     */
+    @ConfField public static int max_push_task_num_per_backend = 200;
+
     /*
      * Concurrency of HIGH priority pending load jobs.
      * Load job priority is defined as HIGH or NORMAL.
@@ -289,6 +376,23 @@ public class Config extends ConfigBase {
      * HIGH priority clone job's delay trigger time.
      */
     @ConfField public static int clone_high_priority_delay_second = 0;
+    /*
+     * Interval of scheduling pending clone jobs.
+     * Tablets are still checked every *clone_checker_interval_second*, but pending jobs are scheduled
+     * more frequently, so that jobs waiting for the limits below start soon after running ones finish.
+     */
+    @ConfField public static int clone_schedule_interval_second = 10;
+    /*
+     * Max num of running clone jobs which copy data from / to a single backend.
+     * A job is counted both on its src backend and its dest backend. 0 means no limit.
+     */
+    @ConfField public static int clone_max_running_job_num_per_backend = 4;
+    /*
+     * Bytes per second of clone traffic allowed on each online disk of a backend.
+     * The budget of a backend is this value multiplied by the num of its online disks,
+     * and is shared by the jobs reading from and writing to it. 0 means no limit.
+     */
+    @ConfField public static long clone_max_bytes_per_second_per_disk = 50L * 1024 * 1024; // 50MB
     /*
      * Balance threshold of data size in BE.
      * The balance algorithm is:
@@ -338,6 +442,29 @@ public class Config extends ConfigBase {
      * Do not set this if you know what you are doing.
      */
     @ConfField public static int max_broker_concurrency = 10;
+    /*
+     * Number of threads used to list broker paths when planning a broker load.
+     */
+    @ConfField public static int broker_list_path_thread_num = 16;
+    /*
+     * Result of broker list path will be cached for this time, so that retries
+     * and multi-table loads which reference the same paths can reuse it.
+     * Set to 0 to disable the cache.
+     */
+    @ConfField public static int broker_list_path_cache_expire_second = 30;
+    /*
+     * If true, broker load will split files on block boundaries and prefer backends
+     * on the same host as the blocks' replicas, if the broker returns block locations.
+     */
+    @ConfField public static boolean enable_broker_load_locality = true;
+
+    /*
+     * Interval of recomputing the row count and data size of indexes from replicas.
+     * They are also updated by tablet reports and loads, this is to correct the ones missed by them,
+     * eg. replicas changed by clone or schema change.
+     * It is done on master only, and the changed ones are written to edit log for non-master FEs.
+     */
+    @ConfField public static int tablet_stat_update_interval_second = 300;
 
     /*
      * Export checker's running interval.
@@ -362,8 +489,20 @@ public class Config extends ConfigBase {
     @ConfField public static int export_task_default_timeout_second = 24 * 3600;    // 24h
     /*
      * Concurrency of exporting tablets.
+     * Only used to split export jobs when data size of tablets is not reported yet.
      */
     @ConfField public static int export_parallel_tablet_num = 5;
+    /*
+     * Export jobs are split into tasks of this data size. Each task writes one file.
+     * Can be set for each job by property "max_file_size" of EXPORT stmt.
+     */
+    @ConfField public static long export_max_file_size_bytes = 1024 * 1024 * 1024L; // 1GB
+    /*
+     * Max number of tasks of an export job running at the same time.
+     * 0 means one running task for each backend which has data to export.
+     * Can be set for each job by property "parallelism" of EXPORT stmt.
+     */
+    @ConfField public static int export_default_parallelism = 0;
     /*
      * Labels of finished or cancelled export jobs will be removed after *label_keep_max_second*.
      * The removed labels can be reused.
@@ -391,6 +530,41 @@ public class Config extends ConfigBase {
      * Maximal number of connections per user, per FE.
      */
     @ConfField public static int max_conn_per_user = 100;
+    /*
+     * Default maximal number of concurrently running queries per user, per FE.
+     * Queries beyond the limit wait in the admission queue. 0 means no limit.
+     * It can be changed for each user by user property 'max_running_query'.
+     */
+    @ConfField public static int max_running_query_per_user = 0;
+    /*
+     * Default maximal sum of exec_mem_limit of concurrently running queries per user, per FE.
+     * A query is always admitted if the user has no running query. 0 means no limit.
+     * It can be changed for each user by user property 'max_running_query_mem'.
+     */
+    @ConfField public static long max_running_query_mem_per_user = 0;
+    /*
+     * Maximal number of concurrently running queries of each resource group, per FE. 0 means no limit.
+     * Queued queries of group 'high' are admitted before 'normal', and 'normal' before 'low'.
+     */
+    @ConfField public static int max_running_query_high_group = 0;
+    @ConfField public static int max_running_query_normal_group = 0;
+    @ConfField public static int max_running_query_low_group = 0;
+    /*
+     * Maximal sum of exec_mem_limit of concurrently running queries of each resource group, per FE.
+     * A query is always admitted if the group has no running query. 0 means no limit.
+     */
+    @ConfField public static long max_running_query_mem_high_group = 0;
+    @ConfField public static long max_running_query_mem_normal_group = 0;
+    @ConfField public static long max_running_query_mem_low_group = 0;
+    /*
+     * Maximal number of queries waiting in the admission queue, per FE.
+     * Queries beyond the limit are rejected.
+     */
+    @ConfField public static int query_queue_max_size = 1024;
+    /*
+     * Maximal time a query waits in the admission queue. It is also bounded by the query timeout.
+     */
+    @ConfField public static int query_queue_timeout_second = 300;
     /*
      * Default query timeout.
      */
@@ -399,6 +573,55 @@ public class Config extends ConfigBase {
      * If the response time of a query exceed this threshold, it will be recored in audit log as slow_query.
      */
     @ConfField public static long qe_slow_log_ms = 5000;
+    /*
+     * Maximal number of value combinations of IN predicates on partition or distribution columns
+     * used for partition and bucket pruning. If exceeded, IN predicates are not used for pruning.
+     */
+    @ConfField public static long partition_prune_max_in_combinations = 100000;
+    /*
+     * Estimated fraction of rows selected by an equal predicate, or by each value of an IN predicate,
+     * on a leading sort key column of an index. It is used to choose the rollup with the lowest scan cost.
+     */
+    @ConfField public static double index_eq_predicate_selectivity = 0.1;
+    /*
+     * Estimated fraction of rows selected by a range predicate on a leading sort key column of an index.
+     */
+    @ConfField public static double index_range_predicate_selectivity = 0.3;
+    /*
+     * If true, join of two tables which are bucketed on the join exprs in the same way, and whose buckets
+     * of the same sequence are on the same backends, is executed locally without exchanging data.
+     */
+    @ConfField public static boolean enable_colocate_join = false;
+    /*
+     * If true, and the left side of a join is bucketed on the join exprs, only the right side is shuffled
+     * to the buckets of the left side, instead of shuffling both sides.
+     */
+    @ConfField public static boolean enable_bucket_shuffle_join = false;
+    /*
+     * Colocate and bucket shuffle joins run the left side with one instance per bucket. They are used only if
+     * the estimated bytes of data exchange saved, compared with broadcast or partitioned join, is not less
+     * than this value. So joins with small right side are still broadcast.
+     */
+    @ConfField public static long bucket_join_min_saved_exchange_bytes = 64 * 1024 * 1024L;
+    /*
+     * Number of threads which process the exec status reported by backends.
+     */
+    @ConfField public static int report_exec_status_thread_num = 16;
+    /*
+     * Maximal number of pending exec status reports of a query.
+     * If exceeded, the rpc thread waits for a free slot, which slows down the reporting backend.
+     */
+    @ConfField public static int report_exec_status_queue_size = 1024;
+    /*
+     * Maximal time in ms of waiting for a free slot in the exec status queue of a query.
+     * If exceeded, the report is rejected with TIMEOUT status.
+     */
+    @ConfField public static int report_exec_status_queue_timeout_ms = 5000;
+    /*
+     * Maximal number of threads which send plan fragments to backends.
+     * If exceeded, plan fragments are sent in the query's thread, which slows down the query.
+     */
+    @ConfField public static int coordinator_rpc_thread_num = 256;
     /*
      * The interval of user resource publishing.
      * User resource contains cgroup configurations of a user.
@@ -428,6 +651,20 @@ public class Config extends ConfigBase {
      * Plugins' path for BACKUP and RESTORE operations. Currently deprecated.
      */
     @ConfField public static String backup_plugin_path = "/tools/trans_file_tool/trans_files.sh";
+    /*
+     * Max number of running upload tasks of a backup job on each backend.
+     * Tablets beyond this number wait until former upload tasks finished.
+     */
+    @ConfField public static int max_upload_task_num_per_be = 5;
+    /*
+     * Max retry times of a failed or timeout upload task of a backup job.
+     * The job will be cancelled if an upload task still fails after retry.
+     */
+    @ConfField public static int backup_upload_max_retry_times = 3;
+    /*
+     * Timeout of a single upload task of a backup job.
+     */
+    @ConfField public static int backup_upload_task_timeout_second = 3600;
 
     // Configurations for hadoop dpp
     /*
@@ -73,4 +73,28 @@ public final class FeMetaVersion {
     // to remove backend in cluster when drop backend or 
     // decommission in latest versions.
     public static final int VERSION_35= 35;
+
+    // persist colocate group of OlapTable
+    public static final int VERSION_36 = 36;
+
+    // persist upload progress, incremental info and broker of backup and restore jobs
+    public static final int VERSION_37 = 37;
+
+    // persist label index of finished and cancelled load jobs
+    public static final int VERSION_38 = 38;
+
+    // persist query admission limits of UserProperty
+    public static final int VERSION_39 = 39;
+
+    // persist replicas which are not created yet by CreateReplicaJob
+    public static final int VERSION_40 = 40;
+
+    // persist parallelism and max file size of ExportJob
+    public static final int VERSION_41 = 41;
+
+    // persist data size of MaterializedIndex
+    public static final int VERSION_42 = 42;
+
+    // persist SHA-256 signature of partitions of BackupJob
+    public static final int VERSION_43 = 43;
 }
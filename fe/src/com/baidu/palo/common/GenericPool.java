@@ -31,6 +31,7 @@ import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
 import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
 import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
@@ -42,12 +43,36 @@ public class GenericPool<VALUE extends org.apache.thrift.TServiceClient>  {
     private GenericKeyedObjectPool<TNetworkAddress, VALUE> pool;
     private String className;
     private int timeoutMs;
+    // use framed transport to connect to non-blocking servers
+    private boolean framed;
 
     public GenericPool(String className, GenericKeyedObjectPoolConfig config, int timeoutMs) {
+        this(className, config, timeoutMs, false);
+    }
+
+    public GenericPool(String className, GenericKeyedObjectPoolConfig config, int timeoutMs, boolean framed) {
         this.className = "com.baidu.palo.thrift." + className + "$Client";
         ThriftClientFactory factory = new ThriftClientFactory();
         pool = new GenericKeyedObjectPool<TNetworkAddress, VALUE>(factory, config);
         this.timeoutMs = timeoutMs;
+        this.framed = framed;
+    }
+
+    // Framed transport which keeps the socket, so that the timeout of socket can be changed.
+    private static class FramedSocketTransport extends TFramedTransport {
+        private final TSocket socket;
+
+        public FramedSocketTransport(TSocket socket) {
+            super(socket);
+            this.socket = socket;
+        }
+    }
+
+    private static TSocket getSocket(TTransport transport) {
+        if (transport instanceof FramedSocketTransport) {
+            return ((FramedSocketTransport) transport).socket;
+        }
+        return (TSocket) transport;
     }
 
     public boolean reopen(VALUE object, int timeoutMs) {
@@ -56,7 +81,7 @@ public class GenericPool<VALUE extends org.apache.thrift.TServiceClient>  {
         try {
             object.getOutputProtocol().getTransport().open();
             // transport.open() doesn't set timeout, Maybe the timeoutMs change.
-            TSocket socket = (TSocket) object.getOutputProtocol().getTransport();
+            TSocket socket = getSocket(object.getOutputProtocol().getTransport());
             socket.setTimeout(timeoutMs);
         } catch (TTransportException e) {
             ok = false;
@@ -86,7 +111,7 @@ public class GenericPool<VALUE extends org.apache.thrift.TServiceClient>  {
 
     public VALUE borrowObject(TNetworkAddress address, int timeoutMs) throws Exception {
         VALUE value = pool.borrowObject(address);
-        TSocket socket = (TSocket) (value.getOutputProtocol().getTransport());
+        TSocket socket = getSocket(value.getOutputProtocol().getTransport());
         socket.setTimeout(timeoutMs);
         return value;
     }
@@ -124,6 +149,9 @@ public class GenericPool<VALUE extends org.apache.thrift.TServiceClient>  {
                         key.hostname, key.port, timeoutMs);
             }
             TTransport transport = new TSocket(key.hostname, key.port, timeoutMs);
+            if (framed) {
+                transport = new FramedSocketTransport((TSocket) transport);
+            }
             transport.open();
             TProtocol protocol = new TBinaryProtocol(transport);
             VALUE client = (VALUE) newInstance(className, protocol);
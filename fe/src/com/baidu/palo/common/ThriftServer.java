@@ -44,8 +44,13 @@ public class ThriftServer {
     private Set<TNetworkAddress> connects;
 
     public ThriftServer(int port, TProcessor processor) {
+        this(port, processor, ThriftServerType.THREAD_POOL);
+    }
+
+    public ThriftServer(int port, TProcessor processor, ThriftServerType type) {
         this.port = port;
         this.processor = processor;
+        this.type = type;
         this.connects = Sets.newConcurrentHashSet();
     }
 
@@ -63,6 +68,9 @@ public class ThriftServer {
         TThreadedSelectorServer.Args args =
           new TThreadedSelectorServer.Args(new TNonblockingServerSocket(port)).protocolFactory(
             new TBinaryProtocol.Factory()).processor(processor);
+        // selector threads do the socket io, worker threads read the requests and dispatch them to processor
+        int threadNum = Math.max(1, Config.thrift_server_selector_thread_num);
+        args.selectorThreads(threadNum).workerThreads(threadNum);
         server = new TThreadedSelectorServer(args);
     }
 
@@ -128,6 +136,15 @@ public class ThriftServer {
     public static enum ThriftServerType {
         SIMPLE,
         THREADED,
-        THREAD_POOL
+        THREAD_POOL;
+
+        public static ThriftServerType getType(String name) {
+            for (ThriftServerType type : values()) {
+                if (type.name().equalsIgnoreCase(name)) {
+                    return type;
+                }
+            }
+            return THREAD_POOL;
+        }
     }
 }
@@ -24,7 +24,6 @@ import org.apache.logging.log4j.Logger;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.server.ServerContext;
 import org.apache.thrift.server.TServerEventHandler;
-import org.apache.thrift.transport.TFramedTransport;
 import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 
@@ -59,12 +58,10 @@ public class ThriftServerEventProcessor implements TServerEventHandler {
 
         switch (thriftServer.getType()) {
             case THREADED:
-                // class org.apache.thrift.transport.TFramedTransport
-                Preconditions.checkState(transport instanceof TFramedTransport);
-                TFramedTransport framedTransport = (TFramedTransport) transport;
-                // NOTE: we need patch code in TNonblockingServer, we don't use for now.
+                // Non-blocking server passes a TMemoryInputTransport of the frame, which has no socket.
+                // NOTE: we need patch code in TNonblockingServer to get client address, we don't use for now.
                 //  see https://issues.apache.org/jira/browse/THRIFT-1053
-                break;
+                return null;
             case SIMPLE:
             case THREAD_POOL:
                 // org.apache.thrift.transport.TSocket
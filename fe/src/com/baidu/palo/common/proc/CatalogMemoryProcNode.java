@@ -0,0 +1,176 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common.proc;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Table;
+import com.baidu.palo.catalog.Table.TableType;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.DebugUtil;
+import com.baidu.palo.common.util.ListComparator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Show estimated heap memory used by catalog objects of each database.
+ * SHOW PROC /catalog_memory/
+ *
+ * The sizes are estimated by object counts and average object sizes on a 64-bit JVM with compressed oops,
+ * including entries in TabletInvertedIndex. Columns shared by indices are counted once.
+ */
+public class CatalogMemoryProcNode implements ProcNodeInterface {
+    public static final ImmutableList<String> TITLE_NAMES = new ImmutableList.Builder<String>()
+            .add("DbId").add("DbName").add("PartitionNum").add("IndexNum").add("TabletNum").add("ReplicaNum")
+            .add("ColumnNum").add("EstimatedSize").add("EstimatedBytes")
+            .build();
+
+    // replica object, slot in replica list and cell in inverted index
+    private static final long REPLICA_BYTES = 128L;
+    // tablet object, replica list, entries in index and inverted index, tablet meta
+    private static final long TABLET_BYTES = 320L;
+    private static final long INDEX_BYTES = 256L;
+    private static final long PARTITION_BYTES = 512L;
+    private static final long COLUMN_BYTES = 256L;
+    private static final long TABLE_BYTES = 2048L;
+
+    private Catalog catalog;
+
+    public CatalogMemoryProcNode(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public ProcResult fetchResult() throws AnalysisException {
+        Preconditions.checkNotNull(catalog);
+
+        BaseProcResult result = new BaseProcResult();
+        result.setNames(TITLE_NAMES);
+
+        long totalBytes = 0L;
+        List<List<Comparable>> lines = new ArrayList<List<Comparable>>();
+        for (Long dbId : catalog.getDbIds()) {
+            if (dbId == 0) {
+                // skip information_schema database
+                continue;
+            }
+            Database db = catalog.getDb(dbId);
+            if (db == null) {
+                continue;
+            }
+
+            long tableNum = 0;
+            long partitionNum = 0;
+            long indexNum = 0;
+            long tabletNum = 0;
+            long replicaNum = 0;
+            long columnNum = 0;
+            db.readLock();
+            try {
+                for (Table table : db.getTables()) {
+                    if (table.getType() != TableType.OLAP) {
+                        continue;
+                    }
+                    ++tableNum;
+                    OlapTable olapTable = (OlapTable) table;
+
+                    Set<Column> columns = Sets.newSetFromMap(new IdentityHashMap<Column, Boolean>());
+                    for (List<Column> schema : olapTable.getIndexIdToSchema().values()) {
+                        columns.addAll(schema);
+                    }
+                    columnNum += columns.size();
+
+                    for (Partition partition : olapTable.getPartitions()) {
+                        ++partitionNum;
+                        for (MaterializedIndex index : partition.getMaterializedIndices()) {
+                            ++indexNum;
+                            for (Tablet tablet : index.getTablets()) {
+                                ++tabletNum;
+                                replicaNum += tablet.getReplicas().size();
+                            }
+                        }
+                    }
+                }
+            } finally {
+                db.readUnlock();
+            }
+
+            long bytes = tableNum * TABLE_BYTES + partitionNum * PARTITION_BYTES + indexNum * INDEX_BYTES
+                    + tabletNum * TABLET_BYTES + replicaNum * REPLICA_BYTES + columnNum * COLUMN_BYTES;
+            totalBytes += bytes;
+
+            List<Comparable> line = new ArrayList<Comparable>(TITLE_NAMES.size());
+            line.add(dbId);
+            line.add(db.getFullName());
+            line.add(partitionNum);
+            line.add(indexNum);
+            line.add(tabletNum);
+            line.add(replicaNum);
+            line.add(columnNum);
+            line.add(getReadableSize(bytes));
+            line.add(bytes);
+            lines.add(line);
+        }
+
+        // sort by estimated bytes desc
+        ListComparator<List<Comparable>> comparator =
+                new ListComparator<List<Comparable>>(true, TITLE_NAMES.size() - 1);
+        Collections.sort(lines, comparator);
+
+        for (List<Comparable> line : lines) {
+            List<String> row = new ArrayList<String>(line.size());
+            for (Comparable item : line) {
+                row.add(item.toString());
+            }
+            result.addRow(row);
+        }
+
+        // add sum line after sort
+        List<String> finalLine = new ArrayList<String>(TITLE_NAMES.size());
+        finalLine.add("Total");
+        finalLine.add(String.valueOf(lines.size()));
+        for (int i = 2; i < TITLE_NAMES.size() - 2; i++) {
+            long sum = 0L;
+            for (List<Comparable> line : lines) {
+                sum += (Long) line.get(i);
+            }
+            finalLine.add(String.valueOf(sum));
+        }
+        finalLine.add(getReadableSize(totalBytes));
+        finalLine.add(String.valueOf(totalBytes));
+        result.addRow(finalLine);
+        return result;
+    }
+
+    private static String getReadableSize(long bytes) {
+        Pair<Double, String> unitPair = DebugUtil.getByteUint(bytes);
+        return DebugUtil.DECIMAL_FORMAT_SCALE_3.format(unitPair.first) + " " + unitPair.second;
+    }
+}
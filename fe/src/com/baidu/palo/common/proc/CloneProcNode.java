@@ -35,7 +35,8 @@ public class CloneProcNode implements ProcNodeInterface {
             .add("DbId").add("TableId").add("PartitionId").add("IndexId")
             .add("TabletId").add("BackendId").add("State").add("Type")
             .add("Priority").add("CreateTime").add("StartTime").add("FinishTime")
-            .add("Timeout(s)").add("FailMsg")
+            .add("Timeout(s)").add("SrcBackendId").add("TabletSize").add("Throughput")
+            .add("EstimatedFinishTime").add("FailMsg")
             .build();
 
     private Clone clone;
@@ -0,0 +1,51 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common.proc;
+
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.task.CreateReplicaScheduler;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Show running and recent finished jobs of creating replicas of new tables and partitions
+ * SHOW PROC /create_replica_jobs/
+ */
+public class CreateReplicaJobsProcNode implements ProcNodeInterface {
+    public static final ImmutableList<String> TITLE_NAMES = new ImmutableList.Builder<String>()
+            .add("JobId").add("DbId").add("TableId").add("TableName").add("State")
+            .add("Progress").add("FailedNum").add("CreateTime").add("QuorumTime").add("FinishTime")
+            .add("ErrMsg")
+            .build();
+
+    @Override
+    public ProcResult fetchResult() throws AnalysisException {
+        BaseProcResult result = new BaseProcResult();
+        result.setNames(TITLE_NAMES);
+
+        for (List<Comparable> jobInfo : CreateReplicaScheduler.getInstance().getJobInfos()) {
+            List<String> row = new ArrayList<String>(jobInfo.size());
+            for (Comparable item : jobInfo) {
+                row.add(item.toString());
+            }
+            result.addRow(row);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common.proc;
+
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.util.DebugUtil;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.TrackedThreadPool;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Show thread pools registered in ThreadPoolManager.
+ * SHOW PROC '/executors'
+ *
+ * QueueCapacity is -1 if the queue is not limited. AvgQueueTimeMs and AvgExecTimeMs are of the finished tasks.
+ */
+public class ExecutorsProcNode implements ProcNodeInterface {
+    public static final ImmutableList<String> TITLE_NAMES = new ImmutableList.Builder<String>()
+            .add("Name").add("PoolSize").add("CoreSize").add("MaxSize").add("Active").add("Queued")
+            .add("QueueCapacity").add("Completed").add("Rejected").add("AvgQueueTimeMs").add("AvgExecTimeMs")
+            .add("RejectPolicy")
+            .build();
+
+    public ExecutorsProcNode() {
+    }
+
+    @Override
+    public ProcResult fetchResult() throws AnalysisException {
+        BaseProcResult result = new BaseProcResult();
+        result.setNames(TITLE_NAMES);
+
+        List<TrackedThreadPool> pools = ThreadPoolManager.getPools();
+        Collections.sort(pools, new Comparator<TrackedThreadPool>() {
+            @Override
+            public int compare(TrackedThreadPool p1, TrackedThreadPool p2) {
+                return p1.getName().compareTo(p2.getName());
+            }
+        });
+
+        for (TrackedThreadPool pool : pools) {
+            List<String> row = new ArrayList<String>(TITLE_NAMES.size());
+            row.add(pool.getName());
+            row.add(String.valueOf(pool.getPoolSize()));
+            row.add(String.valueOf(pool.getCorePoolSize()));
+            row.add(String.valueOf(pool.getMaximumPoolSize()));
+            row.add(String.valueOf(pool.getActiveCount()));
+            row.add(String.valueOf(pool.getQueue().size()));
+            row.add(String.valueOf(pool.getQueueSize()));
+            row.add(String.valueOf(pool.getCompletedTaskCount()));
+            row.add(String.valueOf(pool.getRejectedNum()));
+            row.add(DebugUtil.DECIMAL_FORMAT_SCALE_3.format(pool.getAvgQueueTimeMs()));
+            row.add(DebugUtil.DECIMAL_FORMAT_SCALE_3.format(pool.getAvgExecTimeMs()));
+            row.add(pool.getRejectPolicy().name());
+            result.addRow(row);
+        }
+        return result;
+    }
+}
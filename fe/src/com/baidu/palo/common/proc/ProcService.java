@@ -46,6 +46,9 @@ public final class ProcService {
         root.register("frontend", new FrontendProcNode(Catalog.getInstance()));
         root.register("brokers", Catalog.getInstance().getBrokerMgr().getProcNode());
         root.register("load_error_hub_url", new LoadErrorProcNode(Catalog.getInstance()));
+        root.register("create_replica_jobs", new CreateReplicaJobsProcNode());
+        root.register("catalog_memory", new CatalogMemoryProcNode(Catalog.getInstance()));
+        root.register("executors", new ExecutorsProcNode());
     }
 
     // 通过指定的路径获得对应的PROC Node
@@ -22,6 +22,8 @@ package com.baidu.palo.common.publish;
 
 import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.common.ClientPool;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
 import com.baidu.palo.system.Backend;
 import com.baidu.palo.system.SystemInfoService;
 import com.baidu.palo.thrift.BackendService;
@@ -37,14 +39,14 @@ import org.apache.thrift.TException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 // This class intend to publish the state of cluster to backends.
 public class ClusterStatePublisher {
     private static final Logger LOG = LogManager.getLogger(ClusterStatePublisher.class);
     private static ClusterStatePublisher INSTANCE;
 
-    private ExecutorService executor = Executors.newFixedThreadPool(5);
+    private ExecutorService executor = ThreadPoolManager.newFixedThreadPool("cluster-state-publish", 5,
+            ThreadPoolManager.UNBOUNDED_QUEUE, RejectPolicy.ABORT);
 
     private SystemInfoService clusterInfoService;
 
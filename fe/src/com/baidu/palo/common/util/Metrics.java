@@ -22,6 +22,7 @@ package com.baidu.palo.common.util;
 
 import org.codehaus.jackson.map.ObjectMapper;
 
+import io.dropwizard.metrics.Gauge;
 import io.dropwizard.metrics.Metric;
 import io.dropwizard.metrics.MetricName;
 import io.dropwizard.metrics.MetricRegistry;
@@ -58,6 +59,15 @@ public final class Metrics {
         }
     }
     
+    // register gauge if there is no metric with the same name
+    public static void registerGauge(String name, Gauge<?> gauge) {
+        try {
+            METRICS.register(name, gauge);
+        } catch (IllegalArgumentException e) {
+            // already registered
+        }
+    }
+
     public static MetricName name(Class<?> klass, String... names) {
         return MetricRegistry.name(klass, names);
     }
@@ -61,6 +61,8 @@ public class PropertyAnalyzer {
 
     public static final String PROPERTIES_BF_COLUMNS = "bloom_filter_columns";
     public static final String PROPERTIES_BF_FPP = "bloom_filter_fpp";
+
+    public static final String PROPERTIES_COLOCATE_WITH = "colocate_with";
     private static final double MAX_FPP = 0.05;
     private static final double MIN_FPP = 0.0001;
     
@@ -171,6 +173,18 @@ public class PropertyAnalyzer {
         return replicationNum;
     }
 
+    public static String analyzeColocate(Map<String, String> properties) throws AnalysisException {
+        String colocateGroup = null;
+        if (properties != null && properties.containsKey(PROPERTIES_COLOCATE_WITH)) {
+            colocateGroup = properties.get(PROPERTIES_COLOCATE_WITH);
+            if (colocateGroup.trim().isEmpty()) {
+                throw new AnalysisException("Colocate group should not be empty");
+            }
+            properties.remove(PROPERTIES_COLOCATE_WITH);
+        }
+        return colocateGroup;
+    }
+
     public static String analyzeColumnSeparator(Map<String, String> properties, String oldColumnSeparator) {
         String columnSeparator = oldColumnSeparator;
         if (properties != null && properties.containsKey(PROPERTIES_COLUMN_SEPARATOR)) {
@@ -0,0 +1,296 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.Gauge;
+import io.dropwizard.metrics.Timer;
+
+/*
+ * Registry of named thread pools of FE.
+ *
+ * The threads of a pool are limited by its max size, and the waiting tasks are limited by its queue size.
+ * A task submitted when both are full is handled by the reject policy of the pool.
+ * Statistics of pools are exposed as metrics "thread_pool.<name>.*" and by SHOW PROC '/executors'.
+ *
+ * A pool is registered by its name, a later pool with the same name replaces the former one in registry.
+ * So pools of objects which may be created more than once (eg. the ones of Catalog, which is created again
+ * by checkpoint) should be created when they are started.
+ */
+public class ThreadPoolManager {
+    private static final Logger LOG = LogManager.getLogger(ThreadPoolManager.class);
+
+    private static final String METRIC_PREFIX = "thread_pool.";
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    // queue size of pool whose waiting tasks are limited by the submitters
+    public static final int UNBOUNDED_QUEUE = -1;
+
+    public enum RejectPolicy {
+        // throw RejectedExecutionException to the submitter
+        ABORT,
+        // run the task in the submitter's thread, which slows down the submitter
+        CALLER_RUNS,
+        // drop the task, for periodical tasks which will be submitted again
+        DISCARD
+    }
+
+    private static final ConcurrentMap<String, TrackedThreadPool> NAME_TO_POOL = Maps.newConcurrentMap();
+
+    private ThreadPoolManager() {
+    }
+
+    /*
+     * queueSize: 0 means tasks are handed to threads directly, UNBOUNDED_QUEUE means no limit.
+     * Threads more than coreSize are created only when queue is full, and exit after idle for a while.
+     */
+    public static TrackedThreadPool newThreadPool(String name, int coreSize, int maxSize, int queueSize,
+                                                  RejectPolicy policy) {
+        maxSize = Math.max(1, maxSize);
+        coreSize = Math.min(Math.max(0, coreSize), maxSize);
+        BlockingQueue<Runnable> queue;
+        if (queueSize == 0) {
+            queue = new SynchronousQueue<Runnable>();
+        } else if (queueSize < 0) {
+            queue = new LinkedBlockingQueue<Runnable>();
+        } else {
+            queue = new ArrayBlockingQueue<Runnable>(queueSize);
+        }
+        TrackedThreadPool pool = new TrackedThreadPool(name, coreSize, maxSize, queue, queueSize, policy);
+        if (NAME_TO_POOL.put(name, pool) == null) {
+            registerGauges(name);
+        }
+        LOG.info("create thread pool {}. core: {}, max: {}, queue: {}, reject policy: {}",
+                 name, coreSize, maxSize, queueSize, policy);
+        return pool;
+    }
+
+    // fixed number of threads, which exit after idle for a while
+    public static TrackedThreadPool newFixedThreadPool(String name, int threadNum, int queueSize,
+                                                       RejectPolicy policy) {
+        TrackedThreadPool pool = newThreadPool(name, threadNum, threadNum, queueSize, policy);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // threads are created on demand up to maxSize, tasks do not wait in queue
+    public static TrackedThreadPool newCachedThreadPool(String name, int maxSize, RejectPolicy policy) {
+        return newThreadPool(name, 0, maxSize, 0, policy);
+    }
+
+    public static TrackedThreadPool getPool(String name) {
+        return NAME_TO_POOL.get(name);
+    }
+
+    public static List<TrackedThreadPool> getPools() {
+        return Lists.newArrayList(NAME_TO_POOL.values());
+    }
+
+    private static String metricName(String poolName, String name) {
+        return METRIC_PREFIX + poolName + "." + name;
+    }
+
+    // gauges read the pool from registry, so that they follow the pool which replaces the former one
+    private static void registerGauges(final String poolName) {
+        Metrics.registerGauge(metricName(poolName, "active"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                TrackedThreadPool pool = NAME_TO_POOL.get(poolName);
+                return pool == null ? 0 : pool.getActiveCount();
+            }
+        });
+        Metrics.registerGauge(metricName(poolName, "pool_size"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                TrackedThreadPool pool = NAME_TO_POOL.get(poolName);
+                return pool == null ? 0 : pool.getPoolSize();
+            }
+        });
+        Metrics.registerGauge(metricName(poolName, "queued"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                TrackedThreadPool pool = NAME_TO_POOL.get(poolName);
+                return pool == null ? 0 : pool.getQueue().size();
+            }
+        });
+        Metrics.registerGauge(metricName(poolName, "completed"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                TrackedThreadPool pool = NAME_TO_POOL.get(poolName);
+                return pool == null ? 0L : pool.getCompletedTaskCount();
+            }
+        });
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger threadNum = new AtomicInteger(0);
+
+        public NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class RejectHandler implements RejectedExecutionHandler {
+        private final RejectPolicy policy;
+
+        public RejectHandler(RejectPolicy policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            TrackedThreadPool pool = (TrackedThreadPool) executor;
+            pool.rejectedNum.incrementAndGet();
+            pool.rejectedCounter.inc();
+
+            switch (policy) {
+                case CALLER_RUNS:
+                    if (!executor.isShutdown()) {
+                        r.run();
+                    }
+                    break;
+                case DISCARD:
+                    LOG.warn("thread pool {} is full, discard task. active: {}, queued: {}",
+                             pool.name, executor.getActiveCount(), executor.getQueue().size());
+                    break;
+                default:
+                    throw new RejectedExecutionException("thread pool " + pool.name + " is full. active: "
+                            + executor.getActiveCount() + ", queued: " + executor.getQueue().size());
+            }
+        }
+    }
+
+    // wrap task to record the time waited in queue and the time executed
+    private static class TrackedTask implements Runnable {
+        private final TrackedThreadPool pool;
+        private final Runnable task;
+        private final long submitTimeNs;
+
+        public TrackedTask(TrackedThreadPool pool, Runnable task) {
+            this.pool = pool;
+            this.task = task;
+            this.submitTimeNs = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startTimeNs = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                pool.updateTaskTime(startTimeNs - submitTimeNs, System.nanoTime() - startTimeNs);
+            }
+        }
+    }
+
+    public static class TrackedThreadPool extends ThreadPoolExecutor {
+        private final String name;
+        private final int queueSize;
+        private final RejectPolicy policy;
+
+        private final AtomicLong rejectedNum = new AtomicLong(0L);
+        private final AtomicLong finishedTaskNum = new AtomicLong(0L);
+        private final AtomicLong totalQueueTimeNs = new AtomicLong(0L);
+        private final AtomicLong totalExecTimeNs = new AtomicLong(0L);
+        // metrics are looked up once, a pool which replaces the former one with the same name shares them
+        private final Counter rejectedCounter;
+        private final Timer queueTimer;
+        private final Timer execTimer;
+
+        private TrackedThreadPool(String name, int coreSize, int maxSize, BlockingQueue<Runnable> queue,
+                                  int queueSize, RejectPolicy policy) {
+            super(coreSize, maxSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue, new NamedThreadFactory(name),
+                  new RejectHandler(policy));
+            this.name = name;
+            this.queueSize = queueSize;
+            this.policy = policy;
+            this.rejectedCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER,
+                                                               metricName(name, "rejected"));
+            this.queueTimer = (Timer) Metrics.getMetric(Metrics.MetricType.TIMER, metricName(name, "queue_time"));
+            this.execTimer = (Timer) Metrics.getMetric(Metrics.MetricType.TIMER, metricName(name, "exec_time"));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(new TrackedTask(this, command));
+        }
+
+        private void updateTaskTime(long queueTimeNs, long execTimeNs) {
+            finishedTaskNum.incrementAndGet();
+            totalQueueTimeNs.addAndGet(queueTimeNs);
+            totalExecTimeNs.addAndGet(execTimeNs);
+            queueTimer.update(queueTimeNs, TimeUnit.NANOSECONDS);
+            execTimer.update(execTimeNs, TimeUnit.NANOSECONDS);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // UNBOUNDED_QUEUE if not limited
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public RejectPolicy getRejectPolicy() {
+            return policy;
+        }
+
+        public long getRejectedNum() {
+            return rejectedNum.get();
+        }
+
+        // average time of finished tasks waited in queue, in ms
+        public double getAvgQueueTimeMs() {
+            long num = finishedTaskNum.get();
+            return num == 0 ? 0.0 : totalQueueTimeNs.get() / 1000000.0 / num;
+        }
+
+        // average execution time of finished tasks, in ms
+        public double getAvgExecTimeMs() {
+            long num = finishedTaskNum.get();
+            return num == 0 ? 0.0 : totalExecTimeNs.get() / 1000000.0 / num;
+        }
+    }
+}
@@ -357,6 +357,7 @@ public class CheckConsistencyJob {
 
             // set checked version
             tablet.setCheckedVersion(checkedVersion, checkedVersionHash);
+            Catalog.getInstance().getConsistencyChecker().onTabletChecked(partition, tablet);
 
             // log
             ConsistencyCheckInfo info = new ConsistencyCheckInfo(db.getId(), table.getId(), partition.getId(),
@@ -0,0 +1,112 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.consistency;
+
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Tablet;
+
+import com.google.common.collect.Maps;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+ * Tablets which may need consistency check, ordered by last check time.
+ *
+ * A tablet needs check only if its checked version is behind its partition's committed version.
+ * Tablets are added when the version of their partition changes, when a check finishes behind the latest version,
+ * and by a periodical scan of catalog in ConsistencyChecker, which finds the ones missed by the former
+ * (eg. after restart). Tablets are not removed when they are dropped or checked by others,
+ * so the polled tablet should be checked again under db lock.
+ */
+public class ConsistencyCheckIndex {
+
+    private static class Entry {
+        private final long tabletId;
+        private final long lastCheckTime;
+
+        private Entry(long tabletId, long lastCheckTime) {
+            this.tabletId = tabletId;
+            this.lastCheckTime = lastCheckTime;
+        }
+    }
+
+    private final TreeSet<Entry> queue = new TreeSet<Entry>(new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            if (e1.lastCheckTime != e2.lastCheckTime) {
+                return Long.compare(e1.lastCheckTime, e2.lastCheckTime);
+            }
+            return Long.compare(e1.tabletId, e2.tabletId);
+        }
+    });
+    private final Map<Long, Entry> tabletToEntry = Maps.newHashMap();
+
+    public ConsistencyCheckIndex() {
+    }
+
+    // add tablet if it is not in index
+    public synchronized void add(long tabletId, long lastCheckTime) {
+        if (tabletToEntry.containsKey(tabletId)) {
+            return;
+        }
+        Entry entry = new Entry(tabletId, lastCheckTime);
+        queue.add(entry);
+        tabletToEntry.put(tabletId, entry);
+    }
+
+    // add tablet, or move it to the position of lastCheckTime if it is in index
+    public synchronized void update(long tabletId, long lastCheckTime) {
+        remove(tabletId);
+        add(tabletId, lastCheckTime);
+    }
+
+    // add all tablets of partition. must hold the db lock
+    public synchronized void addPartition(Partition partition) {
+        for (MaterializedIndex index : partition.getMaterializedIndices()) {
+            for (Tablet tablet : index.getTablets()) {
+                add(tablet.getId(), tablet.getLastCheckTime());
+            }
+        }
+    }
+
+    public synchronized void remove(long tabletId) {
+        Entry entry = tabletToEntry.remove(tabletId);
+        if (entry != null) {
+            queue.remove(entry);
+        }
+    }
+
+    // remove and return the tablet which is checked least recently, -1 if index is empty
+    public synchronized long poll() {
+        Entry entry = queue.pollFirst();
+        if (entry == null) {
+            return -1L;
+        }
+        tabletToEntry.remove(entry.tabletId);
+        return entry.tabletId;
+    }
+
+    public synchronized boolean contains(long tabletId) {
+        return tabletToEntry.containsKey(tabletId);
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+}
@@ -18,12 +18,12 @@ package com.baidu.palo.consistency;
 import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.catalog.Database;
 import com.baidu.palo.catalog.MaterializedIndex;
-import com.baidu.palo.catalog.MetaObject;
 import com.baidu.palo.catalog.OlapTable;
 import com.baidu.palo.catalog.Partition;
 import com.baidu.palo.catalog.Table;
 import com.baidu.palo.catalog.Table.TableType;
 import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.catalog.TabletMeta;
 import com.baidu.palo.common.Config;
 import com.baidu.palo.common.util.Daemon;
 import com.baidu.palo.common.util.TimeUtils;
@@ -37,30 +37,25 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Calendar;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class ConsistencyChecker extends Daemon {
     private static final Logger LOG = LogManager.getLogger(ConsistencyChecker.class);
     
     private static final int MAX_JOB_NUM = 100;
+    // interval of scanning catalog to find tablets missed by index
+    private static final long SCAN_INTERVAL_MS = 24 * 3600 * 1000L;
 
-    public static final Comparator<MetaObject> COMPARATOR = new Comparator<MetaObject>() {
-        @Override
-        public int compare(MetaObject first, MetaObject second) {
-            return Long.signum(first.getLastCheckTime() - second.getLastCheckTime());
-        }
-    };
-    
     // tabletId -> job
     private Map<Long, CheckConsistencyJob> jobs;
 
+    // tablets to check, ordered by last check time
+    private ConsistencyCheckIndex checkIndex;
+    private long lastScanTimeMs = -1L;
+
     /*
      * ATTN:
      *      lock order is:
@@ -80,6 +75,7 @@ public class ConsistencyChecker extends Daemon {
 
         jobs = Maps.newHashMap();
         jobsLock = new ReentrantReadWriteLock();
+        checkIndex = new ConsistencyCheckIndex();
 
         if (!initWorkTime()) {
             LOG.error("failed to init time in ConsistencyChecker. exit");
@@ -110,6 +106,10 @@ public class ConsistencyChecker extends Daemon {
     @Override
     protected void runOneCycle() {
         if (itsTime()) {
+            if (lastScanTimeMs < 0 || System.currentTimeMillis() - lastScanTimeMs > SCAN_INTERVAL_MS) {
+                scanCatalog();
+            }
+
             // for each round. try chose enough new tablets to check
             // only add new job when it's work time
             while (getJobNum() < MAX_JOB_NUM) {
@@ -147,6 +147,10 @@ public class ConsistencyChecker extends Daemon {
                             clearJob(oneJob);
                             iterator.remove();
                         }
+                        if (res == -1) {
+                            // retry later. it will be skipped when chosen if it needs no check anymore
+                            checkIndex.update(oneJob.getTabletId(), System.currentTimeMillis());
+                        }
                         break;
                     default:
                         break;
@@ -232,18 +236,12 @@ public class ConsistencyChecker extends Daemon {
     }
 
     /*
-     *  choose a tablet to check it's consistency
-     *  we use a priority queue to sort db/table/partition/index/tablet by 'lastCheckTime'.
-     *  chose a tablet which has the smallest 'lastCheckTime'.
+     * add tablets which need check in catalog to index
      */
-    private long chooseTablet() {
+    private void scanCatalog() {
         Catalog catalog = Catalog.getInstance();
-        MetaObject chosenOne = null;
-
-        // sort dbs
-        List<Long> dbIds = catalog.getDbIds();
-        Queue<MetaObject> dbQueue = new PriorityQueue<MetaObject>(dbIds.size(), COMPARATOR);
-        for (Long dbId : dbIds) {
+        int tabletNum = 0;
+        for (Long dbId : catalog.getDbIds()) {
             if (dbId == 0L) {
                 // skip 'information_schema' database
                 continue;
@@ -252,98 +250,120 @@ public class ConsistencyChecker extends Daemon {
             if (db == null) {
                 continue;
             }
-            dbQueue.add(db);
-        }
 
-        // must lock jobsLock first to obey the lock order rule
-        this.jobsLock.readLock().lock();
-        try {
-            while ((chosenOne = dbQueue.poll()) != null) {
-                Database db = (Database) chosenOne;
-                db.readLock();
-                try {
-                    // sort tables
-                    Queue<MetaObject> tableQueue = new PriorityQueue<MetaObject>(1, COMPARATOR);
-                    for (Table table : db.getTables()) {
-                        if (table.getType() != TableType.OLAP) {
+            db.readLock();
+            try {
+                for (Table table : db.getTables()) {
+                    if (table.getType() != TableType.OLAP) {
+                        continue;
+                    }
+                    OlapTable olapTable = (OlapTable) table;
+                    for (Partition partition : olapTable.getPartitions()) {
+                        if (!needCheck(olapTable, partition)) {
                             continue;
                         }
-                        tableQueue.add(table);
+                        for (MaterializedIndex index : partition.getMaterializedIndices()) {
+                            for (Tablet tablet : index.getTablets()) {
+                                if (needCheck(partition, tablet)) {
+                                    checkIndex.add(tablet.getId(), tablet.getLastCheckTime());
+                                    ++tabletNum;
+                                }
+                            }
+                        }
                     }
+                }
+            } finally {
+                db.readUnlock();
+            }
+        }
+        lastScanTimeMs = System.currentTimeMillis();
+        LOG.info("scan catalog for consistency check. {} tablets need check, index size: {}",
+                 tabletNum, checkIndex.size());
+    }
 
-                    while ((chosenOne = tableQueue.poll()) != null) {
-                        OlapTable table = (OlapTable) chosenOne;
-
-                        // sort partitions
-                        Queue<MetaObject> partitionQueue =
-                                new PriorityQueue<MetaObject>(1, COMPARATOR);
-                        for (Partition partition : table.getPartitions()) {
-                            // check partition's replication num. if 1 replication. skip
-                            if (table.getPartitionInfo().getReplicationNum(partition.getId()) == (short) 1) {
-                                LOG.debug("partition[{}]'s replication num is 1. ignore", partition.getId());
-                                continue;
-                            }
+    private static boolean needCheck(OlapTable table, Partition partition) {
+        // check partition's replication num. if 1 replication. skip
+        if (table.getPartitionInfo().getReplicationNum(partition.getId()) == (short) 1) {
+            LOG.debug("partition[{}]'s replication num is 1. ignore", partition.getId());
+            return false;
+        }
 
-                            // check if this partition has no data
-                            if (partition.getCommittedVersion() == Partition.PARTITION_INIT_VERSION) {
-                                LOG.debug("partition[{}]'s version is {}. ignore", partition.getId(),
-                                          Partition.PARTITION_INIT_VERSION);
-                                continue;
-                            }
-                            partitionQueue.add(partition);
-                        }
+        // check if this partition has no data
+        if (partition.getCommittedVersion() == Partition.PARTITION_INIT_VERSION) {
+            LOG.debug("partition[{}]'s version is {}. ignore", partition.getId(),
+                      Partition.PARTITION_INIT_VERSION);
+            return false;
+        }
+        return true;
+    }
 
-                        while ((chosenOne = partitionQueue.poll()) != null) {
-                            Partition partition = (Partition) chosenOne;
+    // check if tablet's version has not been checked
+    private static boolean needCheck(Partition partition, Tablet tablet) {
+        return partition.getCommittedVersion() != tablet.getCheckedVersion()
+                || partition.getCommittedVersionHash() != tablet.getCheckedVersionHash();
+    }
 
-                            // sort materializedIndices
-                            Queue<MetaObject> indexQueue =
-                                    new PriorityQueue<MetaObject>(1, COMPARATOR);
-                            for (MaterializedIndex index : partition.getMaterializedIndices()) {
-                                indexQueue.add(index);
-                            }
+    /*
+     *  choose a tablet to check it's consistency
+     *  we poll the tablet which has the smallest 'lastCheckTime' from index,
+     *  and skip the ones whose versions have already been checked.
+     */
+    private long chooseTablet() {
+        Catalog catalog = Catalog.getInstance();
 
-                            while ((chosenOne = indexQueue.poll()) != null) {
-                                MaterializedIndex index = (MaterializedIndex) chosenOne;
+        // must lock jobsLock first to obey the lock order rule
+        this.jobsLock.readLock().lock();
+        try {
+            long chosenTabletId;
+            while ((chosenTabletId = checkIndex.poll()) != -1L) {
+                if (this.jobs.containsKey(chosenTabletId)) {
+                    // will be added again when the job finishes if needed
+                    continue;
+                }
 
-                                // sort tablets
-                                Queue<MetaObject> tabletQueue =
-                                        new PriorityQueue<MetaObject>(1, COMPARATOR);
-                                for (Tablet oneTablet : index.getTablets()) {
-                                    tabletQueue.add(oneTablet);
-                                }
+                TabletMeta tabletMeta = Catalog.getCurrentInvertedIndex().getTabletMeta(chosenTabletId);
+                if (tabletMeta == null) {
+                    continue;
+                }
+                Database db = catalog.getDb(tabletMeta.getDbId());
+                if (db == null) {
+                    continue;
+                }
+
+                db.readLock();
+                try {
+                    Table table = db.getTable(tabletMeta.getTableId());
+                    if (table == null || table.getType() != TableType.OLAP) {
+                        continue;
+                    }
+                    OlapTable olapTable = (OlapTable) table;
+                    Partition partition = olapTable.getPartition(tabletMeta.getPartitionId());
+                    if (partition == null || !needCheck(olapTable, partition)) {
+                        continue;
+                    }
+                    MaterializedIndex index = partition.getIndex(tabletMeta.getIndexId());
+                    if (index == null) {
+                        continue;
+                    }
+                    Tablet tablet = index.getTablet(chosenTabletId);
+                    if (tablet == null) {
+                        continue;
+                    }
 
-                                while ((chosenOne = tabletQueue.poll()) != null) {
-                                    Tablet tablet = (Tablet) chosenOne;
-                                    long chosenTabletId = tablet.getId();
-
-                                    if (this.jobs.containsKey(chosenTabletId)) {
-                                        continue;
-                                    }
-
-                                    // check if version has already been checked
-                                    if (partition.getCommittedVersion() == tablet.getCheckedVersion()
-                                            && partition.getCommittedVersionHash() == tablet.getCheckedVersionHash()) {
-                                        if (tablet.isConsistent()) {
-                                            LOG.debug("tablet[{}]'s version[{}-{}] has been checked. ignore",
-                                                      chosenTabletId, tablet.getCheckedVersion(),
-                                                      tablet.getCheckedVersionHash());
-                                            continue;
-                                        }
-                                    } else {
-                                        LOG.info("chose tablet[{}-{}-{}-{}-{}] to check consistency", db.getId(),
-                                                 table.getId(), partition.getId(), index.getId(), chosenTabletId);
-
-                                        return chosenTabletId;
-                                    }
-                                } // end while tabletQueue
-                            } // end while indexQueue
-                        } // end while partitionQueue 
-                    } // end while tableQueue
+                    // check if version has already been checked
+                    if (!needCheck(partition, tablet)) {
+                        LOG.debug("tablet[{}]'s version[{}-{}] has been checked. ignore",
+                                  chosenTabletId, tablet.getCheckedVersion(), tablet.getCheckedVersionHash());
+                        continue;
+                    }
+
+                    LOG.info("chose tablet[{}-{}-{}-{}-{}] to check consistency", db.getId(),
+                             table.getId(), partition.getId(), index.getId(), chosenTabletId);
+                    return chosenTabletId;
                 } finally {
                     db.readUnlock();
                 }
-            } // end while dbQueue
+            }
         } finally {
             jobsLock.readLock().unlock();
         }
@@ -351,6 +371,32 @@ public class ConsistencyChecker extends Daemon {
         return -1L;
     }
 
+    /*
+     * called when partition's committed version changes. must hold the db lock
+     */
+    public void onPartitionVersionChanged(Partition partition) {
+        if (!isAlive()) {
+            // checker only runs on master, and the index is built by scanning catalog when it starts
+            return;
+        }
+        checkIndex.addPartition(partition);
+    }
+
+    /*
+     * called when tablet's check finishes. must hold the db lock
+     */
+    public void onTabletChecked(Partition partition, Tablet tablet) {
+        if (!isAlive()) {
+            return;
+        }
+        if (needCheck(partition, tablet)) {
+            // new versions are loaded while checking
+            checkIndex.update(tablet.getId(), tablet.getLastCheckTime());
+        } else {
+            checkIndex.remove(tablet.getId());
+        }
+    }
+
     public void handleFinishedConsistencyCheck(CheckConsistencyTask task, long checksum) {
         long tabletId = task.getTabletId();
         long backendId = task.getBackendId();
@@ -382,6 +428,7 @@ public class ConsistencyChecker extends Daemon {
             tablet.setCheckedVersion(info.getCheckedVersion(), info.getCheckedVersionHash());
 
             tablet.setIsConsistent(info.isConsistent());
+            onTabletChecked(partition, tablet);
         } finally {
             db.writeUnlock();
         }
@@ -96,6 +96,11 @@ public abstract class BaseAction implements IAction {
         }
     }
 
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
     public abstract void execute(BaseRequest request, BaseResponse response) throws DdlException;
 
     protected void writeResponse(BaseRequest request, BaseResponse response, HttpResponseStatus status) {
@@ -124,12 +129,14 @@ public abstract class BaseAction implements IAction {
         writeCustomHeaders(response, responseObj);
         writeCookies(response, responseObj);
 
+        // The action may be executed outside the event loop, after channelReadComplete()
+        // has already flushed the channel, so we have to flush the response ourselves.
         boolean keepAlive = HttpHeaders.isKeepAlive(request.getRequest());
         if (!keepAlive) {
-            request.getContext().write(responseObj).addListener(ChannelFutureListener.CLOSE);
+            request.getContext().writeAndFlush(responseObj).addListener(ChannelFutureListener.CLOSE);
         } else {
             responseObj.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
-            request.getContext().write(responseObj);
+            request.getContext().writeAndFlush(responseObj);
         }
     }
 
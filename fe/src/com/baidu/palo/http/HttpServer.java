@@ -59,6 +59,9 @@ import com.baidu.palo.http.rest.SetConfigAction;
 import com.baidu.palo.http.rest.ShowMetaInfoAction;
 import com.baidu.palo.http.rest.ShowProcAction;
 import com.baidu.palo.http.rest.ShowRuntimeInfoAction;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
 import com.baidu.palo.master.MetaHelper;
 import com.baidu.palo.qe.QeService;
 
@@ -66,6 +69,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
@@ -75,6 +79,10 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.stream.ChunkedWriteHandler;
 
@@ -84,6 +92,8 @@ public class HttpServer {
     private QeService qeService = null;
     private int port;
     private ActionController controller;
+    // executor of blocking actions, shared by all channels
+    private ThreadPoolExecutor blockingActionExecutor;
 
     private Thread serverThread;
 
@@ -91,6 +101,9 @@ public class HttpServer {
         this.qeService = qeService;
         this.port = port;
         controller = new ActionController();
+        blockingActionExecutor = ThreadPoolManager.newFixedThreadPool("http-blocking-action",
+                Config.http_blocking_action_thread_num, Math.max(1, Config.http_blocking_action_queue_size),
+                RejectPolicy.ABORT);
     }
 
     public void setup() throws IllegalArgException {
@@ -166,9 +179,31 @@ public class HttpServer {
         @Override
         protected void initChannel(SocketChannel ch) throws Exception {
             ch.pipeline().addLast("codec", new HttpServerCodec());
-            // ch.pipeline().addLast("compressor", new HttpContentCompressor());
+            if (Config.http_compress_min_size_bytes >= 0) {
+                ch.pipeline().addLast("compressor", new PaloHttpContentCompressor());
+            }
             ch.pipeline().addLast(new ChunkedWriteHandler());
-            ch.pipeline().addLast(new HttpServerHandler(controller, qeService));
+            ch.pipeline().addLast(new HttpServerHandler(controller, qeService, blockingActionExecutor));
+        }
+    }
+
+    // Only compress full responses of text content which are larger than http_compress_min_size_bytes.
+    // File responses are sent as FileRegion, which can not be compressed, so they are skipped.
+    private static class PaloHttpContentCompressor extends HttpContentCompressor {
+        @Override
+        protected Result beginEncode(HttpResponse headers, String acceptEncoding) throws Exception {
+            if (!(headers instanceof FullHttpResponse)) {
+                return null;
+            }
+            if (((FullHttpResponse) headers).content().readableBytes() < Config.http_compress_min_size_bytes) {
+                return null;
+            }
+            String contentType = headers.headers().get(HttpHeaders.Names.CONTENT_TYPE);
+            if (contentType == null || !(contentType.startsWith("text/") || contentType.contains("json")
+                    || contentType.contains("javascript"))) {
+                return null;
+            }
+            return super.beginEncode(headers, acceptEncoding);
         }
     }
 
@@ -19,6 +19,8 @@ import com.baidu.palo.http.action.IndexAction;
 import com.baidu.palo.http.action.NotFoundAction;
 import com.baidu.palo.qe.QeService;
 
+import com.google.common.collect.Queues;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -36,6 +38,9 @@ import io.netty.handler.codec.http.HttpVersion;
 import io.netty.util.ReferenceCountUtil;
 
 import java.net.URISyntaxException;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 public class HttpServerHandler extends ChannelInboundHandlerAdapter {
     private static final Logger LOG = LogManager.getLogger(HttpServerHandler.class);
@@ -45,11 +50,21 @@ public class HttpServerHandler extends ChannelInboundHandlerAdapter {
     protected FullHttpRequest fullRequest = null;
     protected HttpRequest request = null;
     private BaseAction action = null;
-    
-    public HttpServerHandler(ActionController controller, QeService qeService) {
+
+    private ExecutorService blockingActionExecutor = null;
+    // True if a blocking action of this channel is being executed.
+    // Only accessed in the event loop of this channel.
+    private boolean actionInFlight = false;
+    // Messages received while an action is in flight. They are handled after the action finished,
+    // so that responses of keep-alive (and pipelined) requests are sent in order.
+    private Queue<Object> pendingMsgs = Queues.newArrayDeque();
+
+    public HttpServerHandler(ActionController controller, QeService qeService,
+                             ExecutorService blockingActionExecutor) {
         super();
         this.qeService = qeService;
         this.controller = controller;
+        this.blockingActionExecutor = blockingActionExecutor;
     }
     
     @Override
@@ -62,6 +77,11 @@ public class HttpServerHandler extends ChannelInboundHandlerAdapter {
     
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (actionInFlight) {
+            pendingMsgs.add(msg);
+            return;
+        }
+
         if (msg instanceof HttpRequest) {
             this.request = (HttpRequest) msg;
             LOG.debug("request: url:[{}]", request.uri());
@@ -75,13 +95,74 @@ public class HttpServerHandler extends ChannelInboundHandlerAdapter {
             if (action != null) {
                 LOG.debug("action: {} ", action.getClass().getName());
                 action.setQeService(qeService);
-                action.handleRequest(req);
+                if (action.isBlocking()) {
+                    executeBlockingAction(ctx, action, req);
+                } else {
+                    action.handleRequest(req);
+                }
             }
         } else {
             ReferenceCountUtil.release(msg);
         }
     }
 
+    private void executeBlockingAction(final ChannelHandlerContext ctx, final BaseAction blockingAction,
+                                       final BaseRequest req) {
+        // stop reading from this channel until the action is done.
+        actionInFlight = true;
+        ctx.channel().config().setAutoRead(false);
+        try {
+            blockingActionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blockingAction.handleRequest(req);
+                    } catch (Throwable e) {
+                        LOG.warn("fail to handle request. url={}", req.getRequest().uri(), e);
+                        ctx.close();
+                    } finally {
+                        ctx.executor().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                onBlockingActionFinished(ctx);
+                            }
+                        });
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.warn("too many blocking http requests, reject url={}", req.getRequest().uri());
+            writeResponse(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE, "server is busy, try again later.");
+            onBlockingActionFinished(ctx);
+        }
+    }
+
+    // Must be called in the event loop of this channel.
+    private void onBlockingActionFinished(ChannelHandlerContext ctx) {
+        actionInFlight = false;
+        while (!actionInFlight && !pendingMsgs.isEmpty()) {
+            try {
+                channelRead(ctx, pendingMsgs.poll());
+            } catch (Exception e) {
+                exceptionCaught(ctx, e);
+                return;
+            }
+        }
+        channelReadComplete(ctx);
+        if (!actionInFlight) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Object msg;
+        while ((msg = pendingMsgs.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+        super.channelInactive(ctx);
+    }
+
     private boolean isRequestValid(ChannelHandlerContext ctx, HttpRequest request) throws URISyntaxException {
         return true;
     }
@@ -97,7 +178,7 @@ public class HttpServerHandler extends ChannelInboundHandlerAdapter {
     }
 
     @Override
-    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         cause.printStackTrace();
         ctx.close();
     }
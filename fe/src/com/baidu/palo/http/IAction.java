@@ -20,4 +20,8 @@ public interface IAction {
 
     public void handleRequest(BaseRequest request) throws Exception;
 
+    // Return true if this action may block (eg. take catalog locks, do disk or network io).
+    // Blocking actions are executed in a separate thread pool instead of the netty event loop.
+    public boolean isBlocking();
+
 }
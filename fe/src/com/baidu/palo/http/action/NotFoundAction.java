@@ -33,6 +33,11 @@ public class NotFoundAction extends WebBaseAction {
     public boolean needAdmin() {
         return false;
     }
+
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
     
     @Override
     public void executeGet(BaseRequest request, BaseResponse response) {
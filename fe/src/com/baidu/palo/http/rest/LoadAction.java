@@ -58,6 +58,13 @@ public class LoadAction extends RestBaseAction {
                 "/api/{" + DB_NAME_PARAM + "}/{" + TABLE_NAME_PARAM + "}/_load", action);
     }
 
+    // Load action only redirects the request to a backend, so it is cheap enough
+    // to be executed in the event loop.
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
+
     @Override
     public void execute(BaseRequest request, BaseResponse response) throws DdlException {
         // A 'Load' request must have 100-continue header
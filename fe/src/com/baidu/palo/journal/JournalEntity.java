@@ -33,6 +33,8 @@ import com.baidu.palo.load.ExportJob;
 import com.baidu.palo.load.LoadErrorHub;
 import com.baidu.palo.load.LoadJob;
 import com.baidu.palo.master.Checkpoint;
+import com.baidu.palo.persist.BatchIndexStatInfo;
+import com.baidu.palo.persist.BatchReplicaPersistInfo;
 import com.baidu.palo.persist.CloneInfo;
 import com.baidu.palo.persist.ClusterInfo;
 import com.baidu.palo.persist.ConsistencyCheckInfo;
@@ -222,6 +224,14 @@ public class JournalEntity implements Writable {
                 data = new ReplicaPersistInfo();
                 break;
             }
+            case OperationType.OP_BATCH_ADD_REPLICA: {
+                data = new BatchReplicaPersistInfo();
+                break;
+            }
+            case OperationType.OP_UPDATE_INDEX_STATS: {
+                data = new BatchIndexStatInfo();
+                break;
+            }
             case OperationType.OP_ADD_BACKEND:
             case OperationType.OP_DROP_BACKEND:
             case OperationType.OP_BACKEND_STATE_CHANGE: {
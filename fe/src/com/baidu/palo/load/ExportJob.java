@@ -30,10 +30,15 @@ import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.catalog.Column;
 import com.baidu.palo.catalog.Database;
 import com.baidu.palo.catalog.MysqlTable;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
 import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.Replica;
 import com.baidu.palo.catalog.Table;
+import com.baidu.palo.catalog.Tablet;
 import com.baidu.palo.catalog.Type;
 import com.baidu.palo.common.Config;
+import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.io.Writable;
@@ -56,6 +61,7 @@ import com.baidu.palo.thrift.TUniqueId;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings; 
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -67,7 +73,6 @@ import org.apache.logging.log4j.Logger;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -96,6 +101,10 @@ public class ExportJob implements Writable {
     private String columnSeparator;
     private String lineDelimiter;
     private List<String> partitions;
+    // max number of coordinators running at the same time
+    private int parallelism = 1;
+    // data size exported by each coordinator
+    private long maxFileSize = Config.export_max_file_size_bytes;
 
     private TableName tableName;
 
@@ -179,6 +188,8 @@ public class ExportJob implements Writable {
         this.exportPath = path;
 
         this.partitions = stmt.getPartitions();
+        this.parallelism = stmt.getParallelism();
+        this.maxFileSize = stmt.getMaxFileSize();
 
         genExecFragment();
 
@@ -308,31 +319,59 @@ public class ExportJob implements Writable {
             scanNodes.add(scanNode);
             fragments.add(fragment);
         } else {
-            for (TScanRangeLocations tablet : tabletLocations) {
-                List<TScanRangeLocation> locations = tablet.getLocations();
-                Collections.shuffle(locations);
-                tablet.setLocations(locations.subList(0, 1));
-            }
-
-            int size = tabletLocations.size();
-            int tabletNum = Config.export_parallel_tablet_num;
-            for (int i = 0; i < size; i += tabletNum) {
-                OlapScanNode olapScanNode = null;
-                if (i + tabletNum <= size) {
-                    olapScanNode = genOlapScanNodeByLocation(tabletLocations.subList(i, i + tabletNum));
-                } else {
-                    olapScanNode = genOlapScanNodeByLocation(tabletLocations.subList(i, size));
-                }
+            // each fragment scans tablets of balanced data size on one backend
+            ExportTabletSplitter splitter = new ExportTabletSplitter(maxFileSize,
+                                                                     Math.max(1, Config.export_parallel_tablet_num));
+            List<List<TScanRangeLocations>> taskLocations = splitter.split(tabletLocations, getReplicaSizes());
+            Set<Long> backendIds = Sets.newHashSet();
+            for (List<TScanRangeLocations> locations : taskLocations) {
+                OlapScanNode olapScanNode = genOlapScanNodeByLocation(locations);
                 PlanFragment fragment = genPlanFragment(exportTable.getType(), olapScanNode);
 
                 fragments.add(fragment);
                 scanNodes.add(olapScanNode);
+                for (TScanRangeLocations tablet : locations) {
+                    for (TScanRangeLocation location : tablet.getLocations()) {
+                        backendIds.add(location.getBackend_id());
+                    }
+                }
+            }
+
+            if (parallelism <= 0) {
+                // one running task for each backend
+                parallelism = Math.max(1, backendIds.size());
             }
+            LOG.info("export job {} is split into {} tasks on {} backends, parallelism: {}",
+                     id, fragments.size(), backendIds.size(), parallelism);
         }
 
+        if (parallelism <= 0) {
+            parallelism = 1;
+        }
         genCoordinators(fragments, scanNodes);
     }
 
+    // tablet id, backend id -> data size of replica
+    private com.google.common.collect.Table<Long, Long, Long> getReplicaSizes() {
+        Set<Long> tabletIds = Sets.newHashSet();
+        for (TScanRangeLocations locations : tabletLocations) {
+            tabletIds.add(locations.getScan_range().getPalo_scan_range().getTablet_id());
+        }
+
+        com.google.common.collect.Table<Long, Long, Long> replicaSizes = HashBasedTable.create();
+        for (Partition partition : ((OlapTable) exportTable).getPartitions()) {
+            for (Tablet tablet : partition.getBaseIndex().getTablets()) {
+                if (!tabletIds.contains(tablet.getId())) {
+                    continue;
+                }
+                for (Replica replica : tablet.getReplicas()) {
+                    replicaSizes.put(tablet.getId(), replica.getBackendId(), replica.getDataSize());
+                }
+            }
+        }
+        return replicaSizes;
+    }
+
     private void registerToDesc() {
         TableRef ref = new TableRef(tableName, null, partitions);
         BaseTableRef tableRef = new BaseTableRef(ref, exportTable, tableName);
@@ -428,6 +467,14 @@ public class ExportJob implements Writable {
         this.partitions = partitions;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
     public int getProgress() {
         return progress;
     }
@@ -588,6 +635,9 @@ public class ExportJob implements Writable {
             out.writeBoolean(true);
             brokerDesc.write(out);
         }
+
+        out.writeInt(parallelism);
+        out.writeLong(maxFileSize);
     }
 
     @Override
@@ -620,6 +670,11 @@ public class ExportJob implements Writable {
         if (in.readBoolean()) {
             brokerDesc = BrokerDesc.read(in);
         }
+
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_41) {
+            parallelism = in.readInt();
+            maxFileSize = in.readLong();
+        }
     }
 
     @Override
@@ -0,0 +1,190 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.thrift.TScanRangeLocation;
+import com.baidu.palo.thrift.TScanRangeLocations;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Split tablets of an export job into tasks of balanced data size.
+ * 1. Each tablet is exported from the replica on the backend with the least assigned data.
+ * 2. Tablets on each backend are packed into tasks of about targetBytes, each task is scanned on one backend
+ *    and writes one file.
+ * 3. Tasks are ordered round-robin by backend, so that tasks running at the same time spread across backends.
+ */
+public class ExportTabletSplitter {
+
+    private static class TabletItem {
+        TScanRangeLocations locations;
+        long tabletId;
+        long size;
+    }
+
+    private static class Task {
+        List<TScanRangeLocations> tablets = Lists.newArrayList();
+        long size = 0;
+    }
+
+    private final long targetBytes;
+    // tablet num of a task if data size of tablets is unknown
+    private final int defaultTabletNum;
+
+    public ExportTabletSplitter(long targetBytes, int defaultTabletNum) {
+        Preconditions.checkArgument(targetBytes > 0);
+        Preconditions.checkArgument(defaultTabletNum > 0);
+        this.targetBytes = targetBytes;
+        this.defaultTabletNum = defaultTabletNum;
+    }
+
+    // replicaSizes: tablet id, backend id -> data size of replica
+    public List<List<TScanRangeLocations>> split(List<TScanRangeLocations> tabletLocations,
+                                                 Table<Long, Long, Long> replicaSizes) {
+        List<TabletItem> items = estimateTabletSize(tabletLocations, replicaSizes);
+
+        // biggest first, so that each one goes to the least loaded backend
+        Collections.sort(items, new Comparator<TabletItem>() {
+            @Override
+            public int compare(TabletItem o1, TabletItem o2) {
+                if (o1.size != o2.size) {
+                    return o1.size > o2.size ? -1 : 1;
+                }
+                return Long.compare(o1.tabletId, o2.tabletId);
+            }
+        });
+
+        final Map<Long, Long> backendIdToSize = Maps.newHashMap();
+        Map<Long, List<TabletItem>> backendIdToTablets = Maps.newHashMap();
+        for (TabletItem item : items) {
+            TScanRangeLocation chosen = null;
+            long chosenSize = Long.MAX_VALUE;
+            for (TScanRangeLocation location : item.locations.getLocations()) {
+                Long size = backendIdToSize.get(location.getBackend_id());
+                size = size == null ? 0L : size;
+                if (chosen == null || size < chosenSize
+                        || (size == chosenSize && location.getBackend_id() < chosen.getBackend_id())) {
+                    chosen = location;
+                    chosenSize = size;
+                }
+            }
+            Preconditions.checkNotNull(chosen);
+
+            item.locations.setLocations(Lists.newArrayList(chosen));
+            backendIdToSize.put(chosen.getBackend_id(), chosenSize + item.size);
+            List<TabletItem> tablets = backendIdToTablets.get(chosen.getBackend_id());
+            if (tablets == null) {
+                tablets = Lists.newArrayList();
+                backendIdToTablets.put(chosen.getBackend_id(), tablets);
+            }
+            tablets.add(item);
+        }
+
+        // pack tablets of each backend into tasks. tablets are in descending order of size,
+        // put each one into the smallest task.
+        List<Long> backendIds = Lists.newArrayList(backendIdToTablets.keySet());
+        Collections.sort(backendIds, new Comparator<Long>() {
+            @Override
+            public int compare(Long o1, Long o2) {
+                int res = Long.compare(backendIdToSize.get(o2), backendIdToSize.get(o1));
+                return res != 0 ? res : Long.compare(o1, o2);
+            }
+        });
+        List<List<Task>> backendTasks = Lists.newArrayList();
+        for (Long backendId : backendIds) {
+            List<TabletItem> tablets = backendIdToTablets.get(backendId);
+            long totalSize = backendIdToSize.get(backendId);
+            int taskNum = (int) Math.min(tablets.size(), Math.max(1L, (totalSize + targetBytes - 1) / targetBytes));
+            List<Task> tasks = Lists.newArrayList();
+            for (int i = 0; i < taskNum; i++) {
+                tasks.add(new Task());
+            }
+            for (TabletItem item : tablets) {
+                Task smallest = tasks.get(0);
+                for (Task task : tasks) {
+                    if (task.size < smallest.size) {
+                        smallest = task;
+                    }
+                }
+                smallest.tablets.add(item.locations);
+                smallest.size += item.size;
+            }
+            Collections.sort(tasks, new Comparator<Task>() {
+                @Override
+                public int compare(Task o1, Task o2) {
+                    return Long.compare(o2.size, o1.size);
+                }
+            });
+            backendTasks.add(tasks);
+        }
+
+        List<List<TScanRangeLocations>> result = Lists.newArrayList();
+        for (int i = 0; ; i++) {
+            boolean added = false;
+            for (List<Task> tasks : backendTasks) {
+                if (i < tasks.size()) {
+                    result.add(tasks.get(i).tablets);
+                    added = true;
+                }
+            }
+            if (!added) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // Size of tablet is the max size of its replicas. Tablets without reported size are regarded as
+    // the average of others, or targetBytes / defaultTabletNum if no tablet has reported its size.
+    private List<TabletItem> estimateTabletSize(List<TScanRangeLocations> tabletLocations,
+                                                Table<Long, Long, Long> replicaSizes) {
+        List<TabletItem> items = Lists.newArrayList();
+        long knownSize = 0;
+        int knownNum = 0;
+        for (TScanRangeLocations locations : tabletLocations) {
+            TabletItem item = new TabletItem();
+            item.locations = locations;
+            item.tabletId = locations.getScan_range().getPalo_scan_range().getTablet_id();
+            item.size = 0;
+            Map<Long, Long> sizes = replicaSizes.row(item.tabletId);
+            for (Long size : sizes.values()) {
+                item.size = Math.max(item.size, size);
+            }
+            if (item.size > 0) {
+                knownSize += item.size;
+                ++knownNum;
+            }
+            items.add(item);
+        }
+
+        long defaultSize = knownNum > 0 ? knownSize / knownNum : targetBytes / defaultTabletNum;
+        defaultSize = Math.max(1L, defaultSize);
+        for (TabletItem item : items) {
+            if (item.size <= 0) {
+                item.size = defaultSize;
+            }
+        }
+        return items;
+    }
+}
@@ -53,6 +53,7 @@ import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.FeNameFormat;
 import com.baidu.palo.common.LoadException;
 import com.baidu.palo.common.MarkedCountDownLatch;
+import com.baidu.palo.common.MetaNotFoundException;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.common.util.ListComparator;
 import com.baidu.palo.common.util.OrderByPair;
@@ -101,6 +102,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -115,20 +117,26 @@ public class Load {
     public static Map<String, DppConfig> clusterToDppConfig = Maps.newHashMap();
 
     // load job meta
+    // finished and cancelled jobs are moved out of these maps to labelIndex and jobArchive
     private Map<Long, LoadJob> idToLoadJob; // loadJobId to loadJob
     private Map<Long, List<LoadJob>> dbToLoadJobs; // db to loadJob list
     private Map<Long, Map<String, List<LoadJob>>> dbLabelToLoadJobs; // db label to loadJob list
+    private LoadLabelIndex labelIndex; // labels of finished and cancelled jobs
+    private LoadJobArchive jobArchive; // show infos of finished and cancelled jobs
     private Map<Long, LoadJob> idToPendingLoadJob; // loadJobId to pending loadJob
     private Map<Long, LoadJob> idToEtlLoadJob; // loadJobId to etl loadJob
     private Map<Long, LoadJob> idToLoadingLoadJob; // loadJobId to loading loadJob
     private Map<Long, LoadJob> idToQuorumFinishedLoadJob; // loadJobId to quorum finished loadJob
-    private Set<Long> loadingPartitionIds; // loading partition id set
+    // loading partition id to (version to loading job id)
+    private Map<Long, TreeMap<Long, Long>> loadingPartitionToVersions;
     private Map<Long, Set<String>> dbToMiniLabels; // db to mini uncommit label
 
     private Map<Long, List<DeleteInfo>> dbToDeleteInfos; // db to delete job list
 
     private Set<Long> partitionUnderDelete; // save partitions which are running delete jobs
     private Map<Long, AsyncDeleteJob> idToQuorumFinishedDeleteJob;
+    // partition to unfinished load and async delete jobs on it
+    private PartitionJobIndex partitionJobIndex;
 
     private volatile LoadErrorHub.Param loadErrorHubInfo = new LoadErrorHub.Param();
 
@@ -187,15 +195,18 @@ public class Load {
         idToLoadJob = Maps.newHashMap();
         dbToLoadJobs = Maps.newHashMap();
         dbLabelToLoadJobs = Maps.newHashMap();
+        labelIndex = new LoadLabelIndex(Config.load_job_archive_bucket_second * 1000L);
+        jobArchive = new LoadJobArchive(Config.load_job_archive_dir, Config.load_job_archive_bucket_second * 1000L);
         idToPendingLoadJob = Maps.newLinkedHashMap();
         idToEtlLoadJob = Maps.newLinkedHashMap();
         idToLoadingLoadJob = Maps.newLinkedHashMap();
         idToQuorumFinishedLoadJob = Maps.newLinkedHashMap();
-        loadingPartitionIds = Sets.newHashSet();
+        loadingPartitionToVersions = Maps.newHashMap();
         dbToMiniLabels = Maps.newHashMap();
         dbToDeleteInfos = Maps.newHashMap();
         partitionUnderDelete = Sets.newHashSet();
         idToQuorumFinishedDeleteJob = Maps.newLinkedHashMap();
+        partitionJobIndex = new PartitionJobIndex();
         lock = new ReentrantReadWriteLock(true);
     }
 
@@ -782,6 +793,12 @@ public class Load {
         }
         checkLabelUsed(dbId, label, timestamp, checkMini);
 
+        // finished or cancelled job from image of old version
+        if (job.getState() == JobState.FINISHED || job.getState() == JobState.CANCELLED) {
+            archiveLoadJob(job);
+            return;
+        }
+
         // add job
         Map<String, List<LoadJob>> labelToLoadJobs = null;
         if (dbLabelToLoadJobs.containsKey(dbId)) {
@@ -818,21 +835,35 @@ public class Load {
                 break;
             case LOADING:
                 idToLoadingLoadJob.put(jobId, job);
-                // recover loadingPartitionIds
+                // recover loading partitions
                 recoverLoadingPartitions(job);
                 break;
             case QUORUM_FINISHED:
                 // The state QUORUM_FINISHED could only occur when loading image file
                 idToQuorumFinishedLoadJob.put(jobId, job);
                 break;
-            case FINISHED:
-                break;
-            case CANCELLED:
-                break;
             default:
                 // Impossible to be other state
                 Preconditions.checkNotNull(null, "Should not be here");
         }
+        unprotectIndexLoadJob(job);
+    }
+
+    // index partitions of job by its state. must hold the write lock
+    private void unprotectIndexLoadJob(LoadJob job) {
+        JobState state = job.getState();
+        if (state == JobState.FINISHED || state == JobState.CANCELLED || job.getIdToTableLoadInfo() == null) {
+            partitionJobIndex.remove(job.getId());
+            return;
+        }
+
+        Set<Long> partitionIds = Sets.newHashSet();
+        for (TableLoadInfo tableLoadInfo : job.getIdToTableLoadInfo().values()) {
+            partitionIds.addAll(tableLoadInfo.getIdToPartitionLoadInfo().keySet());
+        }
+        PartitionJobIndex.JobType type = state == JobState.QUORUM_FINISHED
+                ? PartitionJobIndex.JobType.QUORUM_FINISHED_LOAD : PartitionJobIndex.JobType.LOAD;
+        partitionJobIndex.put(type, job.getId(), partitionIds);
     }
 
     public void replayAddLoadJob(LoadJob job) throws DdlException {
@@ -866,7 +897,9 @@ public class Load {
         idToEtlLoadJob.remove(jobId);
         idToLoadingLoadJob.put(jobId, job);
 
-        // recover loadingPartitionIds
+        // recover loading partitions.
+        // the job is logged again if its versions are shifted, so remove the old versions first
+        unprotectRemoveLoadingPartitions(job);
         recoverLoadingPartitions(job);
 
         replaceLoadJob(job);
@@ -970,6 +1003,16 @@ public class Load {
             }
         }
 
+        // check labels of finished jobs
+        LoadJobSummary summary = labelIndex.get(dbId, label);
+        if (summary != null && summary.getState() != JobState.CANCELLED) {
+            if (timestamp == summary.getTimestamp()) {
+                return false;
+            } else {
+                throw new DdlException(labelUsedMsg);
+            }
+        }
+
         // check dbToMiniLabel
         if (checkMini) {
             if (dbToMiniLabels.containsKey(dbId)) {
@@ -997,13 +1040,16 @@ public class Load {
         readLock();
         try {
             Map<String, List<LoadJob>> labelToLoadJobs = dbLabelToLoadJobs.get(db.getId());
-            if (labelToLoadJobs == null) {
-                throw new DdlException("Load job does not exist");
-            }
-            
-            List<LoadJob> loadJobs = labelToLoadJobs.get(label);
+            List<LoadJob> loadJobs = labelToLoadJobs == null ? null : labelToLoadJobs.get(label);
             if (loadJobs == null) {
-                throw new DdlException("Load job does not exist");
+                LoadJobSummary summary = labelIndex.get(db.getId(), label);
+                if (summary == null) {
+                    throw new DdlException("Load job does not exist");
+                } else if (summary.getState() == JobState.CANCELLED) {
+                    throw new DdlException("Load job has been cancelled");
+                } else {
+                    throw new DdlException("Load job has been finished");
+                }
             }
             // only the last one should be running
             job = loadJobs.get(loadJobs.size() - 1);
@@ -1065,15 +1111,17 @@ public class Load {
                 break;
             case LOADING:
                 idToLoadingLoadJob.remove(jobId);
-                // remove loading partitions
-                removeLoadingPartitions(oldJob);
+                // remove loading partitions.
+                // versions of following jobs have been shifted and logged before this job is cancelled
+                unprotectRemoveLoadingPartitions(oldJob);
                 break;
             default:
                 LOG.warn("cancel job has wrong src state: {}", oldJob.getState().name());
                 return;
         }
+        partitionJobIndex.remove(jobId);
 
-        replaceLoadJob(job);
+        archiveLoadJob(job);
     }
     
     public void replayCancelLoadJob(LoadJob job) {
@@ -1090,6 +1138,7 @@ public class Load {
         writeLock();
         try {
             idToQuorumFinishedDeleteJob.remove(job.getJobId());
+            partitionJobIndex.remove(job.getJobId());
 
             List<DeleteInfo> deleteInfos = dbToDeleteInfos.get(job.getDbId());
             Preconditions.checkNotNull(deleteInfos);
@@ -1138,6 +1187,10 @@ public class Load {
         return dbToLoadJobs;
     }
     
+    public LoadLabelIndex getLabelIndex() {
+        return labelIndex;
+    }
+
     public Map<Long, List<DeleteInfo>> getDbToDeleteInfos() {
         return dbToDeleteInfos;
     }
@@ -1184,12 +1237,12 @@ public class Load {
     public int getLoadJobNum(JobState jobState, long dbId) {
         readLock();
         try {
+            int jobNum = labelIndex.getJobNum(dbId, jobState);
             List<LoadJob> loadJobs = this.dbToLoadJobs.get(dbId);
             if (loadJobs == null) {
-                return 0;
+                return jobNum;
             }
 
-            int jobNum = 0;
             for (LoadJob job : loadJobs) {
                 if (job.getState() == jobState) {
                     ++jobNum;
@@ -1230,126 +1283,44 @@ public class Load {
   
     public LinkedList<List<Comparable>> getLoadJobInfosByDb(long dbId, String labelValue, boolean accurateMatch,
                                                             Set<JobState> states, ArrayList<OrderByPair> orderByPairs) {
+        return getLoadJobInfosByDb(dbId, labelValue, accurateMatch, states, orderByPairs, -1L);
+    }
+
+    // archived jobs are read in the order of id, so limit is used to stop reading them early
+    // if infos are sorted by id. limit < 0 means no limit.
+    public LinkedList<List<Comparable>> getLoadJobInfosByDb(long dbId, final String labelValue,
+                                                            final boolean accurateMatch, final Set<JobState> states,
+                                                            ArrayList<OrderByPair> orderByPairs, long limit) {
         LinkedList<List<Comparable>> loadJobInfos = new LinkedList<List<Comparable>>();
+        final Set<Long> jobIds = Sets.newHashSet();
         readLock();
         try {
             List<LoadJob> loadJobs = this.dbToLoadJobs.get(dbId);
-            if (loadJobs == null) {
-                return loadJobInfos;
-            }
-
-            for (LoadJob loadJob : loadJobs) {
-                // filter first
-                String label = loadJob.getLabel();
-                JobState state = loadJob.getState();
-                
-                if (labelValue != null) {
-                    if (accurateMatch) {
-                        if (!label.equals(labelValue)) {
-                            continue;
-                        }
-                    } else {
-                        if (!label.contains(labelValue)) {
-                            continue;
-                        }
-                    }
-                }
-                
-                if (states != null) {
-                    if (!states.contains(state)) {
+            if (loadJobs != null) {
+                for (LoadJob loadJob : loadJobs) {
+                    // filter first
+                    if (!matchLoadJob(loadJob.getLabel(), loadJob.getState(), labelValue, accurateMatch, states)) {
                         continue;
                     }
+                    loadJobInfos.add(getLoadJobInfo(loadJob));
+                    jobIds.add(loadJob.getId());
                 }
-                
-                List<Comparable> jobInfo = new ArrayList<Comparable>();
-
-                // jobId
-                jobInfo.add(loadJob.getId());
-                // label
-                jobInfo.add(label);
-                // state
-                jobInfo.add(state.name());
-
-                // progress
-                switch (loadJob.getState()) {
-                    case PENDING:
-                        jobInfo.add("ETL:0%; LOAD:0%");
-                        break;
-                    case ETL:
-                        jobInfo.add("ETL:" + loadJob.getProgress() + "%; LOAD:0%");
-                        break;
-                    case LOADING:
-                        jobInfo.add("ETL:100%; LOAD:" + loadJob.getProgress() + "%");
-                        break;
-                    case QUORUM_FINISHED:
-                        jobInfo.add("ETL:100%; LOAD:100%");
-                        break;
-                    case FINISHED:
-                        jobInfo.add("ETL:100%; LOAD:100%");
-                        break;
-                    case CANCELLED:
-                        jobInfo.add("ETL:N/A; LOAD:N/A");
-                        break;
-                    default:
-                        jobInfo.add("ETL:N/A; LOAD:N/A");
-                        break;
-                }
-
-                // etl info
-                EtlStatus status = loadJob.getEtlJobStatus();
-                if (status == null || status.getState() == TEtlState.CANCELLED) {
-                    jobInfo.add("N/A");
-                } else {
-                    Map<String, String> counters = status.getCounters();
-                    List<String> info = Lists.newArrayList();
-                    for (String key : counters.keySet()) {
-                        // XXX: internal etl job return all counters
-                        if (key.equalsIgnoreCase("HDFS bytes read")
-                                || key.equalsIgnoreCase("Map input records")
-                                || key.startsWith("dpp.") 
-                                || loadJob.getEtlJobType() == EtlJobType.MINI) {
-                            info.add(key + "=" + counters.get(key));
-                        }
-                    } // end for counters
-                    if (info.isEmpty()) {
-                        jobInfo.add("N/A");
-                    } else {
-                        jobInfo.add(StringUtils.join(info, "; "));
-                    }
-                }
-
-                // task info
-                jobInfo.add("cluster:" + loadJob.getHadoopCluster()
-                        + "; timeout(s):" + loadJob.getTimeoutSecond() 
-                        + "; max_filter_ratio:" + loadJob.getMaxFilterRatio());
-
-                // error msg
-                if (loadJob.getState() == JobState.CANCELLED) {
-                    FailMsg failMsg = loadJob.getFailMsg();
-                    jobInfo.add("type:" + failMsg.getCancelType() + "; msg:" + failMsg.getMsg());
-                } else {
-                    jobInfo.add("N/A");
-                }
-
-                // create time
-                jobInfo.add(TimeUtils.longToTimeString(loadJob.getCreateTimeMs()));
-                // etl start time
-                jobInfo.add(TimeUtils.longToTimeString(loadJob.getEtlStartTimeMs()));
-                // etl end time
-                jobInfo.add(TimeUtils.longToTimeString(loadJob.getEtlFinishTimeMs()));
-                // load start time
-                jobInfo.add(TimeUtils.longToTimeString(loadJob.getLoadStartTimeMs()));
-                // load end time
-                jobInfo.add(TimeUtils.longToTimeString(loadJob.getLoadFinishTimeMs()));
-                // tracking url
-                jobInfo.add(status.getTrackingUrl());
-
-                loadJobInfos.add(jobInfo);
-            } // end for loadJobs
+            }
         } finally {
             readUnlock();
         }
 
+        // finished and cancelled jobs are read from archive without holding the lock
+        if (states == null || states.contains(JobState.FINISHED) || states.contains(JobState.CANCELLED)) {
+            long archiveLimit = orderByPairs == null ? limit : -1L;
+            loadJobInfos.addAll(jobArchive.scan(dbId, new LoadJobArchive.Filter() {
+                @Override
+                public boolean accept(long jobId, String label, JobState state) {
+                    return !jobIds.contains(jobId) && matchLoadJob(label, state, labelValue, accurateMatch, states);
+                }
+            }, archiveLimit));
+        }
+
         ListComparator<List<Comparable>> comparator = null;
         if (orderByPairs != null) {
             OrderByPair[] orderByPairArr = new OrderByPair[orderByPairs.size()];
@@ -1362,13 +1333,130 @@ public class Load {
         return loadJobInfos;
     }
 
+    private static boolean matchLoadJob(String label, JobState state, String labelValue, boolean accurateMatch,
+                                        Set<JobState> states) {
+        if (labelValue != null) {
+            if (accurateMatch) {
+                if (!label.equals(labelValue)) {
+                    return false;
+                }
+            } else {
+                if (!label.contains(labelValue)) {
+                    return false;
+                }
+            }
+        }
+
+        if (states != null) {
+            if (!states.contains(state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Comparable> getLoadJobInfo(LoadJob loadJob) {
+        String label = loadJob.getLabel();
+        JobState state = loadJob.getState();
+
+        List<Comparable> jobInfo = new ArrayList<Comparable>();
+
+        // jobId
+        jobInfo.add(loadJob.getId());
+        // label
+        jobInfo.add(label);
+        // state
+        jobInfo.add(state.name());
+
+        // progress
+        switch (loadJob.getState()) {
+            case PENDING:
+                jobInfo.add("ETL:0%; LOAD:0%");
+                break;
+            case ETL:
+                jobInfo.add("ETL:" + loadJob.getProgress() + "%; LOAD:0%");
+                break;
+            case LOADING:
+                jobInfo.add("ETL:100%; LOAD:" + loadJob.getProgress() + "%");
+                break;
+            case QUORUM_FINISHED:
+                jobInfo.add("ETL:100%; LOAD:100%");
+                break;
+            case FINISHED:
+                jobInfo.add("ETL:100%; LOAD:100%");
+                break;
+            case CANCELLED:
+                jobInfo.add("ETL:N/A; LOAD:N/A");
+                break;
+            default:
+                jobInfo.add("ETL:N/A; LOAD:N/A");
+                break;
+        }
+
+        // etl info
+        EtlStatus status = loadJob.getEtlJobStatus();
+        if (status == null || status.getState() == TEtlState.CANCELLED) {
+            jobInfo.add("N/A");
+        } else {
+            Map<String, String> counters = status.getCounters();
+            List<String> info = Lists.newArrayList();
+            for (String key : counters.keySet()) {
+                // XXX: internal etl job return all counters
+                if (key.equalsIgnoreCase("HDFS bytes read")
+                        || key.equalsIgnoreCase("Map input records")
+                        || key.startsWith("dpp.") 
+                        || loadJob.getEtlJobType() == EtlJobType.MINI) {
+                    info.add(key + "=" + counters.get(key));
+                }
+            } // end for counters
+            if (info.isEmpty()) {
+                jobInfo.add("N/A");
+            } else {
+                jobInfo.add(StringUtils.join(info, "; "));
+            }
+        }
+
+        // task info
+        jobInfo.add("cluster:" + loadJob.getHadoopCluster()
+                + "; timeout(s):" + loadJob.getTimeoutSecond() 
+                + "; max_filter_ratio:" + loadJob.getMaxFilterRatio());
+
+        // error msg
+        if (loadJob.getState() == JobState.CANCELLED) {
+            FailMsg failMsg = loadJob.getFailMsg();
+            jobInfo.add("type:" + failMsg.getCancelType() + "; msg:" + failMsg.getMsg());
+        } else {
+            jobInfo.add("N/A");
+        }
+
+        // create time
+        jobInfo.add(TimeUtils.longToTimeString(loadJob.getCreateTimeMs()));
+        // etl start time
+        jobInfo.add(TimeUtils.longToTimeString(loadJob.getEtlStartTimeMs()));
+        // etl end time
+        jobInfo.add(TimeUtils.longToTimeString(loadJob.getEtlFinishTimeMs()));
+        // load start time
+        jobInfo.add(TimeUtils.longToTimeString(loadJob.getLoadStartTimeMs()));
+        // load end time
+        jobInfo.add(TimeUtils.longToTimeString(loadJob.getLoadFinishTimeMs()));
+        // tracking url
+        jobInfo.add(status == null ? "N/A" : status.getTrackingUrl());
+        return jobInfo;
+    }
+
     public long getLatestJobIdByLabel(long dbId, String labelValue) {
         long jobId = 0;
         try {
             readLock();
+            if (labelValue != null) {
+                LoadJobSummary summary = labelIndex.get(dbId, labelValue);
+                if (summary != null) {
+                    jobId = summary.getId();
+                }
+            }
             List<LoadJob> loadJobs = this.dbToLoadJobs.get(dbId);
             if (loadJobs == null) {
-                return 0;
+                return jobId;
             }
 
             for (LoadJob loadJob : loadJobs) {
@@ -1393,6 +1481,11 @@ public class Load {
         return jobId;
     }
 
+    // Return show info of the archived job, or null if not found
+    public List<Comparable> getArchivedLoadJobInfo(long dbId, long jobId) {
+        return jobArchive.getInfo(dbId, jobId);
+    }
+
     public List<List<Comparable>> getLoadJobUnfinishedInfo(long jobId) {
         LinkedList<List<Comparable>> infos = new LinkedList<List<Comparable>>();
         TabletInvertedIndex invertedIndex = Catalog.getCurrentInvertedIndex();
@@ -1528,12 +1621,16 @@ public class Load {
         readLock();
         try {
             Map<String, List<LoadJob>> labelToLoadJobs = dbLabelToLoadJobs.get(db.getId());
-            if (labelToLoadJobs == null) {
-                throw new DdlException("No jobs belong to database(" + info.dbName + ")");
-            }
-            List<LoadJob> loadJobs = labelToLoadJobs.get(info.label);
+            List<LoadJob> loadJobs = labelToLoadJobs == null ? null : labelToLoadJobs.get(info.label);
             if (loadJobs == null) {
-                throw new DdlException("Unknown job(" + info.label + ")");
+                LoadJobSummary summary = labelIndex.get(db.getId(), info.label);
+                if (summary == null) {
+                    throw new DdlException("Unknown job(" + info.label + ")");
+                }
+                info.state = summary.getState();
+                info.failMsg = summary.getFailMsg();
+                info.trackingUrl = summary.getTrackingUrl();
+                return;
             }
             // only the last one should be running
             LoadJob job = loadJobs.get(loadJobs.size() - 1);
@@ -1551,7 +1648,7 @@ public class Load {
   
     public void unprotectQuorumLoadJob(LoadJob job, Database db) {
         // remove loading partitions
-        removeLoadingPartitions(job);
+        unprotectRemoveLoadingPartitions(job);
 
         // Update database information first
         Map<Long, ReplicaPersistInfo> replicaInfos = job.getReplicaPersistInfos();
@@ -1605,20 +1702,9 @@ public class Load {
                     updatePartitionVersion(partition, partitionLoadInfo.getVersion(), 
                                            partitionLoadInfo.getVersionHash(), jobId);
                     
-                    // update table row count
+                    // update table row count and data size
                     for (MaterializedIndex materializedIndex : partition.getMaterializedIndices()) {
-                        long tableRowCount = 0L;
-                        for (Tablet tablet : materializedIndex.getTablets()) {
-                            long tabletRowCount = 0L;
-                            for (Replica replica : tablet.getReplicas()) {
-                                long replicaRowCount = replica.getRowCount();
-                                if (replicaRowCount > tabletRowCount) {
-                                    tabletRowCount = replicaRowCount;
-                                }
-                            }
-                            tableRowCount += tabletRowCount;
-                        }
-                        materializedIndex.setRowCount(tableRowCount);
+                        materializedIndex.updateStat();
                     } // end for indices
                 } // end for partitions
             } // end for tables
@@ -1626,6 +1712,7 @@ public class Load {
         
         idToLoadingLoadJob.remove(jobId);
         idToQuorumFinishedLoadJob.put(jobId, job);
+        unprotectIndexLoadJob(job);
 
         replaceLoadJob(job);
     }
@@ -1649,6 +1736,7 @@ public class Load {
     public void unprotectFinishLoadJob(LoadJob job, Database db) {
         long jobId = job.getId();
         idToQuorumFinishedLoadJob.remove(jobId);
+        partitionJobIndex.remove(jobId);
         
         // Update database information
         Map<Long, ReplicaPersistInfo> replicaInfos = job.getReplicaPersistInfos();
@@ -1685,7 +1773,7 @@ public class Load {
             }
         }
 
-        replaceLoadJob(job);
+        archiveLoadJob(job);
     }
     
     public void replayFinishLoadJob(LoadJob job, Catalog catalog) {
@@ -1792,58 +1880,76 @@ public class Load {
             if (dbLabelToLoadJobs.containsKey(dbId)) {
                 dbLabelToLoadJobs.remove(dbId);
             }
+            labelIndex.removeDb(dbId);
         } finally {
             writeUnlock();
         }
     }
 
-    // Added by ljb. Remove old load jobs from idToLoadJob, dbToLoadJobs and dbLabelToLoadJobs
-    // This function is called periodically. every Configure.label_keep_max_second seconds
-    public void removeOldLoadJobs() {
-        long currentTimeMs = System.currentTimeMillis();
-        
-        writeLock();
-        try {
-            Iterator<Map.Entry<Long, LoadJob>> iter = idToLoadJob.entrySet().iterator();
-            while (iter.hasNext()) {
-                Map.Entry<Long, LoadJob> entry = iter.next();
-                LoadJob job = entry.getValue();
-                if ((currentTimeMs - job.getCreateTimeMs()) / 1000 > Config.label_keep_max_second
-                        && (job.getState() == JobState.FINISHED || job.getState() == JobState.CANCELLED)) {
-                    long dbId = job.getDbId();
-                    String label = job.getLabel();
-                    
-                    // Remove job from idToLoadJob
-                    iter.remove();
-                    
-                    // Remove job from dbToLoadJobs
-                    List<LoadJob> loadJobs = dbToLoadJobs.get(dbId);
-                    if (loadJobs != null) {
-                        loadJobs.remove(job);
-                        if (loadJobs.size() == 0) {
-                            dbToLoadJobs.remove(dbId);
-                        }
-                    }
-                    
-                    // Remove job from dbLabelToLoadJobs
-                    Map<String, List<LoadJob>> mapLabelToJobs = dbLabelToLoadJobs.get(dbId);
-                    if (mapLabelToJobs != null) {
-                        loadJobs = mapLabelToJobs.get(label);
-                        if (loadJobs != null) {
-                            loadJobs.remove(job);
-                            if (loadJobs.size() == 0) {
-                                mapLabelToJobs.remove(label);
-                                if (mapLabelToJobs.size() == 0) {
-                                    dbLabelToLoadJobs.remove(dbId);
-                                }
-                            }
-                        }
+    // Move the finished or cancelled job from idToLoadJob, dbToLoadJobs and dbLabelToLoadJobs
+    // to labelIndex, and save its show info to jobArchive.
+    private void archiveLoadJob(LoadJob job) {
+        long jobId = job.getId();
+        long dbId = job.getDbId();
+        String label = job.getLabel();
+
+        idToLoadJob.remove(jobId);
+        List<LoadJob> loadJobs = dbToLoadJobs.get(dbId);
+        if (loadJobs != null) {
+            removeLoadJobById(loadJobs, jobId);
+            if (loadJobs.isEmpty()) {
+                dbToLoadJobs.remove(dbId);
+            }
+        }
+        Map<String, List<LoadJob>> labelToLoadJobs = dbLabelToLoadJobs.get(dbId);
+        if (labelToLoadJobs != null) {
+            loadJobs = labelToLoadJobs.get(label);
+            if (loadJobs != null) {
+                removeLoadJobById(loadJobs, jobId);
+                if (loadJobs.isEmpty()) {
+                    labelToLoadJobs.remove(label);
+                    if (labelToLoadJobs.isEmpty()) {
+                        dbLabelToLoadJobs.remove(dbId);
                     }
                 }
             }
+        }
+
+        labelIndex.add(new LoadJobSummary(job));
+
+        // the checkpoint catalog only saves the label index to image
+        if (Catalog.isCheckpointThread()) {
+            return;
+        }
+        // only appended in memory, file is written by the writer thread of archive
+        jobArchive.append(dbId, jobId, label, job.getState(), getLoadJobInfo(job));
+    }
+
+    private static void removeLoadJobById(List<LoadJob> loadJobs, long jobId) {
+        Iterator<LoadJob> iter = loadJobs.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getId() == jobId) {
+                iter.remove();
+                break;
+            }
+        }
+    }
+
+    // Remove labels and archived infos of finished or cancelled jobs older than label_keep_max_second.
+    // This function is called periodically. every Configure.label_clean_interval_second seconds
+    public void removeOldLoadJobs() {
+        long expireTimeMs = System.currentTimeMillis() - Config.label_keep_max_second * 1000L;
+
+        int removedNum = 0;
+        writeLock();
+        try {
+            removedNum = labelIndex.removeExpired(expireTimeMs);
         } finally {
             writeUnlock();
         }
+        LOG.info("remove {} expired load labels, {} labels left", removedNum, labelIndex.size());
+
+        jobArchive.removeExpired(expireTimeMs);
     }
 
     // clear dpp output and kill etl job
@@ -1976,6 +2082,7 @@ public class Load {
                             break;
                         case FINISHED:
                             idToQuorumFinishedLoadJob.remove(jobId);
+                            partitionJobIndex.remove(jobId);
                             job.setState(destState);
 
                             // clear push tasks
@@ -1988,6 +2095,7 @@ public class Load {
                             job.clearRedundantInfoForHistoryJob();
                             // Write edit log
                             Catalog.getInstance().getEditLog().logLoadDone(job);
+                            archiveLoadJob(job);
                             break;
                         case CANCELLED:
                             processCancelled(job, cancelType, errMsg);
@@ -2014,7 +2122,7 @@ public class Load {
     private boolean processQuorumFinished(LoadJob job, Database db) {
         long jobId = job.getId();
         // remove partition from loading set
-        removeLoadingPartitions(job);
+        unprotectRemoveLoadingPartitions(job);
 
         // check partition exist
         Map<Long, TableLoadInfo> idToTableLoadInfo = job.getIdToTableLoadInfo();
@@ -2084,6 +2192,7 @@ public class Load {
         job.setProgress(100);
         job.setLoadFinishTimeMs(System.currentTimeMillis());
         job.setState(JobState.QUORUM_FINISHED);
+        unprotectIndexLoadJob(job);
         return true;
     }
 
@@ -2091,6 +2200,7 @@ public class Load {
         long partitionId = partition.getId();
         partition.setCommittedVersion(version);
         partition.setCommittedVersionHash(versionHash);
+        Catalog.getInstance().getConsistencyChecker().onPartitionVersionChanged(partition);
         LOG.info("update partition version success. version: {}, version hash: {}, job id: {}, partition id: {}",
                  version, versionHash, jobId, partitionId);
     }
@@ -2106,11 +2216,13 @@ public class Load {
                 break;
             case ETL:
                 idToEtlLoadJob.remove(jobId);
+                // the job may have added loading partitions but not transferred to LOADING
+                unprotectReleaseLoadingVersions(job);
                 tmpCancelType = CancelType.ETL_RUN_FAIL;
                 break;
             case LOADING:
-                // remove partition from loading set
-                removeLoadingPartitions(job);
+                // remove partition from loading set, and let following jobs take over the versions
+                unprotectReleaseLoadingVersions(job);
 
                 idToLoadingLoadJob.remove(jobId);
                 tmpCancelType = CancelType.LOAD_RUN_FAIL;
@@ -2133,6 +2245,7 @@ public class Load {
         job.setFailMsg(failMsg);
         job.setLoadFinishTimeMs(System.currentTimeMillis());
         job.setState(JobState.CANCELLED);
+        partitionJobIndex.remove(jobId);
         
         // clear push tasks
         if (srcState == JobState.LOADING || srcState == JobState.QUORUM_FINISHED) {
@@ -2147,23 +2260,112 @@ public class Load {
         job.clearRedundantInfoForHistoryJob();
         // Write edit log
         Catalog.getInstance().getEditLog().logLoadCancel(job);
+        archiveLoadJob(job);
 
         return true;
     }
     
-    public boolean addLoadingPartitions(Set<Long> partitionIds) {
-        writeLock();
+    /*
+     * Assign versions to the loading partitions of job, and add them to the loading set.
+     * A partition may be loaded by at most Config.load_max_pipelined_jobs_per_partition jobs at the same time,
+     * each with its own version following the committed version and versions of previous loading jobs.
+     * Return false if any partition has too many loading jobs.
+     */
+    public boolean addLoadingPartitions(LoadJob job, Database db) throws MetaNotFoundException {
+        int maxJobNum = Math.max(1, Config.load_max_pipelined_jobs_per_partition);
+        Random random = new Random();
+        db.readLock();
         try {
-            for (long partitionId : partitionIds) {
-                if (loadingPartitionIds.contains(partitionId)) {
-                    LOG.info("partition {} is loading", partitionId);
-                    return false;
+            writeLock();
+            try {
+                for (Entry<Long, TableLoadInfo> tableEntry : job.getIdToTableLoadInfo().entrySet()) {
+                    long tableId = tableEntry.getKey();
+                    OlapTable table = (OlapTable) db.getTable(tableId);
+                    if (table == null) {
+                        throw new MetaNotFoundException("table does not exist. id: " + tableId);
+                    }
+
+                    Map<Long, PartitionLoadInfo> idToPartitionLoadInfo =
+                            tableEntry.getValue().getIdToPartitionLoadInfo();
+                    for (Entry<Long, PartitionLoadInfo> entry : idToPartitionLoadInfo.entrySet()) {
+                        long partitionId = entry.getKey();
+                        PartitionLoadInfo partitionLoadInfo = entry.getValue();
+                        if (!partitionLoadInfo.isNeedLoad()) {
+                            continue;
+                        }
+
+                        Partition partition = table.getPartition(partitionId);
+                        if (partition == null) {
+                            throw new MetaNotFoundException("partition does not exist. id: " + partitionId);
+                        }
+
+                        TreeMap<Long, Long> versions = loadingPartitionToVersions.get(partitionId);
+                        if (versions != null && versions.size() >= maxJobNum) {
+                            LOG.info("partition {} is loading by jobs: {}", partitionId, versions.values());
+                            return false;
+                        }
+
+                        long version = partition.getCommittedVersion() + 1;
+                        if (versions != null && !versions.isEmpty()) {
+                            version = Math.max(version, versions.lastKey() + 1);
+                        }
+                        partitionLoadInfo.setVersion(version);
+                        partitionLoadInfo.setVersionHash(Math.abs(random.nextLong()));
+                        LOG.info("load job id: {}, label: {}, partition info: {}-{}-{}, partition load info: {}",
+                                 job.getId(), job.getLabel(), db.getId(), tableId, partitionId, partitionLoadInfo);
+                    }
                 }
+
+                recoverLoadingPartitions(job);
+                return true;
+            } finally {
+                writeUnlock();
             }
-            loadingPartitionIds.addAll(partitionIds);
-            return true;
         } finally {
-            writeUnlock();
+            db.readUnlock();
+        }
+    }
+
+    /*
+     * Remove the loading partitions of job which fails to transfer to LOADING.
+     */
+    public void removeLoadingPartitions(LoadJob job) {
+        Database db = Catalog.getInstance().getDb(job.getDbId());
+        if (db == null) {
+            writeLock();
+            try {
+                unprotectRemoveLoadingPartitions(job);
+            } finally {
+                writeUnlock();
+            }
+            return;
+        }
+
+        db.writeLock();
+        try {
+            writeLock();
+            try {
+                unprotectReleaseLoadingVersions(job);
+            } finally {
+                writeUnlock();
+            }
+        } finally {
+            db.writeUnlock();
+        }
+    }
+
+    /*
+     * Return true if the partition has a loading job with lower version.
+     * Push of a version must wait until all lower versions are quorum finished, otherwise
+     * the pushed version will be broken if the lower one is cancelled.
+     */
+    public boolean isPreviousVersionLoading(long partitionId, long version) {
+        readLock();
+        try {
+            TreeMap<Long, Long> versions = loadingPartitionToVersions.get(partitionId);
+            return versions != null && !versions.isEmpty() && versions.firstKey() < version;
+        } finally {
+            readUnlock();
         }
     }
 
@@ -2173,58 +2375,134 @@ public class Load {
             for (Entry<Long, PartitionLoadInfo> entry : idToPartitionLoadInfo.entrySet()) {
                 PartitionLoadInfo partitionLoadInfo = entry.getValue();
                 if (partitionLoadInfo.isNeedLoad()) {
-                    loadingPartitionIds.add(entry.getKey());
+                    TreeMap<Long, Long> versions = loadingPartitionToVersions.get(entry.getKey());
+                    if (versions == null) {
+                        versions = Maps.newTreeMap();
+                        loadingPartitionToVersions.put(entry.getKey(), versions);
+                    }
+                    versions.put(partitionLoadInfo.getVersion(), job.getId());
                 }
             }
         }
     }
 
-    public void removeLoadingPartitions(Set<Long> partitionIds) {
-        writeLock();
-        try {
-            loadingPartitionIds.removeAll(partitionIds);
-        } finally {
-            writeUnlock();
+    private void unprotectRemoveLoadingPartitions(LoadJob job) {
+        if (job.getIdToTableLoadInfo() == null) {
+            return;
+        }
+        for (TableLoadInfo tableLoadInfo : job.getIdToTableLoadInfo().values()) {
+            Map<Long, PartitionLoadInfo> idToPartitionLoadInfo = tableLoadInfo.getIdToPartitionLoadInfo();
+            for (Entry<Long, PartitionLoadInfo> entry : idToPartitionLoadInfo.entrySet()) {
+                long partitionId = entry.getKey();
+                TreeMap<Long, Long> versions = loadingPartitionToVersions.get(partitionId);
+                if (versions == null) {
+                    continue;
+                }
+                Iterator<Long> iter = versions.values().iterator();
+                while (iter.hasNext()) {
+                    if (iter.next() == job.getId()) {
+                        iter.remove();
+                    }
+                }
+                if (versions.isEmpty()) {
+                    loadingPartitionToVersions.remove(partitionId);
+                }
+            }
         }
     }
 
-    private void removeLoadingPartitions(LoadJob job) {
+    /*
+     * Remove the loading partitions of a job whose versions will never be committed,
+     * and shift versions of following jobs of the same partitions down by one, so that there is no hole
+     * in versions. Following jobs have not pushed to these partitions, see isPreviousVersionLoading().
+     * Must hold the write lock of db and load.
+     */
+    private void unprotectReleaseLoadingVersions(LoadJob job) {
+        if (job.getIdToTableLoadInfo() == null) {
+            return;
+        }
+
+        Set<LoadJob> shiftedJobs = Sets.newHashSet();
         for (TableLoadInfo tableLoadInfo : job.getIdToTableLoadInfo().values()) {
             Map<Long, PartitionLoadInfo> idToPartitionLoadInfo = tableLoadInfo.getIdToPartitionLoadInfo();
             for (Entry<Long, PartitionLoadInfo> entry : idToPartitionLoadInfo.entrySet()) {
+                long partitionId = entry.getKey();
                 PartitionLoadInfo partitionLoadInfo = entry.getValue();
-                if (partitionLoadInfo.isNeedLoad()) {
-                    loadingPartitionIds.remove(entry.getKey());
+                TreeMap<Long, Long> versions = loadingPartitionToVersions.get(partitionId);
+                long releasedVersion = partitionLoadInfo.getVersion();
+                if (versions == null || !Long.valueOf(job.getId()).equals(versions.get(releasedVersion))) {
+                    // the job does not hold this partition
+                    continue;
+                }
+
+                versions.remove(releasedVersion);
+                List<Long> followingVersions = Lists.newArrayList(versions.tailMap(releasedVersion, false).keySet());
+                for (long version : followingVersions) {
+                    LoadJob followingJob = idToLoadJob.get(versions.get(version));
+                    PartitionLoadInfo followingInfo = getPartitionLoadInfo(followingJob, partitionId);
+                    if (followingInfo == null) {
+                        continue;
+                    }
+                    long newVersion = version - 1;
+                    versions.remove(version);
+                    versions.put(newVersion, followingJob.getId());
+                    followingInfo.setVersion(newVersion);
+                    shiftedJobs.add(followingJob);
+                    LOG.info("shift version of partition {} from {} to {} in load job {}, "
+                            + "because version is released by job {}",
+                             partitionId, version, newVersion, followingJob.getId(), job.getId());
+                }
+                if (versions.isEmpty()) {
+                    loadingPartitionToVersions.remove(partitionId);
                 }
             }
         }
+
+        // jobs not in LOADING will be logged with new versions when they transfer to LOADING
+        for (LoadJob shiftedJob : shiftedJobs) {
+            if (shiftedJob.getState() == JobState.LOADING) {
+                Catalog.getInstance().getEditLog().logLoadLoading(shiftedJob);
+            }
+        }
     }
 
+    private PartitionLoadInfo getPartitionLoadInfo(LoadJob job, long partitionId) {
+        if (job == null || job.getIdToTableLoadInfo() == null) {
+            return null;
+        }
+        for (TableLoadInfo tableLoadInfo : job.getIdToTableLoadInfo().values()) {
+            PartitionLoadInfo partitionLoadInfo = tableLoadInfo.getIdToPartitionLoadInfo().get(partitionId);
+            if (partitionLoadInfo != null) {
+                return partitionLoadInfo;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Return false if partition has PENDING / ETL / LOADING load jobs.
+     * If quorumFinishedLoadJobs is null, also return false if partition has QUORUM_FINISHED load jobs,
+     * otherwise add these jobs to it.
+     */
     public boolean checkPartitionLoadFinished(long partitionId, List<LoadJob> quorumFinishedLoadJobs) {
         readLock();
         try {
-            for (JobState state : JobState.values()) {
-                if (state == JobState.FINISHED || state == JobState.CANCELLED) {
-                    continue;
-                }
+            if (partitionJobIndex.hasJob(PartitionJobIndex.JobType.LOAD, partitionId)) {
+                return false;
+            }
 
-                // we check PENDING / ETL / LOADING
-                List<LoadJob> loadJobs = this.getLoadJobs(state);
-                for (LoadJob loadJob : loadJobs) {
-                    Preconditions.checkNotNull(loadJob.getIdToTableLoadInfo());
-                    for (TableLoadInfo tableLoadInfo : loadJob.getIdToTableLoadInfo().values()) {
-                        if (tableLoadInfo.getIdToPartitionLoadInfo().containsKey(partitionId)) {
-                            if (state == JobState.QUORUM_FINISHED) {
-                                if (quorumFinishedLoadJobs != null) {
-                                    quorumFinishedLoadJobs.add(loadJob);
-                                } else {
-                                    return false;
-                                }
-                            } else {
-                                return false;
-                            }
-                        }
-                    }
+            Set<Long> jobIds = partitionJobIndex.getJobIds(PartitionJobIndex.JobType.QUORUM_FINISHED_LOAD,
+                                                           partitionId);
+            if (jobIds.isEmpty()) {
+                return true;
+            }
+            if (quorumFinishedLoadJobs == null) {
+                return false;
+            }
+            for (Long jobId : jobIds) {
+                LoadJob loadJob = idToQuorumFinishedLoadJob.get(jobId);
+                if (loadJob != null) {
+                    quorumFinishedLoadJobs.add(loadJob);
                 }
             }
             return true;
@@ -2233,6 +2511,12 @@ public class Load {
         }
     }
 
+    // must hold the write lock
+    private void indexAsyncDeleteJob(AsyncDeleteJob job) {
+        partitionJobIndex.put(PartitionJobIndex.JobType.ASYNC_DELETE, job.getJobId(),
+                              Collections.singleton(job.getPartitionId()));
+    }
+
     public void unprotectAddDeleteInfo(DeleteInfo deleteInfo) {
         long dbId = deleteInfo.getDbId();
         List<DeleteInfo> deleteInfos = dbToDeleteInfos.get(dbId);
@@ -2245,6 +2529,7 @@ public class Load {
         if (deleteInfo.getAsyncDeleteJob() != null && deleteInfo.getState() == DeleteState.QUORUM_FINISHED) {
             AsyncDeleteJob asyncDeleteJob = deleteInfo.getAsyncDeleteJob();
             idToQuorumFinishedDeleteJob.put(asyncDeleteJob.getJobId(), asyncDeleteJob);
+            indexAsyncDeleteJob(asyncDeleteJob);
             LOG.info("unprotected add asyncDeleteJob when load image: {}", asyncDeleteJob.getJobId());
         }
     }
@@ -2273,6 +2558,7 @@ public class Load {
         if (deleteInfo.getAsyncDeleteJob() != null) {
             AsyncDeleteJob asyncDeleteJob = deleteInfo.getAsyncDeleteJob();
             idToQuorumFinishedDeleteJob.put(asyncDeleteJob.getJobId(), asyncDeleteJob);
+            indexAsyncDeleteJob(asyncDeleteJob);
             LOG.info("unprotected add asyncDeleteJob: {}", asyncDeleteJob.getJobId());
         }
     }
@@ -2584,11 +2870,9 @@ public class Load {
     private void checkHasRunningAsyncDeleteJob(long partitionId, String partitionName) throws DdlException {
         readLock();
         try {
-            for (AsyncDeleteJob job : idToQuorumFinishedDeleteJob.values()) {
-                if (job.getPartitionId() == partitionId) {
-                    throw new DdlException("Partition[" + partitionName + "] has running delete job. "
-                            + "See 'SHOW DELETE'");
-                }
+            if (partitionJobIndex.hasJob(PartitionJobIndex.JobType.ASYNC_DELETE, partitionId)) {
+                throw new DdlException("Partition[" + partitionName + "] has running delete job. "
+                        + "See 'SHOW DELETE'");
             }
         } finally {
             readUnlock();
@@ -2775,6 +3059,7 @@ public class Load {
                         }
                         deleteInfo.setAsyncDeleteJob(asyncDeleteJob);
                         idToQuorumFinishedDeleteJob.put(asyncDeleteJob.getJobId(), asyncDeleteJob);
+                        indexAsyncDeleteJob(asyncDeleteJob);
                         LOG.info("finished create async delete job: {}", asyncDeleteJob.getJobId());
                     }
                     
@@ -2952,11 +3237,17 @@ public class Load {
         }
     }
 
-    public LoadJob getLastestFinishedLoadJob(long dbId) {
-        LoadJob job = null;
+    // Return label of the latest finished load job of db, or null if there is no one
+    public String getLatestFinishedLoadLabel(long dbId) {
         readLock();
         try {
+            String label = null;
             long maxTime = Long.MIN_VALUE;
+            LoadJobSummary summary = labelIndex.getLatestFinished(dbId);
+            if (summary != null) {
+                label = summary.getLabel();
+                maxTime = summary.getFinishTimeMs();
+            }
             List<LoadJob> jobs = dbToLoadJobs.get(dbId);
             if (jobs != null) {
                 for (LoadJob loadJob : jobs) {
@@ -2965,15 +3256,14 @@ public class Load {
                     }
                     if (loadJob.getLoadFinishTimeMs() > maxTime) {
                         maxTime = loadJob.getLoadFinishTimeMs();
-                        job = loadJob;
+                        label = loadJob.getLabel();
                     }
                 }
             }
+            return label;
         } finally {
             readUnlock();
         }
-
-        return job;
     }
 
     public DeleteInfo getLastestFinishedDeleteInfo(long dbId) {
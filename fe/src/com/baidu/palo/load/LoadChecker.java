@@ -50,6 +50,7 @@ import com.baidu.palo.task.PullLoadPendingTask;
 import com.baidu.palo.task.PushTask;
 import com.baidu.palo.thrift.TPriority;
 import com.baidu.palo.thrift.TPushType;
+import com.baidu.palo.thrift.TTaskType;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
@@ -57,7 +58,9 @@ import com.google.common.collect.Maps;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -89,14 +92,18 @@ public class LoadChecker extends Daemon {
         
         Map<TPriority, MasterTaskExecutor> pendingPriorityMap = Maps.newHashMap();
         pendingPriorityMap.put(TPriority.NORMAL,
-                               new MasterTaskExecutor(Config.load_pending_thread_num_normal_priority));
+                               new MasterTaskExecutor("load-pending-normal",
+                                                      Config.load_pending_thread_num_normal_priority));
         pendingPriorityMap.put(TPriority.HIGH,
-                               new MasterTaskExecutor(Config.load_pending_thread_num_high_priority));
+                               new MasterTaskExecutor("load-pending-high",
+                                                      Config.load_pending_thread_num_high_priority));
         executors.put(JobState.PENDING, pendingPriorityMap);
 
         Map<TPriority, MasterTaskExecutor> etlPriorityMap = Maps.newHashMap();
-        etlPriorityMap.put(TPriority.NORMAL, new MasterTaskExecutor(Config.load_etl_thread_num_normal_priority));
-        etlPriorityMap.put(TPriority.HIGH, new MasterTaskExecutor(Config.load_etl_thread_num_high_priority));
+        etlPriorityMap.put(TPriority.NORMAL,
+                           new MasterTaskExecutor("load-etl-normal", Config.load_etl_thread_num_normal_priority));
+        etlPriorityMap.put(TPriority.HIGH,
+                           new MasterTaskExecutor("load-etl-high", Config.load_etl_thread_num_high_priority));
         executors.put(JobState.ETL, etlPriorityMap);
     }
     
@@ -218,17 +225,18 @@ public class LoadChecker extends Daemon {
     
     private void runLoadingJobs() {
         List<LoadJob> loadingJobs = Catalog.getInstance().getLoadInstance().getLoadJobs(JobState.LOADING);
+        Map<Long, Integer> backendToPushTaskNum = AgentTaskQueue.getTaskNumOfBackends(TTaskType.PUSH);
         for (LoadJob job : loadingJobs) {
             try {
                 LOG.info("run loading job. job: {}", job);
-                runOneLoadingJob(job);
+                runOneLoadingJob(job, backendToPushTaskNum);
             } catch (Exception e) {
                 LOG.warn("run loading job error", e);
             }
         }
     }
     
-    private void runOneLoadingJob(LoadJob job) {
+    private void runOneLoadingJob(LoadJob job, Map<Long, Integer> backendToPushTaskNum) {
         // check timeout
         Load load = Catalog.getInstance().getLoadInstance();
         if (checkTimeout(job)) {
@@ -245,34 +253,57 @@ public class LoadChecker extends Daemon {
         }
 
         // submit push tasks to backends
-        Set<Long> jobTotalTablets = submitPushTasks(job, db);
+        Set<Long> jobTotalTablets = submitPushTasks(job, db, load, backendToPushTaskNum);
         if (jobTotalTablets == null) {
             load.cancelLoadJob(job, CancelType.LOAD_RUN_FAIL, "submit push tasks fail");
             return;
         }
         
-        // update load progress
-        Set<Long> quorumTablets = job.getQuorumTablets();
-        job.setProgress(quorumTablets.size() * 100 / jobTotalTablets.size());
+        // update load progress.
+        // quorum tablets are also updated when push tasks finish, which holds the db write lock
+        boolean isQuorumFinished = false;
+        db.readLock();
+        try {
+            job.setTotalTabletNum(jobTotalTablets.size());
+            job.updateLoadingProgress();
+            isQuorumFinished = job.getQuorumTablets().containsAll(jobTotalTablets);
+        } finally {
+            db.readUnlock();
+        }
 
         // check job quorum finished
-        if (quorumTablets.containsAll(jobTotalTablets)) {
+        if (isQuorumFinished) {
             if (load.updateLoadJobState(job, JobState.QUORUM_FINISHED)) {
                 LOG.info("load job quorum finished. job: {}", job);
             }
         }
     }
 
-    private Set<Long> submitPushTasks(LoadJob job, Database db) {
+    /*
+     * Send push tasks of replicas which are ready to load the version of job, and not sent before.
+     * Only the pending tablets of job, which are not full yet, are checked. They are collected in the first round,
+     * and partitions without pending tablets are skipped without holding the db lock.
+     * The number of push tasks of each backend in AgentTaskQueue is limited by Config.max_push_task_num_per_backend,
+     * replicas exceeding the limit will be sent in the following rounds.
+     * Return all tablets of job, or null if meta is missing.
+     */
+    private Set<Long> submitPushTasks(LoadJob job, Database db, Load load, Map<Long, Integer> backendToPushTaskNum) {
         Map<Long, TabletLoadInfo> tabletLoadInfos = job.getIdToTabletLoadInfo();
         boolean needDecompress = (job.getEtlJobType() == EtlJobType.HADOOP) ? true : false;
         AgentBatchTask batchTask = new AgentBatchTask();
-        Set<Long> jobTotalTablets = new HashSet<Long>();
+        Set<Long> jobTotalTablets = job.getTotalTablets();
+        Map<Long, Map<Long, Set<Long>>> pendingTablets = job.getPendingTablets();
+        // modified when push tasks finish, read under db lock
+        Set<Long> fullTablets = job.getFullTablets();
 
-        long currentTimeMs = System.currentTimeMillis();
         Map<Long, TableLoadInfo> idToTableLoadInfo = job.getIdToTableLoadInfo();
         for (Entry<Long, TableLoadInfo> tableEntry : idToTableLoadInfo.entrySet()) {
             long tableId = tableEntry.getKey();
+            TableLoadInfo tableLoadInfo = tableEntry.getValue();
+            if (!hasPendingPartition(tableLoadInfo, pendingTablets)) {
+                continue;
+            }
+
             OlapTable table = null;
             db.readLock();
             try {
@@ -283,19 +314,25 @@ public class LoadChecker extends Daemon {
             if (table == null) {
                 LOG.warn("table does not exist. id: {}", tableId);
                 if (job.getState() == JobState.QUORUM_FINISHED) {
+                    for (long partitionId : tableLoadInfo.getIdToPartitionLoadInfo().keySet()) {
+                        removePendingPartition(partitionId, jobTotalTablets, pendingTablets);
+                    }
                     continue;
                 } else {
                     return null;
                 }
             }
 
-            TableLoadInfo tableLoadInfo = tableEntry.getValue();
             for (Entry<Long, PartitionLoadInfo> partitionEntry : tableLoadInfo.getIdToPartitionLoadInfo().entrySet()) {
                 long partitionId = partitionEntry.getKey();
                 PartitionLoadInfo partitionLoadInfo = partitionEntry.getValue();
                 if (!partitionLoadInfo.isNeedLoad()) {
                     continue;
                 }
+                Map<Long, Set<Long>> indexToPendingTablets = pendingTablets.get(partitionId);
+                if (indexToPendingTablets != null && !hasPendingTablet(indexToPendingTablets)) {
+                    continue;
+                }
 
                 db.readLock();
                 try {
@@ -303,6 +340,7 @@ public class LoadChecker extends Daemon {
                     if (partition == null) {
                         LOG.warn("partition does not exist. id: {}", partitionId);
                         if (job.getState() == JobState.QUORUM_FINISHED) {
+                            removePendingPartition(partitionId, jobTotalTablets, pendingTablets);
                             continue;
                         } else {
                             return null;
@@ -314,6 +352,19 @@ public class LoadChecker extends Daemon {
                     long versionHash = partitionLoadInfo.getVersionHash();
                     // check all indices (base + roll up (not include ROLLUP state index))
                     List<MaterializedIndex> indices = partition.getMaterializedIndices();
+                    if (indexToPendingTablets == null) {
+                        indexToPendingTablets = Maps.newHashMap();
+                        pendingTablets.put(partitionId, indexToPendingTablets);
+                    }
+                    updatePendingTablets(indices, indexToPendingTablets, jobTotalTablets, fullTablets);
+
+                    // wait until previous versions of this partition are quorum finished
+                    if (job.getState() == JobState.LOADING
+                            && load.isPreviousVersionLoading(partitionId, version)) {
+                        LOG.debug("waiting for previous version of partition {} loading. job: {}, version: {}",
+                                  partitionId, job.getId(), version);
+                        continue;
+                    }
                     for (MaterializedIndex index : indices) {
                         long indexId = index.getId();
                         if (index.getState() == IndexState.ROLLUP) {
@@ -323,10 +374,9 @@ public class LoadChecker extends Daemon {
                             LOG.error("skip table under rollup[{}]", indexId);
                             continue;
                         }
-                        
-                        // add to jobTotalTablets first.
-                        for (Tablet tablet : index.getTablets()) {
-                            jobTotalTablets.add(tablet.getId());
+                        Set<Long> indexPendingTablets = indexToPendingTablets.get(indexId);
+                        if (indexPendingTablets.isEmpty()) {
+                            continue;
                         }
 
                         // after rollup finished, we should push the next version to rollup index first to clear the 
@@ -404,8 +454,11 @@ public class LoadChecker extends Daemon {
                         
                         int schemaHash = tableLoadInfo.getIndexSchemaHash(indexId);
                         short quorumNum = (short) (replicationNum / 2 + 1);
-                        for (Tablet tablet : index.getTablets()) {
-                            long tabletId = tablet.getId();
+                        for (long tabletId : indexPendingTablets) {
+                            Tablet tablet = index.getTablet(tabletId);
+                            if (tablet == null) {
+                                continue;
+                            }
                             
                             // get tablet file path
                             TabletLoadInfo tabletLoadInfo = tabletLoadInfos.get(tabletId);
@@ -435,7 +488,8 @@ public class LoadChecker extends Daemon {
                                         || (replicaVersion == version && replicaVersionHash != versionHash));
 
                                 if (checkByState && checkByVersion) {
-                                    if (!tabletLoadInfo.isReplicaSent(replicaId)) {
+                                    if (!tabletLoadInfo.isReplicaSent(replicaId)
+                                            && tryAcquirePushTask(backendToPushTaskNum, replica.getBackendId())) {
                                         AgentTask pushTask = new PushTask(job.getResourceInfo(),
                                                                           replica.getBackendId(), db.getId(), tableId,
                                                                           partitionId, indexId,
@@ -447,6 +501,8 @@ public class LoadChecker extends Daemon {
                                             batchTask.addTask(pushTask);
                                             job.addPushTask((PushTask) pushTask);
                                             tabletLoadInfo.addSentReplica(replicaId);
+                                        } else {
+                                            releasePushTask(backendToPushTaskNum, replica.getBackendId());
                                         }
                                     }
                                 } else if (replicaVersion > version 
@@ -498,14 +554,107 @@ public class LoadChecker extends Daemon {
         }
         return jobTotalTablets;
     }
+
+    private boolean hasPendingPartition(TableLoadInfo tableLoadInfo, Map<Long, Map<Long, Set<Long>>> pendingTablets) {
+        for (Entry<Long, PartitionLoadInfo> partitionEntry : tableLoadInfo.getIdToPartitionLoadInfo().entrySet()) {
+            if (!partitionEntry.getValue().isNeedLoad()) {
+                continue;
+            }
+            Map<Long, Set<Long>> indexToPendingTablets = pendingTablets.get(partitionEntry.getKey());
+            // partition not checked yet
+            if (indexToPendingTablets == null || hasPendingTablet(indexToPendingTablets)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasPendingTablet(Map<Long, Set<Long>> indexToPendingTablets) {
+        for (Set<Long> tabletIds : indexToPendingTablets.values()) {
+            if (!tabletIds.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Collect tablets of indexes which are not checked before, eg. rollup index finished during loading,
+     * and remove the dropped indexes and the tablets which are full. Must hold the db lock.
+     */
+    private void updatePendingTablets(List<MaterializedIndex> indices, Map<Long, Set<Long>> indexToPendingTablets,
+                                      Set<Long> jobTotalTablets, Set<Long> fullTablets) {
+        Set<Long> indexIds = new HashSet<Long>();
+        for (MaterializedIndex index : indices) {
+            if (index.getState() == IndexState.ROLLUP) {
+                continue;
+            }
+            indexIds.add(index.getId());
+            if (indexToPendingTablets.containsKey(index.getId())) {
+                continue;
+            }
+            Set<Long> tabletIds = new HashSet<Long>();
+            for (Tablet tablet : index.getTablets()) {
+                jobTotalTablets.add(tablet.getId());
+                if (!fullTablets.contains(tablet.getId())) {
+                    tabletIds.add(tablet.getId());
+                }
+            }
+            indexToPendingTablets.put(index.getId(), tabletIds);
+        }
+
+        Iterator<Entry<Long, Set<Long>>> iter = indexToPendingTablets.entrySet().iterator();
+        while (iter.hasNext()) {
+            Entry<Long, Set<Long>> entry = iter.next();
+            if (!indexIds.contains(entry.getKey())) {
+                jobTotalTablets.removeAll(entry.getValue());
+                iter.remove();
+            } else {
+                entry.getValue().removeAll(fullTablets);
+            }
+        }
+    }
+
+    // the partition is dropped after job quorum finished, nothing to push
+    private void removePendingPartition(long partitionId, Set<Long> jobTotalTablets,
+                                        Map<Long, Map<Long, Set<Long>>> pendingTablets) {
+        Map<Long, Set<Long>> indexToPendingTablets = pendingTablets.get(partitionId);
+        if (indexToPendingTablets != null) {
+            for (Set<Long> tabletIds : indexToPendingTablets.values()) {
+                jobTotalTablets.removeAll(tabletIds);
+            }
+        }
+        pendingTablets.put(partitionId, new HashMap<Long, Set<Long>>());
+    }
+
+    private boolean tryAcquirePushTask(Map<Long, Integer> backendToPushTaskNum, long backendId) {
+        Integer taskNum = backendToPushTaskNum.get(backendId);
+        if (taskNum == null) {
+            taskNum = 0;
+        }
+        if (Config.max_push_task_num_per_backend > 0 && taskNum >= Config.max_push_task_num_per_backend) {
+            LOG.debug("too many push tasks in backend {}: {}", backendId, taskNum);
+            return false;
+        }
+        backendToPushTaskNum.put(backendId, taskNum + 1);
+        return true;
+    }
+
+    private void releasePushTask(Map<Long, Integer> backendToPushTaskNum, long backendId) {
+        Integer taskNum = backendToPushTaskNum.get(backendId);
+        if (taskNum != null && taskNum > 0) {
+            backendToPushTaskNum.put(backendId, taskNum - 1);
+        }
+    }
     
     private void runQuorumFinishedJobs() {
         List<LoadJob> quorumFinishedJobs = Catalog.getInstance().getLoadInstance().getLoadJobs(
                 JobState.QUORUM_FINISHED);
+        Map<Long, Integer> backendToPushTaskNum = AgentTaskQueue.getTaskNumOfBackends(TTaskType.PUSH);
         for (LoadJob job : quorumFinishedJobs) {
             try {
                 LOG.info("run quorum finished job. job: {}", job);
-                runOneQuorumFinishedJob(job);
+                runOneQuorumFinishedJob(job, backendToPushTaskNum);
             } catch (Exception e) {
                 LOG.warn("run quorum job error", e);
             }
@@ -524,7 +673,7 @@ public class LoadChecker extends Daemon {
         }
     }
     
-    private void runOneQuorumFinishedJob(LoadJob job) {
+    private void runOneQuorumFinishedJob(LoadJob job, Map<Long, Integer> backendToPushTaskNum) {
         // if db is null, cancel load job
         Load load = Catalog.getInstance().getLoadInstance();
         long dbId = job.getDbId();
@@ -535,7 +684,7 @@ public class LoadChecker extends Daemon {
         }
 
         // submit push tasks to backends
-        Set<Long> jobTotalTablets = submitPushTasks(job, db);
+        Set<Long> jobTotalTablets = submitPushTasks(job, db, load, backendToPushTaskNum);
         if (jobTotalTablets == null) {
             LOG.warn("submit push tasks fail");
             return;
@@ -543,7 +692,14 @@ public class LoadChecker extends Daemon {
         
         // check job finished
         boolean isJobFinished = false;
-        if (job.getFullTablets().containsAll(jobTotalTablets)) {
+        boolean isAllTabletsFull = false;
+        db.readLock();
+        try {
+            isAllTabletsFull = job.getFullTablets().containsAll(jobTotalTablets);
+        } finally {
+            db.readUnlock();
+        }
+        if (isAllTabletsFull) {
             // db lock and check
             LOG.info("all tablets have been finished, check all replicas version. job id: {}", job.getId());
             db.writeLock();
@@ -599,6 +755,9 @@ public class LoadChecker extends Daemon {
                                                 + " backend id: {}", dbId, tableId, partitionId, tablet.getId(),
                                                  replica.getId(), replicaVersion, replicaVersionHash,
                                                  version, versionHash, replica.getBackendId());
+                                        // check the tablet again in next round
+                                        job.getFullTablets().remove(tablet.getId());
+                                        job.addPendingTablet(partitionId, materializedIndex.getId(), tablet.getId());
                                         allReplicaFinished = false;
                                         break OUTER_LOOP;
                                     }
@@ -97,6 +97,12 @@ public class LoadJob implements Writable {
     private Map<Long, TabletLoadInfo> idToTabletLoadInfo;
     private Set<Long> quorumTablets;
     private Set<Long> fullTablets;
+    // number of tablets to load, set by load checker and not persisted
+    private int totalTabletNum;
+    // tablets of job, and the ones not full yet (partition id -> index id -> tablet ids).
+    // they are maintained by load checker and not persisted, rebuilt in the first round after FE restarts
+    private Set<Long> totalTablets;
+    private Map<Long, Map<Long, Set<Long>>> pendingTablets;
     private Set<PushTask> pushTasks;
     private Map<Long, ReplicaPersistInfo> replicaPersistInfos;
 
@@ -136,6 +142,9 @@ public class LoadJob implements Writable {
         this.idToTabletLoadInfo = null;
         this.quorumTablets = new HashSet<Long>();
         this.fullTablets = new HashSet<Long>();
+        this.totalTabletNum = 0;
+        this.totalTablets = new HashSet<Long>();
+        this.pendingTablets = Maps.newHashMap();
         this.pushTasks = new HashSet<PushTask>();
         this.replicaPersistInfos = Maps.newHashMap();
         this.resourceInfo = null;
@@ -443,6 +452,53 @@ public class LoadJob implements Writable {
     public Set<Long> getFullTablets() {
         return fullTablets;
     }
+
+    public Set<Long> getTotalTablets() {
+        return totalTablets;
+    }
+
+    public Map<Long, Map<Long, Set<Long>>> getPendingTablets() {
+        return pendingTablets;
+    }
+
+    // check the tablet again in next round of load checker
+    public void addPendingTablet(long partitionId, long indexId, long tabletId) {
+        Map<Long, Set<Long>> indexToTablets = pendingTablets.get(partitionId);
+        if (indexToTablets == null) {
+            return;
+        }
+        Set<Long> tabletIds = indexToTablets.get(indexId);
+        if (tabletIds != null) {
+            tabletIds.add(tabletId);
+        }
+    }
+
+    public void setTotalTabletNum(int totalTabletNum) {
+        this.totalTabletNum = totalTabletNum;
+    }
+
+    /*
+     * Update tablet sets when a replica of the tablet finishes pushing,
+     * so that load checker does not need to wait for its next round to update progress.
+     */
+    public void updateTabletPushState(long tabletId, int finishedReplicaNum, int replicaNum, int quorumNum) {
+        if (state != JobState.LOADING && state != JobState.QUORUM_FINISHED) {
+            return;
+        }
+        if (finishedReplicaNum >= quorumNum) {
+            quorumTablets.add(tabletId);
+            if (finishedReplicaNum >= replicaNum) {
+                fullTablets.add(tabletId);
+            }
+        }
+        updateLoadingProgress();
+    }
+
+    public void updateLoadingProgress() {
+        if (state == JobState.LOADING && totalTabletNum > 0) {
+            progress = quorumTablets.size() * 100 / totalTabletNum;
+        }
+    }
     
     public void addPushTask(PushTask pushTask) {
         pushTasks.add(pushTask);
@@ -501,6 +557,16 @@ public class LoadJob implements Writable {
             fullTablets.clear();
             fullTablets = null;
         }
+
+        if (totalTablets != null) {
+            totalTablets.clear();
+            totalTablets = null;
+        }
+
+        if (pendingTablets != null) {
+            pendingTablets.clear();
+            pendingTablets = null;
+        }
         
         if (replicaPersistInfos != null) {
             replicaPersistInfos.clear();
@@ -0,0 +1,478 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.common.io.Text;
+import com.baidu.palo.common.util.Daemon;
+import com.baidu.palo.load.LoadJob.JobState;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.CountingInputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+ * Append-only local store of finished and cancelled load jobs, used by SHOW LOAD.
+ * Each job is saved as its row of SHOW LOAD. Files are rolled every segmentMs, and a whole file is deleted
+ * when all jobs in it expire.
+ *
+ * Jobs are appended to memory and written to file by a writer thread, so that no file is touched
+ * under the lock of Load. The position of each job in files is indexed by db id and job id in memory,
+ * so a job is read by seeking to it, and jobs of a db are read in the order of id without reading others.
+ * The index is rebuilt by reading the record headers of files when the writer starts.
+ *
+ * Each FE archives the jobs it has replayed, so the store is not part of the meta data.
+ * A job archived again when its edit log is replayed after restart is skipped, or ignored when indexing
+ * if it is written again before the index is rebuilt.
+ *
+ * Record: db id | job id | label | state | length of info | info
+ */
+public class LoadJobArchive {
+    private static final Logger LOG = LogManager.getLogger(LoadJobArchive.class);
+
+    private static final String FILE_PREFIX = "load_job.";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long WRITE_INTERVAL_MS = 100L;
+
+    public interface Filter {
+        boolean accept(long jobId, String label, JobState state);
+    }
+
+    private static class Record {
+        final long dbId;
+        final long jobId;
+        final String label;
+        final JobState state;
+        // position in file, segment is -1 if the record is not written yet
+        long segment = -1L;
+        long offset = -1L;
+        // show info, kept in memory until the record is written
+        List<Comparable> info;
+
+        Record(long dbId, long jobId, String label, JobState state) {
+            this.dbId = dbId;
+            this.jobId = jobId;
+            this.label = label;
+            this.state = state;
+        }
+
+        Record copy() {
+            Record record = new Record(dbId, jobId, label, state);
+            record.segment = segment;
+            record.offset = offset;
+            record.info = info;
+            return record;
+        }
+    }
+
+    private final String dirPath;
+    private final long segmentMs;
+
+    // db id -> job id -> record
+    private final Map<Long, TreeMap<Long, Record>> dbIdToRecords = Maps.newHashMap();
+    // records waiting to be written
+    private final LinkedList<Record> pendingRecords = Lists.newLinkedList();
+    // whether records in files are indexed
+    private boolean isLoaded = false;
+    private Daemon writer = null;
+    // serialize writing of the writer thread and flush()
+    private final Object writeLock = new Object();
+
+    public LoadJobArchive(String dirPath, long segmentMs) {
+        Preconditions.checkArgument(segmentMs > 0);
+        this.dirPath = dirPath;
+        this.segmentMs = segmentMs;
+    }
+
+    // Start the writer thread at the first use, so that the archive of checkpoint catalog is never started.
+    private synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Daemon("loadJobArchiveWriter", WRITE_INTERVAL_MS) {
+            @Override
+            protected void runOneCycle() {
+                flush();
+            }
+        };
+        writer.start();
+    }
+
+    // Wait until records in files are indexed. Should be called with lock held.
+    private void waitLoaded() {
+        while (!isLoaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // No file is accessed here, the job is written by the writer thread.
+    public synchronized void append(long dbId, long jobId, String label, JobState state, List<Comparable> jobInfo) {
+        startWriter();
+        TreeMap<Long, Record> jobIdToRecord = dbIdToRecords.get(dbId);
+        if (jobIdToRecord == null) {
+            jobIdToRecord = Maps.newTreeMap();
+            dbIdToRecords.put(dbId, jobIdToRecord);
+        } else if (jobIdToRecord.containsKey(jobId)) {
+            // archived before restart
+            return;
+        }
+        Record record = new Record(dbId, jobId, label, state);
+        record.info = jobInfo;
+        jobIdToRecord.put(jobId, record);
+        pendingRecords.add(record);
+    }
+
+    // Index records in files if not yet, and write pending records to file.
+    public void flush() {
+        synchronized (writeLock) {
+            boolean needLoad;
+            synchronized (this) {
+                needLoad = !isLoaded;
+            }
+            if (needLoad) {
+                loadRecords();
+            }
+
+            List<Record> records;
+            synchronized (this) {
+                if (pendingRecords.isEmpty()) {
+                    return;
+                }
+                records = Lists.newArrayList(pendingRecords);
+                pendingRecords.clear();
+            }
+            try {
+                writeRecords(records);
+            } catch (IOException e) {
+                LOG.warn("failed to write {} load jobs to archive, retry later", records.size(), e);
+                synchronized (this) {
+                    pendingRecords.addAll(0, records);
+                }
+            }
+        }
+    }
+
+    // Index records in files by reading their headers.
+    // Files are read without lock, records appended meanwhile are kept.
+    private void loadRecords() {
+        long startTimeMs = System.currentTimeMillis();
+        List<Record> records = Lists.newArrayList();
+        for (File file : listFiles()) {
+            try {
+                readHeaders(file, records);
+            } catch (IOException | IllegalArgumentException e) {
+                LOG.warn("failed to read load job archive file: {}", file.getAbsolutePath(), e);
+            }
+        }
+
+        synchronized (this) {
+            for (Record record : records) {
+                TreeMap<Long, Record> jobIdToRecord = dbIdToRecords.get(record.dbId);
+                if (jobIdToRecord == null) {
+                    jobIdToRecord = Maps.newTreeMap();
+                    dbIdToRecords.put(record.dbId, jobIdToRecord);
+                }
+                if (!jobIdToRecord.containsKey(record.jobId)) {
+                    jobIdToRecord.put(record.jobId, record);
+                }
+            }
+            isLoaded = true;
+            notifyAll();
+        }
+        LOG.info("index {} archived load jobs, cost {} ms", records.size(), System.currentTimeMillis() - startTimeMs);
+    }
+
+    private static void readHeaders(File file, List<Record> records) throws IOException {
+        long segment = getSegment(file);
+        CountingInputStream countingIn = new CountingInputStream(new BufferedInputStream(new FileInputStream(file),
+                                                                                         BUFFER_SIZE));
+        DataInputStream in = new DataInputStream(countingIn);
+        try {
+            while (true) {
+                long offset = countingIn.getCount();
+                long dbId;
+                try {
+                    dbId = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                long jobId = in.readLong();
+                String label = Text.readString(in);
+                JobState state = JobState.valueOf(Text.readString(in));
+                in.readFully(new byte[in.readInt()]);
+
+                Record record = new Record(dbId, jobId, label, state);
+                record.segment = segment;
+                record.offset = offset;
+                records.add(record);
+            }
+        } catch (EOFException e) {
+            // the last record may be partially written
+            LOG.debug("incomplete record at the end of {}", file.getAbsolutePath());
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeRecords(List<Record> records) throws IOException {
+        long segment = System.currentTimeMillis() / segmentMs * segmentMs;
+        File dir = new File(dirPath);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("failed to create load job archive dir: " + dirPath);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        long[] offsets = new long[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            offsets[i] = out.size();
+            writeRecord(out, records.get(i));
+        }
+        out.flush();
+
+        FileOutputStream fileOut = new FileOutputStream(new File(dir, FILE_PREFIX + segment), true);
+        long startOffset = fileOut.getChannel().size();
+        try {
+            bytes.writeTo(fileOut);
+        } catch (IOException e) {
+            // drop the partially written records, so that later ones can be read
+            fileOut.getChannel().truncate(startOffset);
+            throw e;
+        } finally {
+            fileOut.close();
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < records.size(); i++) {
+                Record record = records.get(i);
+                record.segment = segment;
+                record.offset = startOffset + offsets[i];
+                record.info = null;
+            }
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Record record) throws IOException {
+        out.writeLong(record.dbId);
+        out.writeLong(record.jobId);
+        Text.writeString(out, record.label);
+        Text.writeString(out, record.state.name());
+
+        ByteArrayOutputStream infoBytes = new ByteArrayOutputStream();
+        DataOutputStream infoOut = new DataOutputStream(infoBytes);
+        infoOut.writeInt(record.info.size());
+        for (Comparable item : record.info) {
+            Text.writeString(infoOut, String.valueOf(item));
+        }
+        infoOut.flush();
+        out.writeInt(infoBytes.size());
+        infoBytes.writeTo(out);
+    }
+
+    // Return infos of jobs of the db accepted by filter, in the order of job id.
+    // Stop reading when limit infos are found, limit < 0 means no limit.
+    // The first column of info is job id, and others are strings.
+    public List<List<Comparable>> scan(long dbId, Filter filter, long limit) {
+        List<Record> records = Lists.newArrayList();
+        synchronized (this) {
+            startWriter();
+            waitLoaded();
+            TreeMap<Long, Record> jobIdToRecord = dbIdToRecords.get(dbId);
+            if (jobIdToRecord != null) {
+                for (Record record : jobIdToRecord.values()) {
+                    if (limit >= 0 && records.size() >= limit) {
+                        break;
+                    }
+                    if (filter.accept(record.jobId, record.label, record.state)) {
+                        records.add(record.copy());
+                    }
+                }
+            }
+        }
+        return readInfos(records);
+    }
+
+    // Return info of the job, or null if it is not archived
+    public List<Comparable> getInfo(long dbId, long jobId) {
+        List<Record> records = Lists.newArrayList();
+        synchronized (this) {
+            startWriter();
+            waitLoaded();
+            TreeMap<Long, Record> jobIdToRecord = dbIdToRecords.get(dbId);
+            if (jobIdToRecord != null && jobIdToRecord.containsKey(jobId)) {
+                records.add(jobIdToRecord.get(jobId).copy());
+            }
+        }
+        List<List<Comparable>> infos = readInfos(records);
+        return infos.isEmpty() ? null : infos.get(0);
+    }
+
+    private List<List<Comparable>> readInfos(List<Record> records) {
+        List<List<Comparable>> jobInfos = Lists.newArrayListWithCapacity(records.size());
+        Map<Long, RandomAccessFile> segmentToFile = Maps.newHashMap();
+        try {
+            for (Record record : records) {
+                if (record.info != null) {
+                    jobInfos.add(Lists.newArrayList(record.info));
+                    continue;
+                }
+                try {
+                    RandomAccessFile file = segmentToFile.get(record.segment);
+                    if (file == null) {
+                        file = new RandomAccessFile(new File(dirPath, FILE_PREFIX + record.segment), "r");
+                        segmentToFile.put(record.segment, file);
+                    }
+                    jobInfos.add(readInfo(file, record));
+                } catch (IOException e) {
+                    // the file may be removed as expired
+                    LOG.warn("failed to read archived load job {} in segment {}", record.jobId, record.segment, e);
+                }
+            }
+        } finally {
+            for (RandomAccessFile file : segmentToFile.values()) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    LOG.warn("failed to close load job archive file", e);
+                }
+            }
+        }
+        return jobInfos;
+    }
+
+    private static List<Comparable> readInfo(RandomAccessFile file, Record record) throws IOException {
+        file.seek(record.offset);
+        long dbId = file.readLong();
+        long jobId = file.readLong();
+        if (dbId != record.dbId || jobId != record.jobId) {
+            throw new IOException("record at " + record.offset + " is job " + jobId + " of db " + dbId);
+        }
+        Text.readString(file);
+        Text.readString(file);
+        file.readInt();
+
+        int columnNum = file.readInt();
+        List<Comparable> jobInfo = Lists.newArrayListWithCapacity(columnNum);
+        for (int i = 0; i < columnNum; i++) {
+            String item = Text.readString(file);
+            jobInfo.add(i == 0 ? (Comparable) Long.valueOf(item) : item);
+        }
+        return jobInfo;
+    }
+
+    // Delete files in which all jobs are archived before expireTimeMs
+    public void removeExpired(long expireTimeMs) {
+        Set<Long> segments = Sets.newHashSet();
+        List<File> files = Lists.newArrayList();
+        for (File file : listFiles()) {
+            long segment = getSegment(file);
+            if (segment + segmentMs > expireTimeMs) {
+                break;
+            }
+            segments.add(segment);
+            files.add(file);
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            startWriter();
+            waitLoaded();
+            Iterator<TreeMap<Long, Record>> dbIter = dbIdToRecords.values().iterator();
+            while (dbIter.hasNext()) {
+                TreeMap<Long, Record> jobIdToRecord = dbIter.next();
+                Iterator<Record> iter = jobIdToRecord.values().iterator();
+                while (iter.hasNext()) {
+                    if (segments.contains(iter.next().segment)) {
+                        iter.remove();
+                    }
+                }
+                if (jobIdToRecord.isEmpty()) {
+                    dbIter.remove();
+                }
+            }
+        }
+
+        for (File file : files) {
+            if (!file.delete()) {
+                LOG.warn("failed to delete load job archive file: {}", file.getAbsolutePath());
+            } else {
+                LOG.info("delete expired load job archive file: {}", file.getAbsolutePath());
+            }
+        }
+    }
+
+    // archive files sorted by time
+    private List<File> listFiles() {
+        List<File> result = Lists.newArrayList();
+        File[] files = new File(dirPath).listFiles();
+        if (files == null) {
+            return result;
+        }
+        for (File file : files) {
+            if (file.isFile() && getSegment(file) >= 0) {
+                result.add(file);
+            }
+        }
+        Collections.sort(result, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(getSegment(o1), getSegment(o2));
+            }
+        });
+        return result;
+    }
+
+    private static long getSegment(File file) {
+        String name = file.getName();
+        if (!name.startsWith(FILE_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
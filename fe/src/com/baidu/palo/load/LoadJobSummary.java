@@ -0,0 +1,132 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.common.io.Text;
+import com.baidu.palo.common.io.Writable;
+import com.baidu.palo.load.LoadJob.JobState;
+
+import com.google.common.base.Strings;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * Compact info of a finished or cancelled load job.
+ * It is kept in memory instead of the whole LoadJob to check label and show job state.
+ */
+public class LoadJobSummary implements Writable {
+    private long id;
+    private long dbId;
+    private String label;
+    private JobState state;
+    // timestamp of mini load, used to check duplicate request
+    private long timestamp;
+    private long createTimeMs;
+    private long finishTimeMs;
+    private String failMsg;
+    private String trackingUrl;
+
+    public LoadJobSummary() {
+    }
+
+    public LoadJobSummary(LoadJob job) {
+        this.id = job.getId();
+        this.dbId = job.getDbId();
+        this.label = job.getLabel();
+        this.state = job.getState();
+        this.timestamp = job.getTimestamp();
+        this.createTimeMs = job.getCreateTimeMs();
+        this.finishTimeMs = job.getLoadFinishTimeMs();
+        this.failMsg = Strings.nullToEmpty(job.getFailMsg().getMsg());
+        EtlStatus status = job.getEtlJobStatus();
+        this.trackingUrl = status == null ? "" : Strings.nullToEmpty(status.getTrackingUrl());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getDbId() {
+        return dbId;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getCreateTimeMs() {
+        return createTimeMs;
+    }
+
+    public long getFinishTimeMs() {
+        return finishTimeMs;
+    }
+
+    public String getFailMsg() {
+        return failMsg;
+    }
+
+    public String getTrackingUrl() {
+        return trackingUrl;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeLong(dbId);
+        Text.writeString(out, label);
+        Text.writeString(out, state.name());
+        out.writeLong(timestamp);
+        out.writeLong(createTimeMs);
+        out.writeLong(finishTimeMs);
+        Text.writeString(out, failMsg);
+        Text.writeString(out, trackingUrl);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        id = in.readLong();
+        dbId = in.readLong();
+        label = Text.readString(in);
+        state = JobState.valueOf(Text.readString(in));
+        timestamp = in.readLong();
+        createTimeMs = in.readLong();
+        finishTimeMs = in.readLong();
+        failMsg = Text.readString(in);
+        trackingUrl = Text.readString(in);
+    }
+
+    public static LoadJobSummary read(DataInput in) throws IOException {
+        LoadJobSummary summary = new LoadJobSummary();
+        summary.readFields(in);
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadJobSummary [id=" + id + ", dbId=" + dbId + ", label=" + label + ", state=" + state + "]";
+    }
+}
@@ -0,0 +1,210 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.common.io.Writable;
+import com.baidu.palo.load.LoadJob.JobState;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Label index of finished and cancelled load jobs.
+ * For each label, only the summary of the latest job is indexed. Summaries are also grouped into buckets
+ * by create time, so that expired ones are removed bucket by bucket without iterating all of them.
+ *
+ * Not thread safe, protected by the lock of Load.
+ */
+public class LoadLabelIndex implements Writable {
+
+    private static class DbIndex {
+        Map<String, LoadJobSummary> labelToSummary = Maps.newHashMap();
+        int finishedNum = 0;
+        int cancelledNum = 0;
+        LoadJobSummary latestFinished = null;
+    }
+
+    private final long bucketMs;
+    private Map<Long, DbIndex> dbIdToIndex = Maps.newHashMap();
+    // start time of bucket -> summaries of jobs created in this bucket
+    private TreeMap<Long, List<LoadJobSummary>> buckets = Maps.newTreeMap();
+    private int size = 0;
+
+    public LoadLabelIndex(long bucketMs) {
+        Preconditions.checkArgument(bucketMs > 0);
+        this.bucketMs = bucketMs;
+    }
+
+    public void add(LoadJobSummary summary) {
+        JobState state = summary.getState();
+        Preconditions.checkState(state == JobState.FINISHED || state == JobState.CANCELLED, state);
+
+        DbIndex dbIndex = dbIdToIndex.get(summary.getDbId());
+        if (dbIndex == null) {
+            dbIndex = new DbIndex();
+            dbIdToIndex.put(summary.getDbId(), dbIndex);
+        }
+        LoadJobSummary oldSummary = dbIndex.labelToSummary.get(summary.getLabel());
+        if (oldSummary == null || oldSummary.getId() <= summary.getId()) {
+            dbIndex.labelToSummary.put(summary.getLabel(), summary);
+        }
+        if (state == JobState.FINISHED) {
+            ++dbIndex.finishedNum;
+            if (dbIndex.latestFinished == null
+                    || dbIndex.latestFinished.getFinishTimeMs() < summary.getFinishTimeMs()) {
+                dbIndex.latestFinished = summary;
+            }
+        } else {
+            ++dbIndex.cancelledNum;
+        }
+
+        long bucket = summary.getCreateTimeMs() / bucketMs * bucketMs;
+        List<LoadJobSummary> summaries = buckets.get(bucket);
+        if (summaries == null) {
+            summaries = Lists.newArrayList();
+            buckets.put(bucket, summaries);
+        }
+        summaries.add(summary);
+        ++size;
+    }
+
+    // Return the summary of the latest job with the label, or null if not exist
+    public LoadJobSummary get(long dbId, String label) {
+        DbIndex dbIndex = dbIdToIndex.get(dbId);
+        if (dbIndex == null) {
+            return null;
+        }
+        return dbIndex.labelToSummary.get(label);
+    }
+
+    public int getJobNum(long dbId, JobState state) {
+        DbIndex dbIndex = dbIdToIndex.get(dbId);
+        if (dbIndex == null) {
+            return 0;
+        }
+        switch (state) {
+            case FINISHED:
+                return dbIndex.finishedNum;
+            case CANCELLED:
+                return dbIndex.cancelledNum;
+            default:
+                return 0;
+        }
+    }
+
+    public LoadJobSummary getLatestFinished(long dbId) {
+        DbIndex dbIndex = dbIdToIndex.get(dbId);
+        if (dbIndex == null) {
+            return null;
+        }
+        return dbIndex.latestFinished;
+    }
+
+    // summaries of the db left in buckets are skipped when they expire
+    public void removeDb(long dbId) {
+        dbIdToIndex.remove(dbId);
+    }
+
+    // Remove summaries of jobs created before expireTimeMs. Return the number of removed ones.
+    public int removeExpired(long expireTimeMs) {
+        int removedNum = 0;
+        Iterator<Map.Entry<Long, List<LoadJobSummary>>> iter = buckets.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Long, List<LoadJobSummary>> entry = iter.next();
+            if (entry.getKey() + bucketMs > expireTimeMs) {
+                // buckets are sorted by time
+                break;
+            }
+            for (LoadJobSummary summary : entry.getValue()) {
+                remove(summary);
+            }
+            removedNum += entry.getValue().size();
+            size -= entry.getValue().size();
+            iter.remove();
+        }
+        return removedNum;
+    }
+
+    private void remove(LoadJobSummary summary) {
+        DbIndex dbIndex = dbIdToIndex.get(summary.getDbId());
+        if (dbIndex == null) {
+            return;
+        }
+        if (dbIndex.labelToSummary.get(summary.getLabel()) == summary) {
+            dbIndex.labelToSummary.remove(summary.getLabel());
+        }
+        if (summary.getState() == JobState.FINISHED) {
+            --dbIndex.finishedNum;
+        } else {
+            --dbIndex.cancelledNum;
+        }
+        if (dbIndex.latestFinished == summary) {
+            dbIndex.latestFinished = null;
+        }
+        if (dbIndex.finishedNum <= 0 && dbIndex.cancelledNum <= 0) {
+            dbIdToIndex.remove(summary.getDbId());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        dbIdToIndex.clear();
+        buckets.clear();
+        size = 0;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        // summaries of dropped db are not saved
+        int count = 0;
+        for (List<LoadJobSummary> summaries : buckets.values()) {
+            for (LoadJobSummary summary : summaries) {
+                if (dbIdToIndex.containsKey(summary.getDbId())) {
+                    ++count;
+                }
+            }
+        }
+        out.writeInt(count);
+        for (List<LoadJobSummary> summaries : buckets.values()) {
+            for (LoadJobSummary summary : summaries) {
+                if (dbIdToIndex.containsKey(summary.getDbId())) {
+                    summary.write(out);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            add(LoadJobSummary.read(in));
+        }
+    }
+}
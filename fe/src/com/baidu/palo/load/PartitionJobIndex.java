@@ -0,0 +1,111 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Index of partition -> unfinished jobs on it, to check conflicts of jobs without scanning all of them.
+ * Each job is indexed with one type, and is updated when its state changes.
+ *
+ * Not thread safe. It is protected by the lock of its owner.
+ */
+public class PartitionJobIndex {
+
+    public enum JobType {
+        // PENDING / ETL / LOADING load job
+        LOAD,
+        QUORUM_FINISHED_LOAD,
+        // quorum finished delete job, waiting for all replicas
+        ASYNC_DELETE
+    }
+
+    private static class IndexedJob {
+        private final JobType type;
+        private final Set<Long> partitionIds;
+
+        private IndexedJob(JobType type, Set<Long> partitionIds) {
+            this.type = type;
+            this.partitionIds = partitionIds;
+        }
+    }
+
+    // job type -> partition id -> job ids
+    private final Map<JobType, Map<Long, Set<Long>>> typeToPartitionJobs = Maps.newEnumMap(JobType.class);
+    // job id -> indexed job
+    private final Map<Long, IndexedJob> idToIndexedJob = Maps.newHashMap();
+
+    public PartitionJobIndex() {
+        for (JobType type : JobType.values()) {
+            typeToPartitionJobs.put(type, Maps.<Long, Set<Long>>newHashMap());
+        }
+    }
+
+    // index job on partitions, replacing its old entries
+    public void put(JobType type, long jobId, Collection<Long> partitionIds) {
+        remove(jobId);
+        if (partitionIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Set<Long>> partitionToJobs = typeToPartitionJobs.get(type);
+        for (Long partitionId : partitionIds) {
+            Set<Long> jobIds = partitionToJobs.get(partitionId);
+            if (jobIds == null) {
+                jobIds = Sets.newHashSet();
+                partitionToJobs.put(partitionId, jobIds);
+            }
+            jobIds.add(jobId);
+        }
+        idToIndexedJob.put(jobId, new IndexedJob(type, ImmutableSet.copyOf(partitionIds)));
+    }
+
+    public void remove(long jobId) {
+        IndexedJob indexedJob = idToIndexedJob.remove(jobId);
+        if (indexedJob == null) {
+            return;
+        }
+        Map<Long, Set<Long>> partitionToJobs = typeToPartitionJobs.get(indexedJob.type);
+        for (Long partitionId : indexedJob.partitionIds) {
+            Set<Long> jobIds = partitionToJobs.get(partitionId);
+            if (jobIds == null) {
+                continue;
+            }
+            jobIds.remove(jobId);
+            if (jobIds.isEmpty()) {
+                partitionToJobs.remove(partitionId);
+            }
+        }
+    }
+
+    public boolean hasJob(JobType type, long partitionId) {
+        return typeToPartitionJobs.get(type).containsKey(partitionId);
+    }
+
+    public Set<Long> getJobIds(JobType type, long partitionId) {
+        Set<Long> jobIds = typeToPartitionJobs.get(type).get(partitionId);
+        return jobIds == null ? ImmutableSet.<Long>of() : ImmutableSet.copyOf(jobIds);
+    }
+
+    public int getJobNum() {
+        return idToIndexedJob.size();
+    }
+}
@@ -23,6 +23,7 @@ import com.baidu.palo.alter.SchemaChangeJob;
 import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.catalog.Database;
 import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
 import com.baidu.palo.catalog.OlapTable;
 import com.baidu.palo.catalog.MaterializedIndex;
 import com.baidu.palo.catalog.Tablet;
@@ -38,6 +39,7 @@ import com.baidu.palo.task.AgentTask;
 import com.baidu.palo.task.AgentTaskQueue;
 import com.baidu.palo.task.CheckConsistencyTask;
 import com.baidu.palo.task.CloneTask;
+import com.baidu.palo.task.CreateReplicaScheduler;
 import com.baidu.palo.task.CreateReplicaTask;
 import com.baidu.palo.task.CreateRollupTask;
 import com.baidu.palo.task.PushTask;
@@ -206,6 +208,9 @@ public class MasterImpl {
         createReplicaTask.countDownLatch(task.getBackendId(), task.getSignature());
         LOG.debug("finish create replica. tablet id: {}", tabletId);
         AgentTaskQueue.removeTask(task.getBackendId(), TTaskType.CREATE, task.getSignature());
+        if (createReplicaTask.getJob() != null) {
+            CreateReplicaScheduler.getInstance().finishTask(createReplicaTask);
+        }
     }
     
     private void finishPush(AgentTask task, TFinishTaskRequest request) {
@@ -305,6 +310,29 @@ public class MasterImpl {
                 for (ReplicaPersistInfo info : infos) {
                     job.addReplicaPersistInfos(info);
                 }
+
+                // update progress of job with the finished tablet
+                MaterializedIndex pushIndex = partition.getIndex(pushIndexId);
+                Tablet pushTablet = pushIndex == null ? null : pushIndex.getTablet(pushTabletId);
+                if (pushTablet != null) {
+                    // only count normal replicas on alive backends, which can serve the loaded version
+                    int finishedReplicaNum = 0;
+                    for (Replica replica : pushTablet.getReplicas()) {
+                        if (replica.getState() != ReplicaState.NORMAL) {
+                            continue;
+                        }
+                        Backend replicaBackend = Catalog.getCurrentSystemInfo().getBackend(replica.getBackendId());
+                        if (replicaBackend == null || !replicaBackend.isAlive()) {
+                            continue;
+                        }
+                        if (replica.checkVersionCatchUp(finishVersion, finishVersionHash)) {
+                            ++finishedReplicaNum;
+                        }
+                    }
+                    short replicationNum = olapTable.getPartitionInfo().getReplicationNum(partitionId);
+                    job.updateTabletPushState(pushTabletId, finishedReplicaNum, pushTablet.getReplicas().size(),
+                                              replicationNum / 2 + 1);
+                }
             } else if (pushTask.getPushType() == TPushType.DELETE) {
                 // report delete task must match version and version hash
                 if (pushTask.getVersion() != request.getRequest_version()
@@ -422,7 +450,10 @@ public class MasterImpl {
             throw new MetaNotFoundException("cannot find replica in tablet[" + tabletId + "], backend[" + backendId
                     + "]");
         }
+        long tabletRowCount = tablet.getRowCount();
+        long tabletDataSize = tablet.getDataSize();
         replica.updateInfo(version, versionHash, dataSize, rowCount);
+        materializedIndex.updateStat(tablet.getRowCount() - tabletRowCount, tablet.getDataSize() - tabletDataSize);
 
         LOG.debug("replica[{}] report schemaHash:{}", replica.getId(), schemaHash);
         return ReplicaPersistInfo.createForLoad(olapTable.getId(), partition.getId(), pushIndexId, tabletId,
@@ -128,6 +128,8 @@ public class ReportHandler {
         // db id -> tablet id
         ListMultimap<Long, Long> tabletSyncMap = LinkedListMultimap.create();
         // db id -> tablet id
+        ListMultimap<Long, Long> tabletStatMap = LinkedListMultimap.create();
+        // db id -> tablet id
         ListMultimap<Long, Long> tabletDeleteFromMeta = LinkedListMultimap.create();
         // tablet ids which schema hash is valid
         Set<Long> foundTabletsWithValidSchema = new HashSet<Long>();
@@ -139,6 +141,7 @@ public class ReportHandler {
         // 1. do the diff. find out (intersection) / (be - meta) / (meta - be)
         Catalog.getCurrentInvertedIndex().tabletReport(backendId, backendTablets, storageMediumMap,
                                                        tabletSyncMap,
+                                                       tabletStatMap,
                                                        tabletDeleteFromMeta,
                                                        foundTabletsWithValidSchema,
                                                        foundTabletsWithInvalidSchema,
@@ -147,6 +150,9 @@ public class ReportHandler {
         // 2. sync
         sync(backendTablets, tabletSyncMap, backendId, backendReportVersion);
 
+        // 2.1 update data size and row count of replicas whose version is not changed
+        updateStat(backendTablets, tabletStatMap, backendId);
+
         // 3. delete (meta - be)
         // BE will automatically drop defective tablets. these tablets should also be dropped in catalog
         deleteFromMeta(tabletDeleteFromMeta, backendId, backendReportVersion);
@@ -278,7 +284,11 @@ public class ReportHandler {
                             }
 
                             // happens when PUSH finished in BE but failed or not yet report to FE
+                            long tabletRowCount = tablet.getRowCount();
+                            long tabletDataSize = tablet.getDataSize();
                             replica.updateInfo(backendVersion, backendVersionHash, dataSize, rowCount);
+                            index.updateStat(tablet.getRowCount() - tabletRowCount,
+                                             tablet.getDataSize() - tabletDataSize);
                             
                             ++syncCounter;
                             LOG.debug("sync replica[{}] in db[{}].", replica.getId(), dbId);
@@ -297,6 +307,64 @@ public class ReportHandler {
         } // end for dbs
     }
 
+    // update the data size and row count of replicas, and the statistics of their indexes
+    private static void updateStat(Map<Long, TTablet> backendTablets, ListMultimap<Long, Long> tabletStatMap,
+                                   long backendId) {
+        TabletInvertedIndex invertedIndex = Catalog.getCurrentInvertedIndex();
+        for (Long dbId : tabletStatMap.keySet()) {
+            Database db = Catalog.getInstance().getDb(dbId);
+            if (db == null) {
+                continue;
+            }
+            db.writeLock();
+            try {
+                for (Long tabletId : tabletStatMap.get(dbId)) {
+                    OlapTable olapTable = (OlapTable) db.getTable(invertedIndex.getTableId(tabletId));
+                    if (olapTable == null) {
+                        continue;
+                    }
+                    Partition partition = olapTable.getPartition(invertedIndex.getPartitionId(tabletId));
+                    if (partition == null) {
+                        continue;
+                    }
+                    long indexId = invertedIndex.getIndexId(tabletId);
+                    MaterializedIndex index = partition.getIndex(indexId);
+                    if (index == null) {
+                        continue;
+                    }
+                    Tablet tablet = index.getTablet(tabletId);
+                    if (tablet == null) {
+                        continue;
+                    }
+                    Replica replica = tablet.getReplicaByBackendId(backendId);
+                    if (replica == null) {
+                        continue;
+                    }
+
+                    long schemaHash = olapTable.getSchemaHashByIndexId(indexId);
+                    for (TTabletInfo tabletInfo : backendTablets.get(tabletId).getTablet_infos()) {
+                        // version may be changed between check and update
+                        if (tabletInfo.getSchema_hash() != schemaHash
+                                || tabletInfo.getVersion() != replica.getVersion()
+                                || tabletInfo.getVersion_hash() != replica.getVersionHash()) {
+                            continue;
+                        }
+                        long tabletRowCount = tablet.getRowCount();
+                        long tabletDataSize = tablet.getDataSize();
+                        replica.updateStat(tabletInfo.getData_size(), tabletInfo.getRow_count());
+                        index.updateStat(tablet.getRowCount() - tabletRowCount,
+                                         tablet.getDataSize() - tabletDataSize);
+                        break;
+                    }
+                }
+                LOG.debug("update stat of {} tablets in db[{}]. backend[{}]",
+                          tabletStatMap.get(dbId).size(), dbId, backendId);
+            } finally {
+                db.writeUnlock();
+            }
+        } // end for dbs
+    }
+
     private static void deleteFromMeta(ListMultimap<Long, Long> tabletDeleteFromMeta, long backendId,
                                        long backendReportVersion) {
         TabletInvertedIndex invertedIndex = Catalog.getCurrentInvertedIndex();
@@ -339,6 +407,11 @@ public class ReportHandler {
                     if (replica == null) {
                         continue;
                     }
+
+                    // replica is being created by CreateReplicaScheduler
+                    if (AgentTaskQueue.getTask(backendId, TTaskType.CREATE, tabletId) != null) {
+                        continue;
+                    }
                     
                     // check report version again
                     if (backendReportVersion < Catalog.getCurrentSystemInfo().getBackendReportVersion(backendId)) {
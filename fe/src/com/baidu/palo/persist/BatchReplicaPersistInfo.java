@@ -0,0 +1,60 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.persist;
+
+import com.baidu.palo.common.io.Writable;
+
+import com.google.common.collect.Lists;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * ReplicaPersistInfos written in one edit log, eg. the replicas raised by CreateReplicaJob.
+ */
+public class BatchReplicaPersistInfo implements Writable {
+    private List<ReplicaPersistInfo> infos;
+
+    public BatchReplicaPersistInfo() {
+        this.infos = Lists.newArrayList();
+    }
+
+    public BatchReplicaPersistInfo(List<ReplicaPersistInfo> infos) {
+        this.infos = infos;
+    }
+
+    public List<ReplicaPersistInfo> getInfos() {
+        return infos;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(infos.size());
+        for (ReplicaPersistInfo info : infos) {
+            info.write(out);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            infos.add(ReplicaPersistInfo.read(in));
+        }
+    }
+}
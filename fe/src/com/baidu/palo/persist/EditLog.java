@@ -373,6 +373,18 @@ public class EditLog {
                     catalog.replayDeleteReplica(info);
                     break;
                 }
+                case OperationType.OP_BATCH_ADD_REPLICA: {
+                    BatchReplicaPersistInfo batchInfo = (BatchReplicaPersistInfo) journal.getData();
+                    for (ReplicaPersistInfo info : batchInfo.getInfos()) {
+                        catalog.replayAddReplica(info);
+                    }
+                    break;
+                }
+                case OperationType.OP_UPDATE_INDEX_STATS: {
+                    BatchIndexStatInfo info = (BatchIndexStatInfo) journal.getData();
+                    catalog.replayUpdateIndexStats(info);
+                    break;
+                }
                 case OperationType.OP_ADD_BACKEND: {
                     Backend be = (Backend) journal.getData();
                     Catalog.getCurrentSystemInfo().replayAddBackend(be);
@@ -755,6 +767,14 @@ public class EditLog {
         logEdit(OperationType.OP_DELETE_REPLICA, info);
     }
 
+    public void logBatchAddReplica(BatchReplicaPersistInfo info) {
+        logEdit(OperationType.OP_BATCH_ADD_REPLICA, info);
+    }
+
+    public void logUpdateIndexStats(BatchIndexStatInfo info) {
+        logEdit(OperationType.OP_UPDATE_INDEX_STATS, info);
+    }
+
     public void logTimestamp(Timestamp stamp) {
         logEdit(OperationType.OP_TIMESTAMP, stamp);
     }
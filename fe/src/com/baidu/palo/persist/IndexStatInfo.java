@@ -0,0 +1,97 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.persist;
+
+import com.baidu.palo.common.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * Row count and data size of one materialized index, computed by TabletStatMgr on master.
+ */
+public class IndexStatInfo implements Writable {
+    private long dbId;
+    private long tableId;
+    private long partitionId;
+    private long indexId;
+
+    private long rowCount;
+    private long dataSize;
+
+    public IndexStatInfo() {
+    }
+
+    public IndexStatInfo(long dbId, long tableId, long partitionId, long indexId, long rowCount, long dataSize) {
+        this.dbId = dbId;
+        this.tableId = tableId;
+        this.partitionId = partitionId;
+        this.indexId = indexId;
+        this.rowCount = rowCount;
+        this.dataSize = dataSize;
+    }
+
+    public long getDbId() {
+        return dbId;
+    }
+
+    public long getTableId() {
+        return tableId;
+    }
+
+    public long getPartitionId() {
+        return partitionId;
+    }
+
+    public long getIndexId() {
+        return indexId;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(dbId);
+        out.writeLong(tableId);
+        out.writeLong(partitionId);
+        out.writeLong(indexId);
+        out.writeLong(rowCount);
+        out.writeLong(dataSize);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        dbId = in.readLong();
+        tableId = in.readLong();
+        partitionId = in.readLong();
+        indexId = in.readLong();
+        rowCount = in.readLong();
+        dataSize = in.readLong();
+    }
+
+    public static IndexStatInfo read(DataInput in) throws IOException {
+        IndexStatInfo info = new IndexStatInfo();
+        info.readFields(in);
+        return info;
+    }
+}
@@ -75,6 +75,8 @@ public class OperationType {
     public static final short OP_ADD_REPLICA = 42;
     public static final short OP_DELETE_REPLICA = 43;
     public static final short OP_FINISH_ASYNC_DELETE = 44;
+    public static final short OP_BATCH_ADD_REPLICA = 45;
+    public static final short OP_UPDATE_INDEX_STATS = 46;
 
     public static final short OP_ADD_BACKEND = 50;
     public static final short OP_DROP_BACKEND = 51;
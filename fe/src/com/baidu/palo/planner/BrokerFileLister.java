@@ -0,0 +1,285 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.analysis.BrokerDesc;
+import com.baidu.palo.catalog.BrokerMgr;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.ClientPool;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.InternalException;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
+import com.baidu.palo.service.FrontendOptions;
+import com.baidu.palo.thrift.TBrokerFileStatus;
+import com.baidu.palo.thrift.TBrokerListPathRequest;
+import com.baidu.palo.thrift.TBrokerListResponse;
+import com.baidu.palo.thrift.TBrokerOperationStatusCode;
+import com.baidu.palo.thrift.TBrokerVersion;
+import com.baidu.palo.thrift.TNetworkAddress;
+import com.baidu.palo.thrift.TPaloBrokerService;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.thrift.TException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * List files of broker paths for load planning.
+ *
+ * Paths under the same parent directory are merged into one glob pattern (eg. /a/{b,c}),
+ * so that they are listed in one broker call. Patterns are listed concurrently in a bounded pool,
+ * and the result is cached for a short while, so that retries and multi-table loads which reference
+ * the same paths do not list them again.
+ */
+public class BrokerFileLister {
+    private static final Logger LOG = LogManager.getLogger(BrokerFileLister.class);
+
+    // characters which have special meaning in a hadoop glob pattern
+    private static final String GLOB_SPECIAL_CHARS = "*?[]{}\\,";
+    // Maximal number of paths merged into one glob pattern
+    private static final int MAX_MERGED_PATH_NUM = 256;
+    private static final long MAX_CACHE_SIZE = 10000;
+
+    private static final ExecutorService EXECUTOR =
+            ThreadPoolManager.newFixedThreadPool("broker-list-path", Config.broker_list_path_thread_num,
+                                                 ThreadPoolManager.UNBOUNDED_QUEUE, RejectPolicy.ABORT);
+
+    // (broker, path pattern, properties, with block locations) => files
+    private static final Cache<ListPathKey, List<TBrokerFileStatus>> LIST_PATH_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE)
+            .expireAfterWrite(Math.max(0, Config.broker_list_path_cache_expire_second), TimeUnit.SECONDS)
+            .build();
+
+    // a listing without block locations can not be used by the ones need them
+    static class ListPathKey {
+        private final String brokerName;
+        private final String path;
+        private final Map<String, String> properties;
+        private final boolean fileBlockLocations;
+
+        public ListPathKey(String brokerName, String path, Map<String, String> properties,
+                           boolean fileBlockLocations) {
+            this.brokerName = brokerName;
+            this.path = path;
+            this.properties = properties == null ? Maps.<String, String>newHashMap() : Maps.newHashMap(properties);
+            this.fileBlockLocations = fileBlockLocations;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ListPathKey)) {
+                return false;
+            }
+            ListPathKey other = (ListPathKey) obj;
+            return brokerName.equals(other.brokerName) && path.equals(other.path)
+                    && properties.equals(other.properties) && fileBlockLocations == other.fileBlockLocations;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(brokerName, path, properties, fileBlockLocations);
+        }
+    }
+
+    private final BrokerDesc brokerDesc;
+
+    public BrokerFileLister(BrokerDesc brokerDesc) {
+        this.brokerDesc = brokerDesc;
+    }
+
+    // Return the files (not directories) of each group of paths, in the same order of 'pathGroups'.
+    public List<List<TBrokerFileStatus>> listFiles(List<List<String>> pathGroups) throws InternalException {
+        List<List<Future<List<TBrokerFileStatus>>>> futureGroups = Lists.newArrayList();
+        for (List<String> paths : pathGroups) {
+            List<Future<List<TBrokerFileStatus>>> futures = Lists.newArrayList();
+            for (final String pattern : mergePaths(paths)) {
+                futures.add(EXECUTOR.submit(new Callable<List<TBrokerFileStatus>>() {
+                    @Override
+                    public List<TBrokerFileStatus> call() throws Exception {
+                        return listPathWithCache(pattern);
+                    }
+                }));
+            }
+            futureGroups.add(futures);
+        }
+
+        List<List<TBrokerFileStatus>> result = Lists.newArrayList();
+        for (List<Future<List<TBrokerFileStatus>>> futures : futureGroups) {
+            List<TBrokerFileStatus> fileStatuses = Lists.newArrayList();
+            for (Future<List<TBrokerFileStatus>> future : futures) {
+                fileStatuses.addAll(getResult(future));
+            }
+            result.add(fileStatuses);
+        }
+        return result;
+    }
+
+    private List<TBrokerFileStatus> getResult(Future<List<TBrokerFileStatus>> future) throws InternalException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new InternalException("Interrupted when list broker path.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InternalException) {
+                throw (InternalException) e.getCause();
+            }
+            LOG.warn("list broker path failed.", e);
+            throw new InternalException("List broker path failed. msg=" + e.getCause().getMessage());
+        }
+    }
+
+    private List<TBrokerFileStatus> listPathWithCache(String path) throws InternalException {
+        // read config once, so that the cached listing matches its key
+        boolean fileBlockLocations = Config.enable_broker_load_locality;
+        ListPathKey key = new ListPathKey(brokerDesc.getName(), path, brokerDesc.getProperties(), fileBlockLocations);
+        if (Config.broker_list_path_cache_expire_second > 0) {
+            List<TBrokerFileStatus> fileStatuses = LIST_PATH_CACHE.getIfPresent(key);
+            if (fileStatuses != null) {
+                LOG.debug("hit broker list path cache. path={}", path);
+                return fileStatuses;
+            }
+        }
+
+        List<TBrokerFileStatus> fileStatuses = ImmutableList.copyOf(listPath(path, fileBlockLocations));
+        if (Config.broker_list_path_cache_expire_second > 0) {
+            LIST_PATH_CACHE.put(key, fileStatuses);
+        }
+        return fileStatuses;
+    }
+
+    private List<TBrokerFileStatus> listPath(String path, boolean fileBlockLocations) throws InternalException {
+        BrokerMgr.BrokerAddress brokerAddress = null;
+        try {
+            String localIP = FrontendOptions.getLocalHostAddress();
+            brokerAddress = Catalog.getInstance().getBrokerMgr().getBroker(brokerDesc.getName(), localIP);
+        } catch (AnalysisException e) {
+            throw new InternalException(e.getMessage());
+        }
+        TNetworkAddress address = new TNetworkAddress(brokerAddress.ip, brokerAddress.port);
+        TPaloBrokerService.Client client = null;
+        try {
+            client = ClientPool.brokerPool.borrowObject(address);
+        } catch (Exception e) {
+            try {
+                client = ClientPool.brokerPool.borrowObject(address);
+            } catch (Exception e1) {
+                throw new InternalException("Create connection to broker(" + address + ") failed.");
+            }
+        }
+        List<TBrokerFileStatus> fileStatuses = Lists.newArrayList();
+        boolean failed = true;
+        try {
+            TBrokerListPathRequest request = new TBrokerListPathRequest(
+                    TBrokerVersion.VERSION_ONE, path, false, brokerDesc.getProperties());
+            // block locations are used to assign scan ranges to backends near the data
+            request.setFileBlockLocations(fileBlockLocations);
+            TBrokerListResponse tBrokerListResponse = null;
+            try {
+                tBrokerListResponse = client.listPath(request);
+            } catch (TException e) {
+                ClientPool.brokerPool.reopen(client);
+                tBrokerListResponse = client.listPath(request);
+            }
+            if (tBrokerListResponse.getOpStatus().getStatusCode() != TBrokerOperationStatusCode.OK) {
+                throw new InternalException("Broker list path failed.path=" + path
+                        + ",broker=" + address + ",msg=" + tBrokerListResponse.getOpStatus().getMessage());
+            }
+            failed = false;
+            for (TBrokerFileStatus tBrokerFileStatus : tBrokerListResponse.getFiles()) {
+                if (tBrokerFileStatus.isDir) {
+                    continue;
+                }
+                fileStatuses.add(tBrokerFileStatus);
+            }
+        } catch (TException e) {
+            LOG.warn("Broker list path exception, path={}, address={}, exception={}", path, address, e);
+            throw new InternalException("Broker list path exception.path=" + path + ",broker=" + address);
+        } finally {
+            if (failed) {
+                ClientPool.brokerPool.invalidateObject(address, client);
+            } else {
+                ClientPool.brokerPool.returnObject(address, client);
+            }
+        }
+        return fileStatuses;
+    }
+
+    // Merge paths which have the same parent directory into one glob pattern.
+    // eg. [/a/b, /a/c, /d/*] => [/a/{b,c}, /d/*]
+    // Paths which contains glob special characters in the file name are kept as they are.
+    public static List<String> mergePaths(List<String> paths) {
+        List<String> result = Lists.newArrayList();
+        // parent => file names, keep the order of paths
+        Map<String, List<String>> namesByParent = Maps.newLinkedHashMap();
+        for (String path : paths) {
+            int idx = path.lastIndexOf('/');
+            String name = path.substring(idx + 1);
+            if (idx <= 0 || name.isEmpty() || hasGlobSpecialChar(name)) {
+                result.add(path);
+                continue;
+            }
+            String parent = path.substring(0, idx + 1);
+            List<String> names = namesByParent.get(parent);
+            if (names == null) {
+                names = Lists.newArrayList();
+                namesByParent.put(parent, names);
+            }
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+
+        for (Map.Entry<String, List<String>> entry : namesByParent.entrySet()) {
+            for (List<String> names : Lists.partition(entry.getValue(), MAX_MERGED_PATH_NUM)) {
+                if (names.size() == 1) {
+                    result.add(entry.getKey() + names.get(0));
+                } else {
+                    result.add(entry.getKey() + "{" + Joiner.on(",").join(names) + "}");
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasGlobSpecialChar(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (GLOB_SPECIAL_CHARS.indexOf(name.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
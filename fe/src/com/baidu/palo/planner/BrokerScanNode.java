@@ -39,26 +39,20 @@ import com.baidu.palo.catalog.ScalarType;
 import com.baidu.palo.catalog.Table;
 import com.baidu.palo.catalog.Type;
 import com.baidu.palo.common.AnalysisException;
-import com.baidu.palo.common.ClientPool;
 import com.baidu.palo.common.Config;
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.load.BrokerFileGroup;
-import com.baidu.palo.service.FrontendOptions;
 import com.baidu.palo.system.Backend;
+import com.baidu.palo.thrift.TBrokerBlockLocation;
 import com.baidu.palo.thrift.TBrokerFileStatus;
-import com.baidu.palo.thrift.TBrokerListPathRequest;
-import com.baidu.palo.thrift.TBrokerListResponse;
-import com.baidu.palo.thrift.TBrokerOperationStatusCode;
 import com.baidu.palo.thrift.TBrokerRangeDesc;
 import com.baidu.palo.thrift.TBrokerScanNode;
 import com.baidu.palo.thrift.TBrokerScanRange;
 import com.baidu.palo.thrift.TBrokerScanRangeParams;
-import com.baidu.palo.thrift.TBrokerVersion;
 import com.baidu.palo.thrift.TExplainLevel;
 import com.baidu.palo.thrift.TFileFormatType;
 import com.baidu.palo.thrift.TFileType;
 import com.baidu.palo.thrift.TNetworkAddress;
-import com.baidu.palo.thrift.TPaloBrokerService;
 import com.baidu.palo.thrift.TPlanNode;
 import com.baidu.palo.thrift.TPlanNodeType;
 import com.baidu.palo.thrift.TScanRange;
@@ -71,7 +65,6 @@ import com.google.common.collect.Maps;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.thrift.TException;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -121,6 +114,8 @@ public class BrokerScanNode extends ScanNode {
     // Only used for external table in select statement
     private ArrayList<Backend> backends;
     private int nextBe = 0;
+    // host => alive backends on this host, used to find backends near the data
+    private Map<String, List<Backend>> hostToBackends;
 
     private Analyzer analyzer;
 
@@ -436,19 +431,34 @@ public class BrokerScanNode extends ScanNode {
 
     private TScanRangeLocations newLocations(TBrokerScanRangeParams params, String brokerName)
             throws InternalException {
+        return newLocations(params, brokerName, null);
+    }
+
+    // The first backend executes the scan range, and the others are used if it fails.
+    // localBe is the backend near the data which is put first, or null if there is none.
+    private TScanRangeLocations newLocations(TBrokerScanRangeParams params, String brokerName, Backend localBe)
+            throws InternalException {
         List<Backend> candidateBes = Lists.newArrayList();
+        if (localBe != null) {
+            candidateBes.add(localBe);
+        }
         // Get backend
         int numBe = Math.min(3, backends.size());
-        for (int i = 0; i < numBe; ++i) {
-            candidateBes.add(backends.get(nextBe++));
+        for (int i = 0; i < backends.size() && candidateBes.size() < numBe; ++i) {
+            Backend be = backends.get(nextBe++);
             nextBe = nextBe % backends.size();
+            if (localBe != null && be.getId() == localBe.getId()) {
+                continue;
+            }
+            candidateBes.add(be);
         }
 
         // Generate on broker scan range
         TBrokerScanRange brokerScanRange = new TBrokerScanRange();
         brokerScanRange.setParams(params);
         // TODO(zc):
-        int numBroker = Math.min(3, numBe);
+        // broker on the same host of backend will be preferred
+        int numBroker = Math.min(3, candidateBes.size());
         for (int i = 0; i < numBroker; ++i) {
             BrokerMgr.BrokerAddress brokerAddress = null;
             try {
@@ -481,67 +491,17 @@ public class BrokerScanNode extends ScanNode {
         return locations.scan_range.broker_scan_range;
     }
 
-    private void parseBrokerFile(String path, ArrayList<TBrokerFileStatus> fileStatuses) throws InternalException {
-        BrokerMgr.BrokerAddress brokerAddress = null;
-        try {
-            String localIP = FrontendOptions.getLocalHostAddress();
-            brokerAddress = Catalog.getInstance().getBrokerMgr().getBroker(brokerDesc.getName(), localIP);
-        } catch (AnalysisException e) {
-            throw new InternalException(e.getMessage());
-        }
-        TNetworkAddress address = new TNetworkAddress(brokerAddress.ip, brokerAddress.port);
-        TPaloBrokerService.Client client = null;
-        try {
-            client  = ClientPool.brokerPool.borrowObject(address);
-        } catch (Exception e) {
-            try {
-                client  = ClientPool.brokerPool.borrowObject(address);
-            } catch (Exception e1) {
-                throw new InternalException("Create connection to broker(" + address + ") failed.");
-            }
-        }
-        boolean failed = true;
-        try {
-            TBrokerListPathRequest request = new TBrokerListPathRequest(
-                    TBrokerVersion.VERSION_ONE, path, false, brokerDesc.getProperties());
-            TBrokerListResponse tBrokerListResponse = null;
-            try {
-                tBrokerListResponse = client.listPath(request);
-            } catch (TException e) {
-                ClientPool.brokerPool.reopen(client);
-                tBrokerListResponse = client.listPath(request);
-            }
-            if (tBrokerListResponse.getOpStatus().getStatusCode() != TBrokerOperationStatusCode.OK) {
-                throw new InternalException("Broker list path failed.path=" + path
-                        + ",broker=" + address + ",msg=" + tBrokerListResponse.getOpStatus().getMessage());
-            }
-            failed = false;
-            for (TBrokerFileStatus tBrokerFileStatus : tBrokerListResponse.getFiles()) {
-                if (tBrokerFileStatus.isDir) {
-                    continue;
-                }
-                fileStatuses.add(tBrokerFileStatus);
-            }
-        } catch (TException e) {
-            LOG.warn("Broker list path exception, path={}, address={}, exception={}", path, address, e);
-            throw new InternalException("Broker list path exception.path=" + path + ",broker=" + address);
-        } finally {
-            if (failed) {
-                ClientPool.brokerPool.invalidateObject(address, client);
-            } else {
-                ClientPool.brokerPool.returnObject(address, client);
-            }
-        }
-    }
-
     private void getAllBrokerFileStatus() throws InternalException {
         int filesAdded = 0;
         fileStatusesList = Lists.newArrayList();
+        List<List<String>> pathGroups = Lists.newArrayList();
         for (BrokerFileGroup fileGroup : fileGroups) {
-            ArrayList<TBrokerFileStatus> fileStatuses = Lists.newArrayList();
-            for (String path : fileGroup.getFilePathes()) {
-                parseBrokerFile(path, fileStatuses);
-            }
+            pathGroups.add(fileGroup.getFilePathes());
+        }
+        // list all paths of all file groups concurrently
+        List<List<TBrokerFileStatus>> listResult = new BrokerFileLister(brokerDesc).listFiles(pathGroups);
+        for (List<TBrokerFileStatus> groupFileStatuses : listResult) {
+            ArrayList<TBrokerFileStatus> fileStatuses = Lists.newArrayList(groupFileStatuses);
             fileStatusesList.add(fileStatuses);
             filesAdded += fileStatuses.size();
             for (TBrokerFileStatus fstatus : fileStatuses) {
@@ -580,6 +540,16 @@ public class BrokerScanNode extends ScanNode {
             throw new InternalException("No Alive backends");
         }
         Collections.shuffle(backends, random);
+
+        hostToBackends = Maps.newHashMap();
+        for (Backend be : backends) {
+            List<Backend> hostBackends = hostToBackends.get(be.getHost());
+            if (hostBackends == null) {
+                hostBackends = Lists.newArrayList();
+                hostToBackends.put(be.getHost(), hostBackends);
+            }
+            hostBackends.add(be);
+        }
     }
 
     private TFileFormatType formatType(String path) {
@@ -597,6 +567,149 @@ public class BrokerScanNode extends ScanNode {
         }
     }
 
+    // A part of file which will be read by one range
+    private static class FileSplit {
+        public TBrokerFileStatus fileStatus;
+        public TFileFormatType formatType;
+        public long offset;
+        public long length;
+        // hosts which hold the data of this split, may be empty
+        public List<String> hosts;
+
+        public FileSplit(TBrokerFileStatus fileStatus, TFileFormatType formatType,
+                         long offset, long length, List<String> hosts) {
+            this.fileStatus = fileStatus;
+            this.formatType = formatType;
+            this.offset = offset;
+            this.length = length;
+            this.hosts = hosts;
+        }
+    }
+
+    private boolean hasBlockLocations(List<TBrokerFileStatus> fileStatuses) {
+        for (TBrokerFileStatus fileStatus : fileStatuses) {
+            if (fileStatus.isSetBlockLocations() && !fileStatus.getBlockLocations().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Split files on block boundaries. Blocks larger than bytesPerInstance are split further.
+    // Files which can not be split are kept as one split, located at the hosts of its first block.
+    private List<FileSplit> getFileSplits(List<TBrokerFileStatus> fileStatuses) {
+        List<FileSplit> splits = Lists.newArrayList();
+        for (TBrokerFileStatus fileStatus : fileStatuses) {
+            TFileFormatType formatType = formatType(fileStatus.path);
+            List<TBrokerBlockLocation> blocks = fileStatus.isSetBlockLocations()
+                    ? fileStatus.getBlockLocations() : null;
+            if (blocks == null || blocks.isEmpty()) {
+                splits.add(new FileSplit(fileStatus, formatType, 0, fileStatus.size, new ArrayList<String>()));
+                continue;
+            }
+            // Now only support split plain text
+            if (formatType != TFileFormatType.FORMAT_CSV_PLAIN || !fileStatus.isSplitable) {
+                splits.add(new FileSplit(fileStatus, formatType, 0, fileStatus.size, blocks.get(0).getHosts()));
+                continue;
+            }
+            for (TBrokerBlockLocation block : blocks) {
+                long offset = block.getOffset();
+                long end = Math.min(block.getOffset() + block.getLength(), fileStatus.size);
+                while (offset < end) {
+                    long length = Math.min(end - offset, bytesPerInstance);
+                    splits.add(new FileSplit(fileStatus, formatType, offset, length, block.getHosts()));
+                    offset += length;
+                }
+            }
+        }
+        return splits;
+    }
+
+    // Assign splits to backends on the same host as the data, and balance the bytes among them.
+    // Splits which have no backend nearby are assigned as usual.
+    private void processFileGroupWithLocality(
+            TBrokerScanRangeParams params,
+            ArrayList<TBrokerFileStatus> fileStatuses)
+            throws InternalException {
+        // backend id => bytes assigned to it
+        Map<Long, Long> assignedBytes = Maps.newHashMap();
+        // backend id => locations being filled
+        Map<Long, TScanRangeLocations> curLocationsByBe = Maps.newHashMap();
+        Map<Long, Long> curBytesByBe = Maps.newHashMap();
+        TScanRangeLocations curRemoteLocations = null;
+        long curRemoteBytes = 0;
+        int localSplitNum = 0;
+
+        List<FileSplit> splits = getFileSplits(fileStatuses);
+        for (FileSplit split : splits) {
+            Backend localBe = null;
+            for (String host : split.hosts) {
+                List<Backend> hostBackends = hostToBackends.get(host);
+                if (hostBackends == null) {
+                    continue;
+                }
+                for (Backend be : hostBackends) {
+                    if (localBe == null || getOrZero(assignedBytes, be.getId())
+                            < getOrZero(assignedBytes, localBe.getId())) {
+                        localBe = be;
+                    }
+                }
+            }
+
+            TBrokerRangeDesc rangeDesc = new TBrokerRangeDesc();
+            rangeDesc.setFile_type(TFileType.FILE_BROKER);
+            rangeDesc.setFormat_type(split.formatType);
+            rangeDesc.setPath(split.fileStatus.path);
+            rangeDesc.setSplittable(split.fileStatus.isSplitable);
+            rangeDesc.setStart_offset(split.offset);
+            rangeDesc.setSize(split.length);
+
+            if (localBe == null) {
+                if (curRemoteLocations == null) {
+                    curRemoteLocations = newLocations(params, brokerDesc.getName());
+                }
+                brokerScanRange(curRemoteLocations).addToRanges(rangeDesc);
+                curRemoteBytes += split.length;
+                if (curRemoteBytes >= bytesPerInstance) {
+                    locationsList.add(curRemoteLocations);
+                    curRemoteLocations = null;
+                    curRemoteBytes = 0;
+                }
+                continue;
+            }
+
+            localSplitNum++;
+            long beId = localBe.getId();
+            assignedBytes.put(beId, getOrZero(assignedBytes, beId) + split.length);
+            TScanRangeLocations curLocations = curLocationsByBe.get(beId);
+            if (curLocations == null) {
+                curLocations = newLocations(params, brokerDesc.getName(), localBe);
+                curLocationsByBe.put(beId, curLocations);
+            }
+            brokerScanRange(curLocations).addToRanges(rangeDesc);
+            long curBytes = getOrZero(curBytesByBe, beId) + split.length;
+            if (curBytes >= bytesPerInstance) {
+                locationsList.add(curLocations);
+                curLocationsByBe.remove(beId);
+                curBytesByBe.remove(beId);
+            } else {
+                curBytesByBe.put(beId, curBytes);
+            }
+        }
+
+        // Put the last ranges
+        locationsList.addAll(curLocationsByBe.values());
+        if (curRemoteLocations != null) {
+            locationsList.add(curRemoteLocations);
+        }
+        LOG.info("{} of {} splits are assigned to local backends.", localSplitNum, splits.size());
+    }
+
+    private static long getOrZero(Map<Long, Long> map, long key) {
+        Long value = map.get(key);
+        return value == null ? 0 : value;
+    }
+
     private void processFileGroup(
             TBrokerScanRangeParams params,
             ArrayList<TBrokerFileStatus> fileStatuses)
@@ -605,6 +718,11 @@ public class BrokerScanNode extends ScanNode {
             return;
         }
 
+        if (Config.enable_broker_load_locality && hasBlockLocations(fileStatuses)) {
+            processFileGroupWithLocality(params, fileStatuses);
+            return;
+        }
+
         TScanRangeLocations curLocations = newLocations(params, brokerDesc.getName());
         long curInstanceBytes = 0;
         long curFileOffset = 0;
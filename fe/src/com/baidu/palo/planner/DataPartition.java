@@ -56,8 +56,9 @@ public class DataPartition {
     public DataPartition(TPartitionType type, List<Expr> exprs) {
         Preconditions.checkNotNull(exprs);
         Preconditions.checkState(!exprs.isEmpty());
-        Preconditions.checkState(
-          type == TPartitionType.HASH_PARTITIONED || type == TPartitionType.RANGE_PARTITIONED);
+        Preconditions.checkState(type == TPartitionType.HASH_PARTITIONED
+                || type == TPartitionType.RANGE_PARTITIONED
+                || type == TPartitionType.BUCKET_SHUFFLE_HASH_PARTITIONED);
         this.type = type;
         this.partitionExprs = ImmutableList.copyOf(exprs);
     }
@@ -25,8 +25,13 @@ import com.baidu.palo.analysis.Expr;
 import com.baidu.palo.analysis.InsertStmt;
 import com.baidu.palo.analysis.JoinOperator;
 import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.analysis.SlotDescriptor;
+import com.baidu.palo.analysis.SlotRef;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.HashDistributionInfo;
 import com.baidu.palo.catalog.Table;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.thrift.TPartitionType;
@@ -187,7 +192,7 @@ public class DistributedPlanner {
         } else if (root instanceof HashJoinNode) {
             Preconditions.checkState(childFragments.size() == 2);
             result = createHashJoinFragment((HashJoinNode) root, childFragments.get(1),
-                    childFragments.get(0), perNodeMemLimit);
+                    childFragments.get(0), perNodeMemLimit, fragments);
         } else if (root instanceof CrossJoinNode) {
             result = createCrossJoinFragment((CrossJoinNode) root, childFragments.get(1),
                     childFragments.get(0));
@@ -250,8 +255,8 @@ public class DistributedPlanner {
 
     /**
      * Create new randomly-partitioned fragment containing a single scan node.
-     * TODO: take bucketing into account to produce a naturally hash-partitioned
-     * fragment
+     * If the scan node reads bucketed olap data, it is recorded in the fragment, so that
+     * joins on the distribution columns can be executed without exchanging the data of this side.
      * TODO: hbase scans are range-partitioned on the row key
      */
     private PlanFragment createScanFragment(PlanNode node) {
@@ -260,10 +265,114 @@ public class DistributedPlanner {
         } else if (node instanceof SchemaScanNode) {
             return new PlanFragment(ctx_.getNextFragmentId(), node, DataPartition.UNPARTITIONED);
         } else {
-            return new PlanFragment(ctx_.getNextFragmentId(), node, DataPartition.RANDOM);
+            PlanFragment fragment = new PlanFragment(ctx_.getNextFragmentId(), node, DataPartition.RANDOM);
+            if (node instanceof OlapScanNode && ((OlapScanNode) node).getBucketDistribution() != null) {
+                fragment.addBucketScanNodes(Lists.newArrayList((OlapScanNode) node));
+            }
+            return fragment;
         }
     }
 
+    /**
+     * Return the eq join conjuncts ordered by the distribution columns of 'scanNode' of the left side,
+     * or null if they do not cover all distribution columns.
+     * The lhs expr must be the slot of the distribution column, and the rhs expr must have the same type,
+     * so that both are hashed to the same bucket.
+     */
+    private List<Pair<Expr, Expr>> getBucketJoinConjuncts(HashJoinNode node, OlapScanNode scanNode) {
+        List<Pair<Expr, Expr>> result = Lists.newArrayList();
+        for (Column column : scanNode.getBucketDistribution().getDistributionColumns()) {
+            Pair<Expr, Expr> bucketConjunct = null;
+            for (Pair<Expr, Expr> pair : node.getEqJoinConjuncts()) {
+                if (isSlotOfColumn(pair.first, scanNode, column)
+                        && pair.second.getType().getPrimitiveType() == column.getDataType()) {
+                    bucketConjunct = pair;
+                    break;
+                }
+            }
+            if (bucketConjunct == null) {
+                return null;
+            }
+            result.add(bucketConjunct);
+        }
+        return result;
+    }
+
+    private boolean isSlotOfColumn(Expr expr, OlapScanNode scanNode, Column column) {
+        if (!(expr instanceof SlotRef)) {
+            return false;
+        }
+        SlotDescriptor slotDesc = ((SlotRef) expr).getDesc();
+        return slotDesc.getParent().getId().equals(scanNode.getTupleIds().get(0))
+                && slotDesc.getColumn() != null
+                && slotDesc.getColumn().getName().equalsIgnoreCase(column.getName());
+    }
+
+    /**
+     * Return true if the join can be executed in the left fragment without exchanging data, which requires
+     * - both sides are bucketed on the join exprs, with the same number of buckets
+     * - the buckets of the same sequence of both sides have replicas on the same backend
+     */
+    private boolean canColocateJoin(HashJoinNode node, PlanFragment leftChildFragment,
+                                    PlanFragment rightChildFragment) {
+        for (OlapScanNode leftScanNode : leftChildFragment.getBucketScanNodes()) {
+            List<Pair<Expr, Expr>> conjuncts = getBucketJoinConjuncts(node, leftScanNode);
+            if (conjuncts == null) {
+                continue;
+            }
+            HashDistributionInfo leftDistribution = leftScanNode.getBucketDistribution();
+            for (OlapScanNode rightScanNode : rightChildFragment.getBucketScanNodes()) {
+                HashDistributionInfo rightDistribution = rightScanNode.getBucketDistribution();
+                if (rightDistribution.getBucketNum() != leftDistribution.getBucketNum()
+                        || rightDistribution.getDistributionColumns().size() != conjuncts.size()) {
+                    continue;
+                }
+                boolean matched = true;
+                for (int i = 0; i < conjuncts.size(); i++) {
+                    if (!isSlotOfColumn(conjuncts.get(i).second, rightScanNode,
+                            rightDistribution.getDistributionColumns().get(i))) {
+                        matched = false;
+                        break;
+                    }
+                }
+                if (!matched) {
+                    continue;
+                }
+                List<OlapScanNode> scanNodes = Lists.newArrayList(leftChildFragment.getBucketScanNodes());
+                scanNodes.addAll(rightChildFragment.getBucketScanNodes());
+                if (PlanFragment.getBucketSeqToBackendIds(scanNodes) != null) {
+                    return true;
+                }
+                LOG.debug("replicas of tables are not colocated, table={}, {}",
+                        leftScanNode.getOlapTable().getName(), rightScanNode.getOlapTable().getName());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the right side join exprs ordered by the distribution columns of a bucket scan node of
+     * the left fragment, by which the right side can be shuffled to the buckets of the left side,
+     * or null if there is no such scan node.
+     */
+    private List<Expr> getBucketShuffleExprs(HashJoinNode node, PlanFragment leftChildFragment) {
+        if (PlanFragment.getBucketSeqToBackendIds(leftChildFragment.getBucketScanNodes()) == null) {
+            return null;
+        }
+        for (OlapScanNode leftScanNode : leftChildFragment.getBucketScanNodes()) {
+            List<Pair<Expr, Expr>> conjuncts = getBucketJoinConjuncts(node, leftScanNode);
+            if (conjuncts == null) {
+                continue;
+            }
+            List<Expr> rhsExprs = Lists.newArrayList();
+            for (Pair<Expr, Expr> pair : conjuncts) {
+                rhsExprs.add(pair.second.clone(null));
+            }
+            return rhsExprs;
+        }
+        return null;
+    }
+
     /**
      * Creates either a broadcast join or a repartitioning join, depending on the expected cost. If any of the inputs to
      * the cost computation is unknown, it assumes the cost will be 0. Costs being equal, it'll favor partitioned over
@@ -272,7 +381,8 @@ public class DistributedPlanner {
      * don't create a broadcast join if we already anticipate that this will exceed the query's memory budget.
      */
     private PlanFragment createHashJoinFragment(HashJoinNode node, PlanFragment rightChildFragment,
-                                                PlanFragment leftChildFragment, long perNodeMemLimit)
+                                                PlanFragment leftChildFragment, long perNodeMemLimit,
+                                                ArrayList<PlanFragment> fragments)
             throws InternalException {
         // broadcast: send the rightChildFragment's output to each node executing
         // the leftChildFragment; the cost across all nodes is proportional to the
@@ -329,6 +439,46 @@ public class DistributedPlanner {
             doBroadcast = false;
         }
 
+        // colocate and bucket shuffle joins are not used if join is specified by hint, or if they save
+        // little data exchange compared with the join chosen above, which does not bind instances to buckets
+        boolean hasJoinHint = node.getInnerRef().isBroadcastJoin() || node.getInnerRef().isPartitionJoin();
+        long exchangeCost = doBroadcast ? broadcastCost : partitionCost;
+        if (!hasJoinHint && Config.enable_colocate_join
+                && exchangeCost >= Config.bucket_join_min_saved_exchange_bytes
+                && canColocateJoin(node, leftChildFragment, rightChildFragment)) {
+            node.setDistributionMode(HashJoinNode.DistributionMode.COLOCATE);
+            // Merge the rightChildFragment into leftChildFragment, both inputs of join are
+            // scanned by the same instance bucket by bucket
+            node.setChild(0, leftChildFragment.getPlanRoot());
+            node.setChild(1, rightChildFragment.getPlanRoot());
+            leftChildFragment.setPlanRoot(node);
+            for (PlanFragment child : rightChildFragment.getChildren()) {
+                leftChildFragment.addChild(child);
+            }
+            leftChildFragment.addBucketScanNodes(rightChildFragment.getBucketScanNodes());
+            leftChildFragment.setBucketAssignment(true);
+            fragments.remove(rightChildFragment);
+            return leftChildFragment;
+        }
+
+        List<Expr> rhsBucketExprs = null;
+        // the right side is still sent once in bucket shuffle join
+        if (!hasJoinHint && Config.enable_bucket_shuffle_join
+                && exchangeCost - rhsDataSize >= Config.bucket_join_min_saved_exchange_bytes) {
+            rhsBucketExprs = getBucketShuffleExprs(node, leftChildFragment);
+        }
+        if (rhsBucketExprs != null) {
+            node.setDistributionMode(HashJoinNode.DistributionMode.BUCKET_SHUFFLE);
+            // the right side is shuffled to the instances which scan the buckets of the left side
+            node.setChild(0, leftChildFragment.getPlanRoot());
+            connectChildFragment(node, 1, leftChildFragment, rightChildFragment);
+            leftChildFragment.setPlanRoot(node);
+            rightChildFragment.setOutputPartition(
+                    new DataPartition(TPartitionType.BUCKET_SHUFFLE_HASH_PARTITIONED, rhsBucketExprs));
+            leftChildFragment.setBucketAssignment(true);
+            return leftChildFragment;
+        }
+
         if (doBroadcast) {
             node.setDistributionMode(HashJoinNode.DistributionMode.BROADCAST);
             // Doesn't create a new fragment, but modifies leftChildFragment to execute
@@ -19,7 +19,7 @@ import com.baidu.palo.analysis.InPredicate;
 import com.baidu.palo.analysis.LiteralExpr;
 import com.baidu.palo.analysis.SlotRef;
 import com.baidu.palo.catalog.Column;
-import com.baidu.palo.catalog.PartitionKey;
+import com.baidu.palo.common.Config;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -27,11 +27,21 @@ import com.google.common.collect.Sets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.CRC32;
 
+/*
+ * Prune buckets by the equal and IN predicates on distribution columns.
+ *
+ * The hash value of a bucket key is the CRC32 of the serialized value of each column, same as
+ * PartitionKey.getHashValue(). Each value is serialized only once, and every combination of
+ * values is hashed, until all buckets are selected.
+ */
 public class HashDistributionPruner implements DistributionPruner {
     private static final Logger LOG = LogManager.getLogger(HashDistributionPruner.class);
 
@@ -51,63 +61,88 @@ public class HashDistributionPruner implements DistributionPruner {
         this.hashMod = hashMod;
     }
 
-    // columnId: which column to compute
-    // hashKey: the key which to compute hash value
-    public Collection<Long> prune(int columnId, PartitionKey hashKey, int complex) {
-        if (columnId == partitionColumns.size()) {
-            // compute Hash Key
-            long hashValue = hashKey.getHashValue();
-            return Lists.newArrayList(
-                    partitionList.get((int) ((hashValue & 0xffffffff) % hashMod)));
-        }
-        Column keyColumn = partitionColumns.get(columnId);
+    // Return the distinct serialized values of the column, or null if the column can not be pruned.
+    private List<byte[]> getColumnValues(Column keyColumn) {
         PartitionColumnFilter filter = partitionColumnFilters.get(keyColumn.getName());
         if (null == filter) {
-            // no filter in this column, no partition Key
-            // return all subPartition
-            return Lists.newArrayList(partitionList);
+            return null;
         }
+        List<LiteralExpr> literals = Lists.newArrayList();
         InPredicate inPredicate = filter.getInPredicate();
-        if (null == inPredicate || inPredicate.getChildren().size() * complex > 100) {
-            // equal one value
-            if (filter.lowerBoundInclusive && filter.upperBoundInclusive
-                    && filter.lowerBound != null && filter.upperBound != null
-                    && 0 == filter.lowerBound.compareLiteral(filter.upperBound)) {
-                hashKey.pushColumn(filter.lowerBound, keyColumn.getDataType());
-                Collection<Long> result = prune(columnId + 1, hashKey, complex);
-                hashKey.popColumn();
-                return result;
-            }
-            // return all SubPartition
-            return Lists.newArrayList(partitionList);
-        }
-        
         if (null != inPredicate) {
-            if (! (inPredicate.getChild(0) instanceof SlotRef)) {
-                // return all SubPartition
-                return Lists.newArrayList(partitionList);
+            if (!(inPredicate.getChild(0) instanceof SlotRef)) {
+                return null;
             }
+            for (int i = 1; i < inPredicate.getChildren().size(); ++i) {
+                if (!(inPredicate.getChild(i) instanceof LiteralExpr)) {
+                    return null;
+                }
+                literals.add((LiteralExpr) inPredicate.getChild(i));
+            }
+        } else if (filter.lowerBoundInclusive && filter.upperBoundInclusive
+                && filter.lowerBound != null && filter.upperBound != null
+                && 0 == filter.lowerBound.compareLiteral(filter.upperBound)) {
+            // equal one value
+            literals.add(filter.lowerBound);
+        } else {
+            return null;
         }
-        Set<Long> resultSet = Sets.newHashSet();
-        int childrenNum = inPredicate.getChildren().size();
-        int newComplex = inPredicate.getChildren().size() * complex;
-        for (int i = 1; i < childrenNum; ++i) {
-            LiteralExpr expr = (LiteralExpr) inPredicate.getChild(i);
-            hashKey.pushColumn(expr, keyColumn.getDataType());
-            Collection<Long> subList = prune(columnId + 1, hashKey, newComplex);
-            for (Long subPartitionId : subList) {
-                resultSet.add(subPartitionId);
+
+        Set<ByteBuffer> distinctValues = Sets.newLinkedHashSet();
+        for (LiteralExpr literal : literals) {
+            ByteBuffer buffer = literal.getHashValue(keyColumn.getDataType());
+            distinctValues.add(ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.limit())));
+        }
+        List<byte[]> values = Lists.newArrayListWithCapacity(distinctValues.size());
+        for (ByteBuffer value : distinctValues) {
+            values.add(value.array());
+        }
+        return values;
+    }
+
+    // columnId: which column to compute
+    // key: the serialized values of columns before columnId
+    private void prune(List<List<byte[]>> columnValues, int columnId, byte[][] key, CRC32 hashValue,
+                       Set<Long> resultSet) {
+        if (columnId == columnValues.size()) {
+            hashValue.reset();
+            for (byte[] value : key) {
+                hashValue.update(value, 0, value.length);
             }
-            hashKey.popColumn();
+            resultSet.add(partitionList.get((int) ((hashValue.getValue() & 0xffffffff) % hashMod)));
+            return;
+        }
+        for (byte[] value : columnValues.get(columnId)) {
+            key[columnId] = value;
+            prune(columnValues, columnId + 1, key, hashValue, resultSet);
             if (resultSet.size() >= partitionList.size()) {
-                break;
+                return;
             }
         }
-        return resultSet;
     }
 
     public Collection<Long> prune() {
-        PartitionKey hashKey = new PartitionKey();
-        return prune(0, hashKey, 1);
+        List<List<byte[]>> columnValues = Lists.newArrayList();
+        long combinations = 1;
+        for (Column keyColumn : partitionColumns) {
+            List<byte[]> values = getColumnValues(keyColumn);
+            if (values == null) {
+                // return all SubPartition
+                return Lists.newArrayList(partitionList);
+            }
+            combinations *= values.size();
+            if (combinations > Config.partition_prune_max_in_combinations) {
+                LOG.debug("too many value combinations of distribution columns, skip pruning.");
+                return Lists.newArrayList(partitionList);
+            }
+            columnValues.add(values);
+        }
+
+        Set<Long> resultSet = Sets.newHashSet();
+        if (combinations == 0) {
+            return resultSet;
+        }
+        prune(columnValues, 0, new byte[columnValues.size()][], new CRC32(), resultSet);
+        return resultSet;
     }
 }
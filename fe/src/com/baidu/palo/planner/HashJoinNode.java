@@ -291,7 +291,11 @@ public class HashJoinNode extends PlanNode {
     enum DistributionMode {
         NONE("NONE"),
         BROADCAST("BROADCAST"),
-        PARTITIONED("PARTITIONED");
+        PARTITIONED("PARTITIONED"),
+        // both sides are bucketed on the join exprs in the same way, and joined locally
+        COLOCATE("COLOCATE"),
+        // the right side is shuffled to the buckets of the left side
+        BUCKET_SHUFFLE("BUCKET_SHUFFLE");
 
         private final String description;
 
@@ -35,6 +35,7 @@ import com.baidu.palo.catalog.RangePartitionInfo;
 import com.baidu.palo.catalog.Replica;
 import com.baidu.palo.catalog.Tablet;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.ErrorCode;
 import com.baidu.palo.common.ErrorReport;
 import com.baidu.palo.common.InternalException;
@@ -88,6 +89,13 @@ public class OlapScanNode extends ScanNode {
     private long totalTabletsNum = 0;
     private long selectedIndexId = -1;
     private int selectedPartitionNum = 0;
+    // estimated rows and bytes scanned in the selected index
+    private long selectedIndexScanRows = 0;
+    private long selectedIndexScanBytes = 0;
+    // hash distribution of the scanned tablets, null if they are not bucketed in the same way
+    private HashDistributionInfo bucketDistribution = null;
+    // bucket sequence of each scan range in 'result'
+    private List<Integer> scanRangeBucketSeqs = Lists.newArrayList();
 
     boolean isFinalized = false;
 
@@ -138,6 +146,25 @@ public class OlapScanNode extends ScanNode {
         }
 
         isFinalized = true;
+        computeStats(analyzer);
+    }
+
+    @Override
+    protected void computeStats(Analyzer analyzer) {
+        super.computeStats(analyzer);
+        if (!isFinalized) {
+            // the scanned index is not chosen yet
+            return;
+        }
+        cardinality = selectedIndexScanRows;
+        Set<Long> backendIds = Sets.newHashSet();
+        for (TScanRangeLocations locations : result) {
+            for (TScanRangeLocation location : locations.getLocations()) {
+                backendIds.add(location.getBackend_id());
+            }
+        }
+        numNodes = Math.max(1, backendIds.size());
+        LOG.debug("stats OlapScan: cardinality={}, numNodes={}", cardinality, numNodes);
     }
 
     // private void analyzeVectorizedConjuncts(Analyzer analyzer) throws InternalException {
@@ -232,49 +259,10 @@ public class OlapScanNode extends ScanNode {
             }
         }
 
-        // 3. find all indexes which match the prefix most based on equal join columns
-        // from containTupleIndices.
-        List<MaterializedIndex> eqJoinPrefixMatchedIndexes = Lists.newArrayList();
-        maxPrefixMatchCount = 0;
-        for (MaterializedIndex index : containTupleIndexes) {
-            prefixMatchCount = 0;
-            for (Column col : olapTable.getSchemaByIndexId(index.getId())) {
-                if (eqJoinColumns.contains(col.getName()) || predicateColumns.contains(col.getName())) {
-                    prefixMatchCount++;
-                } else {
-                    break;
-                }
-            }
-            if (prefixMatchCount == maxPrefixMatchCount) {
-                LOG.debug("s3: find a equal prefix match index {}. match count: {}", index.getId(), prefixMatchCount);
-                eqJoinPrefixMatchedIndexes.add(index);
-            } else if (prefixMatchCount > maxPrefixMatchCount) {
-                LOG.debug("s3: find a better prefix match index {}. match count: {}", index.getId(), prefixMatchCount);
-                maxPrefixMatchCount = prefixMatchCount;
-                eqJoinPrefixMatchedIndexes.clear();
-                eqJoinPrefixMatchedIndexes.add(index);
-            }
-        }
+        // 3. the index to scan is chosen from them by the estimated cost, see chooseIndex()
+        List<MaterializedIndex> finalCandidateIndexes = prefixMatchedIndexes;
 
-        // 4. find the intersection of prefixMatchIndices and eqJoinPrefixMatchIndices as candidate indexes
-        List<MaterializedIndex> finalCandidateIndexes = Lists.newArrayList();
-        for (MaterializedIndex index : prefixMatchedIndexes) {
-            for (MaterializedIndex oneIndex : eqJoinPrefixMatchedIndexes) {
-                if (oneIndex.getId() == index.getId()) {
-                    finalCandidateIndexes.add(index);
-                    LOG.debug("find a matched index {} in intersection of "
-                            + "prefixMatchIndices and eqJoinPrefixMatchIndices",
-                              index.getId());
-                }
-            }
-        }
-        // maybe there is no intersection between prefixMatchIndices and eqJoinPrefixMatchIndices.
-        // in this case, use prefixMatchIndices;
-        if (finalCandidateIndexes.isEmpty()) {
-            finalCandidateIndexes = prefixMatchedIndexes;
-        }
-
-        // 5. sorted the final candidate indexes by index id
+        // 4. sorted the final candidate indexes by index id
         // this is to make sure that candidate indexes find in all partitions will be returned in same order
         Collections.sort(finalCandidateIndexes, new Comparator<MaterializedIndex>() {
             @Override
@@ -286,6 +274,106 @@ public class OlapScanNode extends ScanNode {
         return finalCandidateIndexes;
     }
 
+    /*
+     * Return the position of the index with the lowest estimated scan cost in candidate indexes.
+     * The scanned rows of an index are estimated by the predicates on the leading columns of its sort key,
+     * and the cost is the bytes of them, based on the statistics of indexes maintained by tablet reports.
+     * If the data size is not reported yet, the cost is the scanned rows multiplied by the column num.
+     * Among indexes of the same cost, the one whose sort key prefix covers more equal join and predicate columns
+     * is preferred, then the one with fewer scanned rows and columns.
+     */
+    private int chooseIndex(List<List<MaterializedIndex>> tables, int candidateTableSize) {
+        int partitionPos = -1;
+        long minCost = Long.MAX_VALUE;
+        int maxPrefixMatchCount = -1;
+        long minScanRows = Long.MAX_VALUE;
+        int minColumnNum = Integer.MAX_VALUE;
+        for (int i = 0; i < candidateTableSize; i++) {
+            long indexId = tables.get(0).get(i).getId();
+            List<Column> schema = olapTable.getSchemaByIndexId(indexId);
+            double selectivity = estimateKeyPrefixSelectivity(schema, columnFilters);
+            int prefixMatchCount = 0;
+            for (Column column : schema) {
+                if (!eqJoinColumns.contains(column.getName()) && !predicateColumns.contains(column.getName())) {
+                    break;
+                }
+                prefixMatchCount++;
+            }
+
+            long rowCount = 0;
+            long dataSize = 0;
+            for (List<MaterializedIndex> candidateTables : tables) {
+                MaterializedIndex index = candidateTables.get(i);
+                rowCount += index.getRowCount();
+                dataSize += index.getDataSize();
+            }
+
+            long scanRows = (long) (rowCount * selectivity);
+            long scanBytes = (long) (dataSize * selectivity);
+            long cost = dataSize > 0 ? scanBytes : scanRows * schema.size();
+            LOG.debug("index {}: rows={}, bytes={}, selectivity={}, cost={}, prefix match={}",
+                      indexId, rowCount, dataSize, selectivity, cost, prefixMatchCount);
+            boolean isBetter = cost < minCost;
+            if (cost == minCost) {
+                if (prefixMatchCount != maxPrefixMatchCount) {
+                    isBetter = prefixMatchCount > maxPrefixMatchCount;
+                } else if (scanRows != minScanRows) {
+                    isBetter = scanRows < minScanRows;
+                } else {
+                    isBetter = schema.size() < minColumnNum;
+                }
+            }
+            if (isBetter) {
+                minCost = cost;
+                maxPrefixMatchCount = prefixMatchCount;
+                minScanRows = scanRows;
+                minColumnNum = schema.size();
+                selectedIndexId = indexId;
+                selectedIndexScanRows = scanRows;
+                selectedIndexScanBytes = scanBytes;
+                partitionPos = i;
+            }
+        }
+        return partitionPos;
+    }
+
+    /*
+     * Estimate the fraction of rows of an index which are scanned, by the filters on the leading columns
+     * of its sort key. Equal and in predicates on a key column narrow the scan and let the next key column
+     * be used too, a range predicate narrows the scan but ends the usable prefix. The selectivity of each
+     * predicate is Config.index_eq_predicate_selectivity or Config.index_range_predicate_selectivity.
+     */
+    static double estimateKeyPrefixSelectivity(List<Column> indexSchema,
+                                               Map<String, PartitionColumnFilter> columnFilters) {
+        double selectivity = 1.0;
+        if (columnFilters == null) {
+            return selectivity;
+        }
+        for (Column column : indexSchema) {
+            if (!column.isKey()) {
+                break;
+            }
+            PartitionColumnFilter filter = columnFilters.get(column.getName());
+            if (filter == null) {
+                break;
+            }
+            if (filter.getInPredicate() != null) {
+                int valueNum = filter.getInPredicate().getChildren().size() - 1;
+                selectivity *= Math.min(1.0, valueNum * Config.index_eq_predicate_selectivity);
+            } else if (filter.lowerBound != null && filter.upperBound != null
+                    && filter.lowerBoundInclusive && filter.upperBoundInclusive
+                    && filter.lowerBound.compareLiteral(filter.upperBound) == 0) {
+                selectivity *= Config.index_eq_predicate_selectivity;
+            } else if (filter.lowerBound != null || filter.upperBound != null) {
+                selectivity *= Config.index_range_predicate_selectivity;
+                break;
+            } else {
+                break;
+            }
+        }
+        return selectivity;
+    }
+
     private void normalizePredicate(Analyzer analyzer) throws InternalException {
         // 1. Get Columns which has eqJoin on it
         List<Expr> eqJoinPredicate = analyzer.getEqJoinConjuncts(desc.getId(), null);
@@ -387,6 +475,12 @@ public class OlapScanNode extends ScanNode {
                                        MaterializedIndex index,
                                        List<Tablet> tablets)
             throws InternalException, AnalysisException {
+        // the position of a tablet in index is its bucket sequence
+        Map<Long, Integer> tabletIdToBucketSeq = Maps.newHashMap();
+        List<Long> tabletIdsInOrder = index.getTabletIdsInOrder();
+        for (int i = 0; i < tabletIdsInOrder.size(); i++) {
+            tabletIdToBucketSeq.put(tabletIdsInOrder.get(i), i);
+        }
         int logNum = 0;
         String schemaHashStr = String.valueOf(olapTable.getSchemaHashByIndexId(index.getId()));
         long committedVersion = partition.getCommittedVersion();
@@ -437,6 +531,7 @@ public class OlapScanNode extends ScanNode {
             scanRange.setPalo_scan_range(paloRange);
             scanRangeLocations.setScan_range(scanRange);
             result.add(scanRangeLocations);
+            scanRangeBucketSeqs.add(tabletIdToBucketSeq.get(tabletId));
         }
     }
 
@@ -476,35 +571,29 @@ public class OlapScanNode extends ScanNode {
         }
 
         // chose one rollup from candidate rollups
-        long minRowCount = Long.MAX_VALUE;
-        int partitionPos = -1;
         for (int i = 0; i < candidateTableSize; i++) {
-            MaterializedIndex candidateIndex = null;
-            long rowCount = 0;
             for (List<MaterializedIndex> candidateTables : tables) {
-                if (candidateIndex == null) {
-                    candidateIndex = candidateTables.get(i);
-                } else {
-                    if (candidateIndex.getId() != candidateTables.get(i).getId()) {
-                        String errMsg = "two partition's candidate_table not equal, one is "
-                                + candidateIndex.getId() + ", the other is " + candidateTables.get(i).getId();
-                        throw new AnalysisException(errMsg);
-                    }
+                if (candidateTables.get(i).getId() != tables.get(0).get(i).getId()) {
+                    String errMsg = "two partition's candidate_table not equal, one is "
+                            + tables.get(0).get(i).getId() + ", the other is " + candidateTables.get(i).getId();
+                    throw new AnalysisException(errMsg);
                 }
-                rowCount += candidateTables.get(i).getRowCount();
             }
-            LOG.debug("rowCount={} for table={}", rowCount, candidateIndex.getId());
-            if (rowCount < minRowCount) {
-                minRowCount = rowCount;
-                selectedIndexId = tables.get(0).get(i).getId();
-                partitionPos = i;
-            } else if (rowCount == minRowCount) {
-                // check column number, select one mimumum column number
-                int selectedColumnSize = olapTable.getIndexIdToSchema().get(selectedIndexId).size();
-                int currColumnSize = olapTable.getIndexIdToSchema().get(tables.get(0).get(i).getId()).size();
-                if (currColumnSize < selectedColumnSize) {
-                    selectedIndexId = tables.get(0).get(i).getId();
-                    partitionPos = i;
+        }
+        int partitionPos = chooseIndex(tables, candidateTableSize);
+        if (partitionPos >= 0) {
+            selectedIndexId = tables.get(0).get(partitionPos).getId();
+        }
+
+        // the scanned data is bucketed if all partitions are hash distributed with the same bucket num
+        DistributionInfo defaultDistributionInfo = olapTable.getDefaultDistributionInfo();
+        if (defaultDistributionInfo.getType() == DistributionInfo.DistributionInfoType.HASH) {
+            bucketDistribution = (HashDistributionInfo) defaultDistributionInfo;
+            for (Long partitionId : partitionIds) {
+                DistributionInfo info = olapTable.getPartition(partitionId).getDistributionInfo();
+                if (info.getBucketNum() != bucketDistribution.getBucketNum()) {
+                    bucketDistribution = null;
+                    break;
                 }
             }
         }
@@ -533,6 +622,21 @@ public class OlapScanNode extends ScanNode {
     }
 
 
+    public OlapTable getOlapTable() {
+        return olapTable;
+    }
+
+    // Return the hash distribution of scanned data, or null if it is not bucketed.
+    // Rows which have the same values of distribution columns are in the tablets of the same bucket sequence.
+    public HashDistributionInfo getBucketDistribution() {
+        return bucketDistribution;
+    }
+
+    // Return the bucket sequence of each scan range, in the same order of getScanRangeLocations().
+    public List<Integer> getScanRangeBucketSeqs() {
+        return scanRangeBucketSeqs;
+    }
+
     /**
      * We query Palo Meta to get request's data localtion
      * extra result info will pass to backend ScanNode
@@ -569,6 +673,8 @@ public class OlapScanNode extends ScanNode {
 
         String indexName = olapTable.getIndexNameById(selectedIndexId);
         output.append("\n").append(prefix).append(String.format("rollup: %s", indexName));
+        output.append("\n").append(prefix).append(String.format(
+                    "estimated scan rows=%s, bytes=%s", selectedIndexScanRows, selectedIndexScanBytes));
 
 
         output.append("\n");
@@ -576,6 +682,9 @@ public class OlapScanNode extends ScanNode {
         output.append(prefix).append(String.format(
                     "buckets=%s/%s", selectedTabletsNum, totalTabletsNum));
         output.append("\n");
+        output.append(prefix).append(String.format(
+                    "pruned tablets=%s", totalTabletsNum - selectedTabletsNum));
+        output.append("\n");
 
         return output.toString();
     }
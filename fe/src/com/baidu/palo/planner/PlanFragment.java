@@ -29,13 +29,19 @@ import com.baidu.palo.common.TreeNode;
 import com.baidu.palo.thrift.TExplainLevel;
 import com.baidu.palo.thrift.TPartitionType;
 import com.baidu.palo.thrift.TPlanFragment;
+import com.baidu.palo.thrift.TScanRangeLocation;
+import com.baidu.palo.thrift.TScanRangeLocations;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * PlanFragments form a tree structure via their ExchangeNodes. A tree of fragments
@@ -101,6 +107,12 @@ public class PlanFragment extends TreeNode<PlanFragment> {
     // if the output is UNPARTITIONED, it is being broadcast
     private DataPartition outputPartition;
 
+    // olap scan nodes of this fragment whose data is bucketed, see OlapScanNode.getBucketDistribution()
+    private List<OlapScanNode> bucketScanNodes = Lists.newArrayList();
+    // if true, the scan ranges of the same bucket sequence of all bucketScanNodes must be
+    // assigned to the same instance, which is required by colocate join and bucket shuffle join
+    private boolean bucketAssignment = false;
+
     // TODO: SubstitutionMap outputSmap;
     // substitution map to remap exprs onto the output of this fragment, to be applied
     // at destination fragment
@@ -270,4 +282,48 @@ public class PlanFragment extends TreeNode<PlanFragment> {
         return fragmentId;
     }
 
+    public List<OlapScanNode> getBucketScanNodes() {
+        return bucketScanNodes;
+    }
+
+    public void addBucketScanNodes(List<OlapScanNode> scanNodes) {
+        bucketScanNodes.addAll(scanNodes);
+    }
+
+    public boolean isBucketAssignment() {
+        return bucketAssignment;
+    }
+
+    public void setBucketAssignment(boolean bucketAssignment) {
+        this.bucketAssignment = bucketAssignment;
+    }
+
+    /**
+     * Return the ids of backends which have replicas of all scan ranges of each bucket sequence,
+     * or null if there is no such backend for some bucket sequence.
+     */
+    public static Map<Integer, Set<Long>> getBucketSeqToBackendIds(List<OlapScanNode> scanNodes) {
+        Map<Integer, Set<Long>> bucketSeqToBackendIds = Maps.newHashMap();
+        for (OlapScanNode scanNode : scanNodes) {
+            List<TScanRangeLocations> locationsList = scanNode.getScanRangeLocations(0);
+            List<Integer> bucketSeqs = scanNode.getScanRangeBucketSeqs();
+            for (int i = 0; i < locationsList.size(); i++) {
+                Set<Long> backendIds = Sets.newHashSet();
+                for (TScanRangeLocation location : locationsList.get(i).getLocations()) {
+                    backendIds.add(location.getBackend_id());
+                }
+                Set<Long> commonBackendIds = bucketSeqToBackendIds.get(bucketSeqs.get(i));
+                if (commonBackendIds == null) {
+                    bucketSeqToBackendIds.put(bucketSeqs.get(i), backendIds);
+                } else {
+                    commonBackendIds.retainAll(backendIds);
+                    if (commonBackendIds.isEmpty()) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return bucketSeqToBackendIds;
+    }
+
 }
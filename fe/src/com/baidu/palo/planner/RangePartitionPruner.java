@@ -27,6 +27,7 @@ import com.baidu.palo.catalog.Column;
 import com.baidu.palo.catalog.PartitionKey;
 import com.baidu.palo.catalog.Type;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
 
 import com.google.common.collect.BoundType;
 import com.google.common.collect.Lists;
@@ -62,7 +63,7 @@ public class RangePartitionPruner implements PartitionPruner {
                                    int columnId,
                                    PartitionKey minKey,
                                    PartitionKey maxKey,
-                                   int complex)
+                                   long complex)
             throws AnalysisException {
         // the last column in partition Key
         if (columnId == partitionColumns.size()) {
@@ -92,7 +93,8 @@ public class RangePartitionPruner implements PartitionPruner {
             return result;
         }
         InPredicate inPredicate = filter.getInPredicate();
-        if (null == inPredicate || inPredicate.getChildren().size() * complex > 100) {
+        if (null == inPredicate
+                || (inPredicate.getChildren().size() - 1) * complex > Config.partition_prune_max_in_combinations) {
             if (filter.lowerBoundInclusive && filter.upperBoundInclusive
                     && filter.lowerBound != null && filter.upperBound != null
                     && 0 == filter.lowerBound.compareLiteral(filter.upperBound)) {
@@ -162,9 +164,13 @@ public class RangePartitionPruner implements PartitionPruner {
             }
             return result;
         }
+        if (columnId == partitionColumns.size() - 1) {
+            // values of all columns before are fixed, so each value is a point of the range map
+            return pruneLastColumn(rangeMap, inPredicate, keyColumn, minKey);
+        }
         Set<Long> resultSet = Sets.newHashSet();
         int childrenNum = inPredicate.getChildren().size();
-        int newComplex = inPredicate.getChildren().size() * complex;
+        long newComplex = (childrenNum - 1) * complex;
         for (int i = 1; i < childrenNum; ++i) {
             LiteralExpr expr = (LiteralExpr) inPredicate.getChild(i);
             minKey.pushColumn(expr, keyColumn.getDataType());
@@ -180,6 +186,29 @@ public class RangePartitionPruner implements PartitionPruner {
         return resultSet;
     }
 
+    // Look up the partition of each IN value of the last partition column.
+    // This is much cheaper than a sub range map for each value, when there are thousands of values.
+    private Collection<Long> pruneLastColumn(RangeMap<PartitionKey, Long> rangeMap,
+                                             InPredicate inPredicate,
+                                             Column keyColumn,
+                                             PartitionKey key) {
+        Set<Long> resultSet = Sets.newHashSet();
+        int childrenNum = inPredicate.getChildren().size();
+        for (int i = 1; i < childrenNum; ++i) {
+            LiteralExpr expr = (LiteralExpr) inPredicate.getChild(i);
+            key.pushColumn(expr, keyColumn.getDataType());
+            Long partId = rangeMap.get(key);
+            key.popColumn();
+            if (partId != null) {
+                resultSet.add(partId);
+                if (resultSet.size() >= partitionRangeMap.size()) {
+                    break;
+                }
+            }
+        }
+        return resultSet;
+    }
+
     public Collection<Long> prune() throws AnalysisException {
         PartitionKey minKey = new PartitionKey();
         PartitionKey maxKey = new PartitionKey();
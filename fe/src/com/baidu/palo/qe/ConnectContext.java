@@ -24,6 +24,7 @@ import com.baidu.palo.mysql.MysqlCapability;
 import com.baidu.palo.mysql.MysqlChannel;
 import com.baidu.palo.mysql.MysqlCommand;
 import com.baidu.palo.mysql.MysqlSerializer;
+import com.baidu.palo.service.ExecuteEnv;
 import com.baidu.palo.thrift.TResourceInfo;
 import com.baidu.palo.thrift.TUniqueId;
 
@@ -320,8 +321,22 @@ public class ConnectContext {
             row.add(ClusterNamespace.getNameFromFullName(currentDb));
             row.add(command.toString());
             row.add("" + (nowMs - startTime) / 1000);
-            row.add("");
-            row.add("");
+            // state of query admission
+            QueryAdmissionController controller = ExecuteEnv.getInstance().getQueryAdmissionController();
+            QueryAdmissionController.Ticket ticket = controller.getTicket(connectionId);
+            if (ticket == null) {
+                row.add("");
+                row.add("");
+            } else {
+                row.add(ticket.getState().name());
+                StringBuilder info = new StringBuilder();
+                info.append("resource_group: ").append(ticket.getGroup());
+                if (ticket.getState() == QueryAdmissionController.State.QUEUED) {
+                    info.append(", queue_position: ").append(controller.getQueuePosition(ticket));
+                }
+                info.append(", queue_wait_ms: ").append(ticket.getWaitTimeMs(nowMs));
+                row.add(info.toString());
+            }
             return row;
         }
     }
@@ -20,13 +20,15 @@ import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.Lists;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
 import com.baidu.palo.mysql.MysqlProto;
 import com.google.common.collect.Maps;
 
@@ -35,12 +37,14 @@ import com.google.common.collect.Maps;
 // TODO(zhaochun): 应当后面考虑本地文件的连接是否可以超过最大连接数
 public class ConnectScheduler {
     private static final Logger LOG = LogManager.getLogger(ConnectScheduler.class);
+    // extra threads to reply error to the connections over limit
+    private static final int EXTRA_THREAD_NUM = 16;
     private int maxConnections;
     private int numberConnection;
     private AtomicInteger nextConnectionId;
     private Map<Long, ConnectContext> connectionMap = Maps.newHashMap();
     private Map<String, AtomicInteger> connByUser = Maps.newHashMap();
-    private ExecutorService executor = Executors.newCachedThreadPool();
+    private ExecutorService executor;
 
     // Use a thread to check whether connection is timeout. Because
     // 1. If use a scheduler, the task maybe a huge number when query is messy.
@@ -50,6 +54,9 @@ public class ConnectScheduler {
 
     public ConnectScheduler(int maxConnections) {
         this.maxConnections = maxConnections;
+        // each connection is served by one thread until it is closed
+        executor = ThreadPoolManager.newCachedThreadPool("connect-scheduler", maxConnections + EXTRA_THREAD_NUM,
+                                                         RejectPolicy.ABORT);
         numberConnection = 0;
         nextConnectionId = new AtomicInteger(0);
         checkTimer = new Timer("ConnectScheduler Check Timer", true);
@@ -76,8 +83,13 @@ public class ConnectScheduler {
             return false;
         }
         context.setConnectionId(nextConnectionId.getAndAdd(1));
-        if (executor.submit(new LoopHandler(context)) == null) {
-            LOG.warn("Submit one thread failed.");
+        try {
+            if (executor.submit(new LoopHandler(context)) == null) {
+                LOG.warn("Submit one thread failed.");
+                return false;
+            }
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Too many connections, submit one thread failed. {}", e.getMessage());
             return false;
         }
         return true;
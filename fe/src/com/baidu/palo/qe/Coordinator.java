@@ -25,8 +25,11 @@ import com.baidu.palo.common.Reference;
 import com.baidu.palo.common.Status;
 import com.baidu.palo.common.util.DebugUtil;
 import com.baidu.palo.common.util.RuntimeProfile;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
 import com.baidu.palo.planner.DataPartition;
 import com.baidu.palo.planner.DataSink;
+import com.baidu.palo.planner.OlapScanNode;
 import com.baidu.palo.planner.PlanFragment;
 import com.baidu.palo.planner.PlanFragmentId;
 import com.baidu.palo.planner.PlanNode;
@@ -46,6 +49,7 @@ import com.baidu.palo.thrift.TExecPlanFragmentParams;
 import com.baidu.palo.thrift.TExecPlanFragmentResult;
 import com.baidu.palo.thrift.TNetworkAddress;
 import com.baidu.palo.thrift.TPaloScanRange;
+import com.baidu.palo.thrift.TPartitionType;
 import com.baidu.palo.thrift.TPlanFragmentDestination;
 import com.baidu.palo.thrift.TPlanFragmentExecParams;
 import com.baidu.palo.thrift.TQueryGlobals;
@@ -80,10 +84,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -134,6 +138,8 @@ public class Coordinator {
     // populated in computeScanRangeAssignment()
     private Map<PlanFragmentId, FragmentScanRangeAssignment> scanRangeAssignment =
             Maps.newHashMap();
+    // bucket sequence => host, of fragments whose scan ranges are assigned by bucket
+    private Map<PlanFragmentId, Map<Integer, TNetworkAddress>> fragmentBucketSeqToAddress = Maps.newHashMap();
     // backend execute state
     private List<BackendExecState> backendExecStates = Lists.newArrayList();
     private ResultReceiver receiver;
@@ -692,6 +698,13 @@ public class Coordinator {
                         params.hosts.size() + destParams.perExchNumSenders.get(exchId.asInt()));
             }
 
+            if (params.fragment.getOutputPartition().getType()
+                    == TPartitionType.BUCKET_SHUFFLE_HASH_PARTITIONED) {
+                // the destinations are indexed by bucket sequence of the dest fragment
+                computeBucketShuffleDestinations(params, destParams);
+                continue;
+            }
+
             // add destination host to this fragment's destination
             for (int j = 0; j < destParams.hosts.size(); ++j) {
                 TPlanFragmentDestination dest = new TPlanFragmentDestination();
@@ -702,6 +715,28 @@ public class Coordinator {
         }
     }
 
+    private void computeBucketShuffleDestinations(FragmentExecParams params, FragmentExecParams destParams)
+            throws Exception {
+        PlanFragment destFragment = destParams.fragment;
+        int bucketNum = destFragment.getBucketScanNodes().get(0).getBucketDistribution().getBucketNum();
+        Map<Integer, TNetworkAddress> bucketSeqToAddress = fragmentBucketSeqToAddress.get(
+                destFragment.getFragmentId());
+        for (int bucketSeq = 0; bucketSeq < bucketNum; ++bucketSeq) {
+            int idx = -1;
+            if (bucketSeqToAddress != null && bucketSeqToAddress.containsKey(bucketSeq)) {
+                idx = destParams.hosts.indexOf(bucketSeqToAddress.get(bucketSeq));
+            }
+            if (idx < 0) {
+                // no tablet of this bucket is scanned, any instance can join the rows of it
+                idx = bucketSeq % destParams.hosts.size();
+            }
+            TPlanFragmentDestination dest = new TPlanFragmentDestination();
+            dest.fragment_instance_id = destParams.instanceIds.get(idx);
+            dest.server = toRpcHost(destParams.hosts.get(idx));
+            params.destinations.add(dest);
+        }
+    }
+
     private TNetworkAddress toRpcHost(TNetworkAddress host) throws Exception {
         Backend backend = Catalog.getCurrentSystemInfo().getBackendWithBePort(
                 host.getHostname(), host.getPort());
@@ -807,6 +842,10 @@ public class Coordinator {
     private void computeScanRangeAssignment() throws Exception {
         // set scan ranges/locations for scan nodes
         for (ScanNode scanNode : scanNodes) {
+            if (scanNode.getFragment().isBucketAssignment()) {
+                // assigned together with other scan nodes of fragment
+                continue;
+            }
             // the parameters of getScanRangeLocations may ignore, It dosn't take effect
             List<TScanRangeLocations> locations = scanNode.getScanRangeLocations(0);
             if (locations == null) {
@@ -818,6 +857,90 @@ public class Coordinator {
                     scanRangeAssignment.get(scanNode.getFragmentId());
             computeScanRangeAssignment(scanNode.getId(), locations, assignment);
         }
+
+        for (PlanFragment fragment : fragments) {
+            if (fragment.isBucketAssignment()) {
+                computeBucketScanRangeAssignment(fragment, scanRangeAssignment.get(fragment.getFragmentId()));
+            }
+        }
+    }
+
+    // Assign the scan ranges of the same bucket sequence of all bucket scan nodes in fragment
+    // to the same host, which has replicas of all of them.
+    // Buckets are spread over the hosts to balance the number of buckets of each host.
+    private void computeBucketScanRangeAssignment(PlanFragment fragment, FragmentScanRangeAssignment assignment)
+            throws Exception {
+        List<OlapScanNode> bucketScanNodes = fragment.getBucketScanNodes();
+        Map<Integer, Set<Long>> bucketSeqToBackendIds = PlanFragment.getBucketSeqToBackendIds(bucketScanNodes);
+        if (bucketSeqToBackendIds == null) {
+            // replicas are moved after planning
+            throw new InternalException("replicas of the same bucket are not on the same backend, please retry");
+        }
+
+        // bucket sequence => any scan range locations of it, which is used to choose host
+        Map<Integer, List<TScanRangeLocation>> bucketSeqToLocations = Maps.newHashMap();
+        for (OlapScanNode scanNode : bucketScanNodes) {
+            List<TScanRangeLocations> locationsList = scanNode.getScanRangeLocations(0);
+            for (int i = 0; i < locationsList.size(); i++) {
+                bucketSeqToLocations.put(scanNode.getScanRangeBucketSeqs().get(i),
+                        locationsList.get(i).getLocations());
+            }
+        }
+
+        HashMap<Long, Integer> assignedBucketsPerBackend = Maps.newHashMap();
+        Map<Integer, TNetworkAddress> bucketSeqToAddress = Maps.newHashMap();
+        Map<Integer, Long> bucketSeqToBackendId = Maps.newHashMap();
+        for (Map.Entry<Integer, Set<Long>> entry : bucketSeqToBackendIds.entrySet()) {
+            // only the backends which have replicas of all scan ranges of this bucket are candidates
+            List<TScanRangeLocation> candidates = Lists.newArrayList();
+            Long minBackendId = null;
+            int minAssignedBuckets = Integer.MAX_VALUE;
+            for (TScanRangeLocation location : bucketSeqToLocations.get(entry.getKey())) {
+                if (!entry.getValue().contains(location.backend_id)) {
+                    continue;
+                }
+                candidates.add(location);
+                int assignedBuckets = findOrInsert(assignedBucketsPerBackend, location.backend_id, 0);
+                if (assignedBuckets < minAssignedBuckets) {
+                    minAssignedBuckets = assignedBuckets;
+                    minBackendId = location.backend_id;
+                }
+            }
+
+            Reference<Long> backendIdRef = new Reference<Long>();
+            TNetworkAddress execHostPort = SimpleScheduler.getHost(minBackendId, candidates,
+                    this.idToBackend, backendIdRef);
+            if (execHostPort == null) {
+                throw new InternalException("there is no scanNode Backend of bucket " + entry.getKey());
+            }
+            this.addressToBackendID.put(execHostPort, backendIdRef.getRef());
+            assignedBucketsPerBackend.put(backendIdRef.getRef(),
+                    findOrInsert(assignedBucketsPerBackend, backendIdRef.getRef(), 0) + 1);
+            bucketSeqToAddress.put(entry.getKey(), execHostPort);
+            bucketSeqToBackendId.put(entry.getKey(), backendIdRef.getRef());
+        }
+
+        for (OlapScanNode scanNode : bucketScanNodes) {
+            List<TScanRangeLocations> locationsList = scanNode.getScanRangeLocations(0);
+            for (int i = 0; i < locationsList.size(); i++) {
+                int bucketSeq = scanNode.getScanRangeBucketSeqs().get(i);
+                TScanRangeLocations scanRangeLocations = locationsList.get(i);
+                Map<Integer, List<TScanRangeParams>> scanRanges = findOrInsert(assignment,
+                        bucketSeqToAddress.get(bucketSeq), new HashMap<Integer, List<TScanRangeParams>>());
+                List<TScanRangeParams> scanRangeParamsList =
+                        findOrInsert(scanRanges, scanNode.getId().asInt(), new ArrayList<TScanRangeParams>());
+                TScanRangeParams scanRangeParams = new TScanRangeParams();
+                scanRangeParams.scan_range = scanRangeLocations.scan_range;
+                for (TScanRangeLocation location : scanRangeLocations.getLocations()) {
+                    if (location.backend_id == bucketSeqToBackendId.get(bucketSeq)) {
+                        scanRangeParams.setVolume_id(location.volume_id);
+                        break;
+                    }
+                }
+                scanRangeParamsList.add(scanRangeParams);
+            }
+        }
+        fragmentBucketSeqToAddress.put(fragment.getFragmentId(), bucketSeqToAddress);
     }
 
     // Does a scan range assignment (returned in 'assignment') based on a list
@@ -839,6 +962,11 @@ public class Coordinator {
                     minLocation = location;
                 }
             }
+            // backends of broker scan range are balanced by BrokerScanNode, which puts the one near the data
+            // first. the others are only used if the first one is not available.
+            if (scanRangeLocations.getScan_range().isSetBroker_scan_range()) {
+                minLocation = scanRangeLocations.getLocations().get(0);
+            }
             Long scanRangeLength = getScanRangeLength(scanRangeLocations.scan_range);
             assignedBytesPerHost.put(minLocation.server,
                     assignedBytesPerHost.get(minLocation.server) + scanRangeLength);
@@ -1210,7 +1338,9 @@ public class Coordinator {
     }
 
     private static class ParallelExecutor {
-        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+        // rpc is sent in the query's thread if the pool is full
+        private static final ExecutorService EXECUTOR = ThreadPoolManager.newCachedThreadPool("coordinator-rpc",
+                Config.coordinator_rpc_thread_num, RejectPolicy.CALLER_RUNS);
 
         public static void exec(List<Coordinator.BackendExecState> args,
                 int beginPos,
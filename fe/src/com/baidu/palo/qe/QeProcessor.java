@@ -15,61 +15,151 @@
 
 package com.baidu.palo.qe;
 
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.InternalException;
+import com.baidu.palo.common.util.DebugUtil;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
 import com.baidu.palo.thrift.TReportExecStatusParams;
 import com.baidu.palo.thrift.TReportExecStatusResult;
 import com.baidu.palo.thrift.TStatus;
 import com.baidu.palo.thrift.TStatusCode;
 import com.baidu.palo.thrift.TUniqueId;
 
+import com.google.common.collect.Lists;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/*
+ * Registry of running queries, and the entry of exec status reported by backends.
+ *
+ * Exec status of a query is put into a bounded queue of the query, and applied to the coordinator
+ * in a shared pool, one report at a time for each query, so that merging profiles does not block
+ * the rpc thread, and reports of a query are still applied in order.
+ * If the queue is full, the rpc thread waits for a free slot, and rejects the report if timeout.
+ * Reports are never applied in the rpc thread, since the pool may be applying reports of the same query.
+ */
 public class QeProcessor {
     private static final Logger LOG = LogManager.getLogger(QeProcessor.class);
 
+    private static final ExecutorService EXEC_STATUS_EXECUTOR =
+            ThreadPoolManager.newFixedThreadPool("report-exec-status", Config.report_exec_status_thread_num,
+                                                 ThreadPoolManager.UNBOUNDED_QUEUE, RejectPolicy.ABORT);
+
+    private static ConcurrentMap<TUniqueId, QueryInfo> coordinatorMap = new ConcurrentHashMap<TUniqueId, QueryInfo>();
+
+    private static class QueryInfo {
+        private final Coordinator coord;
+        private final BlockingQueue<TReportExecStatusParams> execStatusQueue;
+        // true if a task which processes 'execStatusQueue' is submitted
+        private final AtomicBoolean processing = new AtomicBoolean(false);
+
+        public QueryInfo(Coordinator coord) {
+            this.coord = coord;
+            this.execStatusQueue = new ArrayBlockingQueue<TReportExecStatusParams>(
+                    Math.max(1, Config.report_exec_status_queue_size));
+        }
+    }
+
     public QeProcessor() {
     }
 
     public TReportExecStatusResult reportExecStatus(TReportExecStatusParams params) {
-        LOG.info("ReportExecStatus(): instance_id=" + params.fragment_instance_id.toString()
-                + "queryID=" +  params.query_id.toString() + " params=" + params);
-        Coordinator coord = null;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("ReportExecStatus(): instance_id={}, query_id={}, params={}",
+                    DebugUtil.printId(params.fragment_instance_id), DebugUtil.printId(params.query_id), params);
+        }
         TReportExecStatusResult result = new TReportExecStatusResult();
-        synchronized (coordinatorMap) {
-            if (coordinatorMap.containsKey(params.query_id)) {
-                coord = coordinatorMap.get(params.query_id);
-            } else {
-                result.setStatus(new TStatus(TStatusCode.RUNTIME_ERROR));
-                LOG.info("ReportExecStatus() runtime error");
-                return result;
-            }
+        QueryInfo info = coordinatorMap.get(params.query_id);
+        if (info == null) {
+            result.setStatus(new TStatus(TStatusCode.RUNTIME_ERROR));
+            LOG.info("ReportExecStatus() runtime error, query {} does not exist",
+                    DebugUtil.printId(params.query_id));
+            return result;
         }
+        boolean offered = false;
         try {
-            coord.updateFragmentExecStatus(params);
-        } catch (Exception e) {
-            LOG.warn(e.getMessage());
+            // too many pending reports, wait to slow down the backend
+            offered = info.execStatusQueue.offer(params, Config.report_exec_status_queue_timeout_ms,
+                                                 TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("interrupted when offer exec status of query {}", DebugUtil.printId(params.query_id));
+        }
+        if (!offered) {
+            TStatus status = new TStatus(TStatusCode.TIMEOUT);
+            status.setError_msgs(Lists.newArrayList("too many pending exec status reports of query "
+                    + DebugUtil.printId(params.query_id)));
+            result.setStatus(status);
+            LOG.warn("ReportExecStatus() timeout, instance {} of query {}",
+                     DebugUtil.printId(params.fragment_instance_id), DebugUtil.printId(params.query_id));
             return result;
         }
+        scheduleExecStatus(info);
         result.setStatus(new TStatus(TStatusCode.OK));
         return result;
     }
 
-    private static Map<TUniqueId, Coordinator> coordinatorMap = new HashMap<TUniqueId, Coordinator>();
-    
-    public static synchronized void registerQuery(TUniqueId queryId, Coordinator coord) throws InternalException {
-        LOG.info("register query id = " + queryId.toString());
-        if (coordinatorMap.containsKey(queryId)) {
-            throw new InternalException("queryId " + queryId + " already exists");       
+    private static void scheduleExecStatus(final QueryInfo info) {
+        if (!info.processing.compareAndSet(false, true)) {
+            // the running task will process it
+            return;
+        }
+        try {
+            EXEC_STATUS_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    processExecStatus(info);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 'processing' is still held, so that no one else applies reports of this query
+            processExecStatus(info);
         }
-        coordinatorMap.put(queryId, coord);
     }
-    
-    public static synchronized void unregisterQuery(TUniqueId queryId) {
-        LOG.info("deregister query id = " + queryId.toString());
+
+    private static void processExecStatus(QueryInfo info) {
+        try {
+            TReportExecStatusParams params = null;
+            while ((params = info.execStatusQueue.poll()) != null) {
+                updateFragmentExecStatus(info.coord, params);
+            }
+        } finally {
+            info.processing.set(false);
+        }
+        // a report may be offered after the last poll but before 'processing' is reset
+        if (!info.execStatusQueue.isEmpty()) {
+            scheduleExecStatus(info);
+        }
+    }
+
+    private static void updateFragmentExecStatus(Coordinator coord, TReportExecStatusParams params) {
+        try {
+            coord.updateFragmentExecStatus(params);
+        } catch (Exception e) {
+            LOG.warn("update exec status of instance " + DebugUtil.printId(params.fragment_instance_id)
+                    + " failed.", e);
+        }
+    }
+
+    public static void registerQuery(TUniqueId queryId, Coordinator coord) throws InternalException {
+        LOG.info("register query id = {}", DebugUtil.printId(queryId));
+        if (coordinatorMap.putIfAbsent(queryId, new QueryInfo(coord)) != null) {
+            throw new InternalException("queryId " + queryId + " already exists");
+        }
+    }
+
+    public static void unregisterQuery(TUniqueId queryId) {
+        LOG.info("deregister query id = {}", DebugUtil.printId(queryId));
         coordinatorMap.remove(queryId);
     }
 }
@@ -0,0 +1,369 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.catalog.UserResource;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.DdlException;
+import com.baidu.palo.common.util.Metrics;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.Histogram;
+
+/*
+ * Admission control of queries in this FE.
+ *
+ * A query is admitted only if
+ * 1. the number of running queries of its user is less than the user's max_running_query, and
+ * 2. the sum of exec_mem_limit of running queries of its user does not exceed the user's max_running_query_mem,
+ *    unless the user has no running query, and
+ * 3. the number of running queries of its resource group is less than the group's limit in Config, and
+ * 4. the sum of exec_mem_limit of running queries of its resource group does not exceed the group's memory
+ *    limit in Config, unless the group has no running query.
+ * Otherwise the query waits in the queue until it is admitted, timeout or cancelled.
+ *
+ * Waiting queries are admitted in the order of resource group (high, normal, low) and arrival time.
+ * A query blocked by its user's limits does not block queries of other users, but later queries of the
+ * same user wait behind it, so that small queries do not starve a large one. Likewise later queries of a
+ * group wait behind the one blocked by the group's memory limit.
+ */
+public class QueryAdmissionController {
+    private static final Logger LOG = LogManager.getLogger(QueryAdmissionController.class);
+
+    private static final String RUNNING_COUNTER_NAME = "query_admission.running_count";
+    private static final String QUEUE_LENGTH_COUNTER_PREFIX = "query_admission.queue_length.";
+    private static final String TIMEOUT_COUNTER_NAME = "query_admission.timeout_count";
+    private static final String REJECT_COUNTER_NAME = "query_admission.reject_count";
+    private static final String WAIT_TIME_HISTOGRAM_NAME = "query_admission.wait_time_ms";
+
+    private static final String[] GROUPS = { UserResource.HIGH, UserResource.NORMAL, UserResource.LOW };
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        CANCELLED
+    }
+
+    public static class Ticket {
+        private final long connectionId;
+        private final String user;
+        private final String group;
+        private final int priority;
+        private final long memBytes;
+        private final long maxRunningQuery;
+        private final long maxRunningQueryMem;
+        private final long seq;
+        private final long enqueueTimeMs;
+        // modified under the lock of controller, may be read without lock to show processlist
+        private volatile long admitTimeMs = -1;
+        private volatile State state = State.QUEUED;
+
+        private Ticket(long connectionId, String user, String group, long memBytes,
+                       long maxRunningQuery, long maxRunningQueryMem, long seq) {
+            this.connectionId = connectionId;
+            this.user = user;
+            this.group = group;
+            this.priority = getPriority(group);
+            this.memBytes = memBytes;
+            this.maxRunningQuery = maxRunningQuery;
+            this.maxRunningQueryMem = maxRunningQueryMem;
+            this.seq = seq;
+            this.enqueueTimeMs = System.currentTimeMillis();
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        // time waited in queue until now or until admitted
+        public long getWaitTimeMs(long nowMs) {
+            return (admitTimeMs < 0 ? nowMs : admitTimeMs) - enqueueTimeMs;
+        }
+    }
+
+    // running queries of a user or a resource group
+    private static class Usage {
+        int runningNum = 0;
+        long memBytes = 0;
+    }
+
+    private final TreeSet<Ticket> waitingTickets = new TreeSet<Ticket>(new Comparator<Ticket>() {
+        @Override
+        public int compare(Ticket t1, Ticket t2) {
+            if (t1.priority != t2.priority) {
+                return Integer.compare(t1.priority, t2.priority);
+            }
+            return Long.compare(t1.seq, t2.seq);
+        }
+    });
+    private final Map<Long, Ticket> connectionToTicket = Maps.newHashMap();
+    private final Map<String, Usage> userToUsage = Maps.newHashMap();
+    private final Map<String, Usage> groupToUsage = Maps.newHashMap();
+    private long nextSeq = 0;
+
+    public QueryAdmissionController() {
+    }
+
+    private static int getPriority(String group) {
+        for (int i = 0; i < GROUPS.length; i++) {
+            if (GROUPS[i].equalsIgnoreCase(group)) {
+                return i;
+            }
+        }
+        // same as normal
+        return 1;
+    }
+
+    private static String getGroupName(int priority) {
+        return GROUPS[priority];
+    }
+
+    private static int getGroupLimit(int priority) {
+        switch (priority) {
+            case 0:
+                return Config.max_running_query_high_group;
+            case 2:
+                return Config.max_running_query_low_group;
+            default:
+                return Config.max_running_query_normal_group;
+        }
+    }
+
+    private static long getGroupMemLimit(int priority) {
+        switch (priority) {
+            case 0:
+                return Config.max_running_query_mem_high_group;
+            case 2:
+                return Config.max_running_query_mem_low_group;
+            default:
+                return Config.max_running_query_mem_normal_group;
+        }
+    }
+
+    // Block until the query is admitted. The returned ticket must be released by release().
+    // connectionId is -1 if the query is forwarded from other FE, which can not be found by connection id.
+    // maxRunningQuery and maxRunningQueryMem are limits of the user, 0 means no limit.
+    public Ticket admit(long connectionId, String user, String group, long memBytes,
+                        long maxRunningQuery, long maxRunningQueryMem, long timeoutMs) throws DdlException {
+        Ticket ticket;
+        synchronized (this) {
+            if (waitingTickets.size() >= Config.query_queue_max_size) {
+                incCounter(REJECT_COUNTER_NAME, 1);
+                throw new DdlException("Too many queries waiting for admission, queue size: "
+                        + waitingTickets.size());
+            }
+            ticket = new Ticket(connectionId, user, group, memBytes, maxRunningQuery, maxRunningQueryMem,
+                                nextSeq++);
+            waitingTickets.add(ticket);
+            if (connectionId >= 0) {
+                connectionToTicket.put(connectionId, ticket);
+            }
+            incCounter(QUEUE_LENGTH_COUNTER_PREFIX + getGroupName(ticket.priority), 1);
+            dispatch();
+
+            long deadline = ticket.enqueueTimeMs + timeoutMs;
+            while (ticket.state == State.QUEUED) {
+                long waitMs = deadline - System.currentTimeMillis();
+                if (waitMs <= 0) {
+                    break;
+                }
+                try {
+                    wait(waitMs);
+                } catch (InterruptedException e) {
+                    LOG.warn("interrupted while waiting for admission, connection: {}", connectionId);
+                    break;
+                }
+            }
+
+            if (ticket.state != State.RUNNING) {
+                if (ticket.state == State.QUEUED) {
+                    removeWaiting(ticket);
+                    incCounter(TIMEOUT_COUNTER_NAME, 1);
+                }
+                if (connectionToTicket.get(connectionId) == ticket) {
+                    connectionToTicket.remove(connectionId);
+                }
+                String reason = ticket.state == State.CANCELLED ? "cancelled" : "timeout";
+                ticket.state = State.CANCELLED;
+                throw new DdlException("Query is " + reason + " while waiting for admission, waited "
+                        + ticket.getWaitTimeMs(System.currentTimeMillis()) + " ms in group " + ticket.group);
+            }
+        }
+
+        Histogram waitTime = (Histogram) Metrics.getMetric(Metrics.MetricType.HISTOGRAM, WAIT_TIME_HISTOGRAM_NAME);
+        if (waitTime != null) {
+            waitTime.update(ticket.getWaitTimeMs(ticket.admitTimeMs));
+        }
+        if (ticket.admitTimeMs - ticket.enqueueTimeMs > 0) {
+            LOG.info("query of user {} in connection {} is admitted after waiting {} ms",
+                     user, connectionId, ticket.admitTimeMs - ticket.enqueueTimeMs);
+        }
+        return ticket;
+    }
+
+    public synchronized void release(Ticket ticket) {
+        if (ticket == null || ticket.state != State.RUNNING) {
+            return;
+        }
+        ticket.state = State.CANCELLED;
+        if (connectionToTicket.get(ticket.connectionId) == ticket) {
+            connectionToTicket.remove(ticket.connectionId);
+        }
+
+        releaseUsage(userToUsage, ticket.user, ticket.memBytes);
+        releaseUsage(groupToUsage, getGroupName(ticket.priority), ticket.memBytes);
+        incCounter(RUNNING_COUNTER_NAME, -1);
+
+        dispatch();
+    }
+
+    // Wake up the waiting query of the connection, used when the query is killed
+    public synchronized void cancel(long connectionId) {
+        Ticket ticket = connectionToTicket.get(connectionId);
+        if (ticket == null || ticket.state != State.QUEUED) {
+            return;
+        }
+        removeWaiting(ticket);
+        ticket.state = State.CANCELLED;
+        notifyAll();
+    }
+
+    // Return the ticket of the query of the connection, null if it is not queued nor running
+    public synchronized Ticket getTicket(long connectionId) {
+        return connectionToTicket.get(connectionId);
+    }
+
+    public synchronized int getRunningNum() {
+        int runningNum = 0;
+        for (Usage usage : groupToUsage.values()) {
+            runningNum += usage.runningNum;
+        }
+        return runningNum;
+    }
+
+    public synchronized int getQueueLength() {
+        return waitingTickets.size();
+    }
+
+    // Return the number of tickets before this one in the queue, -1 if it is not queued
+    public synchronized int getQueuePosition(Ticket ticket) {
+        if (ticket.state != State.QUEUED) {
+            return -1;
+        }
+        return waitingTickets.headSet(ticket).size();
+    }
+
+    // Admit waiting queries as many as possible. Must hold the lock.
+    private void dispatch() {
+        boolean admitted = false;
+        Set<String> blockedUsers = Sets.newHashSet();
+        Set<String> blockedGroups = Sets.newHashSet();
+        Iterator<Ticket> iter = waitingTickets.iterator();
+        while (iter.hasNext()) {
+            Ticket ticket = iter.next();
+            String groupName = getGroupName(ticket.priority);
+            if (blockedUsers.contains(ticket.user) || blockedGroups.contains(groupName)) {
+                continue;
+            }
+
+            Usage usage = userToUsage.get(ticket.user);
+            int userRunningNum = usage == null ? 0 : usage.runningNum;
+            long userMemBytes = usage == null ? 0 : usage.memBytes;
+            if ((ticket.maxRunningQuery > 0 && userRunningNum >= ticket.maxRunningQuery)
+                    || (ticket.maxRunningQueryMem > 0 && userRunningNum > 0
+                            && userMemBytes + ticket.memBytes > ticket.maxRunningQueryMem)) {
+                blockedUsers.add(ticket.user);
+                continue;
+            }
+
+            Usage groupUsage = groupToUsage.get(groupName);
+            int groupRunningNum = groupUsage == null ? 0 : groupUsage.runningNum;
+            long groupMemBytes = groupUsage == null ? 0 : groupUsage.memBytes;
+            int groupLimit = getGroupLimit(ticket.priority);
+            if (groupLimit > 0 && groupRunningNum >= groupLimit) {
+                continue;
+            }
+            long groupMemLimit = getGroupMemLimit(ticket.priority);
+            if (groupMemLimit > 0 && groupRunningNum > 0 && groupMemBytes + ticket.memBytes > groupMemLimit) {
+                blockedGroups.add(groupName);
+                continue;
+            }
+
+            iter.remove();
+            incCounter(QUEUE_LENGTH_COUNTER_PREFIX + groupName, -1);
+            if (usage == null) {
+                usage = new Usage();
+                userToUsage.put(ticket.user, usage);
+            }
+            usage.runningNum++;
+            usage.memBytes += ticket.memBytes;
+            if (groupUsage == null) {
+                groupUsage = new Usage();
+                groupToUsage.put(groupName, groupUsage);
+            }
+            groupUsage.runningNum++;
+            groupUsage.memBytes += ticket.memBytes;
+            incCounter(RUNNING_COUNTER_NAME, 1);
+
+            ticket.state = State.RUNNING;
+            ticket.admitTimeMs = System.currentTimeMillis();
+            admitted = true;
+        }
+        if (admitted) {
+            notifyAll();
+        }
+    }
+
+    private static void releaseUsage(Map<String, Usage> nameToUsage, String name, long memBytes) {
+        Usage usage = nameToUsage.get(name);
+        if (usage != null) {
+            usage.runningNum--;
+            usage.memBytes -= memBytes;
+            if (usage.runningNum <= 0) {
+                nameToUsage.remove(name);
+            }
+        }
+    }
+
+    private void removeWaiting(Ticket ticket) {
+        if (waitingTickets.remove(ticket)) {
+            incCounter(QUEUE_LENGTH_COUNTER_PREFIX + getGroupName(ticket.priority), -1);
+        }
+    }
+
+    private static void incCounter(String name, long delta) {
+        Counter counter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, name);
+        if (counter != null) {
+            counter.inc(delta);
+        }
+    }
+}
@@ -50,6 +50,7 @@ import com.baidu.palo.analysis.ShowProcesslistStmt;
 import com.baidu.palo.analysis.ShowRestoreStmt;
 import com.baidu.palo.analysis.ShowRollupStmt;
 import com.baidu.palo.analysis.ShowStmt;
+import com.baidu.palo.analysis.ShowTableStatsStmt;
 import com.baidu.palo.analysis.ShowTableStatusStmt;
 import com.baidu.palo.analysis.ShowTableStmt;
 import com.baidu.palo.analysis.ShowTabletStmt;
@@ -122,6 +123,8 @@ public class ShowExecutor {
             handleShowTable();
         } else if (stmt instanceof ShowTableStatusStmt) {
             handleShowTableStatus();
+        } else if (stmt instanceof ShowTableStatsStmt) {
+            handleShowTableStats();
         } else if (stmt instanceof DescribeStmt) {
             handleDescribe();
         } else if (stmt instanceof ShowCreateTableStmt) {
@@ -575,7 +578,7 @@ public class ShowExecutor {
 
         Load load = catalog.getLoadInstance();
         List<List<Comparable>> loadInfos = load.getLoadJobInfosByDb(dbId, showStmt.getLabelValue(),
-                showStmt.isAccurateMatch(), showStmt.getStates(), showStmt.getOrderByPairs());
+                showStmt.isAccurateMatch(), showStmt.getStates(), showStmt.getOrderByPairs(), showStmt.getLimit());
         List<List<String>> rows = Lists.newArrayList();
         for (List<Comparable> loadInfo : loadInfos) {
             List<String> oneInfo = new ArrayList<String>(loadInfo.size());
@@ -620,10 +623,16 @@ public class ShowExecutor {
             LOG.info("load_job_id={}", jobId);
             jobId = showWarningsStmt.getJobId();
             LoadJob job = load.getLoadJob(jobId);
-            if (job == null) {
-                throw new AnalysisException("job is not exist.");
+            if (job != null) {
+                label = job.getLabel();
+            } else {
+                // finished or cancelled job
+                List<Comparable> jobInfo = load.getArchivedLoadJobInfo(dbId, jobId);
+                if (jobInfo == null) {
+                    throw new AnalysisException("job is not exist.");
+                }
+                label = jobInfo.get(LoadProcDir.LABEL_INDEX).toString();
             }
-            label = job.getLabel();
             LOG.info("label={}", label);
         }
 
@@ -715,6 +724,11 @@ public class ShowExecutor {
         resultSet = new ShowResultSet(showStmt.getMetaData(), showStmt.getResultRows());
     }
 
+    private void handleShowTableStats() {
+        ShowTableStatsStmt showStmt = (ShowTableStatsStmt) stmt;
+        resultSet = new ShowResultSet(showStmt.getMetaData(), showStmt.getResultRows());
+    }
+
     private void handleShowPartitions() throws AnalysisException {
         ShowPartitionsStmt showStmt = (ShowPartitionsStmt) stmt;
 
@@ -41,6 +41,7 @@ import com.baidu.palo.catalog.Database;
 import com.baidu.palo.catalog.Table.TableType;
 import com.baidu.palo.catalog.Type;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.DdlException;
 import com.baidu.palo.common.ErrorCode;
 import com.baidu.palo.common.ErrorReport;
@@ -54,6 +55,7 @@ import com.baidu.palo.mysql.MysqlEofPacket;
 import com.baidu.palo.mysql.MysqlSerializer;
 import com.baidu.palo.planner.Planner;
 import com.baidu.palo.rewrite.ExprRewriter;
+import com.baidu.palo.service.ExecuteEnv;
 import com.baidu.palo.thrift.TExplainLevel;
 import com.baidu.palo.thrift.TQueryOptions;
 import com.baidu.palo.thrift.TResultBatch;
@@ -87,6 +89,7 @@ public class StmtExecutor {
     private StatementBase parsedStmt;
     private Analyzer analyzer;
     private boolean isRegisterQuery = false;
+    private volatile QueryAdmissionController.Ticket admissionTicket = null;
     private RuntimeProfile profile;
     private RuntimeProfile summaryProfile;
     private volatile Coordinator coord = null;
@@ -209,6 +212,7 @@ public class StmtExecutor {
                         }
                     } finally {
                         QeProcessor.unregisterQuery(context.queryId());
+                        releaseAdmission();
                     }
                 }
             } else if (parsedStmt instanceof SetStmt) {
@@ -259,6 +263,7 @@ public class StmtExecutor {
             if (isRegisterQuery) {
                 QeProcessor.unregisterQuery(context.queryId());
             }
+            releaseAdmission();
         }
     }
 
@@ -428,12 +433,37 @@ public class StmtExecutor {
 
     // Because this is called by other thread
     public void cancel() {
+        if (admissionTicket == null && !isProxy) {
+            // the query may be waiting for admission
+            ExecuteEnv.getInstance().getQueryAdmissionController().cancel(context.getConnectionId());
+        }
         Coordinator coordRef = coord;
         if (coordRef != null) {
             coordRef.cancel();
         }
     }
 
+    // Wait until the query is admitted to run, see QueryAdmissionController
+    private void admitQuery() throws DdlException {
+        String user = context.getUser();
+        SessionVariable sessionVariable = context.getSessionVariable();
+        long timeoutMs = Math.min(Config.query_queue_timeout_second, sessionVariable.getQueryTimeoutS()) * 1000L;
+        admissionTicket = ExecuteEnv.getInstance().getQueryAdmissionController().admit(
+                isProxy ? -1 : context.getConnectionId(), user, sessionVariable.getResourceGroup(),
+                sessionVariable.getMaxExecMemByte(),
+                context.getCatalog().getUserMgr().getMaxRunningQuery(user),
+                context.getCatalog().getUserMgr().getMaxRunningQueryMem(user),
+                timeoutMs);
+    }
+
+    private void releaseAdmission() {
+        QueryAdmissionController.Ticket ticket = admissionTicket;
+        if (ticket != null) {
+            admissionTicket = null;
+            ExecuteEnv.getInstance().getQueryAdmissionController().release(ticket);
+        }
+    }
+
     // Handle kill statement.
     private void handleKill() throws DdlException {
         KillStmt killStmt = (KillStmt) parsedStmt;
@@ -485,6 +515,7 @@ public class StmtExecutor {
             handleExplainStmt(explainString);
             return;
         }
+        admitQuery();
         coord = new Coordinator(context, analyzer, planner);
 
         QeProcessor.registerQuery(context.queryId(), coord);
@@ -539,6 +570,7 @@ public class StmtExecutor {
         UUID uuid = UUID.randomUUID();
         context.setQueryId(new TUniqueId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
 
+        admitQuery();
         coord = new Coordinator(context, analyzer, planner);
 
         QeProcessor.registerQuery(context.queryId(), coord);
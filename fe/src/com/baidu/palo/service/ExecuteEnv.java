@@ -23,15 +23,18 @@ package com.baidu.palo.service;
 import com.baidu.palo.common.Config;
 import com.baidu.palo.qe.ConnectScheduler;
 import com.baidu.palo.qe.MultiLoadMgr;
+import com.baidu.palo.qe.QueryAdmissionController;
 
 // Execute environment, used to save other module, need to singleton
 public class ExecuteEnv {
     private static ExecuteEnv INSTANCE;
     private MultiLoadMgr multiLoadMgr;
     private ConnectScheduler scheduler;
+    private QueryAdmissionController queryAdmissionController;
 
     public ExecuteEnv() {
         multiLoadMgr = new MultiLoadMgr();
+        queryAdmissionController = new QueryAdmissionController();
     }
 
     public static ExecuteEnv getInstance() {
@@ -53,4 +56,8 @@ public class ExecuteEnv {
     public MultiLoadMgr getMultiLoadMgr() {
         return multiLoadMgr;
     }
+
+    public QueryAdmissionController getQueryAdmissionController() {
+        return queryAdmissionController;
+    }
 }
@@ -16,7 +16,9 @@
 package com.baidu.palo.service;
 
 import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.ThriftServer;
+import com.baidu.palo.common.ThriftServer.ThriftServerType;
 import com.baidu.palo.ha.FrontendNodeType;
 import com.baidu.palo.thrift.FrontendService;
 
@@ -57,11 +59,19 @@ public class FeServer {
             }
 
             // setup frontend server
-            TProcessor tprocessor = new FrontendService.Processor<FrontendService.Iface>(
-                    new FrontendServiceImpl(ExecuteEnv.getInstance()));
-            server = new ThriftServer(port, tprocessor);
+            FrontendServiceImpl serviceImpl = new FrontendServiceImpl(ExecuteEnv.getInstance());
+            ThriftServerType serverType = ThriftServerType.getType(Config.thrift_server_type);
+            TProcessor tprocessor = null;
+            if (serverType == ThriftServerType.THREADED) {
+                // requests are executed in the pools of FrontendServiceAsyncImpl
+                tprocessor = new FrontendService.AsyncProcessor<FrontendService.AsyncIface>(
+                        new FrontendServiceAsyncImpl(serviceImpl));
+            } else {
+                tprocessor = new FrontendService.Processor<FrontendService.Iface>(serviceImpl);
+            }
+            server = new ThriftServer(port, tprocessor, serverType);
             server.start();
-            LOG.info("thrift server started.");
+            LOG.info("thrift server started. type: {}", serverType);
             break;
         }
     }
@@ -0,0 +1,274 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.service;
+
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.Metrics;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
+import com.baidu.palo.thrift.FrontendService;
+import com.baidu.palo.thrift.TDescribeTableParams;
+import com.baidu.palo.thrift.TFinishTaskRequest;
+import com.baidu.palo.thrift.TGetDbsParams;
+import com.baidu.palo.thrift.TGetTablesParams;
+import com.baidu.palo.thrift.TLoadCheckRequest;
+import com.baidu.palo.thrift.TMasterOpRequest;
+import com.baidu.palo.thrift.TMiniLoadRequest;
+import com.baidu.palo.thrift.TReportExecStatusParams;
+import com.baidu.palo.thrift.TReportRequest;
+import com.baidu.palo.thrift.TShowVariableRequest;
+import com.baidu.palo.thrift.TUpdateExportTaskStatusRequest;
+import com.baidu.palo.thrift.TUpdateMiniEtlTaskStatusRequest;
+
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.Histogram;
+import io.dropwizard.metrics.Timer;
+
+// Frontend service used by the non-blocking thrift server.
+// Requests are executed by FrontendServiceImpl in a bounded pool of their category,
+// so that a storm of one kind of requests (eg. tablet reports) can not delay the others.
+// Queue depth, latency and rejected count of each category are recorded in Metrics.
+public class FrontendServiceAsyncImpl implements FrontendService.AsyncIface {
+    private static final Logger LOG = LogManager.getLogger(FrontendServiceAsyncImpl.class);
+
+    public enum RequestCategory {
+        QUERY,
+        REPORT,
+        LOAD,
+        FORWARD
+    }
+
+    private final FrontendService.Iface impl;
+    private final Map<RequestCategory, ThreadPoolExecutor> executors = Maps.newEnumMap(RequestCategory.class);
+
+    public FrontendServiceAsyncImpl(FrontendService.Iface impl) {
+        this.impl = impl;
+        executors.put(RequestCategory.QUERY, createExecutor(RequestCategory.QUERY,
+                                                            Config.thrift_server_query_thread_num));
+        executors.put(RequestCategory.REPORT, createExecutor(RequestCategory.REPORT,
+                                                             Config.thrift_server_report_thread_num));
+        executors.put(RequestCategory.LOAD, createExecutor(RequestCategory.LOAD,
+                                                           Config.thrift_server_load_thread_num));
+        executors.put(RequestCategory.FORWARD, createExecutor(RequestCategory.FORWARD,
+                                                              Config.thrift_server_forward_thread_num));
+    }
+
+    private static ThreadPoolExecutor createExecutor(RequestCategory category, int threadNum) {
+        return ThreadPoolManager.newFixedThreadPool("thrift-server-" + category.name().toLowerCase(), threadNum,
+                                                    Math.max(1, Config.thrift_server_queue_size), RejectPolicy.ABORT);
+    }
+
+    private static String metricName(RequestCategory category, String name) {
+        return "thrift_server." + category.name().toLowerCase() + "." + name;
+    }
+
+    private void submit(final RequestCategory category, final AsyncMethodCallback resultHandler,
+                        final Callable<?> request) {
+        ThreadPoolExecutor executor = executors.get(category);
+        final long submitTime = System.nanoTime();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Object result = null;
+                    try {
+                        result = request.call();
+                    } catch (Exception e) {
+                        LOG.warn("execute {} request failed.", category, e);
+                        resultHandler.onError(e);
+                        return;
+                    } finally {
+                        Timer latency = (Timer) Metrics.getMetric(Metrics.MetricType.TIMER,
+                                metricName(category, "latency"));
+                        latency.update(System.nanoTime() - submitTime, TimeUnit.NANOSECONDS);
+                    }
+                    resultHandler.onComplete(result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Counter rejected = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER,
+                    metricName(category, "rejected"));
+            rejected.inc();
+            LOG.warn("too many {} requests, reject it. queue size: {}", category, executor.getQueue().size());
+            resultHandler.onError(new TException("FE is too busy to handle " + category + " request"));
+            return;
+        }
+        Histogram queueDepth = (Histogram) Metrics.getMetric(Metrics.MetricType.HISTOGRAM,
+                metricName(category, "queue_depth"));
+        queueDepth.update(executor.getQueue().size());
+    }
+
+    @Override
+    public void getDbNames(final TGetDbsParams params, AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.QUERY, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.getDbNames(params);
+            }
+        });
+    }
+
+    @Override
+    public void getTableNames(final TGetTablesParams params, AsyncMethodCallback resultHandler)
+            throws TException {
+        submit(RequestCategory.QUERY, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.getTableNames(params);
+            }
+        });
+    }
+
+    @Override
+    public void describeTable(final TDescribeTableParams params, AsyncMethodCallback resultHandler)
+            throws TException {
+        submit(RequestCategory.QUERY, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.describeTable(params);
+            }
+        });
+    }
+
+    @Override
+    public void showVariables(final TShowVariableRequest params, AsyncMethodCallback resultHandler)
+            throws TException {
+        submit(RequestCategory.QUERY, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.showVariables(params);
+            }
+        });
+    }
+
+    @Override
+    public void reportExecStatus(final TReportExecStatusParams params, AsyncMethodCallback resultHandler)
+            throws TException {
+        submit(RequestCategory.QUERY, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.reportExecStatus(params);
+            }
+        });
+    }
+
+    @Override
+    public void finishTask(final TFinishTaskRequest request, AsyncMethodCallback resultHandler)
+            throws TException {
+        submit(RequestCategory.REPORT, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.finishTask(request);
+            }
+        });
+    }
+
+    @Override
+    public void report(final TReportRequest request, AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.REPORT, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.report(request);
+            }
+        });
+    }
+
+    @Override
+    public void fetchResource(AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.REPORT, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.fetchResource();
+            }
+        });
+    }
+
+    @Override
+    public void miniLoad(final TMiniLoadRequest request, AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.LOAD, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.miniLoad(request);
+            }
+        });
+    }
+
+    @Override
+    public void updateMiniEtlTaskStatus(final TUpdateMiniEtlTaskStatusRequest request,
+                                        AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.LOAD, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.updateMiniEtlTaskStatus(request);
+            }
+        });
+    }
+
+    @Override
+    public void loadCheck(final TLoadCheckRequest request, AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.LOAD, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.loadCheck(request);
+            }
+        });
+    }
+
+    @Override
+    public void forward(final TMasterOpRequest params, AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.FORWARD, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.forward(params);
+            }
+        });
+    }
+
+    @Override
+    public void listTableStatus(final TGetTablesParams params, AsyncMethodCallback resultHandler)
+            throws TException {
+        submit(RequestCategory.QUERY, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.listTableStatus(params);
+            }
+        });
+    }
+
+    @Override
+    public void updateExportTaskStatus(final TUpdateExportTaskStatusRequest request,
+                                       AsyncMethodCallback resultHandler) throws TException {
+        submit(RequestCategory.LOAD, resultHandler, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return impl.updateExportTaskStatus(request);
+            }
+        });
+    }
+}
@@ -20,11 +20,14 @@ import com.baidu.palo.catalog.Database;
 import com.baidu.palo.cluster.Cluster;
 import com.baidu.palo.common.AnalysisException;
 import com.baidu.palo.common.ClientPool;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.DdlException;
 import com.baidu.palo.common.FeConstants;
 import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.common.util.Daemon;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
 import com.baidu.palo.system.Backend.BackendState;
 import com.baidu.palo.system.BackendEvent.BackendEventType;
 import com.baidu.palo.thrift.HeartbeatService;
@@ -61,7 +64,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -76,7 +80,8 @@ public class SystemInfoService extends Daemon {
                                                                                            // to
                                                                                            // persist
 
-    private final ExecutorService executor;
+    // created when heartbeat starts, not in constructor, because checkpoint creates another instance
+    private ExecutorService executor;
 
     private final EventBus eventBus;
 
@@ -113,8 +118,6 @@ public class SystemInfoService extends Daemon {
         idToReportVersionRef = new AtomicReference<ImmutableMap<Long, AtomicLong>>(
                 ImmutableMap.<Long, AtomicLong> of());
 
-        executor = Executors.newCachedThreadPool();
-
         eventBus = new EventBus("backendEvent");
 
         lastBackendIdForCreationMap = new ConcurrentHashMap<String, Long>();
@@ -1114,17 +1117,37 @@ public class SystemInfoService extends Daemon {
 
     @Override
     protected void runOneCycle() {
+        if (executor == null) {
+            // heartbeats are skipped until next round if the queue is full
+            executor = ThreadPoolManager.newFixedThreadPool("heartbeat", Config.heartbeat_thread_num,
+                                                            Config.heartbeat_queue_size, RejectPolicy.ABORT);
+        }
         ImmutableMap<Long, HeartbeatHandler> idToHeartbeatHandler = idToHeartbeatHandlerRef.get();
         Iterator<HeartbeatHandler> iterator = idToHeartbeatHandler.values().iterator();
         while (iterator.hasNext()) {
             HeartbeatHandler heartbeatHandler = iterator.next();
-            executor.submit(heartbeatHandler);
+            // a backend which does not respond in time occupies at most one thread or queue slot,
+            // so it can not delay the heartbeats of other backends round after round.
+            if (!heartbeatHandler.pending.compareAndSet(false, true)) {
+                LOG.warn("last heartbeat of backend[{}] is not finished, skip this round",
+                         heartbeatHandler.backend.getId());
+                continue;
+            }
+            try {
+                executor.submit(heartbeatHandler);
+            } catch (RejectedExecutionException e) {
+                LOG.warn("heartbeat of backend[{}] is skipped: {}", heartbeatHandler.backend.getId(),
+                         e.getMessage());
+                heartbeatHandler.pending.set(false);
+            }
         }
     }
 
     private class HeartbeatHandler implements Runnable {
         private Backend backend;
         private TNetworkAddress address;
+        // true from submitted until finished
+        private final AtomicBoolean pending = new AtomicBoolean(false);
 
         public HeartbeatHandler(Backend backend, TNetworkAddress networkAddress) {
             this.backend = backend;
@@ -1160,6 +1183,7 @@ public class SystemInfoService extends Daemon {
                 } else {
                     ClientPool.heartbeatPool.invalidateObject(address, client);
                 }
+                pending.set(false);
             }
         }
     }
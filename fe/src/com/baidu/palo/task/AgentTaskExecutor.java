@@ -15,11 +15,15 @@
 
 package com.baidu.palo.task;
 
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
+
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class AgentTaskExecutor {
-    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+    private static final ExecutorService EXECUTOR = ThreadPoolManager.newCachedThreadPool("agent-task",
+            Config.agent_task_thread_num, RejectPolicy.CALLER_RUNS);
 
     public AgentTaskExecutor() {
     }
@@ -209,6 +209,15 @@ public class AgentTaskQueue {
         return taskNum;
     }
 
+    // backend id -> number of tasks of the type
+    public static synchronized Map<Long, Integer> getTaskNumOfBackends(TTaskType type) {
+        Map<Long, Integer> backendToTaskNum = Maps.newHashMap();
+        for (Map.Entry<Long, Map<Long, AgentTask>> entry : tasks.column(type).entrySet()) {
+            backendToTaskNum.put(entry.getKey(), entry.getValue().size());
+        }
+        return backendToTaskNum;
+    }
+
     public static synchronized List<AgentTask> getFailedTask(long backendId, TTaskType type) {
         Map<Long, AgentTask> taskMap = tasks.get(backendId, type);
         List<AgentTask> tasks = Lists.newArrayList();
@@ -0,0 +1,528 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.task;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Table;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.TimeUtils;
+import com.baidu.palo.persist.BatchReplicaPersistInfo;
+import com.baidu.palo.persist.ReplicaPersistInfo;
+import com.baidu.palo.thrift.TTaskType;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Create replicas of the new partitions of a table.
+ *
+ * The DDL waits until a quorum of replicas of every tablet is created, and returns.
+ * The left replicas are created in background by CreateReplicaScheduler.
+ *
+ * Replicas are added to meta with a version lower than the partition version, so that they are not
+ * queried before they are created in backend. A replica is raised to the partition version when it is
+ * created, and is deleted from meta if it fails to be created, then clone will supplement it.
+ * Before the new partitions are written to edit log, created replicas are raised in place (prepareToPublish).
+ * After that (publish), replicas are updated with edit log by the scheduler, and the left ones are recorded in
+ * PendingCreateReplicas, so that they are created again by a job of the new master if master is changed.
+ */
+public class CreateReplicaJob {
+    private static final Logger LOG = LogManager.getLogger(CreateReplicaJob.class);
+    // max num of raised replicas written in one edit log
+    private static final int MAX_LOG_BATCH_SIZE = 1000;
+
+    public enum JobState {
+        RUNNING,
+        FINISHED,
+        CANCELLED
+    }
+
+    private enum TaskState {
+        WAITING,
+        RUNNING,
+        FINISHED,
+        FAILED
+    }
+
+    private static class TaskInfo {
+        private final CreateReplicaTask task;
+        private final Replica replica;
+        private TaskState state = TaskState.WAITING;
+        private long sendTimeMs = -1;
+        private int sendTimes = 0;
+        // failed times of the task when it is sent
+        private int failedTimes = 0;
+        // whether the state of task is applied to meta
+        private boolean applied = false;
+
+        public TaskInfo(CreateReplicaTask task, Replica replica) {
+            this.task = task;
+            this.replica = replica;
+        }
+    }
+
+    private static class TabletProgress {
+        private final int replicationNum;
+        private final int quorum;
+        private int finishedNum = 0;
+        private int failedNum = 0;
+
+        public TabletProgress(int replicationNum) {
+            this.replicationNum = replicationNum;
+            this.quorum = replicationNum / 2 + 1;
+        }
+    }
+
+    private final long id;
+    private final long dbId;
+    private final long tableId;
+    private final String tableName;
+
+    private JobState state = JobState.RUNNING;
+    private final long createTimeMs;
+    private long quorumTimeMs = -1;
+    private long finishTimeMs = -1;
+    private String errMsg = null;
+    private boolean published = false;
+
+    // backend id -> tasks to be sent to the backend, in order
+    private final Map<Long, LinkedList<TaskInfo>> backendToWaitingTasks = Maps.newHashMap();
+    private final Map<Long, Integer> backendToRunningNum = Maps.newHashMap();
+    private final List<TaskInfo> tasks = Lists.newArrayList();
+    // tablet id -> progress
+    private final Map<Long, TabletProgress> tabletProgresses = Maps.newHashMap();
+    private int unquorumTabletNum = 0;
+    private int finishedTaskNum = 0;
+    private int failedTaskNum = 0;
+
+    public CreateReplicaJob(long id, long dbId, long tableId, String tableName) {
+        this.id = id;
+        this.dbId = dbId;
+        this.tableId = tableId;
+        this.tableName = tableName;
+        this.createTimeMs = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getDbId() {
+        return dbId;
+    }
+
+    public long getTableId() {
+        return tableId;
+    }
+
+    public synchronized JobState getState() {
+        return state;
+    }
+
+    public synchronized long getFinishTimeMs() {
+        return finishTimeMs;
+    }
+
+    public synchronized int getTaskNum() {
+        return tasks.size();
+    }
+
+    // Add the task to create 'replica', whose tablet has 'replicationNum' replicas.
+    public synchronized void addTask(CreateReplicaTask task, Replica replica, short replicationNum) {
+        TaskInfo taskInfo = new TaskInfo(task, replica);
+        tasks.add(taskInfo);
+        LinkedList<TaskInfo> waitingTasks = backendToWaitingTasks.get(task.getBackendId());
+        if (waitingTasks == null) {
+            waitingTasks = new LinkedList<TaskInfo>();
+            backendToWaitingTasks.put(task.getBackendId(), waitingTasks);
+        }
+        waitingTasks.add(taskInfo);
+        if (!tabletProgresses.containsKey(task.getTabletId())) {
+            tabletProgresses.put(task.getTabletId(), new TabletProgress(replicationNum));
+            ++unquorumTabletNum;
+        }
+        task.setJob(this);
+        // add to AgentTaskQueue for handling finish report, and for report handler to know
+        // that the replica is being created.
+        AgentTaskQueue.addTask(task);
+    }
+
+    public synchronized List<Long> getBackendIds() {
+        return Lists.newArrayList(backendToWaitingTasks.keySet());
+    }
+
+    public synchronized int getRunningTaskNum(long backendId) {
+        Integer num = backendToRunningNum.get(backendId);
+        return num == null ? 0 : num;
+    }
+
+    // Return at most 'maxNum' tasks to be sent to the backend, and mark them running.
+    public synchronized List<AgentTask> pollTasksToSend(long backendId, int maxNum) {
+        List<AgentTask> result = Lists.newArrayList();
+        if (state != JobState.RUNNING) {
+            return result;
+        }
+        LinkedList<TaskInfo> waitingTasks = backendToWaitingTasks.get(backendId);
+        long now = System.currentTimeMillis();
+        while (waitingTasks != null && !waitingTasks.isEmpty() && result.size() < maxNum) {
+            TaskInfo taskInfo = waitingTasks.poll();
+            taskInfo.state = TaskState.RUNNING;
+            taskInfo.sendTimeMs = now;
+            taskInfo.failedTimes = taskInfo.task.getFailedTimes();
+            ++taskInfo.sendTimes;
+            result.add(taskInfo.task);
+        }
+        backendToRunningNum.put(backendId, getRunningTaskNum(backendId) + result.size());
+        return result;
+    }
+
+    public synchronized void finishTask(CreateReplicaTask task) {
+        for (TaskInfo taskInfo : findTasks(task)) {
+            if (taskInfo.state == TaskState.FINISHED || taskInfo.state == TaskState.FAILED) {
+                continue;
+            }
+            if (taskInfo.state == TaskState.RUNNING) {
+                decreaseRunningNum(task.getBackendId());
+            } else {
+                backendToWaitingTasks.get(task.getBackendId()).remove(taskInfo);
+            }
+            taskInfo.state = TaskState.FINISHED;
+            ++finishedTaskNum;
+
+            TabletProgress progress = tabletProgresses.get(task.getTabletId());
+            ++progress.finishedNum;
+            if (progress.finishedNum == progress.quorum) {
+                --unquorumTabletNum;
+                if (unquorumTabletNum == 0) {
+                    quorumTimeMs = System.currentTimeMillis();
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private List<TaskInfo> findTasks(CreateReplicaTask task) {
+        List<TaskInfo> result = Lists.newArrayList();
+        for (TaskInfo taskInfo : tasks) {
+            if (taskInfo.task == task) {
+                result.add(taskInfo);
+            }
+        }
+        return result;
+    }
+
+    private void decreaseRunningNum(long backendId) {
+        backendToRunningNum.put(backendId, Math.max(0, getRunningTaskNum(backendId) - 1));
+    }
+
+    // Send the failed and timeout tasks again, or mark them failed if they have been retried too many times.
+    public synchronized void checkRunningTasks() {
+        if (state != JobState.RUNNING) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long timeoutMs = Config.create_replica_task_timeout_second * 1000L;
+        for (TaskInfo taskInfo : tasks) {
+            if (taskInfo.state != TaskState.RUNNING) {
+                continue;
+            }
+            boolean isFailed = taskInfo.task.getFailedTimes() > taskInfo.failedTimes;
+            if (!isFailed && now - taskInfo.sendTimeMs < timeoutMs) {
+                continue;
+            }
+
+            CreateReplicaTask task = taskInfo.task;
+            decreaseRunningNum(task.getBackendId());
+            if (taskInfo.sendTimes <= Config.create_replica_max_retry_times) {
+                LOG.info("create replica task {}, send it again. tablet: {}, job: {}",
+                         isFailed ? "failed" : "timeout", task.getTabletId(), id);
+                taskInfo.state = TaskState.WAITING;
+                backendToWaitingTasks.get(task.getBackendId()).addFirst(taskInfo);
+                continue;
+            }
+
+            LOG.warn("failed to create replica of tablet {} on backend {}, job: {}",
+                     task.getTabletId(), task.getBackendId(), id);
+            taskInfo.state = TaskState.FAILED;
+            ++failedTaskNum;
+            AgentTaskQueue.removeTask(task.getBackendId(), TTaskType.CREATE, task.getSignature());
+
+            TabletProgress progress = tabletProgresses.get(task.getTabletId());
+            ++progress.failedNum;
+            if (progress.finishedNum < progress.quorum
+                    && progress.replicationNum - progress.failedNum < progress.quorum) {
+                errMsg = "Failed to create quorum replicas of tablet " + task.getTabletId();
+                notifyAll();
+            }
+        }
+    }
+
+    // Wait until a quorum of replicas of every tablet is created.
+    // Return false if timeout or it is impossible to create quorum replicas.
+    public synchronized boolean waitQuorum(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (unquorumTabletNum > 0 && errMsg == null) {
+            long leftMs = deadline - System.currentTimeMillis();
+            if (leftMs <= 0) {
+                break;
+            }
+            wait(leftMs);
+        }
+        return unquorumTabletNum == 0;
+    }
+
+    public synchronized String getErrMsg() {
+        return errMsg;
+    }
+
+    // Return (backend id, tablet id) of the replicas which are not created yet.
+    public synchronized List<String> getUnfinishedReplicas() {
+        List<String> result = Lists.newArrayList();
+        for (TaskInfo taskInfo : tasks) {
+            if (taskInfo.state != TaskState.FINISHED) {
+                result.add(taskInfo.task.getBackendId() + "=" + taskInfo.task.getTabletId());
+            }
+        }
+        return result;
+    }
+
+    // Raise the created replicas to partition version.
+    // Called before the new partitions are written to edit log, so no lock and edit log is needed.
+    public synchronized void prepareToPublish() {
+        for (TaskInfo taskInfo : tasks) {
+            if (taskInfo.state == TaskState.FINISHED) {
+                taskInfo.replica.updateInfo(taskInfo.task.getVersion(), taskInfo.task.getVersionHash(), 0L, 0L);
+                taskInfo.applied = true;
+            }
+        }
+    }
+
+    // Called after the new partitions are written to edit log.
+    public synchronized void publish() {
+        published = true;
+        PendingCreateReplicas pendingReplicas = Catalog.getInstance().getPendingCreateReplicas();
+        for (TaskInfo taskInfo : tasks) {
+            if (!taskInfo.applied) {
+                pendingReplicas.add(createReplicaPersistInfo(taskInfo));
+            }
+        }
+    }
+
+    /*
+     * Add the task to create the replica which is left by the former master.
+     * Return false if it needs not to be created any more, eg. it is dropped, or the partition is loaded
+     * after it is added, in which case it is repaired by clone as other lagging replicas.
+     * Should be called with db lock held.
+     */
+    public synchronized boolean addPendingTask(Database db, ReplicaPersistInfo info) {
+        Replica replica = PendingCreateReplicas.getReplica(db, info);
+        if (replica == null) {
+            return false;
+        }
+        OlapTable olapTable = (OlapTable) db.getTable(info.getTableId());
+        Partition partition = olapTable.getPartition(info.getPartitionId());
+        if (partition.getCommittedVersion() != info.getVersion()
+                || partition.getCommittedVersionHash() != info.getVersionHash()) {
+            return false;
+        }
+
+        long partitionId = partition.getId();
+        long indexId = info.getIndexId();
+        CreateReplicaTask task = new CreateReplicaTask(info.getBackendId(), dbId, tableId, partitionId, indexId,
+                                                       info.getTabletId(),
+                                                       olapTable.getShortKeyColumnCountByIndexId(indexId),
+                                                       olapTable.getSchemaHashByIndexId(indexId),
+                                                       info.getVersion(), info.getVersionHash(),
+                                                       olapTable.getKeysType(),
+                                                       olapTable.getStorageTypeByIndexId(indexId),
+                                                       olapTable.getPartitionInfo().getDataProperty(partitionId)
+                                                               .getStorageMedium(),
+                                                       olapTable.getSchemaByIndexId(indexId),
+                                                       olapTable.getCopiedBfColumns(), olapTable.getBfFpp(),
+                                                       null);
+        addTask(task, replica, olapTable.getPartitionInfo().getReplicationNum(partitionId));
+        return true;
+    }
+
+    public synchronized void cancel(String reason) {
+        if (state != JobState.RUNNING) {
+            return;
+        }
+        for (TaskInfo taskInfo : tasks) {
+            if (taskInfo.state == TaskState.WAITING || taskInfo.state == TaskState.RUNNING) {
+                CreateReplicaTask task = taskInfo.task;
+                AgentTaskQueue.removeTask(task.getBackendId(), TTaskType.CREATE, task.getSignature());
+            }
+        }
+        backendToWaitingTasks.clear();
+        backendToRunningNum.clear();
+        state = JobState.CANCELLED;
+        finishTimeMs = System.currentTimeMillis();
+        if (errMsg == null) {
+            errMsg = reason;
+        }
+        LOG.info("cancel create replica job {} of table {}: {}", id, tableName, reason);
+    }
+
+    // Apply the created and failed replicas to meta after published, and finish the job
+    // if all replicas are done.
+    public void applyToMeta() {
+        synchronized (this) {
+            if (state != JobState.RUNNING || !published) {
+                return;
+            }
+        }
+
+        Database db = Catalog.getInstance().getDb(dbId);
+        if (db == null) {
+            cancel("database is dropped");
+            return;
+        }
+        db.writeLock();
+        try {
+            Table table = db.getTable(tableId);
+            if (table == null) {
+                cancel("table is dropped");
+                return;
+            }
+            OlapTable olapTable = (OlapTable) table;
+            synchronized (this) {
+                if (state != JobState.RUNNING) {
+                    return;
+                }
+                boolean allDone = true;
+                List<ReplicaPersistInfo> finishedInfos = Lists.newArrayList();
+                for (TaskInfo taskInfo : tasks) {
+                    if (taskInfo.applied) {
+                        continue;
+                    }
+                    // the failed replica may have been created, and is raised by tablet report
+                    if (taskInfo.state == TaskState.FINISHED || (taskInfo.state == TaskState.FAILED
+                            && taskInfo.replica.getVersion() >= taskInfo.task.getVersion())) {
+                        if (applyFinishedReplica(olapTable, taskInfo)) {
+                            finishedInfos.add(createReplicaPersistInfo(taskInfo));
+                        }
+                        taskInfo.applied = true;
+                    } else if (taskInfo.state == TaskState.FAILED) {
+                        applyFailedReplica(olapTable, taskInfo);
+                        taskInfo.applied = true;
+                    } else {
+                        allDone = false;
+                    }
+                }
+                logAddReplicas(finishedInfos);
+                if (allDone) {
+                    state = JobState.FINISHED;
+                    finishTimeMs = System.currentTimeMillis();
+                    LOG.info("finish create replica job {} of table {}. replica num: {}, failed: {}",
+                             id, tableName, tasks.size(), failedTaskNum);
+                }
+            }
+        } finally {
+            db.writeUnlock();
+        }
+    }
+
+    private Tablet getTablet(OlapTable olapTable, CreateReplicaTask task) {
+        Partition partition = olapTable.getPartition(task.getPartitionId());
+        if (partition == null) {
+            return null;
+        }
+        MaterializedIndex index = partition.getIndex(task.getIndexId());
+        if (index == null) {
+            return null;
+        }
+        return index.getTablet(task.getTabletId());
+    }
+
+    private ReplicaPersistInfo createReplicaPersistInfo(TaskInfo taskInfo) {
+        CreateReplicaTask task = taskInfo.task;
+        return ReplicaPersistInfo.createForAdd(dbId, tableId, task.getPartitionId(), task.getIndexId(),
+                                               task.getTabletId(), task.getBackendId(), taskInfo.replica.getId(),
+                                               task.getVersion(), task.getVersionHash(), 0L, 0L);
+    }
+
+    // Return false if the replica is not in meta any more.
+    private boolean applyFinishedReplica(OlapTable olapTable, TaskInfo taskInfo) {
+        CreateReplicaTask task = taskInfo.task;
+        Tablet tablet = getTablet(olapTable, task);
+        if (tablet == null || tablet.getReplicaByBackendId(task.getBackendId()) != taskInfo.replica) {
+            // partition is dropped or replica is replaced
+            return false;
+        }
+        taskInfo.replica.updateInfo(task.getVersion(), task.getVersionHash(), 0L, 0L);
+        return true;
+    }
+
+    // Write the raised replicas to edit log in batches, instead of an OP_ADD_REPLICA for each one.
+    private void logAddReplicas(List<ReplicaPersistInfo> infos) {
+        for (List<ReplicaPersistInfo> batch : Lists.partition(infos, MAX_LOG_BATCH_SIZE)) {
+            Catalog.getInstance().getEditLog().logBatchAddReplica(
+                    new BatchReplicaPersistInfo(Lists.newArrayList(batch)));
+        }
+        PendingCreateReplicas pendingReplicas = Catalog.getInstance().getPendingCreateReplicas();
+        for (ReplicaPersistInfo info : infos) {
+            pendingReplicas.remove(info.getTabletId(), info.getBackendId());
+        }
+    }
+
+    private void applyFailedReplica(OlapTable olapTable, TaskInfo taskInfo) {
+        CreateReplicaTask task = taskInfo.task;
+        Tablet tablet = getTablet(olapTable, task);
+        if (tablet == null || tablet.getReplicaByBackendId(task.getBackendId()) != taskInfo.replica
+                || tablet.getReplicas().size() <= 1) {
+            return;
+        }
+        // delete it from meta, and clone will supplement a new one
+        tablet.deleteReplica(taskInfo.replica);
+        Catalog.getInstance().handleJobsWhenDeleteReplica(tableId, task.getPartitionId(), task.getIndexId(),
+                                                          task.getTabletId(), taskInfo.replica.getId(),
+                                                          task.getBackendId());
+        ReplicaPersistInfo info = ReplicaPersistInfo.createForDelete(dbId, tableId, task.getPartitionId(),
+                task.getIndexId(), task.getTabletId(), task.getBackendId());
+        Catalog.getInstance().getEditLog().logDeleteReplica(info);
+        Catalog.getInstance().getPendingCreateReplicas().remove(task.getTabletId(), task.getBackendId());
+    }
+
+    public synchronized List<Comparable> getInfo() {
+        List<Comparable> info = Lists.newArrayList();
+        info.add(id);
+        info.add(dbId);
+        info.add(tableId);
+        info.add(tableName);
+        info.add(state.name());
+        info.add(finishedTaskNum + "/" + tasks.size());
+        info.add(failedTaskNum);
+        info.add(TimeUtils.longToTimeString(createTimeMs));
+        info.add(TimeUtils.longToTimeString(quorumTimeMs));
+        info.add(TimeUtils.longToTimeString(finishTimeMs));
+        info.add(errMsg == null ? "N/A" : errMsg);
+        return info;
+    }
+}
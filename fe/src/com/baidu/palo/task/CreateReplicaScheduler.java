@@ -0,0 +1,209 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.task;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.Table;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.Daemon;
+import com.baidu.palo.persist.ReplicaPersistInfo;
+import com.baidu.palo.task.CreateReplicaJob.JobState;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Send create replica tasks of CreateReplicaJobs to backends, with at most
+ * Config.max_create_replica_task_num_per_backend running tasks on each backend,
+ * and apply the results of the tasks to meta.
+ */
+public class CreateReplicaScheduler extends Daemon {
+    private static final Logger LOG = LogManager.getLogger(CreateReplicaScheduler.class);
+    private static final long SCHEDULE_INTERVAL_MS = 1000L;
+    private static final int MAX_HISTORY_JOB_NUM = 100;
+
+    private static CreateReplicaScheduler INSTANCE = null;
+
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    // job id -> running job
+    private final Map<Long, CreateReplicaJob> runningJobs = Maps.newLinkedHashMap();
+    private final LinkedList<CreateReplicaJob> historyJobs = Lists.newLinkedList();
+
+    private CreateReplicaScheduler(long intervalMs) {
+        super("create replica scheduler", intervalMs);
+    }
+
+    public static synchronized CreateReplicaScheduler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new CreateReplicaScheduler(SCHEDULE_INTERVAL_MS);
+        }
+        return INSTANCE;
+    }
+
+    public CreateReplicaJob createJob(long dbId, long tableId, String tableName) {
+        return new CreateReplicaJob(nextJobId.getAndIncrement(), dbId, tableId, tableName);
+    }
+
+    public void submit(CreateReplicaJob job) {
+        synchronized (this) {
+            runningJobs.put(job.getId(), job);
+        }
+        LOG.info("submit create replica job {}, replica num: {}", job.getId(), job.getTaskNum());
+        schedule();
+    }
+
+    /*
+     * Create the replicas which are left by the former master again, with a job for each table.
+     * Called when this frontend becomes master.
+     */
+    public void recoverPendingReplicas(PendingCreateReplicas pendingReplicas) {
+        // table id -> job
+        Map<Long, CreateReplicaJob> tableIdToJob = Maps.newLinkedHashMap();
+        for (ReplicaPersistInfo info : pendingReplicas.getReplicas()) {
+            Database db = Catalog.getInstance().getDb(info.getDbId());
+            if (db == null) {
+                pendingReplicas.remove(info.getTabletId(), info.getBackendId());
+                continue;
+            }
+            db.readLock();
+            try {
+                Table table = db.getTable(info.getTableId());
+                CreateReplicaJob job = tableIdToJob.get(info.getTableId());
+                if (job == null && table != null) {
+                    job = createJob(info.getDbId(), info.getTableId(), table.getName());
+                }
+                if (job == null || !job.addPendingTask(db, info)) {
+                    pendingReplicas.remove(info.getTabletId(), info.getBackendId());
+                    continue;
+                }
+                tableIdToJob.put(info.getTableId(), job);
+            } finally {
+                db.readUnlock();
+            }
+        }
+
+        for (CreateReplicaJob job : tableIdToJob.values()) {
+            LOG.info("recover create replica job {} of table {}", job.getId(), job.getTableId());
+            job.publish();
+            submit(job);
+        }
+    }
+
+    // called when a create replica task of job is reported finished
+    public void finishTask(CreateReplicaTask task) {
+        CreateReplicaJob job = task.getJob();
+        if (job == null) {
+            return;
+        }
+        job.finishTask(task);
+        schedule();
+    }
+
+    // Send tasks to backends which have free slots. Jobs are served in the order of submission.
+    private synchronized void schedule() {
+        Map<Long, AgentBatchTask> backendToBatchTask = Maps.newHashMap();
+        Map<Long, Integer> backendToRunningNum = Maps.newHashMap();
+        for (CreateReplicaJob job : runningJobs.values()) {
+            for (Long backendId : job.getBackendIds()) {
+                Integer runningNum = backendToRunningNum.get(backendId);
+                if (runningNum == null) {
+                    runningNum = getRunningTaskNum(backendId);
+                }
+                int freeNum = Config.max_create_replica_task_num_per_backend - runningNum;
+                if (freeNum <= 0) {
+                    continue;
+                }
+                List<AgentTask> tasks = job.pollTasksToSend(backendId, freeNum);
+                if (tasks.isEmpty()) {
+                    continue;
+                }
+                AgentBatchTask batchTask = backendToBatchTask.get(backendId);
+                if (batchTask == null) {
+                    batchTask = new AgentBatchTask();
+                    backendToBatchTask.put(backendId, batchTask);
+                }
+                for (AgentTask task : tasks) {
+                    batchTask.addTask(task);
+                }
+                backendToRunningNum.put(backendId, runningNum + tasks.size());
+            }
+        }
+
+        for (AgentBatchTask batchTask : backendToBatchTask.values()) {
+            AgentTaskExecutor.submit(batchTask);
+        }
+    }
+
+    private int getRunningTaskNum(long backendId) {
+        int num = 0;
+        for (CreateReplicaJob job : runningJobs.values()) {
+            num += job.getRunningTaskNum(backendId);
+        }
+        return num;
+    }
+
+    @Override
+    protected void runOneCycle() {
+        List<CreateReplicaJob> jobs;
+        synchronized (this) {
+            jobs = Lists.newArrayList(runningJobs.values());
+        }
+
+        for (CreateReplicaJob job : jobs) {
+            job.checkRunningTasks();
+            // do not hold the lock of scheduler when holding the lock of db
+            job.applyToMeta();
+        }
+
+        synchronized (this) {
+            Iterator<CreateReplicaJob> iter = runningJobs.values().iterator();
+            while (iter.hasNext()) {
+                CreateReplicaJob job = iter.next();
+                if (job.getState() == JobState.RUNNING) {
+                    continue;
+                }
+                iter.remove();
+                historyJobs.add(job);
+                if (historyJobs.size() > MAX_HISTORY_JOB_NUM) {
+                    historyJobs.poll();
+                }
+            }
+        }
+
+        schedule();
+    }
+
+    public synchronized List<List<Comparable>> getJobInfos() {
+        List<List<Comparable>> infos = Lists.newArrayList();
+        for (CreateReplicaJob job : historyJobs) {
+            infos.add(job.getInfo());
+        }
+        for (CreateReplicaJob job : runningJobs.values()) {
+            infos.add(job.getInfo());
+        }
+        return infos;
+    }
+}
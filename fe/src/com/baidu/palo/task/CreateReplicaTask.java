@@ -53,6 +53,8 @@ public class CreateReplicaTask extends AgentTask {
 
     // used for synchronous process
     private MarkedCountDownLatch latch;
+    // the job which this task belongs to, null if created without job
+    private CreateReplicaJob job;
 
     public CreateReplicaTask(long backendId, long dbId, long tableId, long partitionId, long indexId, long tabletId,
                              short shortKeyColumnCount, int schemaHash, long version, long versionHash,
@@ -79,6 +81,22 @@ public class CreateReplicaTask extends AgentTask {
         this.latch = latch;
     }
     
+    public long getVersion() {
+        return version;
+    }
+
+    public long getVersionHash() {
+        return versionHash;
+    }
+
+    public CreateReplicaJob getJob() {
+        return job;
+    }
+
+    public void setJob(CreateReplicaJob job) {
+        this.job = job;
+    }
+
     public void countDownLatch(long backendId, long tabletId) {
         if (this.latch != null) {
             if (latch.markedCountDown(backendId, tabletId)) {
@@ -49,6 +49,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.thrift.TException;
 
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -91,25 +93,53 @@ public class ExportExportingTask extends MasterTask {
             return;
         }
 
-        // if one instance finished, we send request to BE to exec next instance
+        // keep at most 'parallelism' instances running. if one instance finished,
+        // we send request to BE to exec next instance
         // TODO(lingbin): add retry sending logic if send fail
         List<Coordinator> coords = job.getCoordList();
         int coordSize = coords.size();
-        for (int i = 0; i < coordSize; i++) {
-            if (isCancelled) {
-                break;
+        int parallelism = Math.max(1, job.getParallelism());
+        LinkedList<RunningCoord> runningCoords = Lists.newLinkedList();
+        int nextIdx = 0;
+        int finishedNum = 0;
+        while (!isCancelled && (nextIdx < coordSize || !runningCoords.isEmpty())) {
+            while (!isCancelled && nextIdx < coordSize && runningCoords.size() < parallelism) {
+                RunningCoord runningCoord = startCoord(coords.get(nextIdx++));
+                if (runningCoord != null) {
+                    runningCoords.add(runningCoord);
+                }
             }
-            Coordinator coord = coords.get(i);
-            execOneCoord(coord);
-            int progress = (int) (i + 1) * 100 / coordSize;
-            if (progress >= 100) {
-                progress = 99;
+
+            boolean anyFinished = false;
+            Iterator<RunningCoord> iter = runningCoords.iterator();
+            while (iter.hasNext()) {
+                RunningCoord runningCoord = iter.next();
+                if (!runningCoord.coord.isDone() && System.currentTimeMillis() < runningCoord.deadlineMs) {
+                    continue;
+                }
+                iter.remove();
+                finishCoord(runningCoord);
+                anyFinished = true;
+
+                ++finishedNum;
+                int progress = finishedNum * 100 / coordSize;
+                if (progress >= 100) {
+                    progress = 99;
+                }
+                job.setProgress(progress);
             }
-            job.setProgress(progress);
 
-            coord.getQueryProfile().getCounterTotalTime().setValue(TimeUtils.getEstimatedTime(job.getStartTimeMs()));
-            coord.endProfile();
-            fragmentProfiles.add(coord.getQueryProfile());
+            if (!anyFinished && !runningCoords.isEmpty()) {
+                // wait on the earliest started one, others are checked again after it
+                runningCoords.getFirst().coord.join(1);
+            }
+        }
+
+        // cancel instances still running if job failed
+        for (RunningCoord runningCoord : runningCoords) {
+            runningCoord.coord.cancel();
+            QeProcessor.unregisterQuery(runningCoord.coord.getQueryId());
+            endCoordProfile(runningCoord.coord);
         }
 
         if (isCancelled) {
@@ -153,38 +183,47 @@ public class ExportExportingTask extends MasterTask {
         }
     }
 
-    private Status execOneCoord(Coordinator coord) {
-        TUniqueId queryId = coord.getQueryId();
-        boolean needUnregister = false;
-        try {
-            QeProcessor.registerQuery(queryId, coord);
-            needUnregister = true;
-            actualExecCoord(queryId, coord);
-        } catch (InternalException e) {
-            onFailed(new Status(TStatusCode.INTERNAL_ERROR, e.getMessage()));
-        } finally {
-            if (needUnregister) {
-                QeProcessor.unregisterQuery(queryId);
-            }
-        }
+    private static class RunningCoord {
+        Coordinator coord;
+        long deadlineMs;
 
-        return Status.OK;
+        RunningCoord(Coordinator coord, long deadlineMs) {
+            this.coord = coord;
+            this.deadlineMs = deadlineMs;
+        }
     }
 
-    private void actualExecCoord(TUniqueId queryId, Coordinator coord) {
+    // Return null if the instance failed to start
+    private RunningCoord startCoord(Coordinator coord) {
         int waitSecond = Config.export_task_default_timeout_second;
         if (waitSecond <= 0) {
             onTimeout();
-            return;
+            return null;
+        }
+
+        TUniqueId queryId = coord.getQueryId();
+        try {
+            QeProcessor.registerQuery(queryId, coord);
+        } catch (InternalException e) {
+            onFailed(new Status(TStatusCode.INTERNAL_ERROR, e.getMessage()));
+            return null;
         }
 
         try {
             coord.exec();
         } catch (Exception e) {
+            LOG.warn("export coordinator {} execute failed.", DebugUtil.printId(queryId), e);
             onFailed(new Status(TStatusCode.INTERNAL_ERROR, "export Coordinator execute failed."));
+            QeProcessor.unregisterQuery(queryId);
+            endCoordProfile(coord);
+            return null;
         }
+        return new RunningCoord(coord, System.currentTimeMillis() + waitSecond * 1000L);
+    }
 
-        if (coord.join(waitSecond)) {
+    private void finishCoord(RunningCoord runningCoord) {
+        Coordinator coord = runningCoord.coord;
+        if (coord.isDone()) {
             Status status = coord.getExecStatus();
             if (status.ok()) {
                 onFinished(coord.getExportFiles());
@@ -192,8 +231,17 @@ public class ExportExportingTask extends MasterTask {
                 onFailed(status);
             }
         } else {
+            coord.cancel();
             onTimeout();
         }
+        QeProcessor.unregisterQuery(coord.getQueryId());
+        endCoordProfile(coord);
+    }
+
+    private void endCoordProfile(Coordinator coord) {
+        coord.getQueryProfile().getCounterTotalTime().setValue(TimeUtils.getEstimatedTime(job.getStartTimeMs()));
+        coord.endProfile();
+        fragmentProfiles.add(coord.getQueryProfile());
     }
 
     private synchronized void onFinished(List<String> exportFiles) {
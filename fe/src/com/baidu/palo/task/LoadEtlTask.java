@@ -36,15 +36,12 @@ import com.baidu.palo.load.TableLoadInfo;
 import com.baidu.palo.load.TabletLoadInfo;
 import com.baidu.palo.thrift.TEtlState;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
-import java.util.Set;
 
 public abstract class LoadEtlTask extends MasterTask {
     private static final Logger LOG = LogManager.getLogger(LoadEtlTask.class);
@@ -152,67 +149,13 @@ public abstract class LoadEtlTask extends MasterTask {
     }
 
     private void tryUpdateLoading() {
-        // check job has loading partitions
-        Map<Long, TableLoadInfo> idToTableLoadInfo = job.getIdToTableLoadInfo();
-        Set<Long> partitionIds = Sets.newHashSet();
-        for (TableLoadInfo tableLoadInfo : idToTableLoadInfo.values()) {
-            Map<Long, PartitionLoadInfo> idToPartitionLoadInfo = tableLoadInfo.getIdToPartitionLoadInfo();
-            for (Entry<Long, PartitionLoadInfo> entry : idToPartitionLoadInfo.entrySet()) {
-                PartitionLoadInfo partitionLoadInfo = entry.getValue();
-                if (partitionLoadInfo.isNeedLoad()) {
-                    partitionIds.add(entry.getKey());
-                }
-            }
-        }
-        if (!load.addLoadingPartitions(partitionIds)) {
-            LOG.info("load job has unfinished loading partitions. job: {}, job partitions: {}", job, partitionIds);
-            return;
-        }
-        
-        // new version and version hash
+        // add loading partitions with new version and version hash
         try {
-            for (Entry<Long, TableLoadInfo> tableEntry : idToTableLoadInfo.entrySet()) {
-                long tableId = tableEntry.getKey();
-                OlapTable table = null;
-                db.readLock();
-                try {
-                    table = (OlapTable) db.getTable(tableId);
-                } finally {
-                    db.readUnlock();
-                }
-                if (table == null) {
-                    throw new MetaNotFoundException("table does not exist. id: " + tableId);
-                }
-                
-                TableLoadInfo tableLoadInfo = tableEntry.getValue();
-                Map<Long, PartitionLoadInfo> idToPartitionLoadInfo = tableLoadInfo.getIdToPartitionLoadInfo();
-                for (Map.Entry<Long, PartitionLoadInfo> entry : idToPartitionLoadInfo.entrySet()) {
-                    long partitionId = entry.getKey();
-                    PartitionLoadInfo partitionLoadInfo = entry.getValue();
-                    if (!partitionLoadInfo.isNeedLoad()) {
-                        continue;
-                    }
-                    
-                    db.readLock();
-                    try {
-                        Partition partition = table.getPartition(partitionId);
-                        if (partition == null) {
-                            throw new MetaNotFoundException("partition does not exist. id: " + partitionId);
-                        } 
-                        
-                        partitionLoadInfo.setVersion(partition.getCommittedVersion() + 1);
-                        partitionLoadInfo.setVersionHash(Math.abs(new Random().nextLong()));
-                    } finally {
-                        db.readUnlock();
-                    }
-
-                    LOG.info("load job id: {}, label: {}, partition info: {}-{}-{}, partition load info: {}",
-                            job.getId(), job.getLabel(), db.getId(), tableId, partitionId, partitionLoadInfo);
-                }
+            if (!load.addLoadingPartitions(job, db)) {
+                LOG.info("load job has too many loading jobs in the same partitions. job: {}", job);
+                return;
             }
         } catch (MetaNotFoundException e) {
-            // remove loading partitions
-            load.removeLoadingPartitions(partitionIds);
             load.cancelLoadJob(job, CancelType.ETL_RUN_FAIL, e.getMessage());
             return;
         }
@@ -222,7 +165,7 @@ public abstract class LoadEtlTask extends MasterTask {
             LOG.info("update job state to loading success. job: {}", job);
         } else {
             // remove loading partitions
-            load.removeLoadingPartitions(partitionIds);
+            load.removeLoadingPartitions(job);
         }
     }
     
@@ -15,6 +15,9 @@
 
 package com.baidu.palo.task;
 
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
+
 import com.google.common.collect.Maps;
 
 import org.apache.logging.log4j.LogManager;
@@ -26,7 +29,6 @@ import java.util.Map.Entry;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 public class MasterTaskExecutor {
@@ -36,8 +38,10 @@ public class MasterTaskExecutor {
     private Map<Long, Future<?>> runningTasks;
     private Timer checkTimer;
 
-    public MasterTaskExecutor(int threadNum) {
-        executor = Executors.newFixedThreadPool(threadNum);
+    // tasks are deduplicated by signature, so the queue is not limited
+    public MasterTaskExecutor(String name, int threadNum) {
+        executor = ThreadPoolManager.newFixedThreadPool(name, threadNum, ThreadPoolManager.UNBOUNDED_QUEUE,
+                                                        RejectPolicy.ABORT);
         runningTasks = Maps.newHashMap();
         checkTimer = new Timer("Master Task Check Timer", true);
         checkTimer.scheduleAtFixedRate(new TaskChecker(), 0L, 1000L);
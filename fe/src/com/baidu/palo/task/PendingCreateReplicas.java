@@ -0,0 +1,144 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.task;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Table;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.common.io.Writable;
+import com.baidu.palo.persist.ReplicaPersistInfo;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * Replicas which are added to meta by CreateReplicaJob but not created in backend yet, with the version
+ * they should be created with.
+ *
+ * On master they are added when the job is published, and removed when the replicas are raised or deleted.
+ * On the others they are rebuilt by replaying the creation of tables and partitions, and the adding and
+ * deleting of replicas. They are also saved in image, so that the replicas left by the former master can be
+ * created again by the new one.
+ */
+public class PendingCreateReplicas implements Writable {
+    // tablet id -> backend id -> replica
+    private final HashBasedTable<Long, Long, ReplicaPersistInfo> replicas = HashBasedTable.create();
+
+    public synchronized void add(ReplicaPersistInfo info) {
+        replicas.put(info.getTabletId(), info.getBackendId(), info);
+    }
+
+    public synchronized void remove(long tabletId, long backendId) {
+        replicas.remove(tabletId, backendId);
+    }
+
+    // Add the replicas of the new partition whose version is lower than the partition, which are not
+    // created when the partition is written to edit log.
+    public void addPartition(long dbId, long tableId, Partition partition) {
+        long version = partition.getCommittedVersion();
+        long versionHash = partition.getCommittedVersionHash();
+        for (MaterializedIndex index : partition.getMaterializedIndices()) {
+            for (Tablet tablet : index.getTablets()) {
+                for (Replica replica : tablet.getReplicas()) {
+                    if (replica.getVersion() >= version) {
+                        continue;
+                    }
+                    add(ReplicaPersistInfo.createForAdd(dbId, tableId, partition.getId(), index.getId(),
+                                                        tablet.getId(), replica.getBackendId(), replica.getId(),
+                                                        version, versionHash, 0L, 0L));
+                }
+            }
+        }
+    }
+
+    public synchronized List<ReplicaPersistInfo> getReplicas() {
+        return Lists.newArrayList(replicas.values());
+    }
+
+    public synchronized int size() {
+        return replicas.size();
+    }
+
+    // Return the replica in meta, or null if it is dropped. Should be called with db lock held.
+    public static Replica getReplica(Database db, ReplicaPersistInfo info) {
+        Table table = db.getTable(info.getTableId());
+        if (table == null) {
+            return null;
+        }
+        Partition partition = ((OlapTable) table).getPartition(info.getPartitionId());
+        if (partition == null) {
+            return null;
+        }
+        MaterializedIndex index = partition.getIndex(info.getIndexId());
+        if (index == null) {
+            return null;
+        }
+        Tablet tablet = index.getTablet(info.getTabletId());
+        if (tablet == null) {
+            return null;
+        }
+        Replica replica = tablet.getReplicaByBackendId(info.getBackendId());
+        if (replica == null || replica.getId() != info.getReplicaId()) {
+            return null;
+        }
+        return replica;
+    }
+
+    // Remove the replicas whose db, table, partition or tablet is dropped.
+    public void removeDropped(Catalog catalog) {
+        for (ReplicaPersistInfo info : getReplicas()) {
+            Database db = catalog.getDb(info.getDbId());
+            if (db == null) {
+                remove(info.getTabletId(), info.getBackendId());
+                continue;
+            }
+            db.readLock();
+            try {
+                if (getReplica(db, info) == null) {
+                    remove(info.getTabletId(), info.getBackendId());
+                }
+            } finally {
+                db.readUnlock();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeInt(replicas.size());
+        for (ReplicaPersistInfo info : replicas.values()) {
+            info.write(out);
+        }
+    }
+
+    @Override
+    public synchronized void readFields(DataInput in) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            add(ReplicaPersistInfo.read(in));
+        }
+    }
+}
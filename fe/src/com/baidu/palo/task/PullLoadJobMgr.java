@@ -17,6 +17,8 @@ package com.baidu.palo.task;
 
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.Status;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
 import com.baidu.palo.thrift.TStatusCode;
 
 import com.google.common.collect.Maps;
@@ -27,7 +29,6 @@ import org.apache.logging.log4j.Logger;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class PullLoadJobMgr {
@@ -38,7 +39,8 @@ public class PullLoadJobMgr {
     private final Map<Long, PullLoadJob> idToJobs = Maps.newHashMap();
 
     private final BlockingQueue<PullLoadTask> pendingTasks = Queues.newLinkedBlockingQueue();
-    private ExecutorService executorService = Executors.newCachedThreadPool();
+    // created when started, not in constructor, because checkpoint creates another instance
+    private ExecutorService executorService;
 
     private int concurrency = 10;
 
@@ -51,6 +53,8 @@ public class PullLoadJobMgr {
      * After collected, this will start scheduler to work.
      */
     public void start() {
+        // each thread runs a TaskExecutor until exit
+        executorService = ThreadPoolManager.newFixedThreadPool("pull-load", concurrency, 0, RejectPolicy.ABORT);
         for (int i = 0; i < concurrency; ++i) {
             executorService.submit(new TaskExecutor());
         }
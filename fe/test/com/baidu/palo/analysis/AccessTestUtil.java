@@ -61,6 +61,8 @@ public class AccessTestUtil {
         EasyMock.expect(userPropertyMgr.checkUserAccess(EasyMock.isA(String.class), EasyMock.isA(String.class)))
                 .andReturn(true).anyTimes();
         EasyMock.expect(userPropertyMgr.getMaxConn(EasyMock.isA(String.class))).andReturn(1000L).anyTimes();
+        EasyMock.expect(userPropertyMgr.getMaxRunningQuery(EasyMock.isA(String.class))).andReturn(0L).anyTimes();
+        EasyMock.expect(userPropertyMgr.getMaxRunningQueryMem(EasyMock.isA(String.class))).andReturn(0L).anyTimes();
         try {
             userPropertyMgr.setPasswd(EasyMock.endsWith("testCluster:testUser"), EasyMock.isA(byte[].class));
             EasyMock.expectLastCall().anyTimes();
@@ -0,0 +1,104 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.analysis;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.InternalException;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.StringReader;
+import java.util.List;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class ShowTableStatsStmtTest {
+
+    private Analyzer analyzer;
+    private Catalog catalog;
+
+    @Before
+    public void setUp() {
+        analyzer = AccessTestUtil.fetchAdminAnalyzer(true);
+        catalog = AccessTestUtil.fetchAdminCatalog();
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        PowerMock.replay(Catalog.class);
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        String sql = "SHOW TABLE STATS FROM testDb.testTbl";
+        SqlParser parser = new SqlParser(new SqlScanner(new StringReader(sql)));
+        Object stmt = parser.parse().value;
+        Assert.assertTrue(stmt instanceof ShowTableStatsStmt);
+        Assert.assertEquals("SHOW TABLE STATS FROM `testDb`.`testTbl`", stmt.toString());
+
+        parser = new SqlParser(new SqlScanner(new StringReader("SHOW TABLE STATS FROM testTbl")));
+        stmt = parser.parse().value;
+        Assert.assertTrue(stmt instanceof ShowTableStatsStmt);
+        Assert.assertEquals("SHOW TABLE STATS FROM `testTbl`", stmt.toString());
+    }
+
+    @Test
+    public void testNormal() throws AnalysisException, InternalException {
+        OlapTable table = (OlapTable) catalog.getDb("testCluster:testDb").getTable("testTbl");
+        MaterializedIndex index = table.getPartition("testTbl").getBaseIndex();
+        index.setRowCount(100L);
+
+        ShowTableStatsStmt stmt = new ShowTableStatsStmt(new TableName(null, "testTbl"));
+        stmt.analyze(analyzer);
+        Assert.assertEquals("SHOW TABLE STATS FROM `testCluster:testDb`.`testTbl`", stmt.toString());
+        Assert.assertEquals(5, stmt.getMetaData().getColumnCount());
+        List<List<String>> rows = stmt.getResultRows();
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals("testTbl", rows.get(0).get(0));
+        Assert.assertEquals("testTbl", rows.get(0).get(1));
+        Assert.assertEquals("100", rows.get(0).get(2));
+        Assert.assertEquals("0", rows.get(0).get(4));
+
+        stmt = new ShowTableStatsStmt(new TableName("testDb", "testTbl"));
+        stmt.analyze(analyzer);
+        Assert.assertEquals("SHOW TABLE STATS FROM `testCluster:testDb`.`testTbl`", stmt.toString());
+        Assert.assertEquals(1, stmt.getResultRows().size());
+    }
+
+    @Test(expected = AnalysisException.class)
+    public void testNoDb() throws AnalysisException, InternalException {
+        ShowTableStatsStmt stmt = new ShowTableStatsStmt(new TableName("emptyDb", "testTbl"));
+        stmt.analyze(analyzer);
+        Assert.fail("No exception throws.");
+    }
+
+    @Test(expected = AnalysisException.class)
+    public void testNoTable() throws AnalysisException, InternalException {
+        ShowTableStatsStmt stmt = new ShowTableStatsStmt(new TableName("testDb", "noTbl"));
+        stmt.analyze(analyzer);
+        Assert.fail("No exception throws.");
+    }
+}
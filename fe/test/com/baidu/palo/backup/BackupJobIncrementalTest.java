@@ -0,0 +1,283 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.backup;
+
+import com.baidu.palo.analysis.LabelName;
+import com.baidu.palo.backup.BackupJob.BackupJobState;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.catalog.TabletInvertedIndex;
+import com.baidu.palo.catalog.TabletMeta;
+import com.baidu.palo.common.FeConstants;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.UnitTestUtil;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class BackupJobIncrementalTest {
+    private static final String BACKUP_PATH = "/home/backup/";
+    private static final String FILE_NAME = "./backupJobIncrementalTest";
+
+    private Database db;
+    private OlapTable table;
+    private BackupHandler backupHandler;
+
+    @Before
+    public void setUp() throws Exception {
+        db = CatalogMocker.mockDb();
+        table = (OlapTable) db.getTable(CatalogMocker.TEST_TBL2_ID);
+        backupHandler = EasyMock.createMock(BackupHandler.class);
+
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        EasyMock.expect(catalog.getBackupHandler()).andReturn(backupHandler).anyTimes();
+        EasyMock.replay(catalog);
+
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        EasyMock.expect(Catalog.getCurrentCatalogJournalVersion()).andReturn(FeConstants.meta_version).anyTimes();
+        EasyMock.expect(Catalog.getCurrentInvertedIndex()).andReturn(new TabletInvertedIndex()).anyTimes();
+        EasyMock.expect(Catalog.isCheckpointThread()).andReturn(false).anyTimes();
+        PowerMock.replay(Catalog.class);
+    }
+
+    @After
+    public void tearDown() {
+        new File(FILE_NAME).delete();
+    }
+
+    private BackupJob createJob(long jobId, String label, boolean isIncremental, Map<String, String> properties)
+            throws Exception {
+        BackupJob job = new BackupJob(jobId, CatalogMocker.TEST_DB_ID,
+                                      new LabelName(CatalogMocker.TEST_DB_NAME, label), BACKUP_PATH, properties);
+        job.setIncremental(isIncremental);
+        job.addPartitionId(CatalogMocker.TEST_TBL2_ID, CatalogMocker.TEST_PARTITION1_ID);
+        job.addPartitionId(CatalogMocker.TEST_TBL2_ID, CatalogMocker.TEST_PARTITION2_ID);
+        job.addIndexId(CatalogMocker.TEST_TBL2_ID, CatalogMocker.TEST_TBL2_ID);
+        job.addIndexId(CatalogMocker.TEST_TBL2_ID, CatalogMocker.TEST_ROLLUP_ID);
+
+        // version info is saved when getting meta
+        Map<Long, Pair<Long, Long>> versionInfos = getField(job, "partitionIdToVersionInfo");
+        for (long partitionId : new long[] { CatalogMocker.TEST_PARTITION1_ID, CatalogMocker.TEST_PARTITION2_ID }) {
+            Partition partition = table.getPartition(partitionId);
+            versionInfos.put(partitionId, new Pair<Long, Long>(partition.getCommittedVersion(),
+                                                               partition.getCommittedVersionHash()));
+        }
+        return job;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getField(BackupJob job, String name) throws Exception {
+        Field field = BackupJob.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(job);
+    }
+
+    private static void initPartitionDataLabels(BackupJob job, Database db) throws Exception {
+        Method method = UnitTestUtil.getPrivateMethod(BackupJob.class, "initPartitionDataLabels",
+                new Class[] { Database.class });
+        method.invoke(job, db);
+    }
+
+    private String getPartitionSignature(BackupJob job, long partitionId) throws Exception {
+        Method method = UnitTestUtil.getPrivateMethod(BackupJob.class, "getPartitionSignature",
+                new Class[] { String.class, OlapTable.class, Partition.class });
+        return (String) method.invoke(job, CatalogMocker.TEST_DB_NAME, table, table.getPartition(partitionId));
+    }
+
+    private static boolean isPartitionUnchanged(BackupJob job, long partitionId, long version, long versionHash,
+                                                String signature) throws Exception {
+        Method method = UnitTestUtil.getPrivateMethod(BackupJob.class, "isPartitionUnchanged",
+                new Class[] { long.class, Pair.class, String.class });
+        return (Boolean) method.invoke(job, partitionId, new Pair<Long, Long>(version, versionHash), signature);
+    }
+
+    @Test
+    public void testPartitionSignature() throws Exception {
+        BackupJob job = createJob(1L, "label1", false, Maps.<String, String>newHashMap());
+        String signature1 = getPartitionSignature(job, CatalogMocker.TEST_PARTITION1_ID);
+        String signature2 = getPartitionSignature(job, CatalogMocker.TEST_PARTITION2_ID);
+        Assert.assertEquals(signature1, getPartitionSignature(job, CatalogMocker.TEST_PARTITION1_ID));
+        Assert.assertFalse(signature1.equals(signature2));
+        // hex string of SHA-256
+        Assert.assertEquals(64, signature1.length());
+
+        // loading data does not change the signature
+        Partition partition = table.getPartition(CatalogMocker.TEST_PARTITION1_ID);
+        partition.setCommittedVersion(partition.getCommittedVersion() + 1);
+        Assert.assertEquals(signature1, getPartitionSignature(job, CatalogMocker.TEST_PARTITION1_ID));
+
+        // remote path depends on name
+        partition.setName("p1_new");
+        String renamedSignature = getPartitionSignature(job, CatalogMocker.TEST_PARTITION1_ID);
+        Assert.assertFalse(signature1.equals(renamedSignature));
+        partition.setName(CatalogMocker.TEST_PARTITION1_NAME);
+
+        // tablets are changed
+        MaterializedIndex index = partition.getIndex(CatalogMocker.TEST_ROLLUP_ID);
+        index.addTablet(new Tablet(60010L), new TabletMeta(CatalogMocker.TEST_DB_ID, CatalogMocker.TEST_TBL2_ID,
+                                                           CatalogMocker.TEST_PARTITION1_ID,
+                                                           CatalogMocker.TEST_ROLLUP_ID,
+                                                           CatalogMocker.ROLLUP_SCHEMA_HASH));
+        Assert.assertFalse(signature1.equals(getPartitionSignature(job, CatalogMocker.TEST_PARTITION1_ID)));
+    }
+
+    @Test
+    public void testIsPartitionUnchanged() throws Exception {
+        BackupJob job = createJob(1L, "label1", false, Maps.<String, String>newHashMap());
+        initPartitionDataLabels(job, db);
+
+        long partitionId = CatalogMocker.TEST_PARTITION1_ID;
+        Partition partition = table.getPartition(partitionId);
+        long version = partition.getCommittedVersion();
+        long versionHash = partition.getCommittedVersionHash();
+        String signature = getPartitionSignature(job, partitionId);
+        Assert.assertTrue(isPartitionUnchanged(job, partitionId, version, versionHash, signature));
+        Assert.assertFalse(isPartitionUnchanged(job, partitionId, version + 1, versionHash, signature));
+        Assert.assertFalse(isPartitionUnchanged(job, partitionId, version, versionHash + 1, signature));
+        Assert.assertFalse(isPartitionUnchanged(job, partitionId, version, versionHash, signature + "0"));
+        // not backed up by the job
+        Assert.assertFalse(isPartitionUnchanged(job, CatalogMocker.TEST_SINGLE_PARTITION_ID, version, versionHash,
+                                                signature));
+
+        // info is cleared when job is finished and removed
+        Field field = BackupJob.class.getDeclaredField("partitionIdToSignature");
+        field.setAccessible(true);
+        field.set(job, null);
+        Assert.assertFalse(isPartitionUnchanged(job, partitionId, version, versionHash, signature));
+    }
+
+    @Test
+    public void testInitPartitionDataLabels() throws Exception {
+        // the first backup uploads all partitions
+        BackupJob job1 = createJob(1L, "label1", true, Maps.<String, String>newHashMap());
+        EasyMock.expect(backupHandler.getLastFinishedBackupJob(CatalogMocker.TEST_DB_ID, BACKUP_PATH))
+                .andReturn(null).once();
+
+        // partition 2 is loaded after the first backup
+        BackupJob job2 = createJob(2L, "label2", true, Maps.<String, String>newHashMap());
+        EasyMock.expect(backupHandler.getLastFinishedBackupJob(CatalogMocker.TEST_DB_ID, BACKUP_PATH))
+                .andReturn(job1).once();
+
+        // nothing changed after the second backup
+        BackupJob job3 = createJob(3L, "label3", true, Maps.<String, String>newHashMap());
+        EasyMock.expect(backupHandler.getLastFinishedBackupJob(CatalogMocker.TEST_DB_ID, BACKUP_PATH))
+                .andReturn(job2).once();
+        EasyMock.replay(backupHandler);
+
+        initPartitionDataLabels(job1, db);
+        Map<Long, String> dataLabels = getField(job1, "partitionIdToDataLabel");
+        Assert.assertEquals("label1", dataLabels.get(CatalogMocker.TEST_PARTITION1_ID));
+        Assert.assertEquals("label1", dataLabels.get(CatalogMocker.TEST_PARTITION2_ID));
+
+        Partition partition2 = table.getPartition(CatalogMocker.TEST_PARTITION2_ID);
+        partition2.setCommittedVersion(partition2.getCommittedVersion() + 1);
+        Map<Long, Pair<Long, Long>> versionInfos = getField(job2, "partitionIdToVersionInfo");
+        versionInfos.put(CatalogMocker.TEST_PARTITION2_ID,
+                         new Pair<Long, Long>(partition2.getCommittedVersion(),
+                                              partition2.getCommittedVersionHash()));
+        initPartitionDataLabels(job2, db);
+        dataLabels = getField(job2, "partitionIdToDataLabel");
+        Assert.assertEquals("label1", dataLabels.get(CatalogMocker.TEST_PARTITION1_ID));
+        Assert.assertEquals("label2", dataLabels.get(CatalogMocker.TEST_PARTITION2_ID));
+
+        // data is reused from the backup which uploaded it, not the last one
+        versionInfos = getField(job3, "partitionIdToVersionInfo");
+        versionInfos.put(CatalogMocker.TEST_PARTITION2_ID,
+                         new Pair<Long, Long>(partition2.getCommittedVersion(),
+                                              partition2.getCommittedVersionHash()));
+        initPartitionDataLabels(job3, db);
+        dataLabels = getField(job3, "partitionIdToDataLabel");
+        Assert.assertEquals("label1", dataLabels.get(CatalogMocker.TEST_PARTITION1_ID));
+        Assert.assertEquals("label2", dataLabels.get(CatalogMocker.TEST_PARTITION2_ID));
+        EasyMock.verify(backupHandler);
+
+        // not incremental, handler is not asked for the last job
+        BackupJob job4 = createJob(4L, "label4", false, Maps.<String, String>newHashMap());
+        initPartitionDataLabels(job4, db);
+        dataLabels = getField(job4, "partitionIdToDataLabel");
+        Assert.assertEquals("label4", dataLabels.get(CatalogMocker.TEST_PARTITION1_ID));
+        Assert.assertEquals("label4", dataLabels.get(CatalogMocker.TEST_PARTITION2_ID));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        Map<String, String> properties = Maps.newHashMap();
+        properties.put(BrokerStorage.BROKER_PROPERTY, "hdfs_broker");
+        properties.put("username", "user");
+        BackupJob job = createJob(1L, "label1", true, properties);
+        // broker is stripped from the properties passed to broker and backends
+        Assert.assertEquals("hdfs_broker", job.getBrokerName());
+        Assert.assertFalse(job.getRemoteProperties().containsKey(BrokerStorage.BROKER_PROPERTY));
+        Assert.assertTrue(properties.containsKey(BrokerStorage.BROKER_PROPERTY));
+
+        EasyMock.expect(backupHandler.getLastFinishedBackupJob(CatalogMocker.TEST_DB_ID, BACKUP_PATH))
+                .andReturn(null).once();
+        EasyMock.replay(backupHandler);
+        initPartitionDataLabels(job, db);
+        Set<Long> uploadedTabletIds = getField(job, "uploadedTabletIds");
+        uploadedTabletIds.add(CatalogMocker.TEST_BASE_TABLET_P1_ID);
+        job.setState(BackupJobState.UPLOADING);
+
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(FILE_NAME)));
+        job.write(out);
+        out.flush();
+        out.close();
+
+        DataInputStream in = new DataInputStream(new FileInputStream(new File(FILE_NAME)));
+        BackupJob readJob = new BackupJob();
+        readJob.readFields(in);
+        in.close();
+
+        Assert.assertEquals("hdfs_broker", readJob.getBrokerName());
+        Assert.assertEquals(job.getRemoteProperties(), readJob.getRemoteProperties());
+        Assert.assertTrue(readJob.isIncremental());
+        Assert.assertEquals(getField(job, "partitionIdToDataLabel"), getField(readJob, "partitionIdToDataLabel"));
+        Assert.assertEquals(getField(job, "partitionIdToSignature"), getField(readJob, "partitionIdToSignature"));
+        Assert.assertEquals(Sets.newHashSet(CatalogMocker.TEST_BASE_TABLET_P1_ID),
+                            getField(readJob, "uploadedTabletIds"));
+        // uploads again from UPLOAD state
+        Assert.assertEquals(BackupJobState.UPLOAD, readJob.getState());
+    }
+}
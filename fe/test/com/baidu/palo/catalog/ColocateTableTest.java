@@ -0,0 +1,174 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.catalog;
+
+import com.baidu.palo.catalog.MaterializedIndex.IndexState;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.common.DdlException;
+import com.baidu.palo.system.SystemInfoService;
+
+import com.google.common.collect.Lists;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.List;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest({ Catalog.class })
+public class ColocateTableTest {
+    private static final String CLUSTER_NAME = "default_cluster";
+    private static final long DB_ID = 1000L;
+
+    private long nextId = 10000L;
+    private SystemInfoService infoService;
+
+    @Before
+    public void setUp() {
+        infoService = EasyMock.createMock(SystemInfoService.class);
+
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getCurrentInvertedIndex()).andReturn(new TabletInvertedIndex()).anyTimes();
+        EasyMock.expect(Catalog.isCheckpointThread()).andReturn(false).anyTimes();
+        EasyMock.expect(Catalog.getCurrentSystemInfo()).andReturn(infoService).anyTimes();
+        PowerMock.replay(Catalog.class);
+    }
+
+    /*
+     * replicaBackends[partition][bucket] are the backends of replicas of the tablet of that bucket.
+     * The replicas on backend in cloneBackends are in CLONE state.
+     */
+    private OlapTable createTable(String name, String group, int bucketNum, long[][][] replicaBackends,
+                                  List<Long> cloneBackends) {
+        Column k1 = new Column("k1", PrimitiveType.INT);
+        k1.setIsKey(true);
+        List<Column> columns = Lists.newArrayList(k1);
+        long tableId = nextId++;
+        OlapTable table = new OlapTable(tableId, name, columns, KeysType.DUP_KEYS,
+                                        new SinglePartitionInfo(), new HashDistributionInfo(bucketNum, columns));
+        table.setColocateGroup(group);
+        for (long[][] partitionBackends : replicaBackends) {
+            long partitionId = nextId++;
+            long indexId = nextId++;
+            MaterializedIndex index = new MaterializedIndex(indexId, IndexState.NORMAL);
+            for (long[] backendIds : partitionBackends) {
+                Tablet tablet = new Tablet(nextId++);
+                index.addTablet(tablet, new TabletMeta(DB_ID, tableId, partitionId, indexId, 0));
+                for (long backendId : backendIds) {
+                    ReplicaState state = cloneBackends.contains(backendId) ? ReplicaState.CLONE : ReplicaState.NORMAL;
+                    tablet.addReplica(new Replica(nextId++, backendId, state, 2L, 0L));
+                }
+            }
+            table.addPartition(new Partition(partitionId, name + partitionId, index,
+                                             new HashDistributionInfo(bucketNum, columns)));
+        }
+        return table;
+    }
+
+    private void setAvailable(long... backendIds) {
+        for (long backendId = 1L; backendId <= 10L; backendId++) {
+            boolean available = false;
+            for (long id : backendIds) {
+                available |= (id == backendId);
+            }
+            EasyMock.expect(infoService.checkBackendAvailable(backendId)).andReturn(available).anyTimes();
+        }
+    }
+
+    @Test
+    public void testGetColocateBucketBackends() throws DdlException {
+        Database db = new Database(DB_ID, "db");
+        // backend 3 of bucket 0 is lost in the second partition, and cloned to backend 5
+        OlapTable table1 = createTable("t1", "g", 2, new long[][][] {
+                { { 1L, 2L, 3L }, { 2L, 3L, 4L } },
+                { { 1L, 2L, 5L }, { 2L, 3L, 4L } } }, Lists.<Long>newArrayList());
+        // replica on backend 3 is still being cloned
+        OlapTable table2 = createTable("t2", "g", 2, new long[][][] {
+                { { 3L, 1L, 2L }, { 4L, 3L, 2L } } }, Lists.newArrayList(3L));
+        // not in the group
+        OlapTable table3 = createTable("t3", "other", 2, new long[][][] {
+                { { 6L, 7L, 8L }, { 6L, 7L, 8L } } }, Lists.<Long>newArrayList());
+        db.createTable(table1);
+        db.createTable(table2);
+        db.createTable(table3);
+
+        OlapTable newTable = createTable("t4", "g", 2, new long[0][][], Lists.<Long>newArrayList());
+        List<List<Long>> bucketBackends = Catalog.getColocateBucketBackends(db, newTable);
+        Assert.assertEquals(2, bucketBackends.size());
+        // 1 and 2 have 3 replicas, 3 has 2 and 5 has 1
+        Assert.assertEquals(Lists.newArrayList(1L, 2L, 3L, 5L), bucketBackends.get(0));
+        Assert.assertEquals(Lists.newArrayList(2L, 3L, 4L), bucketBackends.get(1));
+
+        // empty group
+        OlapTable emptyGroupTable = createTable("t5", "g2", 2, new long[0][][], Lists.<Long>newArrayList());
+        Assert.assertTrue(Catalog.getColocateBucketBackends(db, emptyGroupTable).isEmpty());
+
+        // different bucket num
+        OlapTable badTable = createTable("t6", "g", 3, new long[0][][], Lists.<Long>newArrayList());
+        try {
+            Catalog.getColocateBucketBackends(db, badTable);
+            Assert.fail("no exception");
+        } catch (DdlException e) {
+            Assert.assertTrue(e.getMessage().contains("Bucket num"));
+        }
+    }
+
+    @Test
+    public void testChooseColocateBackendIds() throws DdlException {
+        setAvailable(1L, 3L, 4L, 5L, 6L);
+        EasyMock.expect(infoService.seqChooseBackendIds(3, true, true, CLUSTER_NAME))
+                .andReturn(Lists.newArrayList(1L, 4L, 6L)).anyTimes();
+        EasyMock.replay(infoService);
+
+        // the first available ones
+        Assert.assertEquals(Lists.newArrayList(1L, 3L, 5L),
+                            Catalog.chooseColocateBackendIds(CLUSTER_NAME, Lists.newArrayList(1L, 2L, 3L, 5L),
+                                                             (short) 3));
+        Assert.assertEquals(Lists.newArrayList(1L),
+                            Catalog.chooseColocateBackendIds(CLUSTER_NAME, Lists.newArrayList(1L, 2L, 3L),
+                                                             (short) 1));
+
+        // backend 2 is dead, filled with backend which is not chosen yet
+        Assert.assertEquals(Lists.newArrayList(1L, 4L, 6L),
+                            Catalog.chooseColocateBackendIds(CLUSTER_NAME, Lists.newArrayList(1L, 2L),
+                                                             (short) 3));
+        Assert.assertEquals(Lists.newArrayList(3L, 1L, 4L),
+                            Catalog.chooseColocateBackendIds(CLUSTER_NAME, Lists.newArrayList(2L, 3L),
+                                                             (short) 3));
+    }
+
+    @Test
+    public void testChooseColocateBackendIdsNoBackend() {
+        setAvailable();
+        EasyMock.expect(infoService.seqChooseBackendIds(3, true, true, CLUSTER_NAME)).andReturn(null).anyTimes();
+        EasyMock.replay(infoService);
+
+        try {
+            Catalog.chooseColocateBackendIds(CLUSTER_NAME, Lists.newArrayList(1L, 2L, 3L), (short) 3);
+            Assert.fail("no exception");
+        } catch (DdlException e) {
+            // expected
+        }
+    }
+}
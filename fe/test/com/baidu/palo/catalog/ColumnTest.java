@@ -127,5 +127,18 @@ public class ColumnTest {
         oldColumn.checkSchemaChangeAllowed(newColumn);
         Assert.fail("No exception throws.");
     }
+
+    @Test
+    public void testIsIdentical() {
+        Column column = new Column("user", new ColumnType(PrimitiveType.INT), true, null, true, "0", "comment");
+        Assert.assertTrue(column.isIdentical(new Column(column)));
+        // equals() ignores case of name and comment
+        Assert.assertFalse(column.isIdentical(
+                new Column("User", new ColumnType(PrimitiveType.INT), true, null, true, "0", "comment")));
+        Assert.assertFalse(column.isIdentical(
+                new Column("user", new ColumnType(PrimitiveType.INT), true, null, true, "0", "")));
+        Assert.assertFalse(column.isIdentical(
+                new Column("user", new ColumnType(PrimitiveType.BIGINT), true, null, true, "0", "comment")));
+    }
     
 }
@@ -82,6 +82,7 @@ public class MaterializedIndexTest {
         file.createNewFile();
         DataOutputStream dos = new DataOutputStream(new FileOutputStream(file));
 
+        index.setStat(100L, 2048L);
         index.write(dos);
 
         dos.flush();
@@ -91,6 +92,8 @@ public class MaterializedIndexTest {
         DataInputStream dis = new DataInputStream(new FileInputStream(file));
         MaterializedIndex rIndex = MaterializedIndex.read(dis);
         Assert.assertTrue(index.equals(rIndex));
+        Assert.assertEquals(100L, rIndex.getRowCount());
+        Assert.assertEquals(2048L, rIndex.getDataSize());
 
         // 3. delete files
         dis.close();
@@ -91,6 +91,27 @@ public class TabletTest {
         Assert.assertEquals("tabletId=" + newTabletId, tablet.toString());
     }
 
+    @Test
+    public void testStat() {
+        // the largest replica
+        replica2.updateStat(300000L, 4000L);
+        Assert.assertEquals(300000L, tablet.getDataSize());
+        Assert.assertEquals(4000L, tablet.getRowCount());
+
+        MaterializedIndex index = new MaterializedIndex(30, MaterializedIndex.IndexState.NORMAL);
+        index.addTablet(tablet, new TabletMeta(10, 20, 30, 40, 1));
+        index.updateStat();
+        Assert.assertEquals(300000L, index.getDataSize());
+        Assert.assertEquals(4000L, index.getRowCount());
+
+        long tabletRowCount = tablet.getRowCount();
+        long tabletDataSize = tablet.getDataSize();
+        replica1.updateInfo(101L, 0L, 500000L, 6000L);
+        index.updateStat(tablet.getRowCount() - tabletRowCount, tablet.getDataSize() - tabletDataSize);
+        Assert.assertEquals(500000L, index.getDataSize());
+        Assert.assertEquals(6000L, index.getRowCount());
+    }
+
     @Test
     public void deleteReplicaTest() {
         // delete replica1
@@ -70,6 +70,8 @@ public class UserPropertyTest {
     public void testUpdate() throws DdlException {
         List<SetVar> propertyList = Lists.newArrayList();
         propertyList.add(new SetUserPropertyVar("MAX_USER_CONNECTIONS", "100"));
+        propertyList.add(new SetUserPropertyVar("max_running_query", "10"));
+        propertyList.add(new SetUserPropertyVar("max_running_query_mem", "1073741824"));
         propertyList.add(new SetUserPropertyVar("resource.cpu_share", "101"));
         propertyList.add(new SetUserPropertyVar("quota.normal", "102"));
         propertyList.add(new SetUserPropertyVar("load_cluster.dpp-cluster.hadoop_palo_path", "/user/palo2"));
@@ -78,6 +80,8 @@ public class UserPropertyTest {
         UserProperty userProperty = new UserProperty();
         userProperty.update(propertyList);
         Assert.assertEquals(100, userProperty.getMaxConn());
+        Assert.assertEquals(10, userProperty.getMaxRunningQuery());
+        Assert.assertEquals(1073741824L, userProperty.getMaxRunningQueryMem());
         Assert.assertEquals(101, userProperty.getResource().getResource().getByDesc("cpu_share"));
         Assert.assertEquals(102, userProperty.getResource().getShareByGroup().get("normal").intValue());
         Assert.assertEquals("/user/palo2", userProperty.getClusterInfo("dpp-cluster").second.getPaloPath());
@@ -91,6 +95,8 @@ public class UserPropertyTest {
 
             if (key.equalsIgnoreCase("max_user_connections")) {
                 Assert.assertEquals("100", value);
+            } else if (key.equalsIgnoreCase("max_running_query")) {
+                Assert.assertEquals("10", value);
             } else if (key.equalsIgnoreCase("resource.cpu_share")) {
                 Assert.assertEquals("101", value);
             } else if (key.equalsIgnoreCase("quota.normal")) {
@@ -0,0 +1,80 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.catalog;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+public class WhiteListTest {
+
+    @Test
+    public void testHasAccess() throws Exception {
+        WhiteList whiteList = new WhiteList();
+        whiteList.setUser("testCluster:testUser");
+        // empty white list allows all
+        Assert.assertTrue(whiteList.hasAccess("10.0.0.1"));
+
+        whiteList.addWhiteList(Lists.newArrayList("10.0.0.1"),
+                Lists.newArrayList("192.168.*.*", "172.*.1.*", "8.8.8.*"),
+                Lists.<String>newArrayList());
+        Assert.assertTrue(whiteList.hasAccess("10.0.0.1"));
+        Assert.assertFalse(whiteList.hasAccess("10.0.0.2"));
+        Assert.assertTrue(whiteList.hasAccess("192.168.0.1"));
+        Assert.assertTrue(whiteList.hasAccess("192.168.255.255"));
+        Assert.assertFalse(whiteList.hasAccess("192.169.0.1"));
+        Assert.assertTrue(whiteList.hasAccess("172.16.1.10"));
+        Assert.assertFalse(whiteList.hasAccess("172.16.2.10"));
+        Assert.assertTrue(whiteList.hasAccess("8.8.8.8"));
+        Assert.assertFalse(whiteList.hasAccess("8.8.4.4"));
+        // invalid ips never match star ips
+        Assert.assertFalse(whiteList.hasAccess("192.168.1"));
+        Assert.assertFalse(whiteList.hasAccess("192.168.1.256"));
+        Assert.assertFalse(whiteList.hasAccess("192.168.1.1.1"));
+        Assert.assertFalse(whiteList.hasAccess("::1"));
+
+        whiteList.deleteWhiteList(null, Lists.newArrayList("192.168.*.*"), null);
+        Assert.assertFalse(whiteList.hasAccess("192.168.0.1"));
+        Assert.assertTrue(whiteList.hasAccess("8.8.8.8"));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        WhiteList whiteList = new WhiteList();
+        whiteList.setUser("testCluster:testUser");
+        whiteList.addWhiteList(Lists.newArrayList("10.0.0.1"), Lists.newArrayList("192.168.*.*"),
+                Lists.<String>newArrayList());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        whiteList.write(out);
+        out.flush();
+
+        WhiteList readWhiteList = new WhiteList();
+        readWhiteList.setUser("testCluster:testUser");
+        readWhiteList.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(2, readWhiteList.getSize());
+        Assert.assertTrue(readWhiteList.hasAccess("10.0.0.1"));
+        Assert.assertTrue(readWhiteList.hasAccess("192.168.3.4"));
+        Assert.assertFalse(readWhiteList.hasAccess("10.0.0.2"));
+    }
+}
@@ -34,10 +34,14 @@ import com.baidu.palo.clone.CloneJob.JobType;
 import com.baidu.palo.common.Config;
 import com.baidu.palo.common.util.UnitTestUtil;
 import com.baidu.palo.persist.EditLog;
+import com.baidu.palo.task.AgentTaskQueue;
 import com.baidu.palo.task.CloneTask;
 import com.baidu.palo.thrift.TBackend;
 import com.baidu.palo.thrift.TStorageMedium;
 import com.baidu.palo.thrift.TTabletInfo;
+import com.baidu.palo.thrift.TTaskType;
+
+import com.google.common.collect.Lists;
 
 import org.easymock.EasyMock;
 import org.junit.Assert;
@@ -157,11 +161,13 @@ public class CloneTest {
         Catalog.getCurrentInvertedIndex().addTablet(tabletId, tabletMeta);
         Catalog.getCurrentInvertedIndex().addReplica(tabletId, replica2);
 
-        // change tablet0 creationTime
+        // pending jobs are not timed out however long they wait, tablet0 job is running since long ago
         List<CloneJob> pendingJobs = clone.getCloneJobs(JobState.PENDING);
         for (CloneJob job : pendingJobs) {
+            job.setCreateTimeMs(job.getCreateTimeMs() - 3600 * 1000L - 1L);
             if (job.getTabletId() == 0L) {
-                job.setCreateTimeMs(job.getCreateTimeMs() - 3600 * 1000L - 1L);
+                job.setState(JobState.RUNNING);
+                job.setCloneStartTimeMs(System.currentTimeMillis() - 3600 * 1000L - 1L);
             }
         }
         // check timeout
@@ -280,6 +286,72 @@ public class CloneTest {
         Assert.assertEquals(ReplicaState.NORMAL, replica2.getState());
     }
     
+    @Test
+    public void testScheduleOrder() {
+        Config.clone_max_job_num = 100;
+        long backendId = 0L;
+        long timeoutSecond = 3600L;
+        // tablet0: low priority migration
+        Assert.assertTrue(clone.addCloneJob(dbId, tableId, 1L, indexId, 0L, backendId,
+                                            JobType.MIGRATION, JobPriority.LOW, timeoutSecond));
+        // tablet1: low priority supplement of old partition
+        Assert.assertTrue(clone.addCloneJob(dbId, tableId, 1L, indexId, 1L, backendId,
+                                            JobType.SUPPLEMENT, JobPriority.LOW, timeoutSecond));
+        // tablet2: low priority supplement of new partition
+        Assert.assertTrue(clone.addCloneJob(dbId, tableId, 2L, indexId, 2L, backendId,
+                                            JobType.SUPPLEMENT, JobPriority.LOW, timeoutSecond));
+        // tablet3: normal priority supplement
+        Assert.assertTrue(clone.addCloneJob(dbId, tableId, 1L, indexId, 3L, backendId,
+                                            JobType.SUPPLEMENT, JobPriority.NORMAL, timeoutSecond));
+
+        List<CloneJob> pendingJobs = clone.getCloneJobs(JobState.PENDING);
+        Assert.assertEquals(4, pendingJobs.size());
+        Assert.assertEquals(3L, pendingJobs.get(0).getTabletId());
+        Assert.assertEquals(2L, pendingJobs.get(1).getTabletId());
+        Assert.assertEquals(1L, pendingJobs.get(2).getTabletId());
+        Assert.assertEquals(0L, pendingJobs.get(3).getTabletId());
+    }
+
+    @Test
+    public void testBackendLimits() {
+        int maxRunningJobNum = Config.clone_max_running_job_num_per_backend;
+        long maxBytesPerSecond = Config.clone_max_bytes_per_second_per_disk;
+        Config.clone_max_running_job_num_per_backend = 1;
+        Config.clone_max_bytes_per_second_per_disk = 0L;
+        try {
+            long srcBackendId = 10L;
+            long destBackendId = 11L;
+            long timeoutSecond = 3600L;
+            Assert.assertTrue(clone.addCloneJob(dbId, tableId, partitionId, indexId, 100L, destBackendId,
+                                                JobType.SUPPLEMENT, JobPriority.NORMAL, timeoutSecond));
+            Assert.assertTrue(clone.isDestBackendAvailable(destBackendId));
+            Assert.assertEquals(srcBackendId, clone.selectSrcBackend(Lists.newArrayList(srcBackendId)));
+
+            CloneJob job = clone.getCloneJobs(JobState.PENDING).get(0);
+            job.setSrcBackendId(srcBackendId);
+            job.setTabletSizeB(1024L);
+            CloneTask task = new CloneTask(destBackendId, dbId, tableId, partitionId, indexId, 100L,
+                                           UnitTestUtil.SCHEMA_HASH, new ArrayList<TBackend>(), TStorageMedium.HDD);
+            Assert.assertTrue(clone.runCloneJob(job, task));
+            Assert.assertEquals(JobState.RUNNING, job.getState());
+
+            // both src and dest backend are busy
+            Assert.assertFalse(clone.isDestBackendAvailable(destBackendId));
+            Assert.assertFalse(clone.isDestBackendAvailable(srcBackendId));
+            Assert.assertEquals(-1L, clone.selectSrcBackend(Lists.newArrayList(srcBackendId, destBackendId)));
+            Assert.assertEquals(12L, clone.selectSrcBackend(Lists.newArrayList(srcBackendId, 12L)));
+
+            // backends are released after the job is cancelled
+            clone.cancelCloneJob(job, "test");
+            Assert.assertTrue(clone.isDestBackendAvailable(destBackendId));
+            Assert.assertEquals(srcBackendId, clone.selectSrcBackend(Lists.newArrayList(srcBackendId)));
+            Assert.assertNull(AgentTaskQueue.getTask(destBackendId, TTaskType.CLONE, 100L));
+        } finally {
+            Config.clone_max_running_job_num_per_backend = maxRunningJobNum;
+            Config.clone_max_bytes_per_second_per_disk = maxBytesPerSecond;
+        }
+    }
+
     @Test
     public void testCalculatePriority() {
         short onlineReplicaNum = 2;
@@ -26,6 +26,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
 
 import org.easymock.EasyMock;
 import org.junit.Assert;
@@ -46,6 +49,11 @@ import com.baidu.palo.catalog.Database;
 import com.baidu.palo.common.AnalysisException;
 import com.baidu.palo.common.DdlException;
 import com.baidu.palo.common.FeConstants;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.ThreadPoolManager;
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
+import com.baidu.palo.common.util.ThreadPoolManager.TrackedThreadPool;
+import com.baidu.palo.common.util.UnitTestUtil;
 import com.baidu.palo.persist.EditLog;
 import com.baidu.palo.system.Backend;
 import com.baidu.palo.system.SystemInfoService;
@@ -266,4 +274,46 @@ public class SystemInfoServiceTest {
         deleteDir(dir);
     }
 
+    @Test
+    public void testHeartbeatSkipPending() throws Exception {
+        clearAllBackend();
+        systemInfoService.addBackends(Lists.newArrayList(Pair.create("192.168.0.1", 1234)), true);
+
+        // the only thread is blocked, and the queue is full
+        TrackedThreadPool pool = ThreadPoolManager.newFixedThreadPool("test-heartbeat", 1, 1, RejectPolicy.ABORT);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blockingTask = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        pool.execute(blockingTask);
+        pool.execute(blockingTask);
+        Field executor = SystemInfoService.class.getDeclaredField("executor");
+        executor.setAccessible(true);
+        executor.set(systemInfoService, pool);
+        Method runOneCycle = UnitTestUtil.getPrivateMethod(SystemInfoService.class, "runOneCycle", new Class[] {});
+
+        try {
+            // rejected heartbeat is sent again in next round
+            runOneCycle.invoke(systemInfoService);
+            Assert.assertEquals(1, pool.getRejectedNum());
+            pool.getQueue().clear();
+            runOneCycle.invoke(systemInfoService);
+            Assert.assertEquals(1, pool.getQueue().size());
+
+            // heartbeat is not sent again while the last one is pending
+            runOneCycle.invoke(systemInfoService);
+            runOneCycle.invoke(systemInfoService);
+            Assert.assertEquals(1, pool.getQueue().size());
+            Assert.assertEquals(1, pool.getRejectedNum());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 }
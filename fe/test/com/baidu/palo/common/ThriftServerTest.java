@@ -0,0 +1,80 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common;
+
+import com.baidu.palo.common.ThriftServer.ThriftServerType;
+import com.baidu.palo.service.FrontendServiceAsyncImpl;
+import com.baidu.palo.thrift.FrontendService;
+import com.baidu.palo.thrift.TGetDbsParams;
+import com.baidu.palo.thrift.TGetDbsResult;
+import com.baidu.palo.thrift.TNetworkAddress;
+
+import com.google.common.collect.Lists;
+
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ThriftServerTest {
+    private static final String IP = "127.0.0.1";
+    private static final int PORT = 39402;
+
+    private ThriftServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testThreadedServer() throws Exception {
+        TGetDbsResult dbsResult = new TGetDbsResult(Lists.newArrayList("db1", "db2"));
+        FrontendService.Iface impl = EasyMock.createMock(FrontendService.Iface.class);
+        EasyMock.expect(impl.getDbNames(EasyMock.anyObject(TGetDbsParams.class))).andReturn(dbsResult).anyTimes();
+        EasyMock.replay(impl);
+
+        server = new ThriftServer(PORT, new FrontendService.AsyncProcessor<FrontendService.AsyncIface>(
+                new FrontendServiceAsyncImpl(impl)), ThriftServerType.THREADED);
+        server.start();
+
+        GenericKeyedObjectPoolConfig config = new GenericKeyedObjectPoolConfig();
+        config.setMaxTotalPerKey(1);
+        config.setMaxWaitMillis(500);
+        GenericPool<FrontendService.Client> pool = new GenericPool<FrontendService.Client>(
+                "FrontendService", config, 5000, true);
+        TNetworkAddress address = new TNetworkAddress(IP, PORT);
+
+        // server thread may not listen yet
+        FrontendService.Client client = null;
+        for (int i = 0; i < 50 && client == null; i++) {
+            try {
+                client = pool.borrowObject(address);
+            } catch (Exception e) {
+                Thread.sleep(100);
+            }
+        }
+        Assert.assertNotNull(client);
+
+        // context of non-blocking server is created without client address
+        TGetDbsResult result = client.getDbNames(new TGetDbsParams());
+        Assert.assertEquals(Lists.newArrayList("db1", "db2"), result.getDbs());
+        pool.returnObject(address, client);
+    }
+}
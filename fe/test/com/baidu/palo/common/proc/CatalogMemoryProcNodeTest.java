@@ -0,0 +1,127 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common.proc;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.MaterializedIndex.IndexState;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.catalog.TabletMeta;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.util.UnitTestUtil;
+
+import com.google.common.collect.Lists;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CatalogMemoryProcNodeTest {
+    private static final long DB_ID = 10000L;
+    private static final long EMPTY_DB_ID = 20000L;
+    private static final long TABLE_ID = 10001L;
+    private static final long PARTITION_ID = 10002L;
+    private static final long INDEX_ID = 10003L;
+    private static final long TABLET_ID = 10004L;
+    private static final long ROLLUP_INDEX_ID = 10005L;
+    private static final long ROLLUP_TABLET_ID = 10006L;
+
+    private Catalog catalog;
+
+    @Before
+    public void setUp() {
+        // 1 table, 1 partition, 1 tablet with 3 replicas in base index
+        Database db = UnitTestUtil.createDb(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID, TABLET_ID, 10000L, 2L, 0L);
+        OlapTable table = (OlapTable) db.getTable(TABLE_ID);
+        Partition partition = table.getPartition(PARTITION_ID);
+
+        // rollup with 1 tablet of 2 replicas, sharing 2 columns of base index and 1 identical but not same one
+        MaterializedIndex rollupIndex = new MaterializedIndex(ROLLUP_INDEX_ID, IndexState.NORMAL);
+        Tablet rollupTablet = new Tablet(ROLLUP_TABLET_ID);
+        rollupIndex.addTablet(rollupTablet,
+                              new TabletMeta(DB_ID, TABLE_ID, PARTITION_ID, ROLLUP_INDEX_ID, 0));
+        rollupTablet.addReplica(new Replica(100L, 10000L, 2L, 0L, 0L, 0L, ReplicaState.NORMAL));
+        rollupTablet.addReplica(new Replica(101L, 10001L, 2L, 0L, 0L, 0L, ReplicaState.NORMAL));
+        partition.createRollupIndex(rollupIndex);
+
+        List<Column> baseSchema = table.getSchemaByIndexId(INDEX_ID);
+        Column k1 = new Column("k1", PrimitiveType.INT);
+        k1.setIsKey(true);
+        List<Column> rollupSchema = Lists.newArrayList(k1, baseSchema.get(1), baseSchema.get(2));
+        table.setIndexSchemaInfo(ROLLUP_INDEX_ID, "rollup", rollupSchema, 0, 1, (short) 1);
+
+        Database emptyDb = new Database(EMPTY_DB_ID, "emptyDb");
+
+        catalog = EasyMock.createMock(Catalog.class);
+        // 0 is information_schema, which is skipped
+        EasyMock.expect(catalog.getDbIds()).andReturn(Lists.newArrayList(0L, EMPTY_DB_ID, DB_ID)).anyTimes();
+        EasyMock.expect(catalog.getDb(DB_ID)).andReturn(db).anyTimes();
+        EasyMock.expect(catalog.getDb(EMPTY_DB_ID)).andReturn(emptyDb).anyTimes();
+        EasyMock.replay(catalog);
+    }
+
+    @Test
+    public void testFetchResult() throws AnalysisException {
+        ProcResult result = new CatalogMemoryProcNode(catalog).fetchResult();
+        Assert.assertEquals(CatalogMemoryProcNode.TITLE_NAMES, result.getColumnNames());
+
+        List<List<String>> rows = result.getRows();
+        Assert.assertEquals(3, rows.size());
+
+        // table 2048 + partition 512 + 2 indexes * 256 + 2 tablets * 320 + 5 replicas * 128 + 4 columns * 256
+        long dbBytes = 2048L + 512L + 2 * 256L + 2 * 320L + 5 * 128L + 4 * 256L;
+
+        // sorted by estimated bytes desc
+        List<String> dbRow = rows.get(0);
+        Assert.assertEquals(String.valueOf(DB_ID), dbRow.get(0));
+        Assert.assertEquals(UnitTestUtil.DB_NAME, dbRow.get(1));
+        Assert.assertEquals("1", dbRow.get(2));
+        Assert.assertEquals("2", dbRow.get(3));
+        Assert.assertEquals("2", dbRow.get(4));
+        Assert.assertEquals("5", dbRow.get(5));
+        // k2 and v are shared by rollup, k1 of rollup is another object
+        Assert.assertEquals("4", dbRow.get(6));
+        Assert.assertEquals(String.valueOf(dbBytes), dbRow.get(8));
+
+        List<String> emptyDbRow = rows.get(1);
+        Assert.assertEquals(String.valueOf(EMPTY_DB_ID), emptyDbRow.get(0));
+        for (int i = 2; i < 7; i++) {
+            Assert.assertEquals("0", emptyDbRow.get(i));
+        }
+        Assert.assertEquals("0", emptyDbRow.get(8));
+
+        List<String> totalRow = rows.get(2);
+        Assert.assertEquals("Total", totalRow.get(0));
+        Assert.assertEquals("2", totalRow.get(1));
+        Assert.assertEquals("1", totalRow.get(2));
+        Assert.assertEquals("2", totalRow.get(3));
+        Assert.assertEquals("2", totalRow.get(4));
+        Assert.assertEquals("5", totalRow.get(5));
+        Assert.assertEquals("4", totalRow.get(6));
+        Assert.assertEquals(dbRow.get(7), totalRow.get(7));
+        Assert.assertEquals(String.valueOf(dbBytes), totalRow.get(8));
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common.util;
+
+import com.baidu.palo.common.util.ThreadPoolManager.RejectPolicy;
+import com.baidu.palo.common.util.ThreadPoolManager.TrackedThreadPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.Timer;
+
+public class ThreadPoolManagerTest {
+
+    private static class BlockingTask implements Runnable {
+        private final CountDownLatch latch;
+        private final AtomicInteger runNum;
+
+        public BlockingTask(CountDownLatch latch, AtomicInteger runNum) {
+            this.latch = latch;
+            this.runNum = runNum;
+        }
+
+        @Override
+        public void run() {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            runNum.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testAbort() throws InterruptedException {
+        TrackedThreadPool pool = ThreadPoolManager.newFixedThreadPool("test-abort", 1, 1, RejectPolicy.ABORT);
+        Assert.assertSame(pool, ThreadPoolManager.getPool("test-abort"));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger runNum = new AtomicInteger(0);
+        pool.execute(new BlockingTask(latch, runNum));
+        pool.execute(new BlockingTask(latch, runNum));
+        try {
+            pool.execute(new BlockingTask(latch, runNum));
+            Assert.fail("no exception");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        Assert.assertEquals(1, pool.getRejectedNum());
+        Counter rejected = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, "thread_pool.test-abort.rejected");
+        Assert.assertEquals(1, rejected.getCount());
+
+        latch.countDown();
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, runNum.get());
+        Assert.assertEquals(2, pool.getCompletedTaskCount());
+        Timer execTime = (Timer) Metrics.getMetric(Metrics.MetricType.TIMER, "thread_pool.test-abort.exec_time");
+        Assert.assertEquals(2, execTime.getCount());
+    }
+
+    @Test
+    public void testCallerRunsAndDiscard() throws InterruptedException {
+        TrackedThreadPool callerRunsPool = ThreadPoolManager.newCachedThreadPool("test-caller-runs", 1,
+                RejectPolicy.CALLER_RUNS);
+        TrackedThreadPool discardPool = ThreadPoolManager.newFixedThreadPool("test-discard", 1, 0,
+                RejectPolicy.DISCARD);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger runNum = new AtomicInteger(0);
+        callerRunsPool.execute(new BlockingTask(latch, runNum));
+        discardPool.execute(new BlockingTask(latch, runNum));
+
+        // discarded silently
+        discardPool.execute(new BlockingTask(latch, runNum));
+        Assert.assertEquals(1, discardPool.getRejectedNum());
+
+        // run in this thread after latch is released
+        latch.countDown();
+        callerRunsPool.execute(new BlockingTask(latch, runNum));
+
+        callerRunsPool.shutdown();
+        discardPool.shutdown();
+        Assert.assertTrue(callerRunsPool.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(discardPool.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, runNum.get());
+    }
+}
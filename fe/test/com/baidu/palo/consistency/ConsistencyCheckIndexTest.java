@@ -0,0 +1,54 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.consistency;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsistencyCheckIndexTest {
+
+    @Test
+    public void testPoll() {
+        ConsistencyCheckIndex index = new ConsistencyCheckIndex();
+        Assert.assertEquals(-1L, index.poll());
+
+        index.add(1L, 3000L);
+        index.add(2L, -1L);
+        index.add(3L, 2000L);
+        index.add(4L, -1L);
+        // already in index, keep the old position
+        index.add(1L, 1000L);
+        Assert.assertEquals(4, index.size());
+
+        // never checked ones first, then by last check time
+        Assert.assertEquals(2L, index.poll());
+        Assert.assertEquals(4L, index.poll());
+        Assert.assertEquals(3L, index.poll());
+        Assert.assertFalse(index.contains(3L));
+
+        // move to the end
+        index.add(3L, 2000L);
+        index.update(3L, 4000L);
+        Assert.assertEquals(1L, index.poll());
+        Assert.assertEquals(3L, index.poll());
+        Assert.assertEquals(-1L, index.poll());
+
+        index.add(5L, 1000L);
+        index.remove(5L);
+        Assert.assertEquals(0, index.size());
+        Assert.assertEquals(-1L, index.poll());
+    }
+}
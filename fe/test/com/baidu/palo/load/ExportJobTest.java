@@ -0,0 +1,120 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.FeConstants;
+import com.baidu.palo.common.FeMetaVersion;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.lang.reflect.Field;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class ExportJobTest {
+    private static final String FILE_NAME = "./exportJobTest";
+
+    private int journalVersion;
+
+    @Before
+    public void setUp() {
+        journalVersion = FeConstants.meta_version;
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        EasyMock.replay(catalog);
+
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        EasyMock.expect(Catalog.getCurrentCatalogJournalVersion()).andAnswer(new IAnswer<Integer>() {
+            @Override
+            public Integer answer() {
+                return journalVersion;
+            }
+        }).anyTimes();
+        PowerMock.replay(Catalog.class);
+    }
+
+    @After
+    public void tearDown() {
+        new File(FILE_NAME).delete();
+    }
+
+    private static void setField(ExportJob job, String name, Object value) throws Exception {
+        Field field = ExportJob.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(job, value);
+    }
+
+    private ExportJob writeAndRead(ExportJob job) throws Exception {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(FILE_NAME)));
+        job.write(out);
+        out.flush();
+        out.close();
+
+        DataInputStream in = new DataInputStream(new FileInputStream(new File(FILE_NAME)));
+        ExportJob readJob = new ExportJob();
+        readJob.readFields(in);
+        in.close();
+        return readJob;
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ExportJob job = new ExportJob(1L);
+        job.setExportPath("hdfs://host/path/");
+        setField(job, "parallelism", 4);
+        setField(job, "maxFileSize", 1024L);
+
+        ExportJob readJob = writeAndRead(job);
+        Assert.assertEquals(1L, readJob.getId());
+        Assert.assertEquals("hdfs://host/path/", readJob.getExportPath());
+        Assert.assertEquals(4, readJob.getParallelism());
+        Assert.assertEquals(1024L, readJob.getMaxFileSize());
+        Assert.assertTrue(readJob.isReplayed());
+    }
+
+    @Test
+    public void testReadOldVersion() throws Exception {
+        ExportJob job = new ExportJob(1L);
+        job.setExportPath("hdfs://host/path/");
+        setField(job, "parallelism", 4);
+        setField(job, "maxFileSize", 1024L);
+
+        // parallelism and max file size are not read from meta of old version
+        journalVersion = FeMetaVersion.VERSION_40;
+        ExportJob readJob = writeAndRead(job);
+        Assert.assertEquals("hdfs://host/path/", readJob.getExportPath());
+        Assert.assertEquals(1, readJob.getParallelism());
+        Assert.assertEquals(Config.export_max_file_size_bytes, readJob.getMaxFileSize());
+    }
+}
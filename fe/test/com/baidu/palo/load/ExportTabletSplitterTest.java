@@ -0,0 +1,112 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.thrift.TNetworkAddress;
+import com.baidu.palo.thrift.TPaloScanRange;
+import com.baidu.palo.thrift.TScanRange;
+import com.baidu.palo.thrift.TScanRangeLocation;
+import com.baidu.palo.thrift.TScanRangeLocations;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class ExportTabletSplitterTest {
+    private static final long MB = 1024 * 1024L;
+
+    private TScanRangeLocations createTablet(long tabletId, long... backendIds) {
+        TPaloScanRange paloRange = new TPaloScanRange();
+        paloRange.setTablet_id(tabletId);
+        TScanRange scanRange = new TScanRange();
+        scanRange.setPalo_scan_range(paloRange);
+
+        TScanRangeLocations locations = new TScanRangeLocations();
+        locations.setScan_range(scanRange);
+        for (long backendId : backendIds) {
+            TScanRangeLocation location = new TScanRangeLocation(new TNetworkAddress("host" + backendId, 9060));
+            location.setBackend_id(backendId);
+            locations.addToLocations(location);
+        }
+        return locations;
+    }
+
+    private static long getBackendId(List<TScanRangeLocations> task) {
+        return task.get(0).getLocations().get(0).getBackend_id();
+    }
+
+    @Test
+    public void testBalanceBySize() {
+        List<TScanRangeLocations> tablets = Lists.newArrayList();
+        Table<Long, Long, Long> sizes = HashBasedTable.create();
+        // 6 tablets of 100MB and 2 tablets of 300MB, each has replicas on backend 1 and 2
+        for (long tabletId = 1; tabletId <= 8; tabletId++) {
+            tablets.add(createTablet(tabletId, 1L, 2L));
+            long size = tabletId <= 6 ? 100 * MB : 300 * MB;
+            sizes.put(tabletId, 1L, size);
+            sizes.put(tabletId, 2L, size);
+        }
+
+        ExportTabletSplitter splitter = new ExportTabletSplitter(300 * MB, 10);
+        List<List<TScanRangeLocations>> tasks = splitter.split(tablets, sizes);
+
+        Map<Long, Long> backendToSize = Maps.newHashMap();
+        int tabletNum = 0;
+        for (List<TScanRangeLocations> task : tasks) {
+            long backendId = getBackendId(task);
+            long taskSize = 0;
+            for (TScanRangeLocations tablet : task) {
+                // every tablet is scanned on exactly one backend, the same one of the task
+                Assert.assertEquals(1, tablet.getLocations().size());
+                Assert.assertEquals(backendId, tablet.getLocations().get(0).getBackend_id());
+                taskSize += sizes.get(tablet.getScan_range().getPalo_scan_range().getTablet_id(), backendId);
+            }
+            Assert.assertTrue(taskSize <= 300 * MB);
+            Long size = backendToSize.get(backendId);
+            backendToSize.put(backendId, (size == null ? 0L : size) + taskSize);
+            tabletNum += task.size();
+        }
+        Assert.assertEquals(8, tabletNum);
+        Assert.assertEquals(600 * MB, (long) backendToSize.get(1L));
+        Assert.assertEquals(600 * MB, (long) backendToSize.get(2L));
+        Assert.assertEquals(4, tasks.size());
+
+        // tasks are interleaved by backend
+        Assert.assertTrue(getBackendId(tasks.get(0)) != getBackendId(tasks.get(1)));
+    }
+
+    @Test
+    public void testUnknownSize() {
+        List<TScanRangeLocations> tablets = Lists.newArrayList();
+        for (long tabletId = 1; tabletId <= 10; tabletId++) {
+            tablets.add(createTablet(tabletId, 1L));
+        }
+
+        // fall back to 5 tablets per task
+        ExportTabletSplitter splitter = new ExportTabletSplitter(100 * MB, 5);
+        List<List<TScanRangeLocations>> tasks = splitter.split(tablets, HashBasedTable.<Long, Long, Long>create());
+        Assert.assertEquals(2, tasks.size());
+        Assert.assertEquals(5, tasks.get(0).size());
+        Assert.assertEquals(5, tasks.get(1).size());
+    }
+}
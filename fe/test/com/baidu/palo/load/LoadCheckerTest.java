@@ -33,7 +33,12 @@ import com.baidu.palo.persist.EditLog;
 import com.baidu.palo.task.AgentTaskQueue;
 import com.baidu.palo.task.MasterTask;
 import com.baidu.palo.task.MasterTaskExecutor;
+import com.baidu.palo.task.PushTask;
+import com.baidu.palo.thrift.TPriority;
+import com.baidu.palo.thrift.TPushType;
+import com.baidu.palo.thrift.TTaskType;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.easymock.EasyMock;
 import org.junit.After;
@@ -51,6 +56,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({LoadChecker.class, Catalog.class})
@@ -96,6 +102,42 @@ public class LoadCheckerTest {
     @After
     public void tearDown() {
         Config.load_running_job_num_limit = 0;
+        Config.max_push_task_num_per_backend = 200;
+        AgentTaskQueue.clearAllTasks();
+    }
+
+    private LoadJob createJob(JobState state, long version, long versionHash) {
+        LoadJob job = new LoadJob(label);
+        job.setId(1L);
+        job.setState(state);
+        job.setDbId(dbId);
+        PartitionLoadInfo partitionLoadInfo = new PartitionLoadInfo(new ArrayList<Source>());
+        partitionLoadInfo.setVersion(version);
+        partitionLoadInfo.setVersionHash(versionHash);
+        Map<Long, PartitionLoadInfo> idToPartitionLoadInfo = new HashMap<Long, PartitionLoadInfo>();
+        idToPartitionLoadInfo.put(partitionId, partitionLoadInfo);
+        TableLoadInfo tableLoadInfo = new TableLoadInfo(idToPartitionLoadInfo);
+        tableLoadInfo.addIndexSchemaHash(indexId, 0);
+        Map<Long, TableLoadInfo> idToTableLoadInfo = new HashMap<Long, TableLoadInfo>();
+        idToTableLoadInfo.put(tableId, tableLoadInfo);
+        job.setIdToTableLoadInfo(idToTableLoadInfo);
+        Map<Long, TabletLoadInfo> tabletLoadInfos = new HashMap<Long, TabletLoadInfo>();
+        tabletLoadInfos.put(tabletId, new TabletLoadInfo("/label/path", 1L));
+        job.setIdToTabletLoadInfo(tabletLoadInfos);
+        return job;
+    }
+
+    private Tablet getTablet() {
+        Partition partition = ((OlapTable) db.getTable(tableId)).getPartition(partitionId);
+        return partition.getIndex(indexId).getTablet(tabletId);
+    }
+
+    private LoadChecker getChecker(JobState state) throws Exception {
+        LoadChecker.init(5L);
+        Field checkersField = LoadChecker.class.getDeclaredField("checkers");
+        checkersField.setAccessible(true);
+        Map<JobState, LoadChecker> checkers = (Map<JobState, LoadChecker>) checkersField.get(LoadChecker.class);
+        return checkers.get(state);
     }
     
     @Test
@@ -264,6 +306,7 @@ public class LoadCheckerTest {
         // mock load
         load = EasyMock.createMock(Load.class);
         EasyMock.expect(load.getLoadJobs(JobState.LOADING)).andReturn(etlJobs).times(2);
+        EasyMock.expect(load.isPreviousVersionLoading(partitionId, newVersion)).andReturn(false).times(2);
         EasyMock.expect(load.updateLoadJobState(job, JobState.QUORUM_FINISHED)).andReturn(true).times(1);
         EasyMock.replay(load);
         EasyMock.expect(catalog.getLoadInstance()).andReturn(load).times(4);
@@ -362,6 +405,136 @@ public class LoadCheckerTest {
         Assert.assertEquals(0, AgentTaskQueue.getTaskNum());
     }
     
+    @Test
+    public void testSubmitPushTasksWithLimit() throws Exception {
+        long version = 2L;
+        long versionHash = 1L;
+        LoadJob job = createJob(JobState.LOADING, version, versionHash);
+
+        load = EasyMock.createMock(Load.class);
+        EasyMock.expect(load.isPreviousVersionLoading(partitionId, version)).andReturn(false).anyTimes();
+        EasyMock.replay(load);
+        EasyMock.replay(catalog);
+
+        LoadChecker checker = getChecker(JobState.LOADING);
+        Method submitPushTasks = UnitTestUtil.getPrivateMethod(LoadChecker.class, "submitPushTasks",
+                new Class[] {LoadJob.class, Database.class, Load.class, Map.class});
+
+        // backend of the first replica has an unfinished push task of the previous version
+        Config.max_push_task_num_per_backend = 1;
+        PushTask previousTask = new PushTask(null, backendId, dbId, tableId, partitionId, indexId, tabletId, 0L, 0,
+                                             version - 1, 0L, "/label/path", 1L, 0, 0L, TPushType.LOAD, null,
+                                             true, TPriority.NORMAL);
+        Assert.assertTrue(AgentTaskQueue.addTask(previousTask));
+        Map<Long, Integer> backendToPushTaskNum = AgentTaskQueue.getTaskNumOfBackends(TTaskType.PUSH);
+        Set<Long> jobTotalTablets = (Set<Long>) submitPushTasks.invoke(checker, job, db, load,
+                                                                       backendToPushTaskNum);
+        Assert.assertEquals(1, jobTotalTablets.size());
+        Assert.assertEquals(3, AgentTaskQueue.getTaskNum());
+        Assert.assertEquals(2, job.getPushTasks().size());
+        Assert.assertEquals(1, (int) backendToPushTaskNum.get(backendId));
+        Assert.assertEquals(1, (int) backendToPushTaskNum.get(backendId + 1));
+        Assert.assertEquals(1, (int) backendToPushTaskNum.get(backendId + 2));
+
+        // task of the same tablet can not be added to queue, and the acquired number is released
+        Config.max_push_task_num_per_backend = 2;
+        backendToPushTaskNum = AgentTaskQueue.getTaskNumOfBackends(TTaskType.PUSH);
+        submitPushTasks.invoke(checker, job, db, load, backendToPushTaskNum);
+        Assert.assertEquals(3, AgentTaskQueue.getTaskNum());
+        Assert.assertEquals(2, job.getPushTasks().size());
+        Assert.assertEquals(1, (int) backendToPushTaskNum.get(backendId));
+
+        // deferred replica is sent after the previous task finishes
+        AgentTaskQueue.removeTask(backendId, TTaskType.PUSH, tabletId);
+        submitPushTasks.invoke(checker, job, db, load, AgentTaskQueue.getTaskNumOfBackends(TTaskType.PUSH));
+        Assert.assertEquals(3, AgentTaskQueue.getTaskNum());
+        Assert.assertEquals(3, job.getPushTasks().size());
+        Assert.assertEquals(1, AgentTaskQueue.getTaskNum(backendId, TTaskType.PUSH, false));
+
+        // sent replicas are not sent again
+        submitPushTasks.invoke(checker, job, db, load, Maps.<Long, Integer>newHashMap());
+        Assert.assertEquals(3, job.getPushTasks().size());
+    }
+
+    @Test
+    public void testRecheckFullTablets() throws Exception {
+        long version = 2L;
+        long versionHash = 1L;
+        LoadJob job = createJob(JobState.QUORUM_FINISHED, version, versionHash);
+        // the tablet is marked full by finished push tasks, but replica on the last backend falls behind
+        Tablet tablet = getTablet();
+        tablet.getReplicaByBackendId(backendId).updateInfo(version, versionHash, 0L, 0L);
+        tablet.getReplicaByBackendId(backendId + 1).updateInfo(version, versionHash, 0L, 0L);
+        job.addQuorumTablet(tabletId);
+        job.addFullTablet(tabletId);
+
+        load = EasyMock.createMock(Load.class);
+        EasyMock.expect(load.updateLoadJobState(job, JobState.FINISHED)).andReturn(true).times(1);
+        load.clearJob(job, JobState.QUORUM_FINISHED);
+        EasyMock.expectLastCall().times(1);
+        EasyMock.replay(load);
+        EasyMock.expect(catalog.getLoadInstance()).andReturn(load).anyTimes();
+        EasyMock.replay(catalog);
+
+        LoadChecker checker = getChecker(JobState.QUORUM_FINISHED);
+        Method runOneQuorumFinishedJob = UnitTestUtil.getPrivateMethod(LoadChecker.class,
+                "runOneQuorumFinishedJob", new Class[] {LoadJob.class, Map.class});
+
+        // full tablet is skipped, and checked again in next round after the final version check fails
+        runOneQuorumFinishedJob.invoke(checker, job, Maps.<Long, Integer>newHashMap());
+        Assert.assertEquals(0, AgentTaskQueue.getTaskNum());
+        Assert.assertFalse(job.getFullTablets().contains(tabletId));
+
+        runOneQuorumFinishedJob.invoke(checker, job, Maps.<Long, Integer>newHashMap());
+        Assert.assertEquals(1, AgentTaskQueue.getTaskNum());
+        Assert.assertEquals(1, AgentTaskQueue.getTaskNum(backendId + 2, TTaskType.PUSH, false));
+        Assert.assertTrue(job.getQuorumTablets().contains(tabletId));
+        Assert.assertFalse(job.getFullTablets().contains(tabletId));
+
+        // job finishes after the replica catches up
+        tablet.getReplicaByBackendId(backendId + 2).updateInfo(version, versionHash, 0L, 0L);
+        runOneQuorumFinishedJob.invoke(checker, job, Maps.<Long, Integer>newHashMap());
+        Assert.assertTrue(job.getFullTablets().contains(tabletId));
+        EasyMock.verify(load);
+    }
+
+    @Test
+    public void testPendingTablets() throws Exception {
+        long version = 2L;
+        long versionHash = 1L;
+        LoadJob job = createJob(JobState.LOADING, version, versionHash);
+
+        load = EasyMock.createMock(Load.class);
+        EasyMock.expect(load.isPreviousVersionLoading(partitionId, version)).andReturn(false).anyTimes();
+        EasyMock.replay(load);
+        EasyMock.replay(catalog);
+
+        LoadChecker checker = getChecker(JobState.LOADING);
+        Method submitPushTasks = UnitTestUtil.getPrivateMethod(LoadChecker.class, "submitPushTasks",
+                new Class[] {LoadJob.class, Database.class, Load.class, Map.class});
+
+        // tablets of job are collected in the first round
+        Set<Long> jobTotalTablets = (Set<Long>) submitPushTasks.invoke(checker, job, db, load,
+                                                                       Maps.<Long, Integer>newHashMap());
+        Assert.assertEquals(1, jobTotalTablets.size());
+        Assert.assertTrue(job.getPendingTablets().get(partitionId).get(indexId).contains(tabletId));
+        Assert.assertEquals(3, job.getPushTasks().size());
+
+        // full tablet is removed from pending tablets, and still counted in job tablets
+        job.addQuorumTablet(tabletId);
+        job.addFullTablet(tabletId);
+        jobTotalTablets = (Set<Long>) submitPushTasks.invoke(checker, job, db, load,
+                                                             Maps.<Long, Integer>newHashMap());
+        Assert.assertEquals(1, jobTotalTablets.size());
+        Assert.assertTrue(job.getPendingTablets().get(partitionId).get(indexId).isEmpty());
+
+        // tablet is checked again after added back
+        job.getFullTablets().remove(tabletId);
+        job.addPendingTablet(partitionId, indexId, tabletId);
+        submitPushTasks.invoke(checker, job, db, load, Maps.<Long, Integer>newHashMap());
+        Assert.assertTrue(job.getPendingTablets().get(partitionId).get(indexId).contains(tabletId));
+    }
+
     @Test
     public void testCheckTimeout() {
         LoadJob job = new LoadJob(label);
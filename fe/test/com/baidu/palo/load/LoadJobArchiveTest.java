@@ -0,0 +1,166 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.load.LoadJob.JobState;
+
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+public class LoadJobArchiveTest {
+    private static final String DIR_PATH = "./loadJobArchiveTest";
+    private static final long SEGMENT_MS = 3600 * 1000L;
+    private static final long DB_ID = 10000L;
+
+    private static final LoadJobArchive.Filter ACCEPT_ALL = new LoadJobArchive.Filter() {
+        @Override
+        public boolean accept(long jobId, String label, JobState state) {
+            return true;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        deleteDir();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDir();
+    }
+
+    private static void deleteDir() {
+        File dir = new File(DIR_PATH);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static long getArchiveSize() {
+        long size = 0;
+        File[] files = new File(DIR_PATH).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    private static void append(LoadJobArchive archive, long dbId, long jobId, String label, JobState state) {
+        List<Comparable> info = Lists.newArrayList();
+        info.add(jobId);
+        info.add(label);
+        info.add(state.name());
+        archive.append(dbId, jobId, label, state, info);
+    }
+
+    private static List<Long> getJobIds(List<List<Comparable>> infos) {
+        List<Long> jobIds = Lists.newArrayList();
+        for (List<Comparable> info : infos) {
+            jobIds.add((Long) info.get(0));
+        }
+        return jobIds;
+    }
+
+    private static void appendJobs(LoadJobArchive archive) {
+        // archived in the order of finish, not id
+        append(archive, DB_ID, 3L, "label3", JobState.FINISHED);
+        append(archive, DB_ID, 1L, "label1", JobState.CANCELLED);
+        append(archive, DB_ID + 1, 4L, "label4", JobState.FINISHED);
+        append(archive, DB_ID, 2L, "label2", JobState.FINISHED);
+    }
+
+    private static void checkJobs(LoadJobArchive archive) {
+        Assert.assertEquals(Lists.newArrayList(1L, 2L, 3L), getJobIds(archive.scan(DB_ID, ACCEPT_ALL, -1L)));
+        Assert.assertEquals(Lists.newArrayList(4L), getJobIds(archive.scan(DB_ID + 1, ACCEPT_ALL, -1L)));
+        Assert.assertTrue(archive.scan(DB_ID + 2, ACCEPT_ALL, -1L).isEmpty());
+
+        // smallest ids are read when limited
+        Assert.assertEquals(Lists.newArrayList(1L, 2L), getJobIds(archive.scan(DB_ID, ACCEPT_ALL, 2L)));
+        List<List<Comparable>> infos = archive.scan(DB_ID, new LoadJobArchive.Filter() {
+            @Override
+            public boolean accept(long jobId, String label, JobState state) {
+                return state == JobState.FINISHED;
+            }
+        }, 1L);
+        Assert.assertEquals(Lists.newArrayList(2L), getJobIds(infos));
+        Assert.assertEquals(Lists.<Comparable>newArrayList(2L, "label2", "FINISHED"), infos.get(0));
+
+        Assert.assertEquals(Lists.<Comparable>newArrayList(3L, "label3", "FINISHED"), archive.getInfo(DB_ID, 3L));
+        Assert.assertNull(archive.getInfo(DB_ID, 4L));
+        Assert.assertNull(archive.getInfo(DB_ID, 5L));
+    }
+
+    @Test
+    public void testScan() {
+        LoadJobArchive archive = new LoadJobArchive(DIR_PATH, SEGMENT_MS);
+        appendJobs(archive);
+        // read from memory or file, depends on the writer thread
+        checkJobs(archive);
+
+        archive.flush();
+        Assert.assertTrue(getArchiveSize() > 0);
+        checkJobs(archive);
+    }
+
+    @Test
+    public void testReload() {
+        LoadJobArchive archive = new LoadJobArchive(DIR_PATH, SEGMENT_MS);
+        appendJobs(archive);
+        archive.flush();
+        long archiveSize = getArchiveSize();
+
+        // index is rebuilt from file after restart
+        LoadJobArchive newArchive = new LoadJobArchive(DIR_PATH, SEGMENT_MS);
+        newArchive.flush();
+        checkJobs(newArchive);
+
+        // jobs replayed again are skipped
+        appendJobs(newArchive);
+        append(newArchive, DB_ID, 5L, "label5", JobState.FINISHED);
+        newArchive.flush();
+        Assert.assertEquals(Lists.newArrayList(1L, 2L, 3L, 5L), getJobIds(newArchive.scan(DB_ID, ACCEPT_ALL, -1L)));
+        Assert.assertEquals(Lists.<Comparable>newArrayList(5L, "label5", "FINISHED"), newArchive.getInfo(DB_ID, 5L));
+        Assert.assertTrue(getArchiveSize() > archiveSize);
+    }
+
+    @Test
+    public void testRemoveExpired() {
+        LoadJobArchive archive = new LoadJobArchive(DIR_PATH, SEGMENT_MS);
+        appendJobs(archive);
+        archive.flush();
+
+        archive.removeExpired(System.currentTimeMillis() - SEGMENT_MS);
+        Assert.assertEquals(3, archive.scan(DB_ID, ACCEPT_ALL, -1L).size());
+
+        archive.removeExpired(System.currentTimeMillis() + SEGMENT_MS);
+        Assert.assertEquals(0, getArchiveSize());
+        Assert.assertTrue(archive.scan(DB_ID, ACCEPT_ALL, -1L).isEmpty());
+        Assert.assertNull(archive.getInfo(DB_ID, 1L));
+    }
+}
@@ -251,4 +251,34 @@ public class LoadJobTest {
         job.setLoadFinishTimeMs(9);
         Assert.assertEquals(9, job.getLoadFinishTimeMs());
     }
+
+    @Test
+    public void testUpdateTabletPushState() throws Exception {
+        LoadJob job = new LoadJob();
+        job.setTotalTabletNum(2);
+
+        // ignored before loading
+        job.updateTabletPushState(1L, 3, 3, 2);
+        Assert.assertTrue(job.getQuorumTablets().isEmpty());
+
+        job.setState(JobState.LOADING);
+        job.updateTabletPushState(1L, 1, 3, 2);
+        Assert.assertTrue(job.getQuorumTablets().isEmpty());
+        Assert.assertEquals(0, job.getProgress());
+
+        job.updateTabletPushState(1L, 2, 3, 2);
+        Assert.assertTrue(job.getQuorumTablets().contains(1L));
+        Assert.assertFalse(job.getFullTablets().contains(1L));
+        Assert.assertEquals(50, job.getProgress());
+
+        job.updateTabletPushState(2L, 3, 3, 2);
+        Assert.assertTrue(job.getFullTablets().contains(2L));
+        Assert.assertEquals(100, job.getProgress());
+
+        // progress is kept after quorum finished
+        job.setState(JobState.QUORUM_FINISHED);
+        job.updateTabletPushState(1L, 3, 3, 2);
+        Assert.assertTrue(job.getFullTablets().contains(1L));
+        Assert.assertEquals(100, job.getProgress());
+    }
 }
@@ -0,0 +1,101 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.load.LoadJob.JobState;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+public class LoadLabelIndexTest {
+    private static final long DB_ID = 10000L;
+    private static final long BUCKET_MS = 3600 * 1000L;
+
+    private LoadJobSummary createSummary(long jobId, String label, JobState state, long createTimeMs) {
+        LoadJob job = new LoadJob(label);
+        job.setId(jobId);
+        job.setDbId(DB_ID);
+        job.setTimestamp(jobId);
+        job.setState(state);
+        job.setCreateTimeMs(createTimeMs);
+        job.setLoadFinishTimeMs(createTimeMs + 1000L);
+        return new LoadJobSummary(job);
+    }
+
+    @Test
+    public void testLabel() {
+        LoadLabelIndex index = new LoadLabelIndex(BUCKET_MS);
+        index.add(createSummary(1L, "label1", JobState.CANCELLED, 1000L));
+        index.add(createSummary(2L, "label1", JobState.FINISHED, 2000L));
+        index.add(createSummary(3L, "label2", JobState.FINISHED, 3000L));
+
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(2L, index.get(DB_ID, "label1").getId());
+        Assert.assertEquals(JobState.FINISHED, index.get(DB_ID, "label1").getState());
+        Assert.assertNull(index.get(DB_ID, "label3"));
+        Assert.assertNull(index.get(DB_ID + 1, "label1"));
+        Assert.assertEquals(2, index.getJobNum(DB_ID, JobState.FINISHED));
+        Assert.assertEquals(1, index.getJobNum(DB_ID, JobState.CANCELLED));
+        Assert.assertEquals("label2", index.getLatestFinished(DB_ID).getLabel());
+
+        index.removeDb(DB_ID);
+        Assert.assertNull(index.get(DB_ID, "label1"));
+    }
+
+    @Test
+    public void testRemoveExpired() {
+        LoadLabelIndex index = new LoadLabelIndex(BUCKET_MS);
+        index.add(createSummary(1L, "label1", JobState.FINISHED, 0L));
+        index.add(createSummary(2L, "label2", JobState.CANCELLED, BUCKET_MS / 2));
+        index.add(createSummary(3L, "label3", JobState.FINISHED, BUCKET_MS));
+
+        // first bucket is not expired until all jobs in it expire
+        Assert.assertEquals(0, index.removeExpired(BUCKET_MS - 1));
+        Assert.assertEquals(2, index.removeExpired(BUCKET_MS));
+        Assert.assertNull(index.get(DB_ID, "label1"));
+        Assert.assertNull(index.get(DB_ID, "label2"));
+        Assert.assertNotNull(index.get(DB_ID, "label3"));
+        Assert.assertEquals(1, index.getJobNum(DB_ID, JobState.FINISHED));
+        Assert.assertEquals(0, index.getJobNum(DB_ID, JobState.CANCELLED));
+        Assert.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        LoadLabelIndex index = new LoadLabelIndex(BUCKET_MS);
+        index.add(createSummary(1L, "label1", JobState.FINISHED, 1000L));
+        index.add(createSummary(2L, "label2", JobState.CANCELLED, 2000L));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        index.write(out);
+        out.flush();
+
+        LoadLabelIndex readIndex = new LoadLabelIndex(BUCKET_MS);
+        readIndex.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(2, readIndex.size());
+        LoadJobSummary summary = readIndex.get(DB_ID, "label1");
+        Assert.assertEquals(1L, summary.getId());
+        Assert.assertEquals(1L, summary.getTimestamp());
+        Assert.assertEquals(JobState.FINISHED, summary.getState());
+        Assert.assertEquals(JobState.CANCELLED, readIndex.get(DB_ID, "label2").getState());
+    }
+}
@@ -0,0 +1,202 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.TabletInvertedIndex;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.load.FailMsg.CancelType;
+import com.baidu.palo.load.LoadJob.JobState;
+import com.baidu.palo.persist.EditLog;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class LoadPipelineTest {
+    private static final long DB_ID = 10000L;
+    private static final long TABLE_ID = 20000L;
+    private static final long PARTITION_ID = 30000L;
+    private static final long INDEX_ID = 30000L;
+    private static final long TABLET_ID = 40000L;
+    private static final long BACKEND_ID = 1000L;
+
+    private int maxPipelinedJobNum;
+    private Database db;
+    private EditLog editLog;
+
+    @Before
+    public void setUp() {
+        maxPipelinedJobNum = Config.load_max_pipelined_jobs_per_partition;
+
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getCurrentInvertedIndex()).andReturn(new TabletInvertedIndex()).anyTimes();
+        EasyMock.expect(Catalog.isCheckpointThread()).andReturn(false).anyTimes();
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        PowerMock.replay(Catalog.class);
+
+        // committed version of partition is 1
+        db = UnitTestUtil.createDb(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID, TABLET_ID, BACKEND_ID, 1L, 0L);
+        editLog = EasyMock.createMock(EditLog.class);
+        EasyMock.expect(catalog.getDb(DB_ID)).andReturn(db).anyTimes();
+        EasyMock.expect(catalog.getEditLog()).andReturn(editLog).anyTimes();
+        EasyMock.replay(catalog);
+    }
+
+    @After
+    public void tearDown() {
+        Config.load_max_pipelined_jobs_per_partition = maxPipelinedJobNum;
+    }
+
+    private static LoadJob createJob(long jobId, JobState state, long version) {
+        LoadJob job = new LoadJob("label" + jobId);
+        job.setId(jobId);
+        job.setDbId(DB_ID);
+        job.setState(state);
+
+        PartitionLoadInfo partitionLoadInfo = new PartitionLoadInfo(Lists.<Source>newArrayList());
+        partitionLoadInfo.setVersion(version);
+        Map<Long, PartitionLoadInfo> idToPartitionLoadInfo = Maps.newHashMap();
+        idToPartitionLoadInfo.put(PARTITION_ID, partitionLoadInfo);
+        Map<Long, TableLoadInfo> idToTableLoadInfo = Maps.newHashMap();
+        idToTableLoadInfo.put(TABLE_ID, new TableLoadInfo(idToPartitionLoadInfo));
+        job.setIdToTableLoadInfo(idToTableLoadInfo);
+        return job;
+    }
+
+    private static long getVersion(LoadJob job) {
+        return job.getPartitionLoadInfo(TABLE_ID, PARTITION_ID).getVersion();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TreeMap<Long, Long> getLoadingVersions(Load load) throws Exception {
+        Field field = Load.class.getDeclaredField("loadingPartitionToVersions");
+        field.setAccessible(true);
+        return ((Map<Long, TreeMap<Long, Long>>) field.get(load)).get(PARTITION_ID);
+    }
+
+    private static TreeMap<Long, Long> versionsOf(long... versionAndJobIds) {
+        TreeMap<Long, Long> versions = Maps.newTreeMap();
+        for (int i = 0; i < versionAndJobIds.length; i += 2) {
+            versions.put(versionAndJobIds[i], versionAndJobIds[i + 1]);
+        }
+        return versions;
+    }
+
+    @Test
+    public void testPipelinedVersions() throws Exception {
+        Config.load_max_pipelined_jobs_per_partition = 3;
+        List<LoadJob> jobs = Lists.newArrayList();
+        for (long jobId = 1L; jobId <= 4L; jobId++) {
+            jobs.add(createJob(jobId, JobState.ETL, -1L));
+        }
+        LoadJob job1 = jobs.get(0);
+        LoadJob job2 = jobs.get(1);
+        LoadJob job3 = jobs.get(2);
+
+        // job 3 is logged again when its version is shifted, before job 2 is cancelled
+        editLog.logLoadLoading(EasyMock.same(job1));
+        EasyMock.expectLastCall().once();
+        editLog.logLoadLoading(EasyMock.same(job2));
+        EasyMock.expectLastCall().once();
+        editLog.logLoadLoading(EasyMock.same(job3));
+        EasyMock.expectLastCall().times(2);
+        editLog.logLoadCancel(EasyMock.same(job2));
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(editLog);
+
+        Load load = new Load();
+        for (LoadJob job : jobs) {
+            load.replayAddLoadJob(job);
+        }
+
+        // versions following the committed version are reserved one by one
+        for (int i = 0; i < 3; i++) {
+            LoadJob job = jobs.get(i);
+            Assert.assertTrue(load.addLoadingPartitions(job, db));
+            Assert.assertEquals(2L + i, getVersion(job));
+            Assert.assertTrue(load.updateLoadJobState(job, JobState.LOADING));
+        }
+        Assert.assertEquals(versionsOf(2L, 1L, 3L, 2L, 4L, 3L), getLoadingVersions(load));
+
+        // too many pipelined jobs
+        Assert.assertFalse(load.addLoadingPartitions(jobs.get(3), db));
+        Assert.assertEquals(3, getLoadingVersions(load).size());
+
+        // push of higher versions waits for the lowest one
+        Assert.assertFalse(load.isPreviousVersionLoading(PARTITION_ID, 2L));
+        Assert.assertTrue(load.isPreviousVersionLoading(PARTITION_ID, 3L));
+        Assert.assertTrue(load.isPreviousVersionLoading(PARTITION_ID, 4L));
+
+        // version of cancelled job is taken over by the following job
+        Assert.assertTrue(load.cancelLoadJob(job2, CancelType.LOAD_RUN_FAIL, "test"));
+        Assert.assertEquals(JobState.CANCELLED, job2.getState());
+        Assert.assertEquals(2L, getVersion(job1));
+        Assert.assertEquals(3L, getVersion(job3));
+        Assert.assertEquals(versionsOf(2L, 1L, 3L, 3L), getLoadingVersions(load));
+        Assert.assertTrue(load.isPreviousVersionLoading(PARTITION_ID, 3L));
+        EasyMock.verify(editLog);
+
+        // the freed slot can be used by next job
+        Assert.assertTrue(load.addLoadingPartitions(jobs.get(3), db));
+        Assert.assertEquals(4L, getVersion(jobs.get(3)));
+    }
+
+    @Test
+    public void testReplayShiftedVersions() throws Exception {
+        Load load = new Load();
+        for (long jobId = 1L; jobId <= 3L; jobId++) {
+            load.replayAddLoadJob(createJob(jobId, JobState.ETL, -1L));
+            load.replayLoadingLoadJob(createJob(jobId, JobState.LOADING, jobId + 1));
+        }
+        Assert.assertEquals(versionsOf(2L, 1L, 3L, 2L, 4L, 3L), getLoadingVersions(load));
+
+        // replayed in the order of master: shifted job 3 is logged before cancelled job 2
+        load.replayLoadingLoadJob(createJob(3L, JobState.LOADING, 3L));
+        Assert.assertEquals(versionsOf(2L, 1L, 3L, 3L), getLoadingVersions(load));
+        Assert.assertEquals(3L, getVersion(load.getLoadJob(3L)));
+
+        // log of cancelled job does not carry table load infos
+        LoadJob cancelledJob = createJob(2L, JobState.CANCELLED, 3L);
+        cancelledJob.setIdToTableLoadInfo(null);
+        load.replayCancelLoadJob(cancelledJob);
+        Assert.assertNull(load.getLoadJob(2L));
+        Assert.assertEquals(versionsOf(2L, 1L, 3L, 3L), getLoadingVersions(load));
+        Assert.assertFalse(load.isPreviousVersionLoading(PARTITION_ID, 2L));
+        Assert.assertTrue(load.isPreviousVersionLoading(PARTITION_ID, 3L));
+    }
+}
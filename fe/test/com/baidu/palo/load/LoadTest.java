@@ -134,6 +134,7 @@ public class LoadTest {
         PowerMock.mockStatic(Catalog.class);
         EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
         EasyMock.expect(Catalog.getCurrentSystemInfo()).andReturn(systemInfoService).anyTimes();
+        EasyMock.expect(Catalog.isCheckpointThread()).andReturn(false).anyTimes();
         PowerMock.replay(Catalog.class);
 
         connectContext = EasyMock.createMock(ConnectContext.class);
@@ -207,14 +208,18 @@ public class LoadTest {
         EasyMock.expect(cancelStmt.getDbName()).andReturn(db.getName()).anyTimes();
         EasyMock.expect(cancelStmt.getLabel()).andReturn(label).anyTimes();
         EasyMock.replay(cancelStmt);
+        LoadJob job = load.getIdToLoadJob().values().iterator().next();
         load.cancelLoadJob(cancelStmt);
 
         // verify
-        List<LoadJob> dbLoadJobs = load.getDbLoadJobs(dbId);
-        Assert.assertEquals(1, dbLoadJobs.size());
-        LoadJob job = dbLoadJobs.get(0);
         Assert.assertEquals(JobState.CANCELLED, job.getState());
         Assert.assertEquals(CancelType.USER_CANCEL, job.getFailMsg().getCancelType());
+
+        // cancelled job is moved to label index
+        Assert.assertNull(load.getDbLoadJobs(dbId));
+        Assert.assertNull(load.getLoadJob(job.getId()));
+        Assert.assertEquals(1, load.getLoadJobNum(JobState.CANCELLED, dbId));
+        Assert.assertEquals(JobState.CANCELLED, load.getLabelIndex().get(dbId, label).getState());
     }
 
     @Test
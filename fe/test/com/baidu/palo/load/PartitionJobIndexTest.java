@@ -0,0 +1,59 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.load;
+
+import com.baidu.palo.load.PartitionJobIndex.JobType;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PartitionJobIndexTest {
+
+    @Test
+    public void testPutAndRemove() {
+        PartitionJobIndex index = new PartitionJobIndex();
+        index.put(JobType.LOAD, 1L, Lists.newArrayList(10L, 11L));
+        index.put(JobType.LOAD, 2L, Lists.newArrayList(11L));
+        Assert.assertTrue(index.hasJob(JobType.LOAD, 10L));
+        Assert.assertTrue(index.hasJob(JobType.LOAD, 11L));
+        Assert.assertFalse(index.hasJob(JobType.QUORUM_FINISHED_LOAD, 10L));
+        Assert.assertEquals(2, index.getJobIds(JobType.LOAD, 11L).size());
+        Assert.assertEquals(2, index.getJobNum());
+
+        // job 1 becomes quorum finished
+        index.put(JobType.QUORUM_FINISHED_LOAD, 1L, Lists.newArrayList(10L, 11L));
+        Assert.assertFalse(index.hasJob(JobType.LOAD, 10L));
+        Assert.assertTrue(index.hasJob(JobType.LOAD, 11L));
+        Assert.assertTrue(index.getJobIds(JobType.QUORUM_FINISHED_LOAD, 10L).contains(1L));
+        Assert.assertEquals(2, index.getJobNum());
+
+        index.put(JobType.ASYNC_DELETE, 3L, Lists.newArrayList(12L));
+        Assert.assertTrue(index.hasJob(JobType.ASYNC_DELETE, 12L));
+
+        index.remove(1L);
+        index.remove(2L);
+        index.remove(3L);
+        // removing a job not in index does nothing
+        index.remove(4L);
+        Assert.assertFalse(index.hasJob(JobType.QUORUM_FINISHED_LOAD, 10L));
+        Assert.assertFalse(index.hasJob(JobType.LOAD, 11L));
+        Assert.assertFalse(index.hasJob(JobType.ASYNC_DELETE, 12L));
+        Assert.assertTrue(index.getJobIds(JobType.LOAD, 11L).isEmpty());
+        Assert.assertEquals(0, index.getJobNum());
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.master;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.catalog.TabletInvertedIndex;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.load.Load;
+import com.baidu.palo.load.LoadJob;
+import com.baidu.palo.load.LoadJob.JobState;
+import com.baidu.palo.system.Backend;
+import com.baidu.palo.system.SystemInfoService;
+import com.baidu.palo.task.AgentTask;
+import com.baidu.palo.task.AgentTaskQueue;
+import com.baidu.palo.task.PushTask;
+import com.baidu.palo.thrift.TFinishTaskRequest;
+import com.baidu.palo.thrift.TPriority;
+import com.baidu.palo.thrift.TPushType;
+import com.baidu.palo.thrift.TTabletInfo;
+
+import com.google.common.collect.Lists;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class MasterImplTest {
+    private static final long DB_ID = 10000L;
+    private static final long TABLE_ID = 20000L;
+    private static final long PARTITION_ID = 30000L;
+    private static final long INDEX_ID = 30000L;
+    private static final long TABLET_ID = 40000L;
+    private static final long BACKEND_ID = 1000L;
+    private static final long JOB_ID = 50000L;
+    private static final long VERSION = 2L;
+    private static final long VERSION_HASH = 1L;
+
+    private Database db;
+    private LoadJob job;
+    private MasterImpl masterImpl;
+    private Method finishPush;
+    private List<Backend> backends;
+
+    @Before
+    public void setUp() throws Exception {
+        TabletInvertedIndex invertedIndex = new TabletInvertedIndex();
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        SystemInfoService systemInfoService = EasyMock.createNiceMock(SystemInfoService.class);
+        backends = Lists.newArrayList();
+        for (long backendId = BACKEND_ID; backendId < BACKEND_ID + 3; backendId++) {
+            Backend backend = new Backend(backendId, "host" + backendId, 9050);
+            backend.setAlive(true);
+            backends.add(backend);
+            EasyMock.expect(systemInfoService.getBackend(backendId)).andReturn(backend).anyTimes();
+        }
+        EasyMock.replay(systemInfoService);
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        EasyMock.expect(Catalog.getCurrentInvertedIndex()).andReturn(invertedIndex).anyTimes();
+        EasyMock.expect(Catalog.isCheckpointThread()).andReturn(false).anyTimes();
+        EasyMock.expect(Catalog.getCurrentSystemInfo()).andReturn(systemInfoService).anyTimes();
+        PowerMock.replay(Catalog.class);
+
+        // replicas of 3 backends, which are all at version 1
+        db = UnitTestUtil.createDb(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID, TABLET_ID, BACKEND_ID, 1L, 0L);
+        job = new LoadJob("label");
+        job.setId(JOB_ID);
+        job.setDbId(DB_ID);
+        job.setState(JobState.LOADING);
+        job.setTotalTabletNum(1);
+
+        Load load = EasyMock.createMock(Load.class);
+        EasyMock.expect(load.getLoadJob(JOB_ID)).andReturn(job).anyTimes();
+        EasyMock.replay(load);
+        EasyMock.expect(catalog.getDb(DB_ID)).andReturn(db).anyTimes();
+        EasyMock.expect(catalog.getLoadInstance()).andReturn(load).anyTimes();
+        EasyMock.replay(catalog);
+
+        masterImpl = new MasterImpl();
+        finishPush = UnitTestUtil.getPrivateMethod(MasterImpl.class, "finishPush",
+                new Class[] {AgentTask.class, TFinishTaskRequest.class});
+    }
+
+    @After
+    public void tearDown() {
+        AgentTaskQueue.clearAllTasks();
+    }
+
+    private Replica getReplica(long backendId) {
+        OlapTable table = (OlapTable) db.getTable(TABLE_ID);
+        Tablet tablet = table.getPartition(PARTITION_ID).getIndex(INDEX_ID).getTablet(TABLET_ID);
+        return tablet.getReplicaByBackendId(backendId);
+    }
+
+    private void finishPush(long backendId, long finishVersion) throws Exception {
+        PushTask task = new PushTask(null, backendId, DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID, TABLET_ID,
+                                     getReplica(backendId).getId(), UnitTestUtil.SCHEMA_HASH, VERSION, VERSION_HASH,
+                                     "/label/path", 1L, 0, JOB_ID, TPushType.LOAD, null, true, TPriority.NORMAL);
+        Assert.assertTrue(AgentTaskQueue.addTask(task));
+
+        TFinishTaskRequest request = new TFinishTaskRequest();
+        request.setReport_version(1L);
+        request.setFinish_tablet_infos(Lists.newArrayList(new TTabletInfo(TABLET_ID, UnitTestUtil.SCHEMA_HASH,
+                                                                          finishVersion, VERSION_HASH, 10L, 100L)));
+        finishPush.invoke(masterImpl, task, request);
+    }
+
+    @Test
+    public void testFinishPushUpdateProgress() throws Exception {
+        // report of another version is ignored
+        finishPush(BACKEND_ID, VERSION + 1);
+        Assert.assertEquals(1L, getReplica(BACKEND_ID).getVersion());
+        Assert.assertEquals(1, AgentTaskQueue.getTaskNum());
+        AgentTaskQueue.clearAllTasks();
+
+        // less than quorum
+        finishPush(BACKEND_ID, VERSION);
+        Assert.assertEquals(VERSION, getReplica(BACKEND_ID).getVersion());
+        Assert.assertEquals(0, AgentTaskQueue.getTaskNum());
+        Assert.assertEquals(1, job.getReplicaPersistInfos().size());
+        Assert.assertTrue(job.getQuorumTablets().isEmpty());
+        Assert.assertEquals(0, job.getProgress());
+
+        // progress is updated without waiting for load checker
+        finishPush(BACKEND_ID + 1, VERSION);
+        Assert.assertTrue(job.getQuorumTablets().contains(TABLET_ID));
+        Assert.assertFalse(job.getFullTablets().contains(TABLET_ID));
+        Assert.assertEquals(100, job.getProgress());
+
+        finishPush(BACKEND_ID + 2, VERSION);
+        Assert.assertTrue(job.getFullTablets().contains(TABLET_ID));
+        Assert.assertEquals(3, job.getReplicaPersistInfos().size());
+        Assert.assertEquals(0, AgentTaskQueue.getTaskNum());
+    }
+
+    @Test
+    public void testFinishPushCountAvailableReplicas() throws Exception {
+        // replica on dead backend and replica being cloned do not count for quorum
+        backends.get(1).setAlive(false);
+        getReplica(BACKEND_ID + 2).setState(ReplicaState.CLONE);
+        finishPush(BACKEND_ID, VERSION);
+        finishPush(BACKEND_ID + 1, VERSION);
+        finishPush(BACKEND_ID + 2, VERSION);
+        Assert.assertEquals(VERSION, getReplica(BACKEND_ID + 1).getVersion());
+        Assert.assertTrue(job.getQuorumTablets().isEmpty());
+        Assert.assertEquals(0, job.getProgress());
+
+        backends.get(1).setAlive(true);
+        finishPush(BACKEND_ID + 1, VERSION);
+        Assert.assertTrue(job.getQuorumTablets().contains(TABLET_ID));
+        Assert.assertFalse(job.getFullTablets().contains(TABLET_ID));
+    }
+}
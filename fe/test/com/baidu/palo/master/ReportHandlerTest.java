@@ -0,0 +1,149 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.master;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.TabletInvertedIndex;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.thrift.TStorageMedium;
+import com.baidu.palo.thrift.TTablet;
+import com.baidu.palo.thrift.TTabletInfo;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class ReportHandlerTest {
+    private static final long DB_ID = 10000L;
+    private static final long TABLE_ID = 20000L;
+    private static final long PARTITION_ID = 30000L;
+    private static final long INDEX_ID = 30000L;
+    private static final long TABLET_ID = 40000L;
+    private static final long BACKEND_ID = 1000L;
+
+    private TabletInvertedIndex invertedIndex;
+    private Database db;
+    private MaterializedIndex index;
+    private Method updateStat;
+
+    @Before
+    public void setUp() throws Exception {
+        invertedIndex = new TabletInvertedIndex();
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        EasyMock.expect(Catalog.getCurrentInvertedIndex()).andReturn(invertedIndex).anyTimes();
+        EasyMock.expect(Catalog.isCheckpointThread()).andReturn(false).anyTimes();
+        PowerMock.replay(Catalog.class);
+
+        // replicas of 3 backends, which are all at version 1 and empty
+        db = UnitTestUtil.createDb(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID, TABLET_ID, BACKEND_ID, 1L, 0L);
+        index = ((OlapTable) db.getTable(TABLE_ID)).getPartition(PARTITION_ID).getIndex(INDEX_ID);
+        index.updateStat();
+        EasyMock.expect(catalog.getDb(DB_ID)).andReturn(db).anyTimes();
+        EasyMock.replay(catalog);
+
+        updateStat = UnitTestUtil.getPrivateMethod(ReportHandler.class, "updateStat",
+                new Class[] {Map.class, ListMultimap.class, long.class});
+    }
+
+    private Replica getReplica(long backendId) {
+        return index.getTablet(TABLET_ID).getReplicaByBackendId(backendId);
+    }
+
+    private static Map<Long, TTablet> createReport(long version, long rowCount, long dataSize) {
+        TTabletInfo tabletInfo = new TTabletInfo(TABLET_ID, UnitTestUtil.SCHEMA_HASH, version, 0L, rowCount, dataSize);
+        Map<Long, TTablet> backendTablets = Maps.newHashMap();
+        backendTablets.put(TABLET_ID, new TTablet(Lists.newArrayList(tabletInfo)));
+        return backendTablets;
+    }
+
+    // do the diff of report, and update stat of tablets which are not synced. return the tablets to sync
+    private ListMultimap<Long, Long> report(Map<Long, TTablet> backendTablets, ListMultimap<Long, Long> tabletStatMap)
+            throws Exception {
+        ListMultimap<Long, Long> tabletSyncMap = LinkedListMultimap.create();
+        invertedIndex.tabletReport(BACKEND_ID, backendTablets, new HashMap<Long, TStorageMedium>(),
+                                   tabletSyncMap, tabletStatMap, LinkedListMultimap.<Long, Long>create(),
+                                   Sets.<Long>newHashSet(), Maps.<Long, TTabletInfo>newHashMap(),
+                                   LinkedListMultimap.<TStorageMedium, Long>create());
+        updateStat.invoke(null, backendTablets, tabletStatMap, BACKEND_ID);
+        return tabletSyncMap;
+    }
+
+    @Test
+    public void testUpdateStat() throws Exception {
+        // only data size is changed
+        ListMultimap<Long, Long> tabletStatMap = LinkedListMultimap.create();
+        Assert.assertTrue(report(createReport(1L, 0L, 1024L), tabletStatMap).isEmpty());
+        Assert.assertEquals(Lists.newArrayList(TABLET_ID), tabletStatMap.get(DB_ID));
+        Assert.assertEquals(1024L, getReplica(BACKEND_ID).getDataSize());
+        Assert.assertEquals(0L, getReplica(BACKEND_ID).getRowCount());
+        Assert.assertEquals(1L, getReplica(BACKEND_ID).getVersion());
+        Assert.assertEquals(1024L, index.getDataSize());
+        Assert.assertEquals(0L, index.getRowCount());
+
+        // only row count is changed
+        tabletStatMap = LinkedListMultimap.create();
+        report(createReport(1L, 10L, 1024L), tabletStatMap);
+        Assert.assertEquals(Lists.newArrayList(TABLET_ID), tabletStatMap.get(DB_ID));
+        Assert.assertEquals(10L, getReplica(BACKEND_ID).getRowCount());
+        Assert.assertEquals(1024L, index.getDataSize());
+        Assert.assertEquals(10L, index.getRowCount());
+
+        // nothing is changed
+        tabletStatMap = LinkedListMultimap.create();
+        report(createReport(1L, 10L, 1024L), tabletStatMap);
+        Assert.assertTrue(tabletStatMap.isEmpty());
+
+        // data size shrinks after compaction
+        tabletStatMap = LinkedListMultimap.create();
+        report(createReport(1L, 10L, 512L), tabletStatMap);
+        Assert.assertEquals(512L, getReplica(BACKEND_ID).getDataSize());
+        Assert.assertEquals(512L, index.getDataSize());
+        Assert.assertEquals(10L, index.getRowCount());
+
+        // replica with new version is synced instead
+        tabletStatMap = LinkedListMultimap.create();
+        ListMultimap<Long, Long> tabletSyncMap = report(createReport(2L, 20L, 2048L), tabletStatMap);
+        Assert.assertTrue(tabletStatMap.isEmpty());
+        Assert.assertEquals(Lists.newArrayList(TABLET_ID), tabletSyncMap.get(DB_ID));
+        Assert.assertEquals(512L, getReplica(BACKEND_ID).getDataSize());
+        Assert.assertEquals(512L, index.getDataSize());
+    }
+}
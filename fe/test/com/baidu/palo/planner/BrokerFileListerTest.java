@@ -0,0 +1,73 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.planner;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class BrokerFileListerTest {
+    @Test
+    public void testMergePaths() {
+        List<String> paths = Lists.newArrayList(
+                "hdfs://host:port/a/b",
+                "hdfs://host:port/a/c",
+                "hdfs://host:port/d/*",
+                "hdfs://host:port/a/b",
+                "hdfs://host:port/e/f");
+        List<String> merged = BrokerFileLister.mergePaths(paths);
+        Assert.assertEquals(3, merged.size());
+        Assert.assertEquals("hdfs://host:port/d/*", merged.get(0));
+        Assert.assertEquals("hdfs://host:port/a/{b,c}", merged.get(1));
+        Assert.assertEquals("hdfs://host:port/e/f", merged.get(2));
+    }
+
+    @Test
+    public void testNotMergeSpecialName() {
+        List<String> paths = Lists.newArrayList(
+                "hdfs://host:port/a/b,c",
+                "hdfs://host:port/a/{d,e}",
+                "hdfs://host:port/a/");
+        List<String> merged = BrokerFileLister.mergePaths(paths);
+        Assert.assertEquals(paths, merged);
+    }
+
+    @Test
+    public void testListPathKey() {
+        Map<String, String> properties = Maps.newHashMap();
+        properties.put("username", "user");
+        BrokerFileLister.ListPathKey key = new BrokerFileLister.ListPathKey(
+                "broker", "hdfs://host:port/a/*", properties, true);
+        BrokerFileLister.ListPathKey sameKey = new BrokerFileLister.ListPathKey(
+                "broker", "hdfs://host:port/a/*", Maps.newHashMap(properties), true);
+        Assert.assertEquals(key, sameKey);
+        Assert.assertEquals(key.hashCode(), sameKey.hashCode());
+
+        // listing without block locations is not used for the one needs them
+        BrokerFileLister.ListPathKey noLocationKey = new BrokerFileLister.ListPathKey(
+                "broker", "hdfs://host:port/a/*", Maps.newHashMap(properties), false);
+        Assert.assertFalse(key.equals(noLocationKey));
+
+        // properties are copied
+        properties.put("password", "pass");
+        Assert.assertEquals(key, sameKey);
+    }
+}
@@ -0,0 +1,188 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.analysis.BrokerDesc;
+import com.baidu.palo.analysis.TupleDescriptor;
+import com.baidu.palo.analysis.TupleId;
+import com.baidu.palo.catalog.BrokerMgr;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.system.Backend;
+import com.baidu.palo.thrift.TBrokerBlockLocation;
+import com.baidu.palo.thrift.TBrokerFileStatus;
+import com.baidu.palo.thrift.TBrokerRangeDesc;
+import com.baidu.palo.thrift.TBrokerScanRange;
+import com.baidu.palo.thrift.TBrokerScanRangeParams;
+import com.baidu.palo.thrift.TScanRangeLocation;
+import com.baidu.palo.thrift.TScanRangeLocations;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class BrokerScanNodeTest {
+    private static final String BROKER_NAME = "broker";
+
+    private BrokerScanNode scanNode;
+    private List<TScanRangeLocations> locationsList;
+
+    @Before
+    public void setUp() throws Exception {
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        BrokerMgr brokerMgr = EasyMock.createMock(BrokerMgr.class);
+        for (int i = 1; i <= 3; i++) {
+            String host = "host" + i;
+            EasyMock.expect(brokerMgr.getBroker(BROKER_NAME, host))
+                    .andReturn(new BrokerMgr.BrokerAddress(host, 8000)).anyTimes();
+        }
+        EasyMock.replay(brokerMgr);
+        EasyMock.expect(catalog.getBrokerMgr()).andReturn(brokerMgr).anyTimes();
+        EasyMock.replay(catalog);
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        PowerMock.replay(Catalog.class);
+
+        // one backend on each of host1, host2 and host3
+        ArrayList<Backend> backends = Lists.newArrayList();
+        Map<String, List<Backend>> hostToBackends = Maps.newHashMap();
+        for (int i = 1; i <= 3; i++) {
+            Backend backend = new Backend(i, "host" + i, 9050);
+            backend.setBePort(9060);
+            backends.add(backend);
+            hostToBackends.put(backend.getHost(), Lists.newArrayList(backend));
+        }
+
+        scanNode = new BrokerScanNode(new PlanNodeId(0), new TupleDescriptor(new TupleId(0)), "BrokerScanNode");
+        locationsList = Lists.newArrayList();
+        setField("backends", backends);
+        setField("hostToBackends", hostToBackends);
+        setField("bytesPerInstance", 100L);
+        setField("brokerDesc", new BrokerDesc(BROKER_NAME, null));
+        setField("locationsList", locationsList);
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = BrokerScanNode.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(scanNode, value);
+    }
+
+    private static TBrokerFileStatus createFileStatus(String path, long size, boolean isSplitable,
+                                                      TBrokerBlockLocation... blocks) {
+        TBrokerFileStatus fileStatus = new TBrokerFileStatus(path, false, size, isSplitable);
+        fileStatus.setBlockLocations(Lists.newArrayList(blocks));
+        return fileStatus;
+    }
+
+    private static TBrokerBlockLocation createBlock(long offset, long length, String... hosts) {
+        return new TBrokerBlockLocation(offset, length, Lists.newArrayList(hosts));
+    }
+
+    private static List<Long> getBackendIds(TScanRangeLocations locations) {
+        List<Long> backendIds = Lists.newArrayList();
+        for (TScanRangeLocation location : locations.getLocations()) {
+            backendIds.add(location.getBackend_id());
+        }
+        return backendIds;
+    }
+
+    private static TBrokerScanRange getBrokerScanRange(TScanRangeLocations locations) {
+        return locations.getScan_range().getBroker_scan_range();
+    }
+
+    @Test
+    public void testGetFileSplits() throws Exception {
+        Method getFileSplits = UnitTestUtil.getPrivateMethod(BrokerScanNode.class, "getFileSplits",
+                new Class[] {List.class});
+        List<TBrokerFileStatus> fileStatuses = Lists.newArrayList(
+                // block larger than bytes per instance is split further
+                createFileStatus("hdfs://host/a.csv", 250L, true, createBlock(0L, 250L, "host1")),
+                // compressed file is not split, and is located at its first block
+                createFileStatus("hdfs://host/b.gz", 150L, false,
+                                 createBlock(0L, 100L, "host2"), createBlock(100L, 50L, "host3")));
+        List<?> splits = (List<?>) getFileSplits.invoke(scanNode, fileStatuses);
+        Assert.assertEquals(4, splits.size());
+
+        Class<?> splitClass = splits.get(0).getClass();
+        Field offset = splitClass.getField("offset");
+        Field length = splitClass.getField("length");
+        Field hosts = splitClass.getField("hosts");
+        offset.setAccessible(true);
+        length.setAccessible(true);
+        hosts.setAccessible(true);
+        long[][] expected = {{0L, 100L}, {100L, 100L}, {200L, 50L}, {0L, 150L}};
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i][0], offset.getLong(splits.get(i)));
+            Assert.assertEquals(expected[i][1], length.getLong(splits.get(i)));
+        }
+        Assert.assertEquals(Lists.newArrayList("host1"), hosts.get(splits.get(2)));
+        Assert.assertEquals(Lists.newArrayList("host2"), hosts.get(splits.get(3)));
+    }
+
+    @Test
+    public void testLocalityAssignment() throws Exception {
+        Method process = UnitTestUtil.getPrivateMethod(BrokerScanNode.class, "processFileGroupWithLocality",
+                new Class[] {TBrokerScanRangeParams.class, ArrayList.class});
+        ArrayList<TBrokerFileStatus> fileStatuses = Lists.newArrayList(
+                createFileStatus("hdfs://host/a.csv", 250L, true,
+                                 createBlock(0L, 100L, "host1"),
+                                 createBlock(100L, 100L, "host2"),
+                                 // no backend on host4
+                                 createBlock(200L, 50L, "host4")));
+        process.invoke(scanNode, new TBrokerScanRangeParams(), fileStatuses);
+        Assert.assertEquals(3, locationsList.size());
+
+        // ranges near the data are executed by the backend on the same host first,
+        // and other backends and brokers are kept for failover
+        TScanRangeLocations locations = locationsList.get(0);
+        Assert.assertEquals(Lists.newArrayList(1L, 2L, 3L), getBackendIds(locations));
+        Assert.assertEquals(3, getBrokerScanRange(locations).getBroker_addresses().size());
+        Assert.assertEquals("host1", getBrokerScanRange(locations).getBroker_addresses().get(0).getHostname());
+        TBrokerRangeDesc rangeDesc = getBrokerScanRange(locations).getRanges().get(0);
+        Assert.assertEquals(0L, rangeDesc.getStart_offset());
+        Assert.assertEquals(100L, rangeDesc.getSize());
+
+        locations = locationsList.get(1);
+        Assert.assertEquals(Lists.newArrayList(2L, 1L, 3L), getBackendIds(locations));
+        Assert.assertEquals("host2", getBrokerScanRange(locations).getBroker_addresses().get(0).getHostname());
+        Assert.assertEquals(100L, getBrokerScanRange(locations).getRanges().get(0).getStart_offset());
+
+        // range without backend nearby is assigned in round robin
+        locations = locationsList.get(2);
+        Assert.assertEquals(3, getBackendIds(locations).size());
+        Assert.assertEquals(3, getBrokerScanRange(locations).getBroker_addresses().size());
+        Assert.assertEquals(200L, getBrokerScanRange(locations).getRanges().get(0).getStart_offset());
+    }
+}
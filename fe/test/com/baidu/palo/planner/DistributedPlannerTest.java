@@ -0,0 +1,236 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.analysis.Expr;
+import com.baidu.palo.analysis.SlotDescriptor;
+import com.baidu.palo.analysis.SlotId;
+import com.baidu.palo.analysis.SlotRef;
+import com.baidu.palo.analysis.TableName;
+import com.baidu.palo.analysis.TableRef;
+import com.baidu.palo.analysis.TupleDescriptor;
+import com.baidu.palo.analysis.TupleId;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.HashDistributionInfo;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.SinglePartitionInfo;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.thrift.TScanRangeLocation;
+import com.baidu.palo.thrift.TScanRangeLocations;
+
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DistributedPlannerTest {
+    private int nextId = 0;
+
+    private Column k1;
+    private Column v;
+    private OlapTable table1;
+    private OlapTable table2;
+    private OlapTable table3;
+
+    private DistributedPlanner planner;
+
+    @Before
+    public void setUp() {
+        k1 = new Column("k1", PrimitiveType.INT);
+        k1.setIsKey(true);
+        v = new Column("v", PrimitiveType.INT);
+        table1 = createTable("t1", 2);
+        table2 = createTable("t2", 2);
+        table3 = createTable("t3", 3);
+        planner = new DistributedPlanner(null);
+        Config.enable_colocate_join = true;
+    }
+
+    @After
+    public void tearDown() {
+        Config.enable_colocate_join = false;
+    }
+
+    private OlapTable createTable(String name, int bucketNum) {
+        List<Column> columns = Lists.newArrayList(k1, v);
+        OlapTable table = new OlapTable(nextId++, name, columns, KeysType.DUP_KEYS, new SinglePartitionInfo(),
+                                        new HashDistributionInfo(bucketNum, Lists.newArrayList(k1)));
+        table.setColocateGroup("g");
+        return table;
+    }
+
+    private static void setField(Object obj, String name, Object value) throws Exception {
+        Field field = OlapScanNode.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(obj, value);
+    }
+
+    private static void setStats(PlanNode node, long cardinality, float avgRowSize, int numNodes)
+            throws Exception {
+        Field field = PlanNode.class.getDeclaredField("cardinality");
+        field.setAccessible(true);
+        field.set(node, cardinality);
+        field = PlanNode.class.getDeclaredField("avgRowSize");
+        field.setAccessible(true);
+        field.set(node, avgRowSize);
+        field = PlanNode.class.getDeclaredField("numNodes");
+        field.setAccessible(true);
+        field.set(node, numNodes);
+    }
+
+    /*
+     * Scan node of table with one tablet in each bucket, whose replicas are on bucketBackends[bucketSeq].
+     */
+    private OlapScanNode createScanNode(OlapTable table, long[][] bucketBackends) throws Exception {
+        TupleDescriptor desc = new TupleDescriptor(new TupleId(nextId++));
+        desc.setTable(table);
+        OlapScanNode scanNode = new OlapScanNode(new PlanNodeId(nextId++), desc, "OlapScanNode");
+
+        List<TScanRangeLocations> locationsList = Lists.newArrayList();
+        List<Integer> bucketSeqs = Lists.newArrayList();
+        for (int i = 0; i < bucketBackends.length; i++) {
+            TScanRangeLocations locations = new TScanRangeLocations();
+            for (long backendId : bucketBackends[i]) {
+                TScanRangeLocation location = new TScanRangeLocation();
+                location.setBackend_id(backendId);
+                locations.addToLocations(location);
+            }
+            locationsList.add(locations);
+            bucketSeqs.add(i);
+        }
+        setField(scanNode, "result", locationsList);
+        setField(scanNode, "scanRangeBucketSeqs", bucketSeqs);
+        setField(scanNode, "bucketDistribution", table.getDefaultDistributionInfo());
+        return scanNode;
+    }
+
+    private SlotRef createSlotRef(OlapScanNode scanNode, Column column) {
+        TupleDescriptor desc = new TupleDescriptor(scanNode.getTupleIds().get(0));
+        desc.setTable(scanNode.getOlapTable());
+        SlotDescriptor slotDesc = new SlotDescriptor(new SlotId(nextId++), desc);
+        slotDesc.setColumn(column);
+        return new SlotRef(slotDesc);
+    }
+
+    private PlanFragment createFragment(OlapScanNode scanNode) {
+        PlanFragment fragment = new PlanFragment(new PlanFragmentId(nextId++), scanNode, DataPartition.RANDOM);
+        fragment.addBucketScanNodes(Lists.newArrayList(scanNode));
+        return fragment;
+    }
+
+    private HashJoinNode createJoinNode(OlapScanNode left, Column leftColumn, OlapScanNode right,
+                                        Column rightColumn) {
+        List<Pair<Expr, Expr>> eqJoinConjuncts = Lists.newArrayList();
+        eqJoinConjuncts.add(new Pair<Expr, Expr>(createSlotRef(left, leftColumn), createSlotRef(right, rightColumn)));
+        return new HashJoinNode(new PlanNodeId(nextId++), left, right, new TableRef(new TableName("db", "t"), null),
+                                eqJoinConjuncts, new ArrayList<Expr>());
+    }
+
+    private boolean canColocateJoin(HashJoinNode node, PlanFragment left, PlanFragment right) throws Exception {
+        Method method = UnitTestUtil.getPrivateMethod(DistributedPlanner.class, "canColocateJoin",
+                new Class[] { HashJoinNode.class, PlanFragment.class, PlanFragment.class });
+        return (Boolean) method.invoke(planner, node, left, right);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Expr> getBucketShuffleExprs(HashJoinNode node, PlanFragment left) throws Exception {
+        Method method = UnitTestUtil.getPrivateMethod(DistributedPlanner.class, "getBucketShuffleExprs",
+                new Class[] { HashJoinNode.class, PlanFragment.class });
+        return (List<Expr>) method.invoke(planner, node, left);
+    }
+
+    @Test
+    public void testColocateJoin() throws Exception {
+        OlapScanNode left = createScanNode(table1, new long[][] { { 1L, 2L }, { 2L, 3L } });
+        OlapScanNode right = createScanNode(table2, new long[][] { { 2L, 4L }, { 3L } });
+        PlanFragment leftFragment = createFragment(left);
+        PlanFragment rightFragment = createFragment(right);
+        HashJoinNode node = createJoinNode(left, k1, right, k1);
+        Assert.assertTrue(canColocateJoin(node, leftFragment, rightFragment));
+
+        // both sides are merged into the left fragment, because broadcasting the right side sends 200MB
+        setStats(left, 1000000L, 100.0f, 2);
+        setStats(right, 1000000L, 100.0f, 2);
+        ArrayList<PlanFragment> fragments = Lists.newArrayList(leftFragment, rightFragment);
+        Method method = UnitTestUtil.getPrivateMethod(DistributedPlanner.class, "createHashJoinFragment",
+                new Class[] { HashJoinNode.class, PlanFragment.class, PlanFragment.class, long.class,
+                        ArrayList.class });
+        PlanFragment fragment = (PlanFragment) method.invoke(planner, node, rightFragment, leftFragment, 0L,
+                                                              fragments);
+        Assert.assertSame(leftFragment, fragment);
+        Assert.assertSame(node, fragment.getPlanRoot());
+        Assert.assertEquals(HashJoinNode.DistributionMode.COLOCATE, node.getDistributionMode());
+        Assert.assertEquals(Lists.newArrayList(left, right), fragment.getBucketScanNodes());
+        Assert.assertTrue(fragment.isBucketAssignment());
+        Assert.assertEquals(Lists.newArrayList(leftFragment), fragments);
+    }
+
+    @Test
+    public void testCanNotColocateJoin() throws Exception {
+        OlapScanNode left = createScanNode(table1, new long[][] { { 1L, 2L }, { 2L, 3L } });
+        PlanFragment leftFragment = createFragment(left);
+
+        // no common backend of bucket 0
+        OlapScanNode right = createScanNode(table2, new long[][] { { 4L }, { 3L } });
+        Assert.assertFalse(canColocateJoin(createJoinNode(left, k1, right, k1), leftFragment,
+                                           createFragment(right)));
+
+        // different bucket num
+        right = createScanNode(table3, new long[][] { { 1L }, { 2L }, { 3L } });
+        Assert.assertFalse(canColocateJoin(createJoinNode(left, k1, right, k1), leftFragment,
+                                           createFragment(right)));
+
+        // not joined on distribution columns
+        right = createScanNode(table2, new long[][] { { 2L, 4L }, { 3L } });
+        Assert.assertFalse(canColocateJoin(createJoinNode(left, v, right, v), leftFragment,
+                                           createFragment(right)));
+        Assert.assertFalse(canColocateJoin(createJoinNode(left, k1, right, v), leftFragment,
+                                           createFragment(right)));
+    }
+
+    @Test
+    public void testBucketShuffleExprs() throws Exception {
+        OlapScanNode left = createScanNode(table1, new long[][] { { 1L, 2L }, { 2L, 3L } });
+        PlanFragment leftFragment = createFragment(left);
+        OlapScanNode right = createScanNode(table3, new long[][] { { 1L }, { 2L }, { 3L } });
+
+        // right side is shuffled by the expr joined with the distribution column of left side
+        HashJoinNode node = createJoinNode(left, k1, right, v);
+        List<Expr> exprs = getBucketShuffleExprs(node, leftFragment);
+        Assert.assertEquals(1, exprs.size());
+        SlotRef slotRef = (SlotRef) exprs.get(0);
+        Assert.assertEquals("v", slotRef.getDesc().getColumn().getName());
+        Assert.assertEquals(right.getTupleIds().get(0), slotRef.getDesc().getParent().getId());
+
+        // left side is not joined on its distribution column
+        Assert.assertNull(getBucketShuffleExprs(createJoinNode(left, v, right, k1), leftFragment));
+
+        // left side has no bucket scan node
+        PlanFragment fragment = new PlanFragment(new PlanFragmentId(nextId++), left, DataPartition.RANDOM);
+        Assert.assertNull(getBucketShuffleExprs(node, fragment));
+    }
+}
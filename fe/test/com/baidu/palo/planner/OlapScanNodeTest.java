@@ -20,25 +20,45 @@
 
 package com.baidu.palo.planner;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.baidu.palo.analysis.Analyzer;
 import com.baidu.palo.analysis.Expr;
 import com.baidu.palo.analysis.InPredicate;
 import com.baidu.palo.analysis.IntLiteral;
 import com.baidu.palo.analysis.SlotRef;
 import com.baidu.palo.analysis.TableName;
+import com.baidu.palo.analysis.TupleDescriptor;
+import com.baidu.palo.analysis.TupleId;
+import com.baidu.palo.catalog.AggregateType;
 import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.MaterializedIndex.IndexState;
+import com.baidu.palo.catalog.OlapTable;
 import com.baidu.palo.catalog.PartitionKey;
 import com.baidu.palo.catalog.PrimitiveType;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.thrift.TExplainLevel;
+import com.baidu.palo.thrift.TNetworkAddress;
+import com.baidu.palo.thrift.TScanRangeLocation;
+import com.baidu.palo.thrift.TScanRangeLocations;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
 
 public class OlapScanNodeTest {    
     // columnA in (1) hashmode=3
@@ -162,4 +182,258 @@ public class OlapScanNodeTest {
             Assert.assertEquals(mod, 2);
         } 
     }
+
+    // columnA in (0 ... 999) and columnB in (1, 2) hashmode=64
+    @Test
+    public void testHashDistributionLargeInList() throws AnalysisException {
+        List<Long> partitions = new ArrayList<>();
+        for (long i = 0; i < 64; i++) {
+            partitions.add(i);
+        }
+
+        List<Column> columns = Lists.newArrayList();
+        columns.add(new Column("columnA", PrimitiveType.BIGINT));
+        columns.add(new Column("columnB", PrimitiveType.INT));
+
+        List<Expr> inListA = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            inListA.add(new IntLiteral(i));
+        }
+        List<Expr> inListB = Lists.newArrayList();
+        inListB.add(new IntLiteral(1));
+        inListB.add(new IntLiteral(2));
+
+        Map<String, PartitionColumnFilter> filterMap = Maps.newHashMap();
+        PartitionColumnFilter filterA = new PartitionColumnFilter();
+        filterA.setInPredicate(new InPredicate(
+                new SlotRef(new TableName("db", "tableName"), "columnA"), inListA, false));
+        filterMap.put("columnA", filterA);
+        PartitionColumnFilter filterB = new PartitionColumnFilter();
+        filterB.setInPredicate(new InPredicate(
+                new SlotRef(new TableName("db", "tableName"), "columnB"), inListB, false));
+        filterMap.put("columnB", filterB);
+
+        DistributionPruner pruner = new HashDistributionPruner(partitions, columns, filterMap, 64);
+        Collection<Long> ids = pruner.prune();
+        Assert.assertEquals(64, ids.size());
+
+        // only a few values, the buckets are the same as hashing each key
+        inListA.clear();
+        inListA.add(new IntLiteral(7));
+        inListA.add(new IntLiteral(1000));
+        filterA.setInPredicate(new InPredicate(
+                new SlotRef(new TableName("db", "tableName"), "columnA"), inListA, false));
+        Set<Long> expected = Sets.newHashSet();
+        for (Expr a : inListA) {
+            for (Expr b : inListB) {
+                PartitionKey hashKey = new PartitionKey();
+                hashKey.pushColumn((IntLiteral) a, PrimitiveType.BIGINT);
+                hashKey.pushColumn((IntLiteral) b, PrimitiveType.INT);
+                expected.add((long) (int) ((hashKey.getHashValue() & 0xffffffff) % 64));
+            }
+        }
+        ids = new HashDistributionPruner(partitions, columns, filterMap, 64).prune();
+        Assert.assertEquals(expected, Sets.newHashSet(ids));
+    }
+
+    @Test
+    public void testKeyPrefixSelectivity() throws AnalysisException {
+        Column k1 = new Column("k1", new ColumnType(PrimitiveType.INT), true, null, "", "");
+        Column k2 = new Column("k2", new ColumnType(PrimitiveType.INT), true, null, "", "");
+        Column v1 = new Column("v1", new ColumnType(PrimitiveType.BIGINT), false, AggregateType.SUM, "0", "");
+        List<Column> k1First = Lists.newArrayList(k1, k2, v1);
+        List<Column> k2First = Lists.newArrayList(k2, k1, v1);
+
+        Map<String, PartitionColumnFilter> filterMap = Maps.newHashMap();
+        // k1 = 1
+        PartitionColumnFilter filterK1 = new PartitionColumnFilter();
+        filterK1.setLowerBound(new IntLiteral(1), true);
+        filterK1.setUpperBound(new IntLiteral(1), true);
+        filterMap.put("k1", filterK1);
+
+        // only the index whose sort key begins with k1 can use the predicate
+        double k1FirstSelectivity = OlapScanNode.estimateKeyPrefixSelectivity(k1First, filterMap);
+        double k2FirstSelectivity = OlapScanNode.estimateKeyPrefixSelectivity(k2First, filterMap);
+        Assert.assertTrue(k1FirstSelectivity < 1.0);
+        Assert.assertEquals(1.0, k2FirstSelectivity, 0.0001);
+
+        // k2 > 10, the equal predicate on k1 lets the range on k2 be used too
+        PartitionColumnFilter filterK2 = new PartitionColumnFilter();
+        filterK2.setLowerBound(new IntLiteral(10), false);
+        filterMap.put("k2", filterK2);
+        Assert.assertTrue(OlapScanNode.estimateKeyPrefixSelectivity(k1First, filterMap) < k1FirstSelectivity);
+        // the range predicate ends the usable prefix
+        Assert.assertEquals(OlapScanNode.estimateKeyPrefixSelectivity(k2First, filterMap),
+                OlapScanNode.estimateKeyPrefixSelectivity(Lists.newArrayList(k2), filterMap), 0.0001);
+
+        // no filter
+        Assert.assertEquals(1.0, OlapScanNode.estimateKeyPrefixSelectivity(k1First, null), 0.0001);
+    }
+
+    private static InPredicate createInPredicate(String columnName, int... values) {
+        List<Expr> inList = Lists.newArrayList();
+        for (int value : values) {
+            inList.add(new IntLiteral(value));
+        }
+        return new InPredicate(new SlotRef(new TableName("db", "tableName"), columnName), inList, false);
+    }
+
+    // k1 in (5, 15, 100), partitions: p1 [MIN, 10), p2 [10, 20), p3 [20, 30)
+    @Test
+    public void testRangePartitionPruneInList() throws AnalysisException {
+        List<Column> columns = Lists.newArrayList(new Column("k1", PrimitiveType.INT));
+        Map<Long, Range<PartitionKey>> rangeMap = Maps.newHashMap();
+        rangeMap.put(1L, Range.closedOpen(PartitionKey.createInfinityPartitionKey(columns, false),
+                PartitionKey.createPartitionKey(Lists.newArrayList("10"), columns)));
+        rangeMap.put(2L, Range.closedOpen(PartitionKey.createPartitionKey(Lists.newArrayList("10"), columns),
+                PartitionKey.createPartitionKey(Lists.newArrayList("20"), columns)));
+        rangeMap.put(3L, Range.closedOpen(PartitionKey.createPartitionKey(Lists.newArrayList("20"), columns),
+                PartitionKey.createPartitionKey(Lists.newArrayList("30"), columns)));
+
+        Map<String, PartitionColumnFilter> filterMap = Maps.newHashMap();
+        PartitionColumnFilter filter = new PartitionColumnFilter();
+        filter.setInPredicate(createInPredicate("k1", 5, 15, 100));
+        filterMap.put("k1", filter);
+
+        Collection<Long> ids = new RangePartitionPruner(rangeMap, columns, filterMap).prune();
+        Assert.assertEquals(Sets.newHashSet(1L, 2L), Sets.newHashSet(ids));
+
+        // values out of all partitions
+        filter.setInPredicate(createInPredicate("k1", 30, 40));
+        ids = new RangePartitionPruner(rangeMap, columns, filterMap).prune();
+        Assert.assertTrue(ids.isEmpty());
+    }
+
+    // k1 = 1 and k2 in (5, 15, 25), partitions: p1 [MIN, (1, 10)), p2 [(1, 10), (1, 20)), p3 [(1, 20), (2, MIN))
+    @Test
+    public void testRangePartitionPruneLastColumn() throws AnalysisException {
+        List<Column> columns = Lists.newArrayList(new Column("k1", PrimitiveType.INT),
+                new Column("k2", PrimitiveType.INT));
+        PartitionKey key1 = PartitionKey.createPartitionKey(Lists.newArrayList("1", "10"), columns);
+        PartitionKey key2 = PartitionKey.createPartitionKey(Lists.newArrayList("1", "20"), columns);
+        PartitionKey key3 = PartitionKey.createPartitionKey(Lists.newArrayList("2"), columns);
+        Map<Long, Range<PartitionKey>> rangeMap = Maps.newHashMap();
+        rangeMap.put(1L, Range.closedOpen(PartitionKey.createInfinityPartitionKey(columns, false), key1));
+        rangeMap.put(2L, Range.closedOpen(key1, key2));
+        rangeMap.put(3L, Range.closedOpen(key2, key3));
+
+        Map<String, PartitionColumnFilter> filterMap = Maps.newHashMap();
+        PartitionColumnFilter filterK1 = new PartitionColumnFilter();
+        filterK1.setLowerBound(new IntLiteral(1), true);
+        filterK1.setUpperBound(new IntLiteral(1), true);
+        filterMap.put("k1", filterK1);
+        PartitionColumnFilter filterK2 = new PartitionColumnFilter();
+        filterK2.setInPredicate(createInPredicate("k2", 5, 15));
+        filterMap.put("k2", filterK2);
+
+        Collection<Long> ids = new RangePartitionPruner(rangeMap, columns, filterMap).prune();
+        Assert.assertEquals(Sets.newHashSet(1L, 2L), Sets.newHashSet(ids));
+
+        // each value is looked up as a point, the boundary belongs to the upper partition
+        filterK2.setInPredicate(createInPredicate("k2", 20, 25, 10000));
+        ids = new RangePartitionPruner(rangeMap, columns, filterMap).prune();
+        Assert.assertEquals(Sets.newHashSet(3L), Sets.newHashSet(ids));
+    }
+
+    @Test
+    public void testExplainPrunedTablets() throws Exception {
+        Database db = UnitTestUtil.createDb(1L, 2L, 3L, 4L, 5L, 6L, 1L, 0L);
+        TupleDescriptor desc = new TupleDescriptor(new TupleId(0));
+        desc.setTable(db.getTable(2L));
+        OlapScanNode scanNode = OlapScanNode.createOlapScanNodeByLocation(new PlanNodeId(0), desc, "OlapScanNode",
+                Lists.<TScanRangeLocations>newArrayList());
+
+        Field selectedTabletsNum = OlapScanNode.class.getDeclaredField("selectedTabletsNum");
+        selectedTabletsNum.setAccessible(true);
+        selectedTabletsNum.set(scanNode, 2L);
+        Field totalTabletsNum = OlapScanNode.class.getDeclaredField("totalTabletsNum");
+        totalTabletsNum.setAccessible(true);
+        totalTabletsNum.set(scanNode, 10L);
+
+        String explain = scanNode.getNodeExplainString("", TExplainLevel.NORMAL);
+        Assert.assertTrue(explain, explain.contains("buckets=2/10\n"));
+        Assert.assertTrue(explain, explain.contains("pruned tablets=8\n"));
+    }
+
+    @Test
+    public void testComputeStats() throws Exception {
+        Database db = UnitTestUtil.createDb(1L, 2L, 3L, 4L, 5L, 6L, 1L, 0L);
+        TupleDescriptor desc = new TupleDescriptor(new TupleId(0));
+        desc.setTable(db.getTable(2L));
+        Analyzer analyzer = EasyMock.createMock(Analyzer.class);
+        EasyMock.expect(analyzer.getTupleDesc(desc.getId())).andReturn(desc).anyTimes();
+        EasyMock.replay(analyzer);
+
+        // 3 tablets, which are scanned on 2 backends
+        List<TScanRangeLocations> locationsList = Lists.newArrayList();
+        for (long backendId : new long[] {6L, 7L, 7L}) {
+            TScanRangeLocation location = new TScanRangeLocation(new TNetworkAddress("127.0.0.1", 9060));
+            location.setBackend_id(backendId);
+            TScanRangeLocations locations = new TScanRangeLocations();
+            locations.addToLocations(location);
+            locationsList.add(locations);
+        }
+        OlapScanNode scanNode = OlapScanNode.createOlapScanNodeByLocation(new PlanNodeId(0), desc, "OlapScanNode",
+                locationsList);
+        Field selectedIndexScanRows = OlapScanNode.class.getDeclaredField("selectedIndexScanRows");
+        selectedIndexScanRows.setAccessible(true);
+        selectedIndexScanRows.set(scanNode, 1000L);
+
+        // cardinality is the estimated scan rows of the chosen index
+        scanNode.computeStats(analyzer);
+        Assert.assertEquals(1000L, scanNode.getCardinality());
+        Assert.assertEquals(2, scanNode.getNumNodes());
+
+        // no scan range
+        OlapScanNode emptyScanNode = OlapScanNode.createOlapScanNodeByLocation(new PlanNodeId(1), desc,
+                "OlapScanNode", Lists.<TScanRangeLocations>newArrayList());
+        emptyScanNode.computeStats(analyzer);
+        Assert.assertEquals(0L, emptyScanNode.getCardinality());
+        Assert.assertEquals(1, emptyScanNode.getNumNodes());
+
+        // stats are unknown before the index is chosen
+        emptyScanNode = OlapScanNode.createOlapScanNodeByLocation(new PlanNodeId(2), desc,
+                "OlapScanNode", Lists.<TScanRangeLocations>newArrayList());
+        emptyScanNode.isFinalized = false;
+        emptyScanNode.computeStats(analyzer);
+        Assert.assertEquals(-1L, emptyScanNode.getCardinality());
+    }
+
+    @Test
+    public void testChooseIndexPreferEqJoinPrefix() throws Exception {
+        Column k1 = new Column("k1", new ColumnType(PrimitiveType.INT), true, null, "", "");
+        Column k2 = new Column("k2", new ColumnType(PrimitiveType.INT), true, null, "", "");
+        Column v1 = new Column("v1", new ColumnType(PrimitiveType.BIGINT), false, AggregateType.SUM, "0", "");
+        MaterializedIndex k1First = new MaterializedIndex(10L, IndexState.NORMAL);
+        MaterializedIndex k2First = new MaterializedIndex(11L, IndexState.NORMAL);
+        OlapTable olapTable = EasyMock.createMock(OlapTable.class);
+        EasyMock.expect(olapTable.getSchemaByIndexId(10L)).andReturn(Lists.newArrayList(k1, k2, v1)).anyTimes();
+        EasyMock.expect(olapTable.getSchemaByIndexId(11L)).andReturn(Lists.newArrayList(k2, k1, v1)).anyTimes();
+        EasyMock.replay(olapTable);
+
+        Database db = UnitTestUtil.createDb(1L, 2L, 3L, 4L, 5L, 6L, 1L, 0L);
+        TupleDescriptor desc = new TupleDescriptor(new TupleId(0));
+        desc.setTable(db.getTable(2L));
+        OlapScanNode scanNode = OlapScanNode.createOlapScanNodeByLocation(new PlanNodeId(0), desc, "OlapScanNode",
+                Lists.<TScanRangeLocations>newArrayList());
+        Field olapTableField = OlapScanNode.class.getDeclaredField("olapTable");
+        olapTableField.setAccessible(true);
+        olapTableField.set(scanNode, olapTable);
+        Field eqJoinColumnsField = OlapScanNode.class.getDeclaredField("eqJoinColumns");
+        eqJoinColumnsField.setAccessible(true);
+        Set<String> eqJoinColumns = (Set<String>) eqJoinColumnsField.get(scanNode);
+        Method chooseIndex = UnitTestUtil.getPrivateMethod(OlapScanNode.class, "chooseIndex",
+                new Class[] {List.class, int.class});
+        List<List<MaterializedIndex>> tables = Lists.newArrayList();
+        tables.add(Lists.newArrayList(k1First, k2First));
+
+        // same cost, the index whose sort key begins with the join column is preferred
+        eqJoinColumns.add("k2");
+        Assert.assertEquals(1, chooseIndex.invoke(scanNode, tables, 2));
+
+        // lower cost wins over the prefix match
+        k1First.setStat(100L, 1000L);
+        k2First.setStat(100L, 2000L);
+        Assert.assertEquals(0, chooseIndex.invoke(scanNode, tables, 2));
+    }
 }
@@ -24,6 +24,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +45,12 @@ import com.baidu.palo.analysis.Analyzer;
 import com.baidu.palo.analysis.TupleDescriptor;
 import com.baidu.palo.analysis.TupleId;
 import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.HashDistributionInfo;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.SinglePartitionInfo;
 import com.baidu.palo.common.FeConstants;
 import com.baidu.palo.persist.EditLog;
 import com.baidu.palo.planner.DataPartition;
@@ -55,14 +62,17 @@ import com.baidu.palo.planner.PlanNode;
 import com.baidu.palo.planner.PlanNodeId;
 import com.baidu.palo.planner.Planner;
 import com.baidu.palo.system.Backend;
+import com.baidu.palo.system.SystemInfoService;
 import com.baidu.palo.thrift.TExecPlanFragmentParams;
 import com.baidu.palo.thrift.TNetworkAddress;
+import com.baidu.palo.thrift.TPlanFragmentDestination;
 import com.baidu.palo.thrift.TQueryOptions;
 import com.baidu.palo.thrift.TScanRange;
 import com.baidu.palo.thrift.TScanRangeLocation;
 import com.baidu.palo.thrift.TScanRangeLocations;
 import com.baidu.palo.thrift.TUniqueId;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 
 @RunWith(PowerMockRunner.class)
 @PowerMockIgnore({"org.apache.log4j.*", "javax.management.*"})
@@ -72,6 +82,7 @@ public class CoordinatorTest extends Coordinator {
     static ConnectContext context = new ConnectContext(null);
     static Catalog catalog;
     static EditLog editLog;
+    static SystemInfoService systemInfoService;
     static Analyzer analyzer = new Analyzer(catalog, null);
     static Backend backendA;
     static Backend backendB;
@@ -103,8 +114,11 @@ public class CoordinatorTest extends Coordinator {
         EasyMock.expect(catalog.getEditLog()).andReturn(editLog).anyTimes();
         EasyMock.replay(catalog);
 
+        systemInfoService = EasyMock.createMock(SystemInfoService.class);
+
         PowerMock.mockStatic(Catalog.class);
         EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        EasyMock.expect(Catalog.getCurrentSystemInfo()).andReturn(systemInfoService).anyTimes();
         PowerMock.replay(Catalog.class);
 
         FeConstants.heartbeat_interval_second = Integer.MAX_VALUE;
@@ -117,6 +131,10 @@ public class CoordinatorTest extends Coordinator {
         backendD = new Backend(3, "machineD", 0);
         backendD.updateOnce(10000, 0, 0);
 
+        EasyMock.expect(systemInfoService.getBackendWithBePort("machineA", 10000)).andReturn(backendA).anyTimes();
+        EasyMock.expect(systemInfoService.getBackendWithBePort("machineB", 10000)).andReturn(backendB).anyTimes();
+        EasyMock.replay(systemInfoService);
+
         // private 方法赋值
         Field field = coor.getClass().getDeclaredField("idToBackend");
         field.setAccessible(true);
@@ -417,6 +435,130 @@ public class CoordinatorTest extends Coordinator {
     public void testNoUsedHosts() {
     }
 
+    /*
+     * Scan node of a table with bucketNum buckets, which scans one tablet in each bucket of bucketBackends,
+     * whose replicas are on the backends of bucketBackends[bucketSeq].
+     */
+    private static OlapScanNode createBucketScanNode(int id, int bucketNum, long[][] bucketBackends)
+            throws NoSuchFieldException, IllegalAccessException {
+        Column k1 = new Column("k1", PrimitiveType.INT);
+        k1.setIsKey(true);
+        HashDistributionInfo distributionInfo = new HashDistributionInfo(bucketNum, Lists.newArrayList(k1));
+        OlapTable table = new OlapTable(id, "t" + id, Lists.newArrayList(k1), KeysType.DUP_KEYS,
+                new SinglePartitionInfo(), distributionInfo);
+        TupleDescriptor desc = new TupleDescriptor(new TupleId(id));
+        desc.setTable(table);
+        OlapScanNode scanNode = new OlapScanNode(new PlanNodeId(id), desc, "OlapScanNode");
+
+        List<TScanRangeLocations> locationsList = Lists.newArrayList();
+        List<Integer> bucketSeqs = Lists.newArrayList();
+        for (int i = 0; i < bucketBackends.length; i++) {
+            TScanRangeLocations locations = new TScanRangeLocations();
+            for (long backendId : bucketBackends[i]) {
+                String host = backendId == 0 ? "machineA" : "machineB";
+                locations.addToLocations(new TScanRangeLocation()
+                        .setServer(new TNetworkAddress(host, 10000)).setBackend_id(backendId));
+            }
+            locations.setScan_range(new TScanRange());
+            locationsList.add(locations);
+            bucketSeqs.add(i);
+        }
+        Field field = OlapScanNode.class.getDeclaredField("result");
+        field.setAccessible(true);
+        field.set(scanNode, locationsList);
+        field = OlapScanNode.class.getDeclaredField("scanRangeBucketSeqs");
+        field.setAccessible(true);
+        field.set(scanNode, bucketSeqs);
+        field = OlapScanNode.class.getDeclaredField("bucketDistribution");
+        field.setAccessible(true);
+        field.set(scanNode, distributionInfo);
+        return scanNode;
+    }
+
+    /*
+     * The colocated scan nodes of a fragment are assigned bucket by bucket, each bucket to the least
+     * loaded backend which has replicas of it in all scan nodes. The right side of a bucket shuffle join
+     * sends the rows of each bucket to the instance which scans it.
+     */
+    @Test
+    public void testBucketAssignment() throws Exception {
+        // bucket 4 is pruned
+        OlapScanNode leftNode = createBucketScanNode(100, 5,
+                new long[][] { { 0L, 1L }, { 0L, 1L }, { 0L, 1L }, { 0L, 1L } });
+        OlapScanNode rightNode = createBucketScanNode(101, 5,
+                new long[][] { { 0L, 1L }, { 1L }, { 0L, 1L }, { 0L, 1L } });
+        PlanFragment fragment = new PlanFragment(new PlanFragmentId(100), leftNode, DataPartition.RANDOM);
+        fragment.addBucketScanNodes(Lists.newArrayList(leftNode, rightNode));
+
+        Method method = coor.getClass().getDeclaredMethod("computeBucketScanRangeAssignment",
+                PlanFragment.class, Coordinator.FragmentScanRangeAssignment.class);
+        method.setAccessible(true);
+        FragmentScanRangeAssignment assignment = coor.new FragmentScanRangeAssignment();
+        method.invoke(coor, fragment, assignment);
+
+        TNetworkAddress addressA = new TNetworkAddress("machineA", 10000);
+        TNetworkAddress addressB = new TNetworkAddress("machineB", 10000);
+        Map<PlanFragmentId, Map<Integer, TNetworkAddress>> fragmentBucketSeqToAddress =
+                (Map<PlanFragmentId, Map<Integer, TNetworkAddress>>) getField(coor, "fragmentBucketSeqToAddress");
+        Map<Integer, TNetworkAddress> bucketSeqToAddress = fragmentBucketSeqToAddress.get(new PlanFragmentId(100));
+        Assert.assertEquals(4, bucketSeqToAddress.size());
+        Assert.assertEquals(addressA, bucketSeqToAddress.get(0));
+        // bucket 1 of right side is only on B
+        Assert.assertEquals(addressB, bucketSeqToAddress.get(1));
+        Assert.assertEquals(addressA, bucketSeqToAddress.get(2));
+        Assert.assertEquals(addressB, bucketSeqToAddress.get(3));
+
+        // both scan nodes scan the same buckets on each backend
+        Assert.assertEquals(2, assignment.size());
+        Assert.assertEquals(2, assignment.get(addressA).get(100).size());
+        Assert.assertEquals(2, assignment.get(addressA).get(101).size());
+        Assert.assertEquals(2, assignment.get(addressB).get(100).size());
+        Assert.assertEquals(2, assignment.get(addressB).get(101).size());
+        Map<TNetworkAddress, Long> addressToBackendID =
+                (Map<TNetworkAddress, Long>) getField(coor, "addressToBackendID");
+        Assert.assertEquals(Long.valueOf(0L), addressToBackendID.get(addressA));
+        Assert.assertEquals(Long.valueOf(1L), addressToBackendID.get(addressB));
+
+        method = coor.getClass().getDeclaredMethod("computeBucketShuffleDestinations",
+                FragmentExecParams.class, FragmentExecParams.class);
+        method.setAccessible(true);
+        FragmentExecParams destParams = coor.new FragmentExecParams(fragment);
+        destParams.hosts.add(addressA);
+        destParams.hosts.add(addressB);
+        destParams.instanceIds.add(new TUniqueId(100, 0));
+        destParams.instanceIds.add(new TUniqueId(100, 1));
+        FragmentExecParams params = coor.new FragmentExecParams(null);
+        method.invoke(coor, params, destParams);
+
+        // one destination for each bucket, bucket 4 is sent to any instance
+        Assert.assertEquals(5, params.destinations.size());
+        List<Integer> instanceIdx = Arrays.asList(0, 1, 0, 1, 0);
+        for (int i = 0; i < 5; i++) {
+            TPlanFragmentDestination dest = params.destinations.get(i);
+            int idx = instanceIdx.get(i);
+            Assert.assertEquals(destParams.instanceIds.get(idx), dest.fragment_instance_id);
+            Assert.assertEquals(destParams.hosts.get(idx).getHostname(), dest.server.getHostname());
+        }
+    }
+
+    @Test
+    public void testBucketAssignmentNotColocated() throws Exception {
+        OlapScanNode leftNode = createBucketScanNode(200, 2, new long[][] { { 0L }, { 1L } });
+        OlapScanNode rightNode = createBucketScanNode(201, 2, new long[][] { { 0L }, { 0L } });
+        PlanFragment fragment = new PlanFragment(new PlanFragmentId(200), leftNode, DataPartition.RANDOM);
+        fragment.addBucketScanNodes(Lists.newArrayList(leftNode, rightNode));
+
+        Method method = coor.getClass().getDeclaredMethod("computeBucketScanRangeAssignment",
+                PlanFragment.class, Coordinator.FragmentScanRangeAssignment.class);
+        method.setAccessible(true);
+        try {
+            method.invoke(coor, fragment, coor.new FragmentScanRangeAssignment());
+            Assert.fail("no exception");
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("not on the same backend"));
+        }
+    }
+
     public void testNetworkException() throws TException, NoSuchFieldException,
             SecurityException, IllegalArgumentException, IllegalAccessException,
             NoSuchMethodException, InvocationTargetException {
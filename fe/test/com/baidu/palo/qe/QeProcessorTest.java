@@ -0,0 +1,155 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.common.Config;
+import com.baidu.palo.thrift.TReportExecStatusParams;
+import com.baidu.palo.thrift.TReportExecStatusResult;
+import com.baidu.palo.thrift.TStatusCode;
+import com.baidu.palo.thrift.TUniqueId;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class QeProcessorTest {
+    private static final long TIMEOUT_MS = 10000L;
+
+    private final int queueSize = Config.report_exec_status_queue_size;
+    private final int queueTimeoutMs = Config.report_exec_status_queue_timeout_ms;
+
+    @After
+    public void tearDown() {
+        Config.report_exec_status_queue_size = queueSize;
+        Config.report_exec_status_queue_timeout_ms = queueTimeoutMs;
+    }
+
+    private static TReportExecStatusParams createParams(TUniqueId queryId, long instanceLo) {
+        TReportExecStatusParams params = new TReportExecStatusParams();
+        params.setQuery_id(queryId);
+        params.setFragment_instance_id(new TUniqueId(queryId.getHi(), instanceLo));
+        return params;
+    }
+
+    private static void waitApplied(List<Long> applied, int num) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (applied.size() < num && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(num, applied.size());
+    }
+
+    @Test
+    public void testOrderUnderFullQueue() throws Exception {
+        Config.report_exec_status_queue_size = 2;
+        Config.report_exec_status_queue_timeout_ms = (int) TIMEOUT_MS;
+
+        final List<Long> applied = new CopyOnWriteArrayList<Long>();
+        final AtomicInteger running = new AtomicInteger(0);
+        final AtomicInteger maxRunning = new AtomicInteger(0);
+        Coordinator coord = EasyMock.createMock(Coordinator.class);
+        coord.updateFragmentExecStatus(EasyMock.anyObject(TReportExecStatusParams.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                int num = running.incrementAndGet();
+                if (num > maxRunning.get()) {
+                    maxRunning.set(num);
+                }
+                TReportExecStatusParams params = (TReportExecStatusParams) EasyMock.getCurrentArguments()[0];
+                // slower than reporting, so that the queue is full
+                Thread.sleep(2);
+                applied.add(params.getFragment_instance_id().getLo());
+                running.decrementAndGet();
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.replay(coord);
+
+        TUniqueId queryId = new TUniqueId(1L, 0L);
+        QeProcessor.registerQuery(queryId, coord);
+        try {
+            QeProcessor processor = new QeProcessor();
+            int reportNum = 100;
+            for (long i = 0; i < reportNum; i++) {
+                TReportExecStatusResult result = processor.reportExecStatus(createParams(queryId, i));
+                Assert.assertEquals(TStatusCode.OK, result.getStatus().getStatus_code());
+            }
+            waitApplied(applied, reportNum);
+            for (int i = 0; i < reportNum; i++) {
+                Assert.assertEquals(Long.valueOf(i), applied.get(i));
+            }
+            Assert.assertEquals(1, maxRunning.get());
+        } finally {
+            QeProcessor.unregisterQuery(queryId);
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Config.report_exec_status_queue_size = 1;
+        Config.report_exec_status_queue_timeout_ms = 100;
+
+        final List<Long> applied = new CopyOnWriteArrayList<Long>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        Coordinator coord = EasyMock.createMock(Coordinator.class);
+        coord.updateFragmentExecStatus(EasyMock.anyObject(TReportExecStatusParams.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                started.countDown();
+                blocked.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                TReportExecStatusParams params = (TReportExecStatusParams) EasyMock.getCurrentArguments()[0];
+                applied.add(params.getFragment_instance_id().getLo());
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.replay(coord);
+
+        TUniqueId queryId = new TUniqueId(2L, 0L);
+        QeProcessor.registerQuery(queryId, coord);
+        try {
+            QeProcessor processor = new QeProcessor();
+            // first one is being applied, second one waits in queue
+            Assert.assertEquals(TStatusCode.OK,
+                                processor.reportExecStatus(createParams(queryId, 0L)).getStatus().getStatus_code());
+            Assert.assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(TStatusCode.OK,
+                                processor.reportExecStatus(createParams(queryId, 1L)).getStatus().getStatus_code());
+
+            // queue is full, rejected instead of being applied in this thread
+            TReportExecStatusResult result = processor.reportExecStatus(createParams(queryId, 2L));
+            Assert.assertEquals(TStatusCode.TIMEOUT, result.getStatus().getStatus_code());
+            Assert.assertTrue(applied.isEmpty());
+
+            blocked.countDown();
+            waitApplied(applied, 2);
+            Assert.assertEquals(Long.valueOf(0L), applied.get(0));
+            Assert.assertEquals(Long.valueOf(1L), applied.get(1));
+        } finally {
+            QeProcessor.unregisterQuery(queryId);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.DdlException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class QueryAdmissionControllerTest {
+    private static final long TIMEOUT_MS = 10000L;
+
+    private class AdmitThread extends Thread {
+        private final QueryAdmissionController controller;
+        private final long connectionId;
+        private final String group;
+        private final List<Long> admittedIds;
+        private volatile QueryAdmissionController.Ticket ticket;
+
+        AdmitThread(QueryAdmissionController controller, long connectionId, String group, List<Long> admittedIds) {
+            this.controller = controller;
+            this.connectionId = connectionId;
+            this.group = group;
+            this.admittedIds = admittedIds;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ticket = controller.admit(connectionId, "user", group, 100L, 1L, 0L, TIMEOUT_MS);
+                admittedIds.add(connectionId);
+            } catch (DdlException e) {
+                // leave ticket null
+            }
+        }
+    }
+
+    private static void waitQueued(QueryAdmissionController controller, long connectionId) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (controller.getTicket(connectionId) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(QueryAdmissionController.State.QUEUED, controller.getTicket(connectionId).getState());
+    }
+
+    @After
+    public void tearDown() {
+        Config.max_running_query_normal_group = 0;
+        Config.max_running_query_mem_normal_group = 0;
+    }
+
+    @Test
+    public void testUserLimit() throws Exception {
+        QueryAdmissionController controller = new QueryAdmissionController();
+        // one running query per user
+        QueryAdmissionController.Ticket first = controller.admit(1L, "user", "normal", 100L, 1L, 0L, TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, first.getState());
+        Assert.assertEquals(1, controller.getRunningNum());
+
+        // other users are not limited
+        QueryAdmissionController.Ticket other = controller.admit(2L, "other", "normal", 100L, 1L, 0L, TIMEOUT_MS);
+        Assert.assertEquals(2, controller.getRunningNum());
+        controller.release(other);
+
+        List<Long> admittedIds = new CopyOnWriteArrayList<Long>();
+        AdmitThread second = new AdmitThread(controller, 3L, "normal", admittedIds);
+        second.start();
+        waitQueued(controller, 3L);
+        Assert.assertEquals(1, controller.getQueueLength());
+        Assert.assertEquals(0, controller.getQueuePosition(controller.getTicket(3L)));
+
+        controller.release(first);
+        second.join(TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, second.ticket.getState());
+        Assert.assertEquals(0, controller.getQueueLength());
+        controller.release(second.ticket);
+        Assert.assertEquals(0, controller.getRunningNum());
+        Assert.assertNull(controller.getTicket(3L));
+    }
+
+    @Test
+    public void testMemLimit() throws Exception {
+        QueryAdmissionController controller = new QueryAdmissionController();
+        // a query exceeding the limit is admitted if the user has no running query
+        QueryAdmissionController.Ticket first = controller.admit(1L, "user", "normal", 200L, 0L, 100L, TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, first.getState());
+
+        try {
+            controller.admit(2L, "user", "normal", 10L, 0L, 100L, 100L);
+            Assert.fail();
+        } catch (DdlException e) {
+            // timeout
+        }
+        Assert.assertEquals(0, controller.getQueueLength());
+        controller.release(first);
+    }
+
+    @Test
+    public void testGroupLimit() throws Exception {
+        Config.max_running_query_normal_group = 1;
+        QueryAdmissionController controller = new QueryAdmissionController();
+        QueryAdmissionController.Ticket first = controller.admit(1L, "user1", "normal", 100L, 0L, 0L, TIMEOUT_MS);
+
+        // the high group is not limited
+        QueryAdmissionController.Ticket high = controller.admit(2L, "user2", "high", 100L, 0L, 0L, TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, high.getState());
+        controller.release(high);
+
+        List<Long> admittedIds = new CopyOnWriteArrayList<Long>();
+        AdmitThread third = new AdmitThread(controller, 3L, "normal", admittedIds);
+        third.start();
+        waitQueued(controller, 3L);
+
+        // cancel the waiting query
+        controller.cancel(3L);
+        third.join(TIMEOUT_MS);
+        Assert.assertNull(third.ticket);
+        Assert.assertEquals(0, controller.getQueueLength());
+        Assert.assertTrue(admittedIds.isEmpty());
+
+        controller.release(first);
+        Assert.assertEquals(0, controller.getRunningNum());
+    }
+
+    @Test
+    public void testGroupMemLimit() throws Exception {
+        Config.max_running_query_mem_normal_group = 150L;
+        QueryAdmissionController controller = new QueryAdmissionController();
+        // a query exceeding the limit is admitted if the group has no running query
+        QueryAdmissionController.Ticket first = controller.admit(1L, "user1", "normal", 200L, 0L, 0L, TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, first.getState());
+
+        // the high group is not limited
+        QueryAdmissionController.Ticket high = controller.admit(2L, "user2", "high", 100L, 0L, 0L, TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, high.getState());
+        controller.release(high);
+
+        // other users of the group wait too
+        List<Long> admittedIds = new CopyOnWriteArrayList<Long>();
+        AdmitThread third = new AdmitThread(controller, 3L, "normal", admittedIds);
+        third.start();
+        waitQueued(controller, 3L);
+
+        controller.release(first);
+        third.join(TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, third.ticket.getState());
+        controller.release(third.ticket);
+        Assert.assertEquals(0, controller.getRunningNum());
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        QueryAdmissionController controller = new QueryAdmissionController();
+        QueryAdmissionController.Ticket first = controller.admit(1L, "user", "normal", 100L, 1L, 0L, TIMEOUT_MS);
+
+        List<Long> admittedIds = new CopyOnWriteArrayList<Long>();
+        AdmitThread low = new AdmitThread(controller, 2L, "low", admittedIds);
+        low.start();
+        waitQueued(controller, 2L);
+        AdmitThread high = new AdmitThread(controller, 3L, "high", admittedIds);
+        high.start();
+        waitQueued(controller, 3L);
+        Assert.assertEquals(0, controller.getQueuePosition(controller.getTicket(3L)));
+        Assert.assertEquals(1, controller.getQueuePosition(controller.getTicket(2L)));
+
+        // the later query of high group is admitted first
+        controller.release(first);
+        high.join(TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, high.ticket.getState());
+        Assert.assertEquals(QueryAdmissionController.State.QUEUED, controller.getTicket(2L).getState());
+
+        controller.release(high.ticket);
+        low.join(TIMEOUT_MS);
+        Assert.assertEquals(QueryAdmissionController.State.RUNNING, low.ticket.getState());
+        Assert.assertEquals(3L, (long) admittedIds.get(0));
+        Assert.assertEquals(2L, (long) admittedIds.get(1));
+        controller.release(low.ticket);
+    }
+}
@@ -278,5 +278,11 @@ public class AgentTaskTest {
         dropTask2.failed();
         Assert.assertEquals(1, AgentTaskQueue.getTaskNum(backendId1, TTaskType.DROP, true));
         Assert.assertEquals(2, AgentTaskQueue.getTaskNum(-1, TTaskType.DROP, true));
+
+        Map<Long, Integer> backendToTaskNum = AgentTaskQueue.getTaskNumOfBackends(TTaskType.DROP);
+        Assert.assertEquals(2, backendToTaskNum.size());
+        Assert.assertEquals(1, (int) backendToTaskNum.get(backendId1));
+        Assert.assertEquals(1, (int) backendToTaskNum.get(backendId2));
+        Assert.assertTrue(AgentTaskQueue.getTaskNumOfBackends(TTaskType.PUSH).isEmpty());
     }
 }
@@ -0,0 +1,157 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.task;
+
+import com.baidu.palo.catalog.AggregateType;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.thrift.TStorageMedium;
+import com.baidu.palo.thrift.TStorageType;
+import com.baidu.palo.thrift.TTaskType;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class CreateReplicaJobTest {
+    private static final long[] BACKEND_IDS = {1000L, 1001L, 1002L};
+    private static final long[] TABLET_IDS = {40000L, 40001L};
+    private static final long VERSION = 2L;
+    private static final long VERSION_HASH = 70000L;
+
+    private List<Column> columns;
+    private CreateReplicaJob job;
+    // [tablet][backend]
+    private CreateReplicaTask[][] tasks;
+    private Replica[][] replicas;
+    private int oldRetryTimes;
+
+    @Before
+    public void setUp() {
+        oldRetryTimes = Config.create_replica_max_retry_times;
+        AgentTaskQueue.clearAllTasks();
+
+        columns = new LinkedList<Column>();
+        columns.add(new Column("k1", new ColumnType(PrimitiveType.INT), false, null, "1", ""));
+        columns.add(new Column("v1", new ColumnType(PrimitiveType.INT), false, AggregateType.SUM, "1", ""));
+
+        job = new CreateReplicaJob(1L, 10000L, 20000L, "tbl");
+        tasks = new CreateReplicaTask[TABLET_IDS.length][BACKEND_IDS.length];
+        replicas = new Replica[TABLET_IDS.length][BACKEND_IDS.length];
+        long replicaId = 50000L;
+        for (int i = 0; i < TABLET_IDS.length; i++) {
+            for (int j = 0; j < BACKEND_IDS.length; j++) {
+                tasks[i][j] = new CreateReplicaTask(BACKEND_IDS[j], 10000L, 20000L, 20000L, 20000L, TABLET_IDS[i],
+                                                    (short) 1, 60000, VERSION, VERSION_HASH, KeysType.AGG_KEYS,
+                                                    TStorageType.COLUMN, TStorageMedium.HDD, columns, null, 0, null);
+                replicas[i][j] = new Replica(replicaId++, BACKEND_IDS[j], ReplicaState.NORMAL, VERSION - 1, 0L);
+                job.addTask(tasks[i][j], replicas[i][j], (short) BACKEND_IDS.length);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Config.create_replica_max_retry_times = oldRetryTimes;
+        AgentTaskQueue.clearAllTasks();
+    }
+
+    @Test
+    public void testPollTasksToSend() {
+        Assert.assertEquals(TABLET_IDS.length * BACKEND_IDS.length, job.getTaskNum());
+        Assert.assertEquals(TABLET_IDS.length * BACKEND_IDS.length, AgentTaskQueue.getTaskNum());
+        Assert.assertSame(job, tasks[0][0].getJob());
+
+        List<AgentTask> sent = job.pollTasksToSend(BACKEND_IDS[0], 1);
+        Assert.assertEquals(1, sent.size());
+        Assert.assertSame(tasks[0][0], sent.get(0));
+        Assert.assertEquals(1, job.getRunningTaskNum(BACKEND_IDS[0]));
+
+        sent = job.pollTasksToSend(BACKEND_IDS[0], 10);
+        Assert.assertEquals(1, sent.size());
+        Assert.assertEquals(2, job.getRunningTaskNum(BACKEND_IDS[0]));
+        Assert.assertTrue(job.pollTasksToSend(BACKEND_IDS[0], 10).isEmpty());
+
+        job.finishTask(tasks[0][0]);
+        Assert.assertEquals(1, job.getRunningTaskNum(BACKEND_IDS[0]));
+    }
+
+    @Test
+    public void testWaitQuorum() throws InterruptedException {
+        for (long backendId : BACKEND_IDS) {
+            job.pollTasksToSend(backendId, 10);
+        }
+        Assert.assertFalse(job.waitQuorum(10));
+
+        // 2 of 3 replicas of every tablet
+        for (int i = 0; i < TABLET_IDS.length; i++) {
+            job.finishTask(tasks[i][0]);
+            job.finishTask(tasks[i][1]);
+        }
+        Assert.assertTrue(job.waitQuorum(10));
+        Assert.assertEquals(2, job.getUnfinishedReplicas().size());
+
+        job.prepareToPublish();
+        Assert.assertEquals(VERSION, replicas[0][0].getVersion());
+        Assert.assertEquals(VERSION_HASH, replicas[0][0].getVersionHash());
+        Assert.assertEquals(VERSION - 1, replicas[0][2].getVersion());
+    }
+
+    @Test
+    public void testRetryAndFail() throws InterruptedException {
+        Config.create_replica_max_retry_times = 1;
+        for (long backendId : BACKEND_IDS) {
+            job.pollTasksToSend(backendId, 10);
+        }
+
+        // failed task is sent again
+        tasks[0][0].failed();
+        job.checkRunningTasks();
+        Assert.assertEquals(1, job.getRunningTaskNum(BACKEND_IDS[0]));
+        List<AgentTask> sent = job.pollTasksToSend(BACKEND_IDS[0], 10);
+        Assert.assertEquals(1, sent.size());
+        Assert.assertSame(tasks[0][0], sent.get(0));
+
+        // failed again, give up
+        tasks[0][0].failed();
+        job.checkRunningTasks();
+        Assert.assertTrue(job.pollTasksToSend(BACKEND_IDS[0], 10).isEmpty());
+        Assert.assertNull(AgentTaskQueue.getTask(BACKEND_IDS[0], TTaskType.CREATE, TABLET_IDS[0]));
+        Assert.assertNull(job.getErrMsg());
+
+        // quorum of tablet can not be created any more
+        tasks[0][1].failed();
+        job.checkRunningTasks();
+        job.pollTasksToSend(BACKEND_IDS[1], 10);
+        tasks[0][1].failed();
+        job.checkRunningTasks();
+        Assert.assertNotNull(job.getErrMsg());
+        Assert.assertFalse(job.waitQuorum(1000));
+
+        job.cancel("test");
+        Assert.assertEquals(CreateReplicaJob.JobState.CANCELLED, job.getState());
+        Assert.assertEquals(0, AgentTaskQueue.getTaskNum());
+    }
+}
@@ -44,6 +44,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -56,7 +57,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({ HadoopLoadEtlTask.class, Catalog.class })
@@ -111,11 +111,11 @@ public class LoadEtlTaskTest {
         job.setClusterInfo(cluster, Load.clusterToDppConfig.get(cluster));
         // set partition load infos
         OlapTable table = (OlapTable) db.getTable(tableId);
-        Partition partition = table.getPartition(paritionId);
+        final Partition partition = table.getPartition(paritionId);
         Source source = new Source(new ArrayList<String>());
         List<Source> sources = Lists.newArrayList();
         sources.add(source);
-        PartitionLoadInfo partitionLoadInfo = new PartitionLoadInfo(sources);
+        final PartitionLoadInfo partitionLoadInfo = new PartitionLoadInfo(sources);
         Map<Long, PartitionLoadInfo> idToPartitionLoadInfo = new HashMap<Long, PartitionLoadInfo>();
         idToPartitionLoadInfo.put(paritionId, partitionLoadInfo);
         TableLoadInfo tableLoadInfo = new TableLoadInfo(idToPartitionLoadInfo);
@@ -126,7 +126,13 @@ public class LoadEtlTaskTest {
 
         // mock load
         load = EasyMock.createMock(Load.class);
-        EasyMock.expect(load.addLoadingPartitions(EasyMock.isA(Set.class))).andReturn(true).times(1);
+        EasyMock.expect(load.addLoadingPartitions(job, db)).andAnswer(new IAnswer<Boolean>() {
+            @Override
+            public Boolean answer() throws Throwable {
+                partitionLoadInfo.setVersion(partition.getCommittedVersion() + 1);
+                return true;
+            }
+        }).times(1);
         EasyMock.expect(load.updateLoadJobState(job, JobState.LOADING)).andReturn(true).times(1);
         EasyMock.replay(load);
         EasyMock.expect(catalog.getLoadInstance()).andReturn(load).times(1);
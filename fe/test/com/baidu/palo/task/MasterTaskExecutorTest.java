@@ -35,7 +35,7 @@ public class MasterTaskExecutorTest {
 
     @Before
     public void setUp() {
-        executor = new MasterTaskExecutor(THREAD_NUM);
+        executor = new MasterTaskExecutor("master-task-test", THREAD_NUM);
     }
     
     @After
@@ -0,0 +1,182 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.task;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.TabletInvertedIndex;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.persist.BatchReplicaPersistInfo;
+import com.baidu.palo.persist.EditLog;
+import com.baidu.palo.persist.ReplicaPersistInfo;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.List;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest({ Catalog.class })
+public class PendingCreateReplicasTest {
+    private static final long DB_ID = 10000L;
+    private static final long TABLE_ID = 20000L;
+    private static final long PARTITION_ID = 30000L;
+    private static final long INDEX_ID = 30000L;
+    private static final long TABLET_ID = 40000L;
+    private static final long BACKEND_ID = 1000L;
+    private static final String FILE_NAME = "./pendingCreateReplicasTest";
+
+    private Database db;
+    private Partition partition;
+    private Catalog catalog;
+    private EditLog editLog;
+    private PendingCreateReplicas pendingReplicas;
+
+    @Before
+    public void setUp() {
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getCurrentInvertedIndex()).andReturn(new TabletInvertedIndex()).anyTimes();
+        EasyMock.expect(Catalog.isCheckpointThread()).andReturn(false).anyTimes();
+        catalog = EasyMock.createMock(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        PowerMock.replay(Catalog.class);
+
+        // replicas of 3 backends, which are all at version 1
+        db = UnitTestUtil.createDb(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID, TABLET_ID, BACKEND_ID, 1L, 0L);
+        partition = ((OlapTable) db.getTable(TABLE_ID)).getPartition(PARTITION_ID);
+        pendingReplicas = new PendingCreateReplicas();
+        editLog = EasyMock.createMock(EditLog.class);
+
+        EasyMock.expect(catalog.getDb(DB_ID)).andReturn(db).anyTimes();
+        EasyMock.expect(catalog.getEditLog()).andReturn(editLog).anyTimes();
+        EasyMock.expect(catalog.getPendingCreateReplicas()).andReturn(pendingReplicas).anyTimes();
+        EasyMock.replay(catalog);
+    }
+
+    @After
+    public void tearDown() {
+        AgentTaskQueue.clearAllTasks();
+        new File(FILE_NAME).delete();
+    }
+
+    private Replica getReplica(long backendId) {
+        return partition.getIndex(INDEX_ID).getTablet(TABLET_ID).getReplicaByBackendId(backendId);
+    }
+
+    @Test
+    public void testAddPartition() throws Exception {
+        // replicas on the first 2 backends are not created yet
+        getReplica(BACKEND_ID).updateInfo(-1L, 0L, 0L, 0L);
+        getReplica(BACKEND_ID + 1).updateInfo(-1L, 0L, 0L, 0L);
+        pendingReplicas.addPartition(DB_ID, TABLE_ID, partition);
+        Assert.assertEquals(2, pendingReplicas.size());
+        for (ReplicaPersistInfo info : pendingReplicas.getReplicas()) {
+            Assert.assertEquals(1L, info.getVersion());
+            Assert.assertSame(getReplica(info.getBackendId()), PendingCreateReplicas.getReplica(db, info));
+        }
+
+        // replayed OP_ADD_REPLICA
+        pendingReplicas.remove(TABLET_ID, BACKEND_ID + 1);
+        Assert.assertEquals(1, pendingReplicas.size());
+        Assert.assertEquals(BACKEND_ID, pendingReplicas.getReplicas().get(0).getBackendId());
+
+        // saved in image
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(FILE_NAME)));
+        pendingReplicas.write(out);
+        out.flush();
+        out.close();
+        DataInputStream in = new DataInputStream(new FileInputStream(new File(FILE_NAME)));
+        PendingCreateReplicas readReplicas = new PendingCreateReplicas();
+        readReplicas.readFields(in);
+        in.close();
+        Assert.assertEquals(1, readReplicas.size());
+        ReplicaPersistInfo info = readReplicas.getReplicas().get(0);
+        Assert.assertEquals(TABLET_ID, info.getTabletId());
+        Assert.assertEquals(BACKEND_ID, info.getBackendId());
+        Assert.assertEquals(getReplica(BACKEND_ID).getId(), info.getReplicaId());
+
+        // replica is dropped
+        readReplicas.add(ReplicaPersistInfo.createForAdd(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID, TABLET_ID + 1,
+                                                         BACKEND_ID, 100L, 1L, 0L, 0L, 0L));
+        readReplicas.removeDropped(catalog);
+        Assert.assertEquals(1, readReplicas.size());
+        Assert.assertEquals(TABLET_ID, readReplicas.getReplicas().get(0).getTabletId());
+    }
+
+    @Test
+    public void testRecoverAndApply() {
+        for (int i = 0; i < 3; i++) {
+            getReplica(BACKEND_ID + i).updateInfo(-1L, 0L, 0L, 0L);
+        }
+        pendingReplicas.addPartition(DB_ID, TABLE_ID, partition);
+        Assert.assertEquals(3, pendingReplicas.size());
+
+        CreateReplicaJob job = new CreateReplicaJob(1L, DB_ID, TABLE_ID, UnitTestUtil.TABLE_NAME);
+        for (ReplicaPersistInfo info : pendingReplicas.getReplicas()) {
+            Assert.assertTrue(job.addPendingTask(db, info));
+        }
+        Assert.assertEquals(3, job.getTaskNum());
+
+        // partition is loaded after the replica is added
+        ReplicaPersistInfo loadedInfo = ReplicaPersistInfo.createForAdd(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID,
+                                                                        TABLET_ID, BACKEND_ID,
+                                                                        getReplica(BACKEND_ID).getId(),
+                                                                        0L, 0L, 0L, 0L);
+        Assert.assertFalse(job.addPendingTask(db, loadedInfo));
+        // replica is replaced
+        ReplicaPersistInfo replacedInfo = ReplicaPersistInfo.createForAdd(DB_ID, TABLE_ID, PARTITION_ID, INDEX_ID,
+                                                                          TABLET_ID, BACKEND_ID, 100L,
+                                                                          1L, 0L, 0L, 0L);
+        Assert.assertFalse(job.addPendingTask(db, replacedInfo));
+
+        // 2 replicas are created, and written in one edit log
+        editLog.logBatchAddReplica(EasyMock.anyObject(BatchReplicaPersistInfo.class));
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(editLog);
+
+        job.publish();
+        for (int i = 0; i < 2; i++) {
+            List<AgentTask> tasks = job.pollTasksToSend(BACKEND_ID + i, 10);
+            Assert.assertEquals(1, tasks.size());
+            job.finishTask((CreateReplicaTask) tasks.get(0));
+        }
+        job.applyToMeta();
+
+        EasyMock.verify(editLog);
+        Assert.assertEquals(1L, getReplica(BACKEND_ID).getVersion());
+        Assert.assertEquals(1L, getReplica(BACKEND_ID + 1).getVersion());
+        Assert.assertEquals(-1L, getReplica(BACKEND_ID + 2).getVersion());
+        Assert.assertEquals(1, pendingReplicas.size());
+        Assert.assertEquals(BACKEND_ID + 2, pendingReplicas.getReplicas().get(0).getBackendId());
+    }
+}
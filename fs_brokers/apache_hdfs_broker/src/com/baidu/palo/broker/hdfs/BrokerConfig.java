@@ -26,6 +26,14 @@ public class BrokerConfig extends ConfigBase {
     @ConfField
     public static int hdfs_write_buffer_size_kb = 1024;
     
+    // threads to read the next range of opened files in advance, 0 to disable read ahead
+    @ConfField
+    public static int hdfs_read_ahead_thread_num = 16;
+    
+    // maximal number of read ahead buffers, each of hdfs_read_buffer_size_kb
+    @ConfField
+    public static int hdfs_read_ahead_max_buffer_num = 256;
+    
     @ConfField
     public static int client_expire_seconds = 300;
     
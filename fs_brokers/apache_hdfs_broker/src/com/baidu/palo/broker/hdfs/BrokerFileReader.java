@@ -0,0 +1,219 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.broker.hdfs;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.log4j.Logger;
+
+/**
+ * Reader of an opened file.
+ *
+ * Sequential reads are served from the input stream, which keeps the connection to data node.
+ * If the stream is being used by another request, or the request is not at the stream position,
+ * positional read is used, so concurrent requests on one fd do not fight over the seek position.
+ *
+ * If read ahead is enabled, the next range after a sequential read is read asynchronously
+ * into a pooled buffer, and served to the next request at that offset.
+ */
+public class BrokerFileReader {
+
+    private static Logger logger = Logger.getLogger(BrokerFileReader.class.getName());
+
+    private final FSDataInputStream inputStream;
+    // protect the position of input stream
+    private final ReentrantLock streamLock = new ReentrantLock();
+    // null if read ahead is disabled
+    private final ExecutorService readAheadExecutor;
+    private final BufferPool bufferPool;
+
+    // the pending read ahead, protected by 'this'
+    private ReadAheadBuffer readAhead = null;
+    private boolean closed = false;
+
+    private static class ReadAheadBuffer {
+        private final long offset;
+        private final byte[] buf;
+        private Future<Integer> future;
+
+        public ReadAheadBuffer(long offset, byte[] buf) {
+            this.offset = offset;
+            this.buf = buf;
+        }
+    }
+
+    public BrokerFileReader(FSDataInputStream inputStream, ExecutorService readAheadExecutor,
+            BufferPool bufferPool) {
+        this.inputStream = inputStream;
+        this.readAheadExecutor = readAheadExecutor;
+        this.bufferPool = bufferPool;
+    }
+
+    public FSDataInputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Read at most 'length' bytes at 'offset' into 'buf'.
+     * Less than 'length' bytes are returned only if the end of file is reached.
+     * @return the number of bytes read, -1 if offset is at the end of file.
+     */
+    public int read(long offset, byte[] buf, int length) throws IOException {
+        int readLength = readFromReadAhead(offset, buf, length);
+        if (readLength < 0) {
+            readLength = readFully(offset, buf, 0, length);
+        }
+        if (readLength == length) {
+            startReadAhead(offset + length);
+        }
+        return readLength;
+    }
+
+    public void close() {
+        ReadAheadBuffer pending = null;
+        synchronized (this) {
+            closed = true;
+            pending = readAhead;
+            readAhead = null;
+        }
+        if (pending != null) {
+            releaseReadAhead(pending);
+        }
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            logger.error("errors while close file input stream", e);
+        }
+    }
+
+    // Return -1 if there is no read ahead at 'offset'.
+    private int readFromReadAhead(long offset, byte[] buf, int length) throws IOException {
+        ReadAheadBuffer pending = null;
+        synchronized (this) {
+            if (readAhead == null) {
+                return -1;
+            }
+            pending = readAhead;
+            readAhead = null;
+        }
+        if (pending.offset != offset) {
+            releaseReadAhead(pending);
+            return -1;
+        }
+        try {
+            int readAheadLength = pending.future.get();
+            if (readAheadLength < length && readAheadLength == pending.buf.length) {
+                // request is larger than read ahead buffer, read the left part from stream
+                System.arraycopy(pending.buf, 0, buf, 0, readAheadLength);
+                bufferPool.giveBack(pending.buf);
+                int leftLength = readFully(offset + readAheadLength, buf, readAheadLength,
+                        length - readAheadLength);
+                return leftLength < 0 ? readAheadLength : readAheadLength + leftLength;
+            }
+            int copyLength = Math.min(readAheadLength, length);
+            if (copyLength > 0) {
+                System.arraycopy(pending.buf, 0, buf, 0, copyLength);
+            }
+            bufferPool.giveBack(pending.buf);
+            return copyLength == 0 ? -1 : copyLength;
+        } catch (InterruptedException | ExecutionException e) {
+            // read it again from stream
+            logger.warn("read ahead at offset " + offset + " failed, read it again", e);
+            bufferPool.giveBack(pending.buf);
+            return -1;
+        }
+    }
+
+    // Read until 'length' bytes are read or the end of file is reached.
+    // Return -1 if nothing is read because of end of file.
+    private int readFully(long offset, byte[] buf, int bufOffset, int length) throws IOException {
+        int readLength = 0;
+        if (streamLock.tryLock()) {
+            try {
+                if (inputStream.getPos() == offset) {
+                    // sequential read, use the stream
+                    while (readLength < length) {
+                        int n = inputStream.read(buf, bufOffset + readLength, length - readLength);
+                        if (n < 0) {
+                            break;
+                        }
+                        readLength += n;
+                    }
+                    return readLength == 0 && length > 0 ? -1 : readLength;
+                }
+            } finally {
+                streamLock.unlock();
+            }
+        }
+        // positional read does not change the position of stream
+        while (readLength < length) {
+            int n = inputStream.read(offset + readLength, buf, bufOffset + readLength, length - readLength);
+            if (n < 0) {
+                break;
+            }
+            readLength += n;
+        }
+        return readLength == 0 && length > 0 ? -1 : readLength;
+    }
+
+    private void startReadAhead(final long offset) {
+        if (readAheadExecutor == null) {
+            return;
+        }
+        byte[] readAheadBuf = bufferPool.borrow();
+        if (readAheadBuf == null) {
+            // too many buffers in use, skip read ahead
+            return;
+        }
+        final ReadAheadBuffer pending = new ReadAheadBuffer(offset, readAheadBuf);
+        synchronized (this) {
+            if (closed || readAhead != null) {
+                bufferPool.giveBack(readAheadBuf);
+                return;
+            }
+            try {
+                pending.future = readAheadExecutor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int n = readFully(pending.offset, pending.buf, 0, pending.buf.length);
+                        return n < 0 ? 0 : n;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                bufferPool.giveBack(readAheadBuf);
+                return;
+            }
+            readAhead = pending;
+        }
+    }
+
+    private void releaseReadAhead(ReadAheadBuffer pending) {
+        // wait for the read to finish, or the buffer may be reused while it is being written
+        try {
+            pending.future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // ignore
+        }
+        bufferPool.giveBack(pending.buf);
+    }
+}
@@ -0,0 +1,66 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.broker.hdfs;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of fixed size byte buffers.
+ * At most 'maxBufferNum' buffers will be allocated, to bound the memory used by read ahead.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final int maxBufferNum;
+    private final ConcurrentLinkedQueue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocatedNum = new AtomicInteger(0);
+
+    public BufferPool(int bufferSize, int maxBufferNum) {
+        this.bufferSize = bufferSize;
+        this.maxBufferNum = maxBufferNum;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return a free buffer, or null if 'maxBufferNum' buffers are all in use
+     */
+    public byte[] borrow() {
+        byte[] buf = freeBuffers.poll();
+        if (buf != null) {
+            return buf;
+        }
+        while (true) {
+            int num = allocatedNum.get();
+            if (num >= maxBufferNum) {
+                return null;
+            }
+            if (allocatedNum.compareAndSet(num, num + 1)) {
+                return new byte[bufferSize];
+            }
+        }
+    }
+
+    public void giveBack(byte[] buf) {
+        if (buf == null || buf.length != bufferSize) {
+            return;
+        }
+        freeBuffers.offer(buf);
+    }
+}
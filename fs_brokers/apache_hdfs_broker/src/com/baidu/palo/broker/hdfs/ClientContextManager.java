@@ -60,25 +60,33 @@ public class ClientContextManager {
         fdToClientMap.putIfAbsent(fd, clientId);
     }
     
-    public synchronized void putNewInputStream(String clientId, TBrokerFD fd, FSDataInputStream fsDataInputStream, 
+    public synchronized void putNewInputStream(String clientId, TBrokerFD fd, BrokerFileReader fileReader, 
             BrokerFileSystem brokerFileSystem) {
         if (!clientContexts.containsKey(clientId)) {
             clientContexts.putIfAbsent(clientId, new ClientResourceContext(clientId));
         }
         ClientResourceContext clientContext = clientContexts.get(clientId);
-        clientContext.putInputStream(fd, fsDataInputStream, brokerFileSystem);
+        clientContext.putInputStream(fd, fileReader, brokerFileSystem);
         fdToClientMap.putIfAbsent(fd, clientId);
     }
     
     public synchronized FSDataInputStream getFsDataInputStream(TBrokerFD fd) {
+        return getFileReader(fd).getInputStream();
+    }
+    
+    public synchronized BrokerFileReader getFileReader(TBrokerFD fd) {
         String clientId = fdToClientMap.get(fd);
         if (clientId == null) {
             throw new BrokerException(TBrokerOperationStatusCode.TARGET_STORAGE_SERVICE_ERROR, 
                     "the fd is not owned by client {}", clientId);
         }
         ClientResourceContext clientContext = clientContexts.get(clientId);
-        FSDataInputStream fsDataInputStream = clientContext.getInputStream(fd);
-        return fsDataInputStream;
+        BrokerFileReader fileReader = clientContext.getFileReader(fd);
+        if (fileReader == null) {
+            throw new BrokerException(TBrokerOperationStatusCode.TARGET_STORAGE_SERVICE_ERROR, 
+                    "the fd is not opened for read or already closed");
+        }
+        return fileReader;
     }
     
     public synchronized FSDataOutputStream getFsDataOutputStream(TBrokerFD fd) {
@@ -101,7 +109,8 @@ public class ClientContextManager {
         BrokerInputStream brokerInputStream = clientContext.inputStreams.remove(fd);
         try {
             if (brokerInputStream != null) {
-                brokerInputStream.inputStream.close();
+                // also wait for the pending read ahead
+                brokerInputStream.fileReader.close();
             }
         } catch (Exception e) {
             logger.error("errors while close file data input stream", e);
@@ -171,18 +180,18 @@ public class ClientContextManager {
     
     private static class BrokerInputStream {
         
-        private final FSDataInputStream inputStream;
+        private final BrokerFileReader fileReader;
         private final BrokerFileSystem brokerFileSystem;
         
-        public BrokerInputStream(FSDataInputStream inputStream, BrokerFileSystem brokerFileSystem) {
-            this.inputStream = inputStream;
+        public BrokerInputStream(BrokerFileReader fileReader, BrokerFileSystem brokerFileSystem) {
+            this.fileReader = fileReader;
             this.brokerFileSystem = brokerFileSystem;
             this.brokerFileSystem.updateLastUpdateAccessTime();
         }
         
-        public FSDataInputStream getInputStream() {
+        public BrokerFileReader getFileReader() {
             this.brokerFileSystem.updateLastUpdateAccessTime();
-            return inputStream;
+            return fileReader;
         }
         
         public void updateLastUpdateAccessTime() {
@@ -204,18 +213,18 @@ public class ClientContextManager {
             this.lastPingTimestamp = System.currentTimeMillis();
         }
         
-        public void putInputStream(TBrokerFD fd, FSDataInputStream inputStream, BrokerFileSystem fileSystem) {
-            inputStreams.putIfAbsent(fd, new BrokerInputStream(inputStream, fileSystem));
+        public void putInputStream(TBrokerFD fd, BrokerFileReader fileReader, BrokerFileSystem fileSystem) {
+            inputStreams.putIfAbsent(fd, new BrokerInputStream(fileReader, fileSystem));
         }
         
         public void putOutputStream(TBrokerFD fd, FSDataOutputStream outputStream, BrokerFileSystem fileSystem) {
             outputStreams.putIfAbsent(fd, new BrokerOutputStream(outputStream, fileSystem));
         }
         
-        public FSDataInputStream getInputStream(TBrokerFD fd) {
+        public BrokerFileReader getFileReader(TBrokerFD fd) {
             BrokerInputStream brokerInputStream = inputStreams.get(fd);
             if (brokerInputStream != null) {
-                return brokerInputStream.getInputStream();
+                return brokerInputStream.getFileReader();
             }
             return null;
         }
@@ -24,11 +24,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
@@ -36,6 +38,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.log4j.Logger;
 
+import com.baidu.palo.thrift.TBrokerBlockLocation;
 import com.baidu.palo.thrift.TBrokerFD;
 import com.baidu.palo.thrift.TBrokerFileStatus;
 import com.baidu.palo.thrift.TBrokerOperationStatusCode;
@@ -57,11 +60,26 @@ public class FileSystemManager {
     private ConcurrentHashMap<FileSystemIdentity, BrokerFileSystem> cachedFileSystem;
     private ClientContextManager clientContextManager;
     
+    // null if read ahead is disabled
+    private ExecutorService readAheadPool = null;
+    private BufferPool readAheadBufferPool;
+    // buffer of each thread to hold the data of pread response
+    private ThreadLocal<byte[]> threadReadBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[readBufferSize];
+        }
+    };
+    
     public FileSystemManager() {
         cachedFileSystem = new ConcurrentHashMap<>();
         clientContextManager = new ClientContextManager(handleManagementPool);
         readBufferSize = BrokerConfig.hdfs_read_buffer_size_kb << 10;
         writeBufferSize = BrokerConfig.hdfs_write_buffer_size_kb << 10;
+        readAheadBufferPool = new BufferPool(readBufferSize, BrokerConfig.hdfs_read_ahead_max_buffer_num);
+        if (BrokerConfig.hdfs_read_ahead_thread_num > 0) {
+            readAheadPool = Executors.newFixedThreadPool(BrokerConfig.hdfs_read_ahead_thread_num);
+        }
         handleManagementPool.schedule(new FileSystemExpirationChecker(), 0, TimeUnit.SECONDS);
     }
     
@@ -123,6 +141,19 @@ public class FileSystemManager {
     }
     
     public List<TBrokerFileStatus> listPath(String path, Map<String, String> properties) {
+        return listPath(path, false, properties);
+    }
+
+    /**
+     * list files match the path pattern
+     * @param path
+     * @param fileBlockLocations if true, block locations of files will be returned too,
+     *                           which are used by FE to schedule scan ranges near the data
+     * @param properties
+     * @return
+     */
+    public List<TBrokerFileStatus> listPath(String path, boolean fileBlockLocations,
+            Map<String, String> properties) {
         List<TBrokerFileStatus> resultFileStatus = null;
         URI pathUri = getUriFromPath(path);
         BrokerFileSystem fileSystem = getFileSystem(path, properties);
@@ -143,6 +174,10 @@ public class FileSystemManager {
                 } else {
                     brokerFileStatus.setSize(fileStatus.getLen());
                     brokerFileStatus.setIsSplitable(true);
+                    if (fileBlockLocations) {
+                        brokerFileStatus.setBlockLocations(getBlockLocations(
+                                fileSystem.getDFSFileSystem(), fileStatus));
+                    }
                 }
                 brokerFileStatus.setPath(fileStatus.getPath().toString());
                 resultFileStatus.add(brokerFileStatus);
@@ -156,6 +191,30 @@ public class FileSystemManager {
         return resultFileStatus;
     }
     
+    private List<TBrokerBlockLocation> getBlockLocations(FileSystem dfsFileSystem, FileStatus fileStatus)
+            throws IOException {
+        BlockLocation[] blockLocations = dfsFileSystem.getFileBlockLocations(fileStatus, 0, fileStatus.getLen());
+        List<TBrokerBlockLocation> result = new ArrayList<>();
+        if (blockLocations == null) {
+            return result;
+        }
+        for (BlockLocation blockLocation : blockLocations) {
+            // both host names and ips are returned,
+            // because FE may identify a backend either by host name or by ip.
+            List<String> hosts = new ArrayList<>();
+            for (String host : blockLocation.getHosts()) {
+                hosts.add(host);
+            }
+            for (String name : blockLocation.getNames()) {
+                // name is ip:port
+                int idx = name.lastIndexOf(':');
+                hosts.add(idx < 0 ? name : name.substring(0, idx));
+            }
+            result.add(new TBrokerBlockLocation(blockLocation.getOffset(), blockLocation.getLength(), hosts));
+        }
+        return result;
+    }
+
     public void deletePath(String path, Map<String, String> properties) {
         URI pathUri = getUriFromPath(path);
         BrokerFileSystem fileSystem = getFileSystem(path, properties);
@@ -218,7 +277,8 @@ public class FileSystemManager {
             fsDataInputStream.seek(startOffset);
             UUID uuid = UUID.randomUUID();
             TBrokerFD fd = parseUUIDToFD(uuid);
-            clientContextManager.putNewInputStream(clientId, fd, fsDataInputStream, fileSystem);
+            BrokerFileReader fileReader = new BrokerFileReader(fsDataInputStream, readAheadPool, readAheadBufferPool);
+            clientContextManager.putNewInputStream(clientId, fd, fileReader, fileSystem);
             return fd;
         } catch (IOException e) {
             logger.error("errors while open path", e);
@@ -229,44 +289,26 @@ public class FileSystemManager {
     }
     
     public ByteBuffer pread(TBrokerFD fd, long offset, long length) {
-        FSDataInputStream fsDataInputStream = clientContextManager.getFsDataInputStream(fd);
-        long currentStreamOffset;
-        try {
-            currentStreamOffset = fsDataInputStream.getPos();
-        } catch (IOException e) {
-            logger.error("errors while get file pos from output stream", e);
-            throw new BrokerException(TBrokerOperationStatusCode.TARGET_STORAGE_SERVICE_ERROR, 
-                    "errors while get file pos from output stream");
-        }
-        if (currentStreamOffset != offset) {
-            logger.warn("invalid offset, current read offset is " 
-                    + currentStreamOffset + " is not equal to request offset " 
-                    + offset + " seek to it");
-            try {
-                fsDataInputStream.seek(offset);
-            } catch (IOException e) {
-                throw new BrokerException(TBrokerOperationStatusCode.INVALID_INPUT_OFFSET, 
-                        e, "current read offset {} is not equal to {}, and could not seek to it", 
-                        currentStreamOffset, offset);
-            }
-        }
-        byte[] buf;
-        if (length > readBufferSize) {
-            buf = new byte[readBufferSize];
-        } else {
-            buf = new byte[(int) length];
+        BrokerFileReader fileReader = clientContextManager.getFileReader(fd);
+        if (offset < 0) {
+            throw new BrokerException(TBrokerOperationStatusCode.INVALID_INPUT_OFFSET, 
+                    "invalid read offset {}", offset);
         }
+        int readLength = (int) Math.min(length, readBufferSize);
+        // The returned buffer is serialized to the response by this thread before it handles
+        // next request, so the buffer of this thread can be reused.
+        byte[] buf = threadReadBuffer.get();
         try {
-            int readLength = fsDataInputStream.read(buf);
-            if (readLength < 0) {
+            int n = fileReader.read(offset, buf, readLength);
+            if (n < 0) {
                 throw new BrokerException(TBrokerOperationStatusCode.END_OF_FILE, 
                         "end of file reached");
             }
-            return ByteBuffer.wrap(buf, 0, readLength);
+            return ByteBuffer.wrap(buf, 0, n);
         } catch (IOException e) {
             logger.error("errors while read data from stream", e);
             throw new BrokerException(TBrokerOperationStatusCode.TARGET_STORAGE_SERVICE_ERROR, 
-                    e, "errors while write data to output stream");
+                    e, "errors while read data from input stream");
         }
     }
     
@@ -276,14 +318,8 @@ public class FileSystemManager {
     }
     
     public void closeReader(TBrokerFD fd) {
-        FSDataInputStream fsDataInputStream = clientContextManager.getFsDataInputStream(fd);
-        try {
-            fsDataInputStream.close();
-        } catch (IOException e) {
-            logger.error("errors while close file input stream", e);
-        } finally {
-            clientContextManager.removeInputStream(fd);
-        }
+        // the input stream is closed when it is removed
+        clientContextManager.removeInputStream(fd);
     }
     
     public TBrokerFD openWriter(String clientId, String path, Map<String, String> properties) {
@@ -67,7 +67,9 @@ public class HDFSBrokerServiceImpl implements TPaloBrokerService.Iface {
         logger.debug("received a list path request, request detail: " + request);
         TBrokerListResponse response = new TBrokerListResponse();
         try {
-            List<TBrokerFileStatus> fileStatuses = fileSystemManager.listPath(request.path, request.properties);
+            boolean fileBlockLocations = request.isSetFileBlockLocations() && request.isFileBlockLocations();
+            List<TBrokerFileStatus> fileStatuses = fileSystemManager.listPath(request.path, fileBlockLocations,
+                    request.properties);
             response.setOpStatus(generateOKStatus());
             response.setFiles(fileStatuses);
             return response;
@@ -117,11 +117,14 @@ public class TestFileSystemManager extends TestCase {
         
         // read with exception
         boolean readDataHasError = false;
+        // out of order read is served by positional read
+        ByteBuffer readData2 = fileSystemManager.pread(readFd, 1, 2222);
+        assertEquals(1255, readData2.limit());
         try {
-            ByteBuffer readData2 = fileSystemManager.pread(readFd, 1, 2222);
+            ByteBuffer readData3 = fileSystemManager.pread(readFd, 1256, 2222);
         } catch (BrokerException e) {
             readDataHasError = true;
-            assertEquals(TBrokerOperationStatusCode.INVALID_INPUT_OFFSET, e.errorCode);
+            assertEquals(TBrokerOperationStatusCode.END_OF_FILE, e.errorCode);
         }
         assertEquals(true, readDataHasError);
         
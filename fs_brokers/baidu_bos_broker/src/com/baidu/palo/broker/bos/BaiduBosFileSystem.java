@@ -21,10 +21,16 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
@@ -141,6 +147,186 @@ public class BaiduBosFileSystem extends FileSystem {
         }
     }
 
+    /**
+     * Input stream which fetches fixed size byte ranges of the object in parallel.
+     * At most 'concurrency' ranges after current position are fetched in advance,
+     * and sequential reads are served from them. Seek within the fetched ranges
+     * does not need to reconnect.
+     */
+    private class NativeBOSFsParallelInputStream extends FSInputStream {
+
+        private final String key;
+        private final FileMetadata fileMetaData;
+        private final int concurrency;
+        private final int rangeSize;
+        private long pos = 0;
+        // ranges being fetched, continuous and ordered by offset, the first one contains pos
+        private final LinkedList<ByteRange> ranges = new LinkedList<ByteRange>();
+        private boolean closed = false;
+
+        private class ByteRange {
+            private final long start;
+            private final int length;
+            private final Future<byte[]> data;
+
+            public ByteRange(final long start, final int length) {
+                this.start = start;
+                this.length = length;
+                this.data = getRangeReadExecutor().submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        return fetchRange(start, length);
+                    }
+                });
+            }
+
+            public long end() {
+                return start + length;
+            }
+        }
+
+        public NativeBOSFsParallelInputStream(String key, FileMetadata fileMetaData,
+                int concurrency, int rangeSize) {
+            this.key = key;
+            this.fileMetaData = fileMetaData;
+            this.concurrency = concurrency;
+            this.rangeSize = rangeSize;
+        }
+
+        private byte[] fetchRange(long start, int length) throws IOException {
+            byte[] buf = new byte[length];
+            int readLength = 0;
+            InputStream in = store.retrieve(key, start, start + length - 1);
+            if (in == null) {
+                throw new FileNotFoundException("Key '" + key + "' does not exist in BOS");
+            }
+            try {
+                while (readLength < length) {
+                    int n = in.read(buf, readLength, length - readLength);
+                    if (n < 0) {
+                        throw new IOException("unexpected end of object " + key + " at "
+                                + (start + readLength) + ", range end is " + (start + length));
+                    }
+                    readLength += n;
+                }
+            } finally {
+                in.close();
+            }
+            return buf;
+        }
+
+        // Make sure the first range contains pos, and there are 'concurrency' ranges being fetched.
+        private void fillRanges() {
+            while (!ranges.isEmpty() && ranges.getFirst().end() <= pos) {
+                ranges.removeFirst().data.cancel(true);
+            }
+            if (!ranges.isEmpty() && ranges.getFirst().start > pos) {
+                clearRanges();
+            }
+            long next = ranges.isEmpty() ? pos : ranges.getLast().end();
+            while (ranges.size() < concurrency && next < fileMetaData.getLength()) {
+                int length = (int) Math.min(rangeSize, fileMetaData.getLength() - next);
+                ranges.addLast(new ByteRange(next, length));
+                next += length;
+            }
+        }
+
+        private void clearRanges() {
+            for (ByteRange range : ranges) {
+                range.data.cancel(true);
+            }
+            ranges.clear();
+        }
+
+        private byte[] getRangeData(ByteRange range) throws IOException {
+            try {
+                return range.data.get();
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted when read " + key, e);
+            } catch (ExecutionException e) {
+                // fetch it again, the next read will retry
+                ranges.remove(range);
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("failed to read " + key, e.getCause());
+            }
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            byte[] b = new byte[1];
+            int result = read(b, 0, 1);
+            if (result <= 0) {
+                return -1;
+            }
+            return b[0] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream is closed");
+            }
+            if (this.pos >= this.fileMetaData.getLength()) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int readLength = 0;
+            while (readLength < len && pos < fileMetaData.getLength()) {
+                fillRanges();
+                ByteRange range = ranges.getFirst();
+                if (readLength > 0 && !range.data.isDone()) {
+                    // do not wait if some data is already read
+                    break;
+                }
+                byte[] data = getRangeData(range);
+                int rangeOffset = (int) (pos - range.start);
+                int copyLength = Math.min(len - readLength, range.length - rangeOffset);
+                System.arraycopy(data, rangeOffset, b, off + readLength, copyLength);
+                readLength += copyLength;
+                pos += copyLength;
+            }
+            if (statistics != null) {
+                statistics.incrementBytesRead(readLength);
+            }
+            return readLength;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            clearRanges();
+        }
+
+        @Override
+        public synchronized void seek(long pos) throws IOException {
+            // fetched ranges are kept, they will be dropped in next read if pos is out of them
+            this.pos = pos;
+        }
+
+        @Override
+        public synchronized long getPos() throws IOException {
+            return pos;
+        }
+
+        @Override
+        public boolean seekToNewSource(long targetPos) throws IOException {
+            return false;
+        }
+    }
+
+    private static ExecutorService rangeReadExecutor = null;
+
+    private static synchronized ExecutorService getRangeReadExecutor() {
+        if (rangeReadExecutor == null) {
+            rangeReadExecutor = Executors.newFixedThreadPool(Math.max(1, BrokerConfig.bos_read_thread_num));
+        }
+        return rangeReadExecutor;
+    }
+
     private URI uri;
     private NativeFileSystemStore store;
     private Path workingDir;
@@ -464,6 +650,10 @@ public class BaiduBosFileSystem extends FileSystem {
         Path absolutePath = makeAbsolute(f);
         String key = pathToKey(absolutePath);
         FileMetadata fileMetaData = store.retrieveMetadata(key);
+        if (BrokerConfig.bos_read_concurrency > 0) {
+            return new FSDataInputStream(new NativeBOSFsParallelInputStream(key, fileMetaData,
+                    BrokerConfig.bos_read_concurrency, BrokerConfig.bos_read_range_size_kb << 10));
+        }
         return new FSDataInputStream(new BufferedFSInputStream(
                 new NativeBOSFsInputStream(store.retrieve(key), key,
                         fileMetaData), bufferSize));
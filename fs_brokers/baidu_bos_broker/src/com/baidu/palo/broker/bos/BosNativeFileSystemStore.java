@@ -670,6 +670,36 @@ class BosNativeFileSystemStore implements NativeFileSystemStore {
         }
     }
 
+    /**
+     *
+     * @param key
+     * The key is the object name that is being retrieved from the BOS bucket
+     * @param byteRangeStart
+     * @param byteRangeEnd
+     * The range is inclusive, and must be in the object
+     * @return
+     * This method returns null if the key is not found
+     * @throws IOException
+     */
+    @Override
+    public InputStream retrieve(String key, long byteRangeStart, long byteRangeEnd)
+            throws IOException {
+        try {
+            if(LOG.isDebugEnabled()) {
+                LOG.debug("Getting key: " + key + " from bucket:" 
+                        + bucketName + " with range: [" 
+                        + byteRangeStart + ", " + byteRangeEnd + "]");
+            }
+            GetObjectRequest request = new GetObjectRequest(bucketName, key);
+            request.setRange(byteRangeStart, byteRangeEnd);
+            BosObject object = bosClient.getObject(request);
+            return object.getObjectContent();
+        } catch (BceServiceException e) {
+            handleBosServiceException(key, e);
+            return null; //return null if key not found
+        }
+    }
+
     @Override
     public PartialListing list(String prefix, int maxListingLength)
             throws IOException {
@@ -26,6 +26,19 @@ public class BrokerConfig extends ConfigBase {
     @ConfField
     public static int hdfs_write_buffer_size_kb = 1024;
     
+    // number of byte ranges of one object fetched in parallel when reading from BOS,
+    // 0 means read the object through one http stream
+    @ConfField
+    public static int bos_read_concurrency = 4;
+    
+    // size of each byte range fetched from BOS
+    @ConfField
+    public static int bos_read_range_size_kb = 4096;
+    
+    // threads shared by all opened objects to fetch byte ranges
+    @ConfField
+    public static int bos_read_thread_num = 64;
+    
     @ConfField
     public static int client_expire_seconds = 300;
     
@@ -40,6 +40,8 @@ interface NativeFileSystemStore {
     FileMetadata retrieveMetadata(String key) throws IOException;
     InputStream retrieve(String key) throws IOException;
     InputStream retrieve(String key, long byteRangeStart) throws IOException;
+    // retrieve bytes in [byteRangeStart, byteRangeEnd] of the object
+    InputStream retrieve(String key, long byteRangeStart, long byteRangeEnd) throws IOException;
 
     PartialListing list(String prefix, int maxListingLength) throws IOException;
     PartialListing list(String prefix, int maxListingLength, String priorLastKey) throws IOException;
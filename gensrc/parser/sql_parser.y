@@ -221,7 +221,7 @@ terminal String KW_ADD, KW_AFTER, KW_AGGREGATE, KW_ALL, KW_ALTER, KW_AND, KW_ANT
     KW_REPEATABLE, KW_REPLACE, KW_RESOURCE, KW_RESTORE, KW_REVOKE,
     KW_RIGHT, KW_ROLLBACK, KW_ROLLUP, KW_ROW, KW_ROWS,
     KW_SELECT, KW_SEMI, KW_SERIALIZABLE, KW_SESSION, KW_SET, KW_SHOW,
-    KW_SMALLINT, KW_SNAPSHOT, KW_SONAME, KW_SPLIT, KW_START, KW_STATUS, KW_STORAGE, KW_STRING, 
+    KW_SMALLINT, KW_SNAPSHOT, KW_SONAME, KW_SPLIT, KW_START, KW_STATS, KW_STATUS, KW_STORAGE, KW_STRING, 
     KW_SUM, KW_SUPERUSER, KW_SYNC, KW_SYSTEM, 
     KW_TABLE, KW_TABLES, KW_TABLET, KW_TERMINATED, KW_THAN, KW_THEN, KW_TIMESTAMP, KW_TINYINT,
     KW_TO, KW_TRANSACTION, KW_TRIGGERS, KW_TRIM, KW_TRUE, KW_TYPES,
@@ -1486,6 +1486,11 @@ show_param ::=
     {:
         RESULT = new ShowTableStatusStmt(db, parser.wild, parser.where);
     :}
+    /* show table stats: row count and data size of each partition and index */
+    | KW_TABLE KW_STATS KW_FROM table_name:dbTblName
+    {:
+        RESULT = new ShowTableStatsStmt(dbTblName);
+    :}
     /* show table status */
     | opt_full KW_TABLES opt_db:db opt_wild_where
     {:
@@ -3566,6 +3571,8 @@ keyword ::=
     {: RESULT = id; :}
     | KW_START:id
     {: RESULT = id; :}
+    | KW_STATS:id
+    {: RESULT = id; :}
     | KW_STATUS:id
     {: RESULT = id; :}
     | KW_STORAGE:id
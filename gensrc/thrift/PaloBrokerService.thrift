@@ -46,12 +46,20 @@ enum TBrokerOpenMode {
     APPEND = 1;
 }
 
+struct TBrokerBlockLocation {
+    1: required i64 offset; // offset of this block in the file
+    2: required i64 length; // length of this block
+    3: required list<string> hosts; // hosts (both host name and ip) which hold a replica of this block
+}
+
 struct TBrokerFileStatus {
     1: required string path; // 文件的路径
     2: required bool isDir; // 表示文件是个目录还是文件？
     3: required i64 size; // 文件的大小
     4: required bool isSplitable; // 如果这个值是false，那么表示这个文件不可以切分，整个文件必须作为
                                     // 一个完整的map task来进行导入,如果是一个压缩文件返回值也是false
+    5: optional list<TBrokerBlockLocation> blockLocations; // only set if required in list path request
+                                                           // and the storage supports block location
 }
 
 struct TBrokerFD {
@@ -90,6 +98,7 @@ struct TBrokerListPathRequest {
     2: required string path;
     3: required bool isRecursive;
     4: required map<string,string> properties;
+    5: optional bool fileBlockLocations; // return block locations of files
 }
 
 struct TBrokerDeletePathRequest {
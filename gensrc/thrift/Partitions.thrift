@@ -36,7 +36,11 @@ enum TPartitionType {
 
   // ordered partition on a list of exprs
   // (partition bounds don't overlap)
-  RANGE_PARTITIONED
+  RANGE_PARTITIONED,
+
+  // partition on a list of exprs by the bucket of an olap table:
+  // bucket = crc32(exprs) % number of destinations, and the i-th destination receives bucket i
+  BUCKET_SHUFFLE_HASH_PARTITIONED
 }
 
 enum TDistributionType {
@@ -212,4 +212,17 @@ do
     fi
 done
 echo "===== Checking all java libraries...done"
+
+# java libraries of fe benchmarks are kept out of TP_JAR_DIR,
+# so that they are not shipped with fe
+mkdir -p $TP_BENCHMARK_JAR_DIR
+
+echo "===== Downloading benchmark java libraries..."
+for TP_JAR in ${TP_BENCHMARK_JARS[*]}
+do
+    URL=$TP_JAR"_DOWNLOAD"
+    NAME=$TP_JAR"_NAME"
+    download ${!NAME} ${!URL} $TP_BENCHMARK_JAR_DIR
+done
+echo "===== Downloading benchmark java libraries...done"
 echo "===== Finish downloading all thirdparties"
@@ -49,6 +49,10 @@ export TP_LIB_DIR=$TP_INSTALL_DIR/lib
 # all java libraries will be unpacked to here
 export TP_JAR_DIR=$TP_INSTALL_DIR/lib/jar
 
+# java libraries only used by fe benchmarks will be downloaded to here.
+# they are not shipped with fe.
+export TP_BENCHMARK_JAR_DIR=$TP_INSTALL_DIR/benchmark-jar
+
 #####################################################
 # Download url, filename and unpaced filename
 # of all thirdparties
@@ -171,3 +175,19 @@ BOOST_FOR_MYSQL_SOURCE=boost_1_59_0
 
 # all thirdparties which need to be downloaded is set in array TP_ARCHIVES
 export TP_ARCHIVES=(LIBEVENT OPENSSL THRIFT LLVM CLANG COMPILER_RT PROTOBUF GFLAGS GLOG GTEST RAPIDJSON SNAPPY GPERFTOOLS ZLIB LZ4 BZIP LZO2 NCURSES CURL RE2 BOOST MYSQL BOOST_FOR_MYSQL)
+
+# jmh, only used by fe benchmarks
+JMH_CORE_DOWNLOAD="https://repo1.maven.org/maven2/org/openjdk/jmh/jmh-core/1.19/jmh-core-1.19.jar"
+JMH_CORE_NAME=jmh-core-1.19.jar
+
+JMH_GENERATOR_ANNPROCESS_DOWNLOAD="https://repo1.maven.org/maven2/org/openjdk/jmh/jmh-generator-annprocess/1.19/jmh-generator-annprocess-1.19.jar"
+JMH_GENERATOR_ANNPROCESS_NAME=jmh-generator-annprocess-1.19.jar
+
+JOPT_SIMPLE_DOWNLOAD="https://repo1.maven.org/maven2/net/sf/jopt-simple/jopt-simple/4.6/jopt-simple-4.6.jar"
+JOPT_SIMPLE_NAME=jopt-simple-4.6.jar
+
+COMMONS_MATH3_DOWNLOAD="https://repo1.maven.org/maven2/org/apache/commons/commons-math3/3.2/commons-math3-3.2.jar"
+COMMONS_MATH3_NAME=commons-math3-3.2.jar
+
+# all java libraries of fe benchmarks which need to be downloaded is set in array TP_BENCHMARK_JARS
+export TP_BENCHMARK_JARS=(JMH_CORE JMH_GENERATOR_ANNPROCESS JOPT_SIMPLE COMMONS_MATH3)